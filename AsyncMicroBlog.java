@@ -0,0 +1,213 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import javax.naming.LimitExceededException;
+
+// implementazione di AsyncSocialNetwork che esegue le operazioni di un MicroBlog su un Executor fornito dall'utente
+// Le letture vengono eseguite in parallelo tra loro (con un lock di lettura condiviso). Le scritture vengono accodate e
+// applicate a gruppi: un solo task alla volta preleva tutte le scritture in attesa (fino a MAX_BATCH_SIZE) e le applica
+// con un'unica acquisizione del lock di scrittura, per cui una raffica di likePost costa un solo passo di applicazione.
+// Le scritture vengono applicate nell'ordine in cui sono state richieste; una lettura richiesta dopo il completamento del
+// future di una scrittura ne osserva l'effetto.
+public class AsyncMicroBlog implements AsyncSocialNetwork {
+    // numero massimo di scritture applicate con un'unica acquisizione del lock di scrittura
+    private static final int MAX_BATCH_SIZE = 1024;
+
+    private final MicroBlog network;
+    private final Executor executor;
+    private final ReadWriteLock lock;
+
+    // scritture in attesa di essere applicate
+    private final Queue<PendingWrite<?>> writes;
+
+    // true se un task di applicazione delle scritture è stato affidato all'executor e non è ancora terminato
+    private final AtomicBoolean draining;
+
+    /*
+        Representation invariant:
+        this.network ≠ null ∧ this.executor ≠ null ∧ this.lock ≠ null ∧ this.writes ≠ null ∧ this.draining ≠ null ∧
+        (¬this.writes.isEmpty() ⇒ this.draining.get() ∨ è in corso una chiamata a write() o drain())
+    */
+
+    // REQUIRES: network ≠ null
+    // THROWS: NullPointerException se network è null (unchecked exception)
+    // EFFECTS: crea una vista asincrona di network che esegue le operazioni sul ForkJoinPool comune
+    public AsyncMicroBlog(MicroBlog network) throws NullPointerException {
+        this(network, ForkJoinPool.commonPool());
+    }
+
+    // REQUIRES: network ≠ null ∧ executor ≠ null
+    // THROWS: NullPointerException se network è null ∨ executor è null (unchecked exception)
+    // EFFECTS: crea una vista asincrona di network che esegue le operazioni su executor
+    //          network non deve essere usato direttamente finché sono in corso operazioni asincrone
+    public AsyncMicroBlog(MicroBlog network, Executor executor) throws NullPointerException {
+        if(network == null || executor == null) {
+            throw new NullPointerException();
+        }
+
+        this.network = network;
+        this.executor = executor;
+        this.lock = new ReentrantReadWriteLock();
+        this.writes = new ConcurrentLinkedQueue<PendingWrite<?>>();
+        this.draining = new AtomicBoolean(false);
+    }
+
+    public CompletableFuture<List<String>> influencers() {
+        return this.read(this.network::influencers);
+    }
+
+    public CompletableFuture<Set<String>> getMentionedUsers() {
+        return this.read(this.network::getMentionedUsers);
+    }
+
+    public CompletableFuture<List<Post>> writtenBy(String username) {
+        return this.read(() -> this.network.writtenBy(username));
+    }
+
+    public CompletableFuture<List<Post>> containing(List<String> words) {
+        return this.read(() -> this.network.containing(words));
+    }
+
+    public CompletableFuture<List<Post>> sortByRelevance(List<String> searchWords) {
+        return this.read(() -> this.network.sortByRelevance(searchWords));
+    }
+
+    public CompletableFuture<Map<String, Set<String>>> getFollowRelations() {
+        return this.read(this.network::getFollowRelations);
+    }
+
+    public CompletableFuture<Post> getPost(int id) {
+        return this.read(() -> this.network.getPost(id));
+    }
+
+    public CompletableFuture<Integer> createPost(String author, String text) {
+        return this.write(() -> this.network.createPost(author, text));
+    }
+
+    public CompletableFuture<Boolean> likePost(int postId, String likedByUser) {
+        return this.write(() -> this.network.likePost(postId, likedByUser));
+    }
+
+    public CompletableFuture<Boolean> unlikePost(int postId, String unlikedByUser) {
+        return this.write(() -> this.network.unlikePost(postId, unlikedByUser));
+    }
+
+    // operazione sulla rete che può sollevare l'eccezione checked di createPost
+    private interface NetworkCall<T> {
+        T call() throws LimitExceededException;
+    }
+
+    // scrittura in attesa, con il future da completare una volta applicata
+    private static class PendingWrite<T> {
+        private final NetworkCall<T> call;
+        private final CompletableFuture<T> future;
+        private T result;
+        private Exception failure;
+
+        private PendingWrite(NetworkCall<T> call) {
+            this.call = call;
+            this.future = new CompletableFuture<T>();
+        }
+
+        // REQUIRES: il thread corrente possiede il lock di scrittura della rete
+        // EFFECTS: applica la scrittura e ne memorizza l'esito
+        private void apply() {
+            try {
+                this.result = this.call.call();
+            } catch(Exception exc) {
+                this.failure = exc;
+            }
+        }
+
+        // EFFECTS: completa il future con l'esito memorizzato da apply()
+        private void complete() {
+            if(this.failure != null) {
+                this.future.completeExceptionally(this.failure);
+            } else {
+                this.future.complete(this.result);
+            }
+        }
+    }
+
+    // EFFECTS: esegue call sull'executor con il lock di lettura e restituisce il future del risultato
+    private <T> CompletableFuture<T> read(NetworkCall<T> call) {
+        CompletableFuture<T> future = new CompletableFuture<T>();
+        this.executor.execute(() -> {
+            T result;
+            this.lock.readLock().lock();
+            try {
+                result = call.call();
+            } catch(Exception exc) {
+                future.completeExceptionally(exc);
+                return;
+            } finally {
+                this.lock.readLock().unlock();
+            }
+            future.complete(result); // i callback dipendenti vengono eseguiti senza possedere il lock
+        });
+        return future;
+    }
+
+    // EFFECTS: accoda call tra le scritture da applicare e restituisce il future del risultato
+    private <T> CompletableFuture<T> write(NetworkCall<T> call) {
+        PendingWrite<T> write = new PendingWrite<T>(call);
+        this.writes.add(write);
+        this.scheduleDrain();
+        return write.future;
+    }
+
+    // EFFECTS: se nessun task di applicazione è in corso, ne affida uno all'executor; se l'executor lo rifiuta, le scritture
+    //          in attesa non verrebbero più applicate, per cui vengono tolte dalla coda e i loro future vengono completati con
+    //          la RejectedExecutionException (che non viene sollevata al chiamante, che può trovarsi in un task di drain())
+    private void scheduleDrain() {
+        while(this.draining.compareAndSet(false, true)) {
+            try {
+                this.executor.execute(this::drain);
+                return;
+            } catch(RejectedExecutionException exc) {
+                for(PendingWrite<?> write = this.writes.poll(); write != null; write = this.writes.poll()) {
+                    write.future.completeExceptionally(exc);
+                }
+                this.draining.set(false);
+                if(this.writes.isEmpty()) { // altrimenti una scrittura è stata accodata dopo l'ultimo poll: ritento
+                    return;
+                }
+            }
+        }
+    }
+
+    // EFFECTS: applica un gruppo di scritture in attesa con un'unica acquisizione del lock di scrittura, ne completa i future
+    //          e, se nel frattempo sono state accodate altre scritture, programma un nuovo task
+    private void drain() {
+        List<PendingWrite<?>> batch = new ArrayList<PendingWrite<?>>();
+        this.lock.writeLock().lock();
+        try {
+            for(PendingWrite<?> write = this.writes.poll(); write != null; write = batch.size() < MAX_BATCH_SIZE ? this.writes.poll() : null) {
+                write.apply();
+                batch.add(write);
+            }
+        } finally {
+            this.lock.writeLock().unlock();
+        }
+
+        for(PendingWrite<?> write : batch) {
+            write.complete();
+        }
+
+        // rilascio il ruolo di applicatore e lo riprendo se una scrittura è stata accodata dopo l'ultimo poll
+        this.draining.set(false);
+        if(!this.writes.isEmpty()) {
+            this.scheduleDrain();
+        }
+    }
+}
@@ -0,0 +1,43 @@
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+
+// controparte asincrona di SocialNetwork (e delle operazioni di scrittura di MicroBlog): ogni metodo restituisce subito
+// un CompletableFuture che viene completato con il risultato dell'operazione corrispondente, o in modo eccezionale con
+// l'eccezione che questa avrebbe sollevato (le stesse elencate nelle clausole THROWS dei metodi sincroni)
+// Più letture possono essere composte ed eseguite in parallelo, es. writtenBy(u).thenCombine(influencers(), ...)
+public interface AsyncSocialNetwork {
+    // EFFECTS: come SocialNetwork.influencers()
+    public CompletableFuture<List<String>> influencers();
+
+    // EFFECTS: come SocialNetwork.getMentionedUsers()
+    public CompletableFuture<Set<String>> getMentionedUsers();
+
+    // EFFECTS: come SocialNetwork.writtenBy()
+    public CompletableFuture<List<Post>> writtenBy(String username);
+
+    // EFFECTS: come SocialNetwork.containing()
+    public CompletableFuture<List<Post>> containing(List<String> words);
+
+    // EFFECTS: come MicroBlog.sortByRelevance()
+    public CompletableFuture<List<Post>> sortByRelevance(List<String> searchWords);
+
+    // EFFECTS: come MicroBlog.getFollowRelations()
+    public CompletableFuture<Map<String, Set<String>>> getFollowRelations();
+
+    // EFFECTS: come MicroBlog.getPost()
+    public CompletableFuture<Post> getPost(int id);
+
+    // MODIFIES: this
+    // EFFECTS: come MicroBlog.createPost()
+    public CompletableFuture<Integer> createPost(String author, String text);
+
+    // MODIFIES: this
+    // EFFECTS: come MicroBlog.likePost()
+    public CompletableFuture<Boolean> likePost(int postId, String likedByUser);
+
+    // MODIFIES: this
+    // EFFECTS: come MicroBlog.unlikePost()
+    public CompletableFuture<Boolean> unlikePost(int postId, String unlikedByUser);
+}
@@ -0,0 +1,80 @@
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// pubblico dei post e degli autori di un MicroBlog come insiemi compressi (RoaringBitmap) di id utente densi: per ogni post
+// gli utenti che vi hanno messo like, per ogni autore i suoi follower
+// I post virali e gli autori popolari hanno insiemi grandi e densi, su cui domande come "chi ha messo like sia a X sia a Y"
+// o "quali follower hanno in comune A e B" si riducono a intersezioni tra bitmap, 64 utenti alla volta.
+public class AudienceIndex implements MicroBlogIndex {
+    private final UserDictionary users;
+
+    // id del post ↦ id degli utenti che vi hanno messo like
+    private final Map<Integer, RoaringBitmap> likers;
+
+    // autore ↦ id dei suoi follower
+    private final Map<String, RoaringBitmap> followers;
+
+    /*
+        Representation invariant:
+        this.users ≠ null ∧ this.likers ≠ null ∧ this.followers ≠ null ∧
+        (∀ (k, v) ∈ this.likers . v ≠ null ∧ ¬v.isEmpty() ∧ ∀ u ∈ v . this.users.getName(u) ha messo like al post con id k) ∧
+        (∀ (k, v) ∈ this.followers . v ≠ null ∧ ¬v.isEmpty() ∧ ∀ u ∈ v . this.users.getName(u) segue k)
+    */
+
+    public AudienceIndex() {
+        this.users = new UserDictionary();
+        this.likers = new HashMap<Integer, RoaringBitmap>();
+        this.followers = new HashMap<String, RoaringBitmap>();
+    }
+
+    public void apply(MicroBlogEvent event) {
+        switch(event.getType()) {
+            case LIKE_ADDED:
+                this.likers.computeIfAbsent(event.getPostId(), k -> new RoaringBitmap()).add(this.users.getOrAdd(event.getUser()));
+                break;
+            case LIKE_REMOVED:
+                AudienceIndex.remove(this.likers, event.getPostId(), this.users.getId(event.getUser()));
+                break;
+            case FOLLOW_ADDED:
+                this.followers.computeIfAbsent(event.getAuthor(), k -> new RoaringBitmap()).add(this.users.getOrAdd(event.getUser()));
+                break;
+            case FOLLOW_REMOVED:
+                AudienceIndex.remove(this.followers, event.getAuthor(), this.users.getId(event.getUser()));
+                break;
+            default: // i post e i loro testi non modificano l'indice
+        }
+    }
+
+    // EFFECTS: restituisce gli utenti che hanno messo like a entrambi i post con id first e second, in ordine di id utente
+    public List<String> likedBoth(int first, int second) {
+        return this.names(AudienceIndex.intersect(this.likers.get(first), this.likers.get(second)));
+    }
+
+    // EFFECTS: restituisce gli utenti che seguono sia first sia second, in ordine di id utente
+    public List<String> commonFollowers(String first, String second) {
+        return this.names(AudienceIndex.intersect(this.followers.get(first), this.followers.get(second)));
+    }
+
+    // EFFECTS: restituisce l'intersezione di a e b, dove null rappresenta l'insieme vuoto
+    private static RoaringBitmap intersect(RoaringBitmap a, RoaringBitmap b) {
+        return a == null || b == null ? new RoaringBitmap() : a.and(b);
+    }
+
+    // EFFECTS: restituisce i nomi degli utenti con id in ids, in ordine di id
+    private List<String> names(RoaringBitmap ids) {
+        List<String> names = new ArrayList<String>(ids.getCardinality());
+        ids.forEach(id -> names.add(this.users.getName(id)));
+        return names;
+    }
+
+    // MODIFIES: sets
+    // EFFECTS: rimuove user dall'insieme associato a key in sets, eliminando l'insieme se diventa vuoto
+    private static <K> void remove(Map<K, RoaringBitmap> sets, K key, int user) {
+        RoaringBitmap set = sets.get(key);
+        if(set != null && set.remove(user) && set.isEmpty()) {
+            sets.remove(key);
+        }
+    }
+}
@@ -0,0 +1,105 @@
+// filtro di Bloom su stringhe: rappresenta un insieme in poco spazio rispondendo "forse presente" o "sicuramente assente"
+// Le chiavi non possono essere rimosse; la probabilità di un falso positivo cresce con il numero di chiavi inserite e
+// rimane vicina a quella richiesta finché non si supera la capacità prevista alla creazione.
+// Le k posizioni di una chiave sono ottenute per doppio hashing (h1 + i * h2) da un unico hash a 64 bit.
+public class BloomFilter {
+    private final long[] bits;
+    private final int numBits;
+    private final int numHashes;
+    private int insertions;
+
+    /*
+        Representation invariant:
+        this.bits ≠ null ∧ this.numBits > 0 ∧ this.bits.length = ⌈this.numBits / 64⌉ ∧ this.numHashes > 0 ∧ this.insertions ≥ 0
+    */
+
+    // REQUIRES: expectedInsertions ≥ 0 ∧ 0 < falsePositiveRate < 1
+    // THROWS: IllegalArgumentException se expectedInsertions < 0 ∨ falsePositiveRate ∉ (0, 1) (unchecked exception)
+    // EFFECTS: crea un filtro vuoto dimensionato perché, dopo expectedInsertions inserimenti, la probabilità di un falso
+    //          positivo sia circa falsePositiveRate
+    public BloomFilter(int expectedInsertions, double falsePositiveRate) throws IllegalArgumentException {
+        if(expectedInsertions < 0 || !(falsePositiveRate > 0 && falsePositiveRate < 1)) {
+            throw new IllegalArgumentException();
+        }
+
+        // dimensionamento ottimo: m = -n ln p / (ln 2)², k = m / n ln 2
+        int n = Math.max(1, expectedInsertions);
+        long m = (long) Math.ceil(-n * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+        this.numBits = (int) Math.max(64, Math.min(m, Integer.MAX_VALUE - 63));
+        this.numHashes = Math.max(1, (int) Math.round((double) this.numBits / n * Math.log(2)));
+        this.bits = new long[(this.numBits + 63) / 64];
+        this.insertions = 0;
+    }
+
+    // REQUIRES: key ≠ null
+    // THROWS: NullPointerException se key è null (unchecked exception)
+    // MODIFIES: this
+    // EFFECTS: aggiunge key al filtro; restituisce true se key sicuramente non era presente (e viene quindi contata tra gli
+    //          inserimenti), false se poteva esserlo già, così che le chiavi ripetute non riempiano il filtro
+    public boolean add(String key) throws NullPointerException {
+        long hash = BloomFilter.hash(key);
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        boolean added = false;
+        for(int i = 0; i < this.numHashes; i++) {
+            int bit = ((h1 + i * h2) & Integer.MAX_VALUE) % this.numBits;
+            long mask = 1L << bit;
+            if((this.bits[bit >>> 6] & mask) == 0) {
+                this.bits[bit >>> 6] |= mask;
+                added = true;
+            }
+        }
+        if(added) {
+            this.insertions++;
+        }
+        return added;
+    }
+
+    // REQUIRES: key ≠ null
+    // THROWS: NullPointerException se key è null (unchecked exception)
+    // EFFECTS: restituisce false se key sicuramente non è stata aggiunta al filtro, true se potrebbe esserlo
+    public boolean mightContain(String key) throws NullPointerException {
+        long hash = BloomFilter.hash(key);
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        for(int i = 0; i < this.numHashes; i++) {
+            int bit = ((h1 + i * h2) & Integer.MAX_VALUE) % this.numBits;
+            if((this.bits[bit >>> 6] & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // EFFECTS: restituisce il numero di chiavi aggiunte che non erano già presenti nel filtro (le ripetizioni e i falsi
+    //          positivi non vengono contati)
+    public int getInsertions() {
+        return this.insertions;
+    }
+
+    // EFFECTS: restituisce il numero di bit del filtro
+    public int getNumberOfBits() {
+        return this.numBits;
+    }
+
+    // EFFECTS: restituisce la probabilità stimata di un falso positivo con il numero attuale di inserimenti,
+    //          ovvero (1 - e^(-k n / m))^k
+    public double getExpectedFalsePositiveRate() {
+        return Math.pow(1 - Math.exp(-(double) this.numHashes * this.insertions / this.numBits), this.numHashes);
+    }
+
+    // EFFECTS: restituisce un hash a 64 bit di key (FNV-1a sui caratteri, seguito dal mescolamento finale di MurmurHash3)
+    private static long hash(String key) {
+        long hash = 0xcbf29ce484222325L;
+        for(int i = 0; i < key.length(); i++) {
+            hash ^= key.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
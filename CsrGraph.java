@@ -0,0 +1,126 @@
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+// grafo orientato immutabile in formato CSR (compressed sparse row): i vertici sono gli interi 0..n-1 e gli archi uscenti
+// dal vertice v sono targets[offsets[v]], ..., targets[offsets[v + 1] - 1]
+// Rispetto a una map di insiemi occupa due soli array di interi e permette di scorrere i vicini di un vertice in modo
+// sequenziale in memoria, per cui è adatto agli algoritmi iterativi su grafi grandi (es. InfluenceRanker)
+public class CsrGraph {
+    private final int[] offsets;
+    private final int[] targets;
+
+    /*
+        Representation invariant:
+        this.offsets ≠ null ∧ this.targets ≠ null ∧ this.offsets.length ≥ 1 ∧ this.offsets[0] = 0 ∧
+        this.offsets[this.offsets.length - 1] = this.targets.length ∧
+        (∀ v . 0 ≤ v < this.offsets.length - 1 ⇒ this.offsets[v] ≤ this.offsets[v + 1]) ∧
+        (∀ i . 0 ≤ i < this.targets.length ⇒ 0 ≤ this.targets[i] < this.offsets.length - 1)
+    */
+
+    // REQUIRES: offsets e targets rispettano l'invariante di rappresentazione
+    // THROWS: NullPointerException se offsets è null ∨ targets è null (unchecked exception),
+    //         IllegalArgumentException se offsets e targets non descrivono un grafo CSR valido (unchecked exception)
+    // EFFECTS: crea il grafo descritto da offsets e targets, che vengono acquisiti senza copia e non devono essere modificati
+    public CsrGraph(int[] offsets, int[] targets) throws NullPointerException, IllegalArgumentException {
+        if(offsets == null || targets == null) {
+            throw new NullPointerException();
+        }
+        if(offsets.length == 0 || offsets[0] != 0 || offsets[offsets.length - 1] != targets.length) {
+            throw new IllegalArgumentException();
+        }
+        int n = offsets.length - 1;
+        for(int v = 0; v < n; v++) {
+            if(offsets[v] > offsets[v + 1]) {
+                throw new IllegalArgumentException();
+            }
+        }
+        for(int target : targets) {
+            if(target < 0 || target >= n) {
+                throw new IllegalArgumentException();
+            }
+        }
+
+        this.offsets = offsets;
+        this.targets = targets;
+    }
+
+    // REQUIRES: adjacency ≠ null ∧ ∀ i . adjacency.get(i) ≠ null ∧ ∀ w ∈ adjacency.get(i) . 0 ≤ w < adjacency.size()
+    // THROWS: NullPointerException se adjacency o uno dei suoi elementi è null (unchecked exception),
+    //         IllegalArgumentException se un vicino non è un vertice valido (unchecked exception)
+    // EFFECTS: restituisce il grafo con adjacency.size() vertici in cui i vicini di v sono gli elementi di adjacency.get(v),
+    //          in ordine crescente
+    public static CsrGraph fromAdjacency(List<? extends Collection<Integer>> adjacency) throws NullPointerException, IllegalArgumentException {
+        int n = adjacency.size();
+        int[] offsets = new int[n + 1];
+        for(int v = 0; v < n; v++) {
+            offsets[v + 1] = offsets[v] + adjacency.get(v).size();
+        }
+
+        int[] targets = new int[offsets[n]];
+        for(int v = 0; v < n; v++) {
+            int i = offsets[v];
+            for(int w : adjacency.get(v)) {
+                targets[i++] = w;
+            }
+            Arrays.sort(targets, offsets[v], offsets[v + 1]);
+        }
+        return new CsrGraph(offsets, targets);
+    }
+
+    // EFFECTS: restituisce il numero di vertici
+    public int getNumberOfVertices() {
+        return this.offsets.length - 1;
+    }
+
+    // EFFECTS: restituisce il numero di archi
+    public int getNumberOfEdges() {
+        return this.targets.length;
+    }
+
+    // REQUIRES: 0 ≤ v ≤ this.getNumberOfVertices()
+    // EFFECTS: restituisce la posizione del primo arco uscente da v (per v = getNumberOfVertices(), il numero di archi)
+    public int getOffset(int v) {
+        return this.offsets[v];
+    }
+
+    // REQUIRES: 0 ≤ i < this.getNumberOfEdges()
+    // EFFECTS: restituisce il vertice di arrivo dell'arco in posizione i
+    public int getTarget(int i) {
+        return this.targets[i];
+    }
+
+    // REQUIRES: 0 ≤ v < this.getNumberOfVertices()
+    // EFFECTS: restituisce il numero di archi uscenti da v
+    public int getDegree(int v) {
+        return this.offsets[v + 1] - this.offsets[v];
+    }
+
+    // REQUIRES: 0 ≤ v < this.getNumberOfVertices()
+    // EFFECTS: restituisce una copia dei vicini di v, in ordine crescente se il grafo è stato creato con fromAdjacency o transpose
+    public int[] getNeighbors(int v) {
+        return Arrays.copyOfRange(this.targets, this.offsets[v], this.offsets[v + 1]);
+    }
+
+    // EFFECTS: restituisce il grafo trasposto, con gli stessi vertici e ogni arco invertito
+    public CsrGraph transpose() {
+        int n = this.getNumberOfVertices();
+        int[] offsets = new int[n + 1];
+        for(int target : this.targets) {
+            offsets[target + 1]++;
+        }
+        for(int v = 0; v < n; v++) {
+            offsets[v + 1] += offsets[v];
+        }
+
+        // scorrendo le sorgenti in ordine crescente, i vicini di ogni vertice del trasposto risultano ordinati
+        int[] next = Arrays.copyOf(offsets, n);
+        int[] targets = new int[this.targets.length];
+        for(int v = 0; v < n; v++) {
+            for(int i = this.offsets[v]; i < this.offsets[v + 1]; i++) {
+                targets[next[this.targets[i]]++] = v;
+            }
+        }
+        return new CsrGraph(offsets, targets);
+    }
+}
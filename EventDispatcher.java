@@ -0,0 +1,137 @@
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.LinkedBlockingQueue;
+
+// consegna asincrona e a gruppi degli eventi di un MicroBlog ai listener registrati
+// Il thread di consegna viene avviato solo alla registrazione del primo listener, per cui le reti senza osservatori
+// (es. quelle create temporaneamente da guessFollowers) non pagano alcun costo, e viene arrestato da shutdown().
+// Le eccezioni sollevate dai listener non interrompono la consegna: l'ultima viene conservata e restituita da getFailure().
+public class EventDispatcher {
+    // numero massimo di eventi consegnati in un'unica chiamata a onEvents
+    private static final int MAX_BATCH_SIZE = 512;
+
+    private final List<MicroBlogListener> listeners;
+    private final BlockingQueue<MicroBlogEvent> queue;
+    private Thread worker;
+
+    // true dopo shutdown(): nessun evento viene più accodato né consegnato
+    private volatile boolean stopped;
+
+    // ultima eccezione sollevata da un listener, o null se non ce ne sono state
+    private volatile RuntimeException failure;
+
+    /*
+        Representation invariant:
+        this.listeners ≠ null ∧ this.queue ≠ null ∧ (∀ l ∈ this.listeners . l ≠ null) ∧
+        (this.worker = null ∧ ¬this.stopped ⇒ this.queue.isEmpty())
+    */
+
+    public EventDispatcher() {
+        this.listeners = new CopyOnWriteArrayList<MicroBlogListener>();
+        this.queue = new LinkedBlockingQueue<MicroBlogEvent>();
+        this.worker = null;
+        this.stopped = false;
+        this.failure = null;
+    }
+
+    // REQUIRES: listener ≠ null
+    // THROWS: NullPointerException se listener è null (unchecked exception)
+    // MODIFIES: this
+    // EFFECTS: registra listener, che riceverà tutti gli eventi pubblicati da questo momento in poi (nessuno, se è già
+    //          stato chiamato shutdown())
+    public synchronized void addListener(MicroBlogListener listener) throws NullPointerException {
+        if(listener == null) {
+            throw new NullPointerException();
+        }
+
+        this.listeners.add(listener);
+        if(this.worker == null && !this.stopped) {
+            this.worker = new Thread(this::deliverLoop, "MicroBlog-events");
+            this.worker.setDaemon(true); // il thread non deve impedire la terminazione della JVM
+            this.worker.start();
+        }
+    }
+
+    // MODIFIES: this
+    // EFFECTS: rimuove listener, se registrato; gli eventi già accodati potrebbero comunque essergli consegnati
+    public void removeListener(MicroBlogListener listener) {
+        this.listeners.remove(listener);
+    }
+
+    // EFFECTS: restituisce true se e solo se c'è almeno un listener registrato e la consegna non è stata arrestata
+    public boolean hasListeners() {
+        return !this.stopped && !this.listeners.isEmpty();
+    }
+
+    // EFFECTS: restituisce l'ultima eccezione sollevata da un listener, o null se non ce ne sono state
+    public RuntimeException getFailure() {
+        return this.failure;
+    }
+
+    // REQUIRES: event ≠ null
+    // MODIFIES: this
+    // EFFECTS: accoda event per la consegna asincrona; se non ci sono listener o la consegna è stata arrestata l'evento
+    //          viene scartato
+    public void publish(MicroBlogEvent event) {
+        if(this.hasListeners()) {
+            this.queue.add(event);
+        }
+    }
+
+    // MODIFIES: this
+    // EFFECTS: arresta il thread di consegna, attendendone la terminazione se non è il thread corrente; gli eventi ancora in
+    //          coda e quelli pubblicati in seguito non vengono consegnati
+    public void shutdown() {
+        Thread worker;
+        synchronized(this) {
+            this.stopped = true;
+            worker = this.worker;
+            this.worker = null;
+        }
+        if(worker == null) {
+            return;
+        }
+
+        worker.interrupt();
+        if(worker != Thread.currentThread()) { // un listener può arrestare la consegna dal thread stesso
+            try {
+                worker.join();
+            } catch(InterruptedException exc) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        this.queue.clear();
+    }
+
+    // EFFECTS: preleva gli eventi dalla coda e li consegna ai listener, raggruppando tutti quelli disponibili
+    //          (fino a MAX_BATCH_SIZE) in un'unica chiamata
+    private void deliverLoop() {
+        List<MicroBlogEvent> batch = new ArrayList<MicroBlogEvent>(MAX_BATCH_SIZE);
+        while(!this.stopped) {
+            try {
+                batch.add(this.queue.take()); // attendo il primo evento, poi prelevo senza attendere quelli già accodati
+                this.queue.drainTo(batch, MAX_BATCH_SIZE - 1);
+            } catch(InterruptedException exc) {
+                return;
+            }
+
+            // ogni listener riceve la stessa lista immutabile, che può conservare anche dopo la consegna
+            List<MicroBlogEvent> delivered = Collections.unmodifiableList(new ArrayList<MicroBlogEvent>(batch));
+            for(MicroBlogListener listener : this.listeners) {
+                if(this.stopped) {
+                    return;
+                }
+                try {
+                    listener.onEvents(delivered);
+                } catch(RuntimeException exc) {
+                    // un listener difettoso non deve impedire la consegna agli altri né fermare il thread
+                    this.failure = exc;
+                }
+            }
+            batch.clear();
+        }
+    }
+}
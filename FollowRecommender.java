@@ -0,0 +1,298 @@
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+// suggerimenti "chi seguire" per gli utenti di un MicroBlog, mantenuti a partire dagli eventi della rete
+// I candidati per un utente sono gli autori seguiti dagli utenti che segue (amici di amici, raggiunti con una visita in
+// ampiezza limitata a MAX_DEPTH livelli e MAX_VISITED utenti) e gli autori che hanno messo like agli stessi post (co-liker).
+// Un candidato vale tanto più quanti più like ha in comune con l'utente e, a parità, quanti più utenti seguiti dall'utente
+// lo seguono. I suggerimenti di ogni utente vengono calcolati alla prima richiesta e memorizzati; un evento invalida solo i
+// suggerimenti degli utenti di cui modifica i candidati (es. un nuovo follow di u invalida u e i follower di u).
+public class FollowRecommender implements MicroBlogIndex {
+    // numero di livelli della visita del grafo dei follow (2 = amici di amici)
+    private static final int MAX_DEPTH = 2;
+
+    // numero massimo di utenti visitati dalla visita in ampiezza per una singola richiesta
+    private static final int MAX_VISITED = 10000;
+
+    // numero massimo di like esaminati per la ricerca dei co-liker in una singola richiesta
+    private static final int MAX_SCANNED_LIKES = 100000;
+
+    // numero di suggerimenti memorizzati per ogni utente; le richieste di più suggerimenti non usano la cache
+    private static final int CACHE_SIZE = 32;
+
+    // candidato durante il calcolo dei suggerimenti di un utente
+    private static class Candidate {
+        private final int id;
+        private int sharedLikes; // post a cui sia l'utente sia il candidato hanno messo like
+        private int connections; // utenti seguiti dall'utente che seguono il candidato
+
+        private Candidate(int id) {
+            this.id = id;
+            this.sharedLikes = 0;
+            this.connections = 0;
+        }
+    }
+
+    private final UserDictionary users;
+
+    // per ogni id utente: id degli utenti seguiti, id dei follower, id dei post a cui ha messo like (null se vuoti)
+    private final List<Set<Integer>> following;
+    private final List<Set<Integer>> followers;
+    private final List<Set<Integer>> likedPosts;
+
+    // id del post ↦ id degli utenti che vi hanno messo like
+    private final Map<Integer, Set<Integer>> likers;
+
+    // id degli utenti autori di almeno un post, gli unici che è possibile seguire
+    private final BitSet authors;
+
+    // id utente ↦ i suoi primi CACHE_SIZE suggerimenti
+    private final Map<Integer, List<String>> cache;
+
+    // ordine dei candidati dal migliore al peggiore
+    private final Comparator<Candidate> order;
+
+    /*
+        Representation invariant:
+        this.users ≠ null ∧ this.following ≠ null ∧ this.followers ≠ null ∧ this.likedPosts ≠ null ∧ this.likers ≠ null ∧
+        this.authors ≠ null ∧ this.cache ≠ null ∧ this.order ≠ null ∧
+        this.following.size() = this.followers.size() = this.likedPosts.size() = this.users.size() ∧
+        (∀ u, v . v ∈ this.following.get(u) ⟺ u ∈ this.followers.get(v)) ∧
+        (∀ u, p . p ∈ this.likedPosts.get(u) ⟺ u ∈ this.likers.get(p)) ∧
+        (∀ (u, l) ∈ this.cache . l sono i primi CACHE_SIZE suggerimenti di u nello stato attuale)
+    */
+
+    public FollowRecommender() {
+        this.users = new UserDictionary();
+        this.following = new ArrayList<Set<Integer>>();
+        this.followers = new ArrayList<Set<Integer>>();
+        this.likedPosts = new ArrayList<Set<Integer>>();
+        this.likers = new HashMap<Integer, Set<Integer>>();
+        this.authors = new BitSet();
+        this.cache = new HashMap<Integer, List<String>>();
+        this.order = Comparator.<Candidate>comparingInt(c -> -c.sharedLikes)
+                               .thenComparingInt(c -> -c.connections)
+                               .thenComparing(c -> this.users.getName(c.id));
+    }
+
+    public synchronized void apply(MicroBlogEvent event) {
+        switch(event.getType()) {
+            case POST_CREATED: {
+                int author = this.user(event.getAuthor());
+                if(!this.authors.get(author)) {
+                    // il nuovo autore diventa un candidato per chi ha messo like agli stessi post
+                    this.authors.set(author);
+                    this.invalidateCoLikers(author);
+                }
+                break;
+            }
+            case LIKE_ADDED:
+            case LIKE_REMOVED: {
+                int user = this.user(event.getUser());
+                int postId = event.getPostId();
+                Set<Integer> postLikers = this.likers.get(postId);
+                if(event.getType() == MicroBlogEvent.Type.LIKE_ADDED) {
+                    if(postLikers == null) {
+                        postLikers = new HashSet<Integer>();
+                        this.likers.put(postId, postLikers);
+                    }
+                    postLikers.add(user);
+                    FollowRecommender.add(this.likedPosts, user, postId);
+                } else if(postLikers != null) {
+                    postLikers.remove(user);
+                    if(postLikers.isEmpty()) {
+                        this.likers.remove(postId);
+                    }
+                    FollowRecommender.remove(this.likedPosts, user, postId);
+                }
+
+                // cambiano i like in comune tra user e chi ha messo like al post
+                this.cache.remove(user);
+                if(postLikers != null) {
+                    this.cache.keySet().removeAll(postLikers);
+                }
+                break;
+            }
+            case FOLLOW_ADDED:
+            case FOLLOW_REMOVED: {
+                int follower = this.user(event.getUser());
+                int followed = this.user(event.getAuthor());
+                if(event.getType() == MicroBlogEvent.Type.FOLLOW_ADDED) {
+                    FollowRecommender.add(this.following, follower, followed);
+                    FollowRecommender.add(this.followers, followed, follower);
+                } else {
+                    FollowRecommender.remove(this.following, follower, followed);
+                    FollowRecommender.remove(this.followers, followed, follower);
+                }
+
+                // cambiano gli utenti seguiti da follower e gli amici di amici dei suoi follower
+                this.cache.remove(follower);
+                Set<Integer> followersOfFollower = this.followers.get(follower);
+                if(followersOfFollower != null) {
+                    this.cache.keySet().removeAll(followersOfFollower);
+                }
+                break;
+            }
+            default: // la modifica del testo dei post non modifica i suggerimenti
+        }
+    }
+
+    // REQUIRES: user ≠ null ∧ k ≥ 0
+    // THROWS: NullPointerException se user è null (unchecked exception),
+    //         IllegalArgumentException se k < 0 (unchecked exception)
+    // EFFECTS: restituisce al più k autori che user non segue e che potrebbe voler seguire, dal più consigliato; la lista è
+    //          vuota se user non ha mai messo like né scritto post
+    public synchronized List<String> recommend(String user, int k) throws NullPointerException, IllegalArgumentException {
+        if(user == null) {
+            throw new NullPointerException();
+        }
+        if(k < 0) {
+            throw new IllegalArgumentException();
+        }
+
+        int source = this.users.getId(user);
+        if(source < 0) {
+            return new ArrayList<String>();
+        }
+        if(k > CACHE_SIZE) {
+            return this.compute(source, k);
+        }
+
+        List<String> recommendations = this.cache.get(source);
+        if(recommendations == null) {
+            recommendations = this.compute(source, CACHE_SIZE);
+            this.cache.put(source, recommendations);
+        }
+        return new ArrayList<String>(recommendations.subList(0, Math.min(k, recommendations.size())));
+    }
+
+    // EFFECTS: calcola i (al più) k migliori suggerimenti per l'utente con id source
+    private List<String> compute(int source, int k) {
+        // source e gli utenti che già segue non sono candidati
+        BitSet excluded = new BitSet(this.users.size());
+        excluded.set(source);
+        for(int followed : FollowRecommender.get(this.following, source)) {
+            excluded.set(followed);
+        }
+
+        Map<Integer, Candidate> candidates = new HashMap<Integer, Candidate>();
+
+        // visita in ampiezza limitata: ogni arco dal livello depth - 1 al livello depth ≥ 2 è una connessione del candidato
+        BitSet visited = new BitSet(this.users.size());
+        visited.set(source);
+        int visitedCount = 1;
+        List<Integer> frontier = Collections.singletonList(source);
+        for(int depth = 1; depth <= MAX_DEPTH && !frontier.isEmpty(); depth++) {
+            List<Integer> next = new ArrayList<Integer>();
+            for(int u : frontier) {
+                for(int v : FollowRecommender.get(this.following, u)) {
+                    if(depth >= 2 && !excluded.get(v)) {
+                        this.candidate(candidates, v).connections++;
+                    }
+                    if(!visited.get(v) && visitedCount < MAX_VISITED) {
+                        visited.set(v);
+                        visitedCount++;
+                        next.add(v);
+                    }
+                }
+            }
+            frontier = next;
+        }
+
+        // co-liker: gli autori che hanno messo like agli stessi post di source
+        int scanned = 0;
+        for(int postId : FollowRecommender.get(this.likedPosts, source)) {
+            for(int liker : this.likers.get(postId)) {
+                if(scanned++ >= MAX_SCANNED_LIKES) {
+                    break;
+                }
+                if(this.authors.get(liker) && !excluded.get(liker)) {
+                    this.candidate(candidates, liker).sharedLikes++;
+                }
+            }
+        }
+
+        // selezione dei k candidati migliori con un heap che ha in cima il peggiore tra quelli scelti
+        PriorityQueue<Candidate> heap = new PriorityQueue<Candidate>(this.order.reversed());
+        for(Candidate candidate : candidates.values()) {
+            if(heap.size() < k) {
+                heap.add(candidate);
+            } else if(k > 0 && this.order.compare(candidate, heap.peek()) < 0) {
+                heap.poll();
+                heap.add(candidate);
+            }
+        }
+
+        List<String> recommendations = new ArrayList<String>(heap.size());
+        while(!heap.isEmpty()) {
+            recommendations.add(this.users.getName(heap.poll().id));
+        }
+        Collections.reverse(recommendations);
+        return recommendations;
+    }
+
+    // MODIFIES: candidates
+    // EFFECTS: restituisce il candidato con id id, aggiungendolo a candidates se non presente
+    private Candidate candidate(Map<Integer, Candidate> candidates, int id) {
+        Candidate candidate = candidates.get(id);
+        if(candidate == null) {
+            candidate = new Candidate(id);
+            candidates.put(id, candidate);
+        }
+        return candidate;
+    }
+
+    // MODIFIES: this
+    // EFFECTS: invalida i suggerimenti degli utenti che hanno messo like a un post a cui ha messo like l'utente con id user
+    private void invalidateCoLikers(int user) {
+        for(int postId : FollowRecommender.get(this.likedPosts, user)) {
+            this.cache.keySet().removeAll(this.likers.get(postId));
+        }
+    }
+
+    // MODIFIES: this
+    // EFFECTS: restituisce l'id di user, aggiungendolo alle strutture indicizzate per id se non presente
+    private int user(String user) {
+        int id = this.users.getOrAdd(user);
+        while(this.following.size() < this.users.size()) {
+            this.following.add(null);
+            this.followers.add(null);
+            this.likedPosts.add(null);
+        }
+        return id;
+    }
+
+    // EFFECTS: restituisce l'insieme di indice id di sets, vuoto se null
+    private static Set<Integer> get(List<Set<Integer>> sets, int id) {
+        Set<Integer> set = sets.get(id);
+        return set == null ? Collections.<Integer>emptySet() : set;
+    }
+
+    // MODIFIES: sets
+    // EFFECTS: aggiunge value all'insieme di indice id di sets, creandolo se null
+    private static void add(List<Set<Integer>> sets, int id, int value) {
+        Set<Integer> set = sets.get(id);
+        if(set == null) {
+            set = new HashSet<Integer>();
+            sets.set(id, set);
+        }
+        set.add(value);
+    }
+
+    // MODIFIES: sets
+    // EFFECTS: rimuove value dall'insieme di indice id di sets, eliminando l'insieme se diventa vuoto
+    private static void remove(List<Set<Integer>> sets, int id, int value) {
+        Set<Integer> set = sets.get(id);
+        if(set != null && set.remove(value) && set.isEmpty()) {
+            sets.set(id, null);
+        }
+    }
+}
@@ -0,0 +1,245 @@
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+// sketch HyperLogLog: stima il numero di elementi distinti di un insieme di stringhe con memoria costante (al più 2^precision
+// byte) e un errore relativo tipico di 1.04 / √(2^precision)
+// Ciascun elemento viene ridotto a un hash a 64 bit: i primi precision bit scelgono un registro, che ricorda la lunghezza
+// massima osservata della sequenza di zeri iniziali dei bit restanti (più uno). Due sketch con la stessa precisione si uniscono
+// prendendo il massimo registro per registro, per cui lo sketch dell'unione di più insiemi (es. calcolati da partizioni o
+// thread diversi) si ottiene senza conoscere gli elementi. Gli elementi non possono essere rimossi.
+// Finché i registri non nulli sono pochi vengono memorizzati in forma sparsa (un array ordinato di coppie registro/valore),
+// così che i molti sketch con pochi elementi (es. i like di un singolo post) occupino poche decine di byte.
+public class HyperLogLog {
+    // precisione predefinita: 4096 registri, errore tipico dell'1.6%
+    public static final int DEFAULT_PRECISION = 12;
+
+    public static final int MIN_PRECISION = 4;
+    public static final int MAX_PRECISION = 16;
+
+    private final int precision;
+
+    // registri in forma densa, o null se lo sketch è in forma sparsa
+    private byte[] registers;
+
+    // registri non nulli in forma sparsa, codificati come (registro << 8 | valore) in ordine crescente, nelle prime
+    // sparseSize posizioni; null se lo sketch è in forma densa
+    private int[] sparse;
+    private int sparseSize;
+
+    /*
+        Representation invariant:
+        MIN_PRECISION ≤ this.precision ≤ MAX_PRECISION ∧
+        (this.registers = null) ≠ (this.sparse = null) ∧
+        (this.registers ≠ null ⇒ this.registers.length = 2^this.precision ∧ ∀ r ∈ this.registers . 0 ≤ r ≤ 65 - this.precision) ∧
+        (this.sparse ≠ null ⇒ 0 ≤ this.sparseSize ≤ this.sparse.length ∧ gli indici dei registri in this.sparse[0..sparseSize)
+            sono strettamente crescenti ∧ i valori sono in [1, 65 - this.precision] ∧ 4 * this.sparseSize ≤ 2^this.precision)
+    */
+
+    // EFFECTS: crea uno sketch vuoto con precisione DEFAULT_PRECISION
+    public HyperLogLog() {
+        this(DEFAULT_PRECISION);
+    }
+
+    // REQUIRES: MIN_PRECISION ≤ precision ≤ MAX_PRECISION
+    // THROWS: IllegalArgumentException se precision ∉ [MIN_PRECISION, MAX_PRECISION] (unchecked exception)
+    // EFFECTS: crea uno sketch vuoto con 2^precision registri
+    public HyperLogLog(int precision) throws IllegalArgumentException {
+        if(precision < MIN_PRECISION || precision > MAX_PRECISION) {
+            throw new IllegalArgumentException();
+        }
+
+        this.precision = precision;
+        this.registers = null;
+        this.sparse = new int[4];
+        this.sparseSize = 0;
+    }
+
+    // EFFECTS: restituisce la precisione dello sketch
+    public int getPrecision() {
+        return this.precision;
+    }
+
+    // REQUIRES: element ≠ null
+    // THROWS: NullPointerException se element è null (unchecked exception)
+    // MODIFIES: this
+    // EFFECTS: aggiunge element all'insieme stimato
+    public void add(String element) throws NullPointerException {
+        long hash = HyperLogLog.hash(element);
+        int index = (int) (hash >>> (64 - this.precision));
+        // gli zeri iniziali dei bit restanti, limitati da un bit sentinella così che il valore massimo sia 65 - precision
+        int rank = Long.numberOfLeadingZeros((hash << this.precision) | (1L << (this.precision - 1))) + 1;
+        this.update(index, rank);
+    }
+
+    // REQUIRES: other ≠ null ∧ other.getPrecision() = this.getPrecision()
+    // THROWS: NullPointerException se other è null (unchecked exception),
+    //         IllegalArgumentException se other.getPrecision() ≠ this.getPrecision() (unchecked exception)
+    // MODIFIES: this
+    // EFFECTS: aggiunge a this gli elementi dell'insieme stimato da other, così che this stimi l'unione dei due insiemi
+    public void merge(HyperLogLog other) throws NullPointerException, IllegalArgumentException {
+        if(other.precision != this.precision) {
+            throw new IllegalArgumentException();
+        }
+
+        if(other.sparse != null) {
+            for(int i = 0; i < other.sparseSize; i++) {
+                this.update(other.sparse[i] >>> 8, other.sparse[i] & 0xff);
+            }
+            return;
+        }
+        if(this.sparse != null) {
+            this.toDense();
+        }
+        for(int i = 0; i < this.registers.length; i++) {
+            if(other.registers[i] > this.registers[i]) {
+                this.registers[i] = other.registers[i];
+            }
+        }
+    }
+
+    // EFFECTS: restituisce la stima del numero di elementi distinti aggiunti a this (o agli sketch uniti a this)
+    public long estimate() {
+        int m = 1 << this.precision;
+        double sum = 0;
+        int zeros = 0;
+        if(this.sparse != null) {
+            zeros = m - this.sparseSize;
+            sum = zeros;
+            for(int i = 0; i < this.sparseSize; i++) {
+                sum += Math.scalb(1.0, -(this.sparse[i] & 0xff));
+            }
+        } else {
+            for(byte register : this.registers) {
+                sum += Math.scalb(1.0, -register);
+                if(register == 0) {
+                    zeros++;
+                }
+            }
+        }
+
+        double alpha = m == 16 ? 0.673 : m == 32 ? 0.697 : m == 64 ? 0.709 : 0.7213 / (1 + 1.079 / m);
+        double estimate = alpha * m * m / sum;
+        if(estimate <= 2.5 * m && zeros > 0) {
+            estimate = m * Math.log((double) m / zeros); // correzione per insiemi piccoli (linear counting)
+        }
+        return Math.round(estimate);
+    }
+
+    // EFFECTS: restituisce una copia indipendente di this
+    public HyperLogLog copy() {
+        HyperLogLog copy = new HyperLogLog(this.precision);
+        if(this.sparse != null) {
+            copy.sparse = Arrays.copyOf(this.sparse, Math.max(4, this.sparseSize));
+            copy.sparseSize = this.sparseSize;
+        } else {
+            copy.sparse = null;
+            copy.registers = this.registers.clone();
+        }
+        return copy;
+    }
+
+    // REQUIRES: out ≠ null
+    // THROWS: NullPointerException se out è null (unchecked exception),
+    //         IOException se la scrittura fallisce (checked exception)
+    // EFFECTS: scrive su out lo sketch, in un formato che read() sa rileggere
+    public void write(DataOutputStream out) throws NullPointerException, IOException {
+        out.writeByte(this.precision);
+        out.writeBoolean(this.sparse != null);
+        if(this.sparse != null) {
+            out.writeInt(this.sparseSize);
+            for(int i = 0; i < this.sparseSize; i++) {
+                out.writeInt(this.sparse[i]);
+            }
+        } else {
+            out.write(this.registers);
+        }
+    }
+
+    // REQUIRES: in ≠ null
+    // THROWS: NullPointerException se in è null (unchecked exception),
+    //         IOException se la lettura fallisce o i dati non sono uno sketch scritto da write() (checked exception)
+    // EFFECTS: legge da in uno sketch scritto da write()
+    public static HyperLogLog read(DataInputStream in) throws NullPointerException, IOException {
+        int precision = in.readByte();
+        if(precision < MIN_PRECISION || precision > MAX_PRECISION) {
+            throw new IOException("precisione non valida: " + precision);
+        }
+
+        HyperLogLog sketch = new HyperLogLog(precision);
+        if(in.readBoolean()) {
+            int size = in.readInt();
+            if(size < 0 || 4 * size > (1 << precision)) {
+                throw new IOException("numero di registri non valido: " + size);
+            }
+            for(int i = 0; i < size; i++) {
+                int entry = in.readInt();
+                sketch.update(entry >>> 8, entry & 0xff);
+            }
+        } else {
+            sketch.sparse = null;
+            sketch.registers = new byte[1 << precision];
+            in.readFully(sketch.registers);
+        }
+        return sketch;
+    }
+
+    // MODIFIES: this
+    // EFFECTS: porta il registro index ad almeno rank
+    private void update(int index, int rank) {
+        if(this.sparse == null) {
+            if(rank > this.registers[index]) {
+                this.registers[index] = (byte) rank;
+            }
+            return;
+        }
+
+        int position = Arrays.binarySearch(this.sparse, 0, this.sparseSize, index << 8); // il valore 0 non compare mai
+        position = -position - 1;
+        if(position < this.sparseSize && this.sparse[position] >>> 8 == index) {
+            if(rank > (this.sparse[position] & 0xff)) {
+                this.sparse[position] = index << 8 | rank;
+            }
+            return;
+        }
+
+        if(4 * (this.sparseSize + 1) > (1 << this.precision)) { // la forma sparsa occuperebbe più di quella densa
+            this.toDense();
+            this.update(index, rank);
+            return;
+        }
+        if(this.sparseSize == this.sparse.length) {
+            this.sparse = Arrays.copyOf(this.sparse, this.sparse.length * 2);
+        }
+        System.arraycopy(this.sparse, position, this.sparse, position + 1, this.sparseSize - position);
+        this.sparse[position] = index << 8 | rank;
+        this.sparseSize++;
+    }
+
+    // MODIFIES: this
+    // EFFECTS: converte lo sketch in forma densa
+    private void toDense() {
+        this.registers = new byte[1 << this.precision];
+        for(int i = 0; i < this.sparseSize; i++) {
+            this.registers[this.sparse[i] >>> 8] = (byte) (this.sparse[i] & 0xff);
+        }
+        this.sparse = null;
+        this.sparseSize = 0;
+    }
+
+    // EFFECTS: restituisce un hash a 64 bit di element (FNV-1a sui caratteri, seguito dal mescolamento finale di MurmurHash3)
+    private static long hash(String element) {
+        long hash = 0xcbf29ce484222325L;
+        for(int i = 0; i < element.length(); i++) {
+            hash ^= element.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
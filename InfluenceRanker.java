@@ -0,0 +1,231 @@
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.stream.IntStream;
+
+// classifica degli utenti di un MicroBlog per influenza, calcolata con PageRank sul grafo delle relazioni di follow:
+// ogni utente distribuisce la propria influenza in parti uguali tra gli utenti che segue, per cui è influente chi è seguito
+// da molti utenti o da utenti a loro volta influenti (a differenza di influencers(), il risultato è un punteggio e non un
+// giudizio sì/no)
+// Il grafo viene convertito in formato CSR (CsrGraph) e il metodo delle potenze viene eseguito in parallelo sui vertici,
+// ciascuno dei quali raccoglie il contributo dei propri follower senza scritture condivise. Dopo una modifica del grafo
+// (likePost/unlikePost che creano o rimuovono relazioni di follow, nuovi autori) la classifica viene ricalcolata alla
+// richiesta successiva partendo dai punteggi precedenti, per cui bastano poche iterazioni.
+public class InfluenceRanker implements MicroBlogIndex {
+    // probabilità di seguire una relazione di follow invece di "saltare" a un utente a caso
+    private static final double DAMPING = 0.85;
+
+    // l'iterazione termina quando la somma delle variazioni dei punteggi (norma L1) scende sotto questa soglia
+    private static final double TOLERANCE = 1e-9;
+
+    private static final int MAX_ITERATIONS = 200;
+
+    // numero minimo di vertici per cui le iterazioni vengono eseguite in parallelo
+    private static final int PARALLEL_THRESHOLD = 4096;
+
+    // relazioni di follow della rete (utente ↦ utenti seguiti), lette ma mai modificate
+    private final Map<String, Set<String>> followRelations;
+
+    private final UserDictionary users;
+
+    // punteggi dell'ultimo calcolo, indicizzati per id utente; la somma è 1
+    private double[] ranks;
+
+    // true se il grafo è cambiato dopo l'ultimo calcolo
+    private boolean dirty;
+
+    // numero di iterazioni eseguite dall'ultimo calcolo
+    private int lastIterations;
+
+    /*
+        Representation invariant:
+        this.followRelations ≠ null ∧ this.users ≠ null ∧ this.ranks ≠ null ∧ this.ranks.length ≤ this.users.size() ∧
+        (¬this.dirty ⇒ this.ranks è il PageRank del grafo this.followRelations, con this.ranks.length = this.users.size())
+    */
+
+    // REQUIRES: followRelations ≠ null ∧ ∀ (k, v) ∈ followRelations . v ≠ null ∧ v ⊆ followRelations.keySet()
+    // THROWS: NullPointerException se followRelations è null (unchecked exception)
+    // EFFECTS: crea una classifica del grafo followRelations; il chiamante deve notificare (con apply) ogni modifica della map
+    public InfluenceRanker(Map<String, Set<String>> followRelations) throws NullPointerException {
+        if(followRelations == null) {
+            throw new NullPointerException();
+        }
+
+        this.followRelations = followRelations;
+        this.users = new UserDictionary();
+        this.ranks = new double[0];
+        this.dirty = true;
+        this.lastIterations = 0;
+    }
+
+    public synchronized void apply(MicroBlogEvent event) {
+        switch(event.getType()) {
+            case POST_CREATED:
+                // solo un nuovo autore è un nuovo vertice del grafo; gli autori già noti sono in this.users dall'ultimo calcolo
+                if(this.users.getId(event.getAuthor()) < 0) {
+                    this.dirty = true;
+                }
+                break;
+            case FOLLOW_ADDED:
+            case FOLLOW_REMOVED:
+                this.dirty = true;
+                break;
+            default: // gli altri eventi non modificano il grafo
+        }
+    }
+
+    // REQUIRES: k ≥ 0
+    // THROWS: IllegalArgumentException se k < 0 (unchecked exception)
+    // EFFECTS: restituisce i (al più) k utenti con il punteggio di influenza più alto, ciascuno con il proprio punteggio,
+    //          in ordine di punteggio decrescente; i punteggi di tutti gli utenti sommano a 1
+    public synchronized List<Map.Entry<String, Double>> top(int k) throws IllegalArgumentException {
+        if(k < 0) {
+            throw new IllegalArgumentException();
+        }
+        this.update();
+
+        // selezione dei k punteggi maggiori con un min-heap di dimensione k
+        PriorityQueue<Integer> heap = new PriorityQueue<Integer>((a, b) -> Double.compare(this.ranks[a], this.ranks[b]));
+        for(int v = 0; v < this.ranks.length && k > 0; v++) {
+            if(heap.size() < k) {
+                heap.add(v);
+            } else if(this.ranks[v] > this.ranks[heap.peek()]) {
+                heap.poll();
+                heap.add(v);
+            }
+        }
+
+        List<Map.Entry<String, Double>> top = new ArrayList<Map.Entry<String, Double>>(heap.size());
+        while(!heap.isEmpty()) {
+            int v = heap.poll();
+            top.add(new AbstractMap.SimpleImmutableEntry<String, Double>(this.users.getName(v), this.ranks[v]));
+        }
+        Collections.reverse(top);
+        return top;
+    }
+
+    // EFFECTS: restituisce il punteggio di influenza di user, o 0 se user non è autore di alcun post
+    public synchronized double getScore(String user) {
+        this.update();
+        int id = this.users.getId(user);
+        return id < 0 ? 0 : this.ranks[id];
+    }
+
+    // EFFECTS: restituisce il numero di iterazioni eseguite dall'ultimo ricalcolo della classifica
+    public synchronized int getLastIterations() {
+        return this.lastIterations;
+    }
+
+    // MODIFIES: this
+    // EFFECTS: se il grafo è cambiato dopo l'ultimo calcolo, ricalcola i punteggi partendo da quelli precedenti
+    private void update() {
+        if(!this.dirty) {
+            return;
+        }
+
+        // i nuovi utenti ricevono id successivi a quelli esistenti, per cui i punteggi precedenti restano validi
+        for(String user : this.followRelations.keySet()) {
+            this.users.getOrAdd(user);
+        }
+        int n = this.users.size();
+
+        int[] offsets = new int[n + 1];
+        for(int v = 0; v < n; v++) {
+            Set<String> following = this.followRelations.get(this.users.getName(v));
+            offsets[v + 1] = offsets[v] + (following == null ? 0 : following.size());
+        }
+        int[] targets = new int[offsets[n]];
+        for(int v = 0; v < n; v++) {
+            Set<String> following = this.followRelations.get(this.users.getName(v));
+            if(following != null) {
+                int i = offsets[v];
+                for(String followed : following) {
+                    targets[i++] = this.users.getId(followed);
+                }
+            }
+        }
+        CsrGraph graph = new CsrGraph(offsets, targets);
+
+        this.ranks = this.pageRank(graph, this.warmStart(n));
+        this.dirty = false;
+    }
+
+    // EFFECTS: restituisce i punteggi iniziali per n vertici: quelli del calcolo precedente per i vertici già esistenti e
+    //          la media per quelli nuovi, normalizzati in modo che sommino a 1
+    private double[] warmStart(int n) {
+        double[] start = Arrays.copyOf(this.ranks, n);
+        for(int v = this.ranks.length; v < n; v++) {
+            start[v] = 1.0 / n;
+        }
+
+        double sum = 0;
+        for(double rank : start) {
+            sum += rank;
+        }
+        for(int v = 0; v < n; v++) {
+            start[v] /= sum;
+        }
+        return start;
+    }
+
+    // REQUIRES: graph ≠ null ∧ start.length = graph.getNumberOfVertices() ∧ Σ start = 1
+    // MODIFIES: this
+    // EFFECTS: restituisce il PageRank dei vertici di graph (dove un arco u → v indica che u segue v), calcolato con il metodo
+    //          delle potenze a partire da start; l'influenza dei vertici senza archi uscenti viene distribuita uniformemente
+    private double[] pageRank(CsrGraph graph, double[] start) {
+        int n = graph.getNumberOfVertices();
+        if(n == 0) {
+            this.lastIterations = 0;
+            return start;
+        }
+
+        CsrGraph followers = graph.transpose(); // i vicini di v nel trasposto sono i suoi follower
+        double[] rank = start;
+        double[] next = new double[n];
+        double[] contribution = new double[n];
+
+        int iteration = 0;
+        while(iteration < MAX_ITERATIONS) {
+            iteration++;
+            final double[] current = rank;
+
+            // ogni vertice distribuisce il proprio punteggio tra gli utenti che segue; quello dei vertici senza archi uscenti
+            // viene distribuito tra tutti i vertici
+            double dangling = InfluenceRanker.vertices(n).mapToDouble(v -> {
+                int degree = graph.getDegree(v);
+                contribution[v] = degree == 0 ? 0 : current[v] / degree;
+                return degree == 0 ? current[v] : 0;
+            }).sum();
+            double base = (1 - DAMPING) / n + DAMPING * dangling / n;
+
+            final double[] updated = next;
+            double delta = InfluenceRanker.vertices(n).mapToDouble(v -> {
+                double sum = 0;
+                for(int i = followers.getOffset(v), end = followers.getOffset(v + 1); i < end; i++) {
+                    sum += contribution[followers.getTarget(i)];
+                }
+                updated[v] = base + DAMPING * sum;
+                return Math.abs(updated[v] - current[v]);
+            }).sum();
+
+            next = rank;
+            rank = updated;
+            if(delta < TOLERANCE) {
+                break;
+            }
+        }
+        this.lastIterations = iteration;
+        return rank;
+    }
+
+    // EFFECTS: restituisce lo stream dei vertici 0..n-1, parallelo se n ≥ PARALLEL_THRESHOLD
+    private static IntStream vertices(int n) {
+        IntStream vertices = IntStream.range(0, n);
+        return n >= PARALLEL_THRESHOLD ? vertices.parallel() : vertices;
+    }
+}
@@ -0,0 +1,242 @@
+import java.lang.management.ManagementFactory;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.MBeanRegistrationException;
+import javax.management.MalformedObjectNameException;
+import javax.management.NotCompliantMBeanException;
+import javax.management.ObjectName;
+import javax.naming.LimitExceededException;
+
+// decoratore di un MicroBlog (o di una sua sottoclasse) che misura latenza e throughput di ciascuna operazione
+// I metodi delegano all'istanza decorata, per cui le ridefinizioni delle sottoclassi (es. il filtro delle parole offensive)
+// continuano a essere applicate; il costo aggiuntivo per chiamata è di due letture di System.nanoTime() e
+// di qualche incremento atomico
+public class InstrumentedMicroBlog implements SocialNetwork, SocialNetworkMetricsMXBean {
+    // rete sociale decorata
+    private final MicroBlog network;
+
+    // istogrammi di latenza, uno per ciascuna operazione misurata
+    private final LatencyHistogram createPostLatency;
+    private final LatencyHistogram likePostLatency;
+    private final LatencyHistogram unlikePostLatency;
+    private final LatencyHistogram containingLatency;
+    private final LatencyHistogram writtenByLatency;
+    private final LatencyHistogram influencersLatency;
+    private final LatencyHistogram mentionedUsersLatency;
+    private final LatencyHistogram sortByRelevanceLatency;
+
+    // istante (System.nanoTime()) a partire dal quale viene calcolato il throughput
+    private volatile long startNanos;
+
+    /*
+        Representation invariant:
+        this.network ≠ null ∧ tutti gli istogrammi ≠ null
+    */
+
+    // REQUIRES: network ≠ null
+    // THROWS: NullPointerException se network è null (unchecked exception)
+    public InstrumentedMicroBlog(MicroBlog network) throws NullPointerException {
+        if(network == null) {
+            throw new NullPointerException();
+        }
+
+        this.network = network;
+        this.createPostLatency = new LatencyHistogram();
+        this.likePostLatency = new LatencyHistogram();
+        this.unlikePostLatency = new LatencyHistogram();
+        this.containingLatency = new LatencyHistogram();
+        this.writtenByLatency = new LatencyHistogram();
+        this.influencersLatency = new LatencyHistogram();
+        this.mentionedUsersLatency = new LatencyHistogram();
+        this.sortByRelevanceLatency = new LatencyHistogram();
+        this.startNanos = System.nanoTime();
+    }
+
+    // EFFECTS: restituisce la rete decorata, per accedere ai metodi specifici delle sottoclassi (es. reportContent)
+    public MicroBlog getNetwork() {
+        return this.network;
+    }
+
+    // REQUIRES: name ≠ null ∧ name.length > 0
+    // THROWS: NullPointerException se name è null (unchecked exception),
+    //         IllegalArgumentException se name non è un valore valido per un ObjectName (unchecked exception),
+    //         IllegalStateException se esiste già un MBean registrato con lo stesso nome (unchecked exception)
+    // EFFECTS: registra l'istanza (this) presso il MBeanServer della piattaforma con nome "MicroBlog:type=SocialNetworkMetrics,name=<name>"
+    //          e restituisce l'ObjectName utilizzato
+    public ObjectName registerMBean(String name) throws NullPointerException, IllegalArgumentException, IllegalStateException {
+        if(name == null) {
+            throw new NullPointerException();
+        }
+
+        try {
+            ObjectName objectName = new ObjectName("MicroBlog:type=SocialNetworkMetrics,name=" + ObjectName.quote(name));
+            ManagementFactory.getPlatformMBeanServer().registerMBean(this, objectName);
+            return objectName;
+        } catch(MalformedObjectNameException exc) {
+            throw new IllegalArgumentException(exc);
+        } catch(InstanceAlreadyExistsException exc) {
+            throw new IllegalStateException(exc);
+        } catch(MBeanRegistrationException | NotCompliantMBeanException exc) {
+            throw new IllegalStateException(exc);
+        }
+    }
+
+    // Seguono i metodi di SocialNetwork e MicroBlog misurati; le specifiche sono le stesse dei metodi della rete decorata
+
+    public List<String> influencers() {
+        long start = System.nanoTime();
+        try {
+            return this.network.influencers();
+        } finally {
+            this.influencersLatency.record(System.nanoTime() - start);
+        }
+    }
+
+    public Set<String> getMentionedUsers() {
+        long start = System.nanoTime();
+        try {
+            return this.network.getMentionedUsers();
+        } finally {
+            this.mentionedUsersLatency.record(System.nanoTime() - start);
+        }
+    }
+
+    public List<Post> writtenBy(String username) throws NullPointerException, IllegalArgumentException {
+        long start = System.nanoTime();
+        try {
+            return this.network.writtenBy(username);
+        } finally {
+            this.writtenByLatency.record(System.nanoTime() - start);
+        }
+    }
+
+    public List<Post> containing(List<String> words) throws NullPointerException, IllegalArgumentException {
+        long start = System.nanoTime();
+        try {
+            return this.network.containing(words);
+        } finally {
+            this.containingLatency.record(System.nanoTime() - start);
+        }
+    }
+
+    public int createPost(String author, String text) throws NullPointerException, IllegalArgumentException, LimitExceededException {
+        long start = System.nanoTime();
+        try {
+            return this.network.createPost(author, text);
+        } finally {
+            this.createPostLatency.record(System.nanoTime() - start);
+        }
+    }
+
+    public boolean likePost(int postId, String likedByUser) throws NullPointerException, IllegalArgumentException, NoSuchElementException, IllegalStateException {
+        long start = System.nanoTime();
+        try {
+            return this.network.likePost(postId, likedByUser);
+        } finally {
+            this.likePostLatency.record(System.nanoTime() - start);
+        }
+    }
+
+    public boolean unlikePost(int postId, String unlikedByUser) throws NullPointerException, IllegalArgumentException, NoSuchElementException {
+        long start = System.nanoTime();
+        try {
+            return this.network.unlikePost(postId, unlikedByUser);
+        } finally {
+            this.unlikePostLatency.record(System.nanoTime() - start);
+        }
+    }
+
+    public List<Post> sortByRelevance(List<String> searchWords) throws NullPointerException, IllegalArgumentException {
+        long start = System.nanoTime();
+        try {
+            return this.network.sortByRelevance(searchWords);
+        } finally {
+            this.sortByRelevanceLatency.record(System.nanoTime() - start);
+        }
+    }
+
+    // i metodi seguenti non sono misurati e delegano semplicemente alla rete decorata
+
+    public List<Post> getAllPosts() {
+        return this.network.getAllPosts();
+    }
+
+    public Map<String, Set<String>> getFollowRelations() {
+        return this.network.getFollowRelations();
+    }
+
+    // Seguono i metodi dell'interfaccia SocialNetworkMetricsMXBean
+
+    public int getPostCount() {
+        return this.network.getNumberOfPosts();
+    }
+
+    public int getUserCount() {
+        return this.network.getNumberOfUsers();
+    }
+
+    public int getFollowEdgeCount() {
+        return this.network.getNumberOfFollowEdges();
+    }
+
+    public double getKeywordFilterFalsePositiveRate() {
+        return this.network.getKeywordFilterStats().getFalsePositiveRate();
+    }
+
+    public long getKeywordFilterSkipCount() {
+        return this.network.getKeywordFilterStats().getSkipped();
+    }
+
+    public OperationStats getCreatePostStats() {
+        return this.statsOf(this.createPostLatency);
+    }
+
+    public OperationStats getLikePostStats() {
+        return this.statsOf(this.likePostLatency);
+    }
+
+    public OperationStats getUnlikePostStats() {
+        return this.statsOf(this.unlikePostLatency);
+    }
+
+    public OperationStats getContainingStats() {
+        return this.statsOf(this.containingLatency);
+    }
+
+    public OperationStats getWrittenByStats() {
+        return this.statsOf(this.writtenByLatency);
+    }
+
+    public OperationStats getInfluencersStats() {
+        return this.statsOf(this.influencersLatency);
+    }
+
+    public OperationStats getMentionedUsersStats() {
+        return this.statsOf(this.mentionedUsersLatency);
+    }
+
+    public OperationStats getSortByRelevanceStats() {
+        return this.statsOf(this.sortByRelevanceLatency);
+    }
+
+    public void resetStats() {
+        this.network.getKeywordFilterStats().reset();
+        this.createPostLatency.reset();
+        this.likePostLatency.reset();
+        this.unlikePostLatency.reset();
+        this.containingLatency.reset();
+        this.writtenByLatency.reset();
+        this.influencersLatency.reset();
+        this.mentionedUsersLatency.reset();
+        this.sortByRelevanceLatency.reset();
+        this.startNanos = System.nanoTime();
+    }
+
+    // EFFECTS: restituisce le statistiche dell'istogramma histogram, calcolando il throughput dall'ultimo reset
+    private OperationStats statsOf(LatencyHistogram histogram) {
+        return OperationStats.of(histogram.snapshot(), System.nanoTime() - this.startNanos);
+    }
+}
@@ -0,0 +1,126 @@
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+// filtro di Bloom sulle parole normalizzate dei post di un gruppo (un segmento del livello freddo, i post in memoria di una
+// rete o una partizione), usato da containing per saltare i gruppi che sicuramente non contengono tutte le parole cercate
+// Le chiavi di un testo sono le sue parole secondo WordTokenizer, normalizzate: ogni parola di un'occorrenza riconosciuta da
+// containing (con WordTokenizer.containsWord) è anche una parola del testo, per cui il filtro non produce mai falsi negativi.
+// Il filtro cresce senza rileggere i testi già aggiunti: quando l'ultimo BloomFilter ha ricevuto più parole distinte della
+// propria capacità, se ne aggiunge uno di capacità doppia e probabilità di falso positivo dimezzata, così che la probabilità
+// complessiva resti sotto FALSE_POSITIVE_RATE (filtro di Bloom scalabile). Le parole già presenti non vengono contate.
+public class KeywordFilter {
+    // probabilità di falso positivo alla capacità prevista
+    private static final double FALSE_POSITIVE_RATE = 0.01;
+
+    // capacità minima, per evitare che i filtri piccoli crescano di frequente
+    private static final int MIN_CAPACITY = 1024;
+
+    // filtri dal primo al più recente, che riceve le nuove parole; capacity è la capacità del più recente
+    private final List<BloomFilter> filters;
+    private int capacity;
+
+    /*
+        Representation invariant:
+        this.filters ≠ null ∧ this.filters.size() > 0 ∧ this.capacity ≥ MIN_CAPACITY ∧
+        l'i-esimo filtro ha probabilità di falso positivo FALSE_POSITIVE_RATE / 2^(i + 1) alla propria capacità ∧
+        ogni parola aggiunta è in almeno uno dei filtri
+    */
+
+    // REQUIRES: capacity ≥ 0
+    // THROWS: IllegalArgumentException se capacity < 0 (unchecked exception)
+    // EFFECTS: crea un filtro vuoto per (almeno) capacity parole prima della prima crescita
+    public KeywordFilter(int capacity) throws IllegalArgumentException {
+        if(capacity < 0) {
+            throw new IllegalArgumentException();
+        }
+
+        this.capacity = Math.max(MIN_CAPACITY, capacity);
+        this.filters = new ArrayList<BloomFilter>();
+        this.filters.add(new BloomFilter(this.capacity, FALSE_POSITIVE_RATE / 2));
+    }
+
+    // REQUIRES: texts ≠ null ∧ (∀ t ∈ texts . t ≠ null)
+    // THROWS: NullPointerException se texts è null ∨ (∃ t ∈ texts . t è null) (unchecked exception)
+    // EFFECTS: restituisce un filtro con le parole dei testi texts, con capacità pari al doppio delle parole distinte, così che
+    //          possa ricevere altrettante parole nuove prima di dover crescere
+    public static KeywordFilter of(Collection<String> texts) throws NullPointerException {
+        Set<String> keys = new HashSet<String>();
+        for(String text : texts) {
+            keys.addAll(KeywordFilter.keys(text));
+        }
+
+        KeywordFilter filter = new KeywordFilter(keys.size() * 2);
+        for(String key : keys) {
+            filter.filters.get(0).add(key);
+        }
+        return filter;
+    }
+
+    // REQUIRES: text ≠ null
+    // THROWS: NullPointerException se text è null (unchecked exception)
+    // MODIFIES: this
+    // EFFECTS: aggiunge al filtro le parole di text, facendolo crescere se l'ultimo filtro ha superato la propria capacità
+    public void addText(String text) throws NullPointerException {
+        for(String key : KeywordFilter.keys(text)) {
+            if(this.mightContain(key)) {
+                continue; // le parole ripetute non occupano capacità
+            }
+            BloomFilter last = this.filters.get(this.filters.size() - 1);
+            last.add(key);
+            if(last.getInsertions() > this.capacity) {
+                this.capacity *= 2;
+                this.filters.add(new BloomFilter(this.capacity, FALSE_POSITIVE_RATE / (1L << Math.min(this.filters.size() + 1, 62))));
+            }
+        }
+    }
+
+    // REQUIRES: words ≠ null ∧ (∀ w ∈ words . w ≠ null)
+    // THROWS: NullPointerException se words è null ∨ (∃ w ∈ words . w è null) (unchecked exception)
+    // EFFECTS: restituisce false se almeno una delle parole in words sicuramente non compare nei testi aggiunti, true altrimenti
+    public boolean mightContainAll(List<String> words) throws NullPointerException {
+        WordTokenizer tokenizer = new WordTokenizer("");
+        for(String word : words) {
+            for(tokenizer.reset(word); tokenizer.next(); ) {
+                if(!this.mightContain(tokenizer.word())) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    // EFFECTS: restituisce il numero di BloomFilter del filtro (1 finché non è mai cresciuto)
+    public int getNumberOfStages() {
+        return this.filters.size();
+    }
+
+    // EFFECTS: restituisce la probabilità stimata di un falso positivo per una singola parola, ovvero la probabilità che almeno
+    //          uno dei filtri dia un falso positivo
+    public double getExpectedFalsePositiveRate() {
+        double negative = 1;
+        for(BloomFilter filter : this.filters) {
+            negative *= 1 - filter.getExpectedFalsePositiveRate();
+        }
+        return 1 - negative;
+    }
+
+    // EFFECTS: restituisce true se key potrebbe essere in uno dei filtri
+    private boolean mightContain(String key) {
+        for(BloomFilter filter : this.filters) {
+            if(filter.mightContain(key)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // REQUIRES: text ≠ null
+    // THROWS: NullPointerException se text è null (unchecked exception)
+    // EFFECTS: restituisce l'insieme delle parole normalizzate di text
+    public static Set<String> keys(String text) throws NullPointerException {
+        return WordTokenizer.words(text);
+    }
+}
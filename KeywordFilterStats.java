@@ -0,0 +1,66 @@
+import java.util.concurrent.atomic.LongAdder;
+
+// contatori dell'efficacia dei KeywordFilter di una rete: quanti gruppi di post (segmenti, partizioni) sono stati saltati e
+// quanti, pur ammessi dal filtro, non contenevano alcun post cercato (falsi positivi)
+public class KeywordFilterStats {
+    private final LongAdder skipped;
+    private final LongAdder scanned;
+    private final LongAdder falsePositives;
+
+    /*
+        Representation invariant:
+        this.skipped ≠ null ∧ this.scanned ≠ null ∧ this.falsePositives ≠ null ∧ this.falsePositives.sum() ≤ this.scanned.sum()
+    */
+
+    public KeywordFilterStats() {
+        this.skipped = new LongAdder();
+        this.scanned = new LongAdder();
+        this.falsePositives = new LongAdder();
+    }
+
+    // MODIFIES: this
+    // EFFECTS: registra un gruppo saltato perché il filtro esclude le parole cercate
+    public void recordSkip() {
+        this.skipped.increment();
+    }
+
+    // MODIFIES: this
+    // EFFECTS: registra un gruppo esaminato perché ammesso dal filtro, che conteneva (matched) o no almeno un post cercato
+    public void recordScan(boolean matched) {
+        this.scanned.increment();
+        if(!matched) {
+            this.falsePositives.increment();
+        }
+    }
+
+    // EFFECTS: restituisce il numero di gruppi saltati
+    public long getSkipped() {
+        return this.skipped.sum();
+    }
+
+    // EFFECTS: restituisce il numero di gruppi esaminati
+    public long getScanned() {
+        return this.scanned.sum();
+    }
+
+    // EFFECTS: restituisce il numero di gruppi esaminati senza trovare alcun post
+    public long getFalsePositives() {
+        return this.falsePositives.sum();
+    }
+
+    // EFFECTS: restituisce la frazione dei gruppi senza post cercati che il filtro non ha saltato, ovvero il tasso di falsi
+    //          positivi osservato, o 0 se non è stato registrato alcun gruppo senza post cercati
+    public double getFalsePositiveRate() {
+        long falsePositives = this.falsePositives.sum();
+        long negatives = falsePositives + this.skipped.sum();
+        return negatives == 0 ? 0 : (double) falsePositives / negatives;
+    }
+
+    // MODIFIES: this
+    // EFFECTS: azzera i contatori
+    public void reset() {
+        this.skipped.reset();
+        this.scanned.reset();
+        this.falsePositives.reset();
+    }
+}
@@ -0,0 +1,149 @@
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+public class LatencyHistogram {
+    // numero di bit di precisione all'interno di ogni potenza di 2: con 4 bit ogni intervallo [2^k, 2^(k+1)) viene diviso
+    // in 16 sotto-intervalli, quindi l'errore relativo sui valori registrati è al più 1/16
+    private static final int SUB_BUCKET_BITS = 4;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int BUCKETS = (64 - SUB_BUCKET_BITS + 1) * SUB_BUCKETS;
+
+    // contatori dei campioni che ricadono in ciascun intervallo
+    private final AtomicLongArray counts;
+
+    // somma delle durate registrate, utilizzata per il calcolo della media
+    private final LongAdder totalNanos;
+
+    // durata massima registrata
+    private final LongAccumulator maxNanos;
+
+    /*
+        Abstraction function:
+        α(c) = multiinsieme {v | v è stato registrato con record(v) dopo la creazione o l'ultimo reset()},
+               approssimato al limite superiore dell'intervallo bucketIndex(v)
+
+        Representation invariant:
+        this.counts ≠ null ∧ this.counts.length() = BUCKETS ∧ (∀ 0 ≤ i < BUCKETS . this.counts.get(i) ≥ 0) ∧
+        this.totalNanos ≠ null ∧ this.maxNanos ≠ null
+    */
+
+    public LatencyHistogram() {
+        this.counts = new AtomicLongArray(BUCKETS);
+        this.totalNanos = new LongAdder();
+        this.maxNanos = new LongAccumulator(Math::max, 0);
+    }
+
+    // MODIFIES: this
+    // EFFECTS: registra un campione di durata nanos (in nanosecondi); i valori negativi vengono trattati come 0
+    //          Il metodo è thread-safe e non alloca memoria
+    public void record(long nanos) {
+        if(nanos < 0) {
+            nanos = 0;
+        }
+        this.counts.incrementAndGet(LatencyHistogram.bucketIndex(nanos));
+        this.totalNanos.add(nanos);
+        this.maxNanos.accumulate(nanos);
+    }
+
+    // MODIFIES: this
+    // EFFECTS: azzera tutti i campioni registrati
+    public void reset() {
+        for(int i = 0; i < BUCKETS; i++) {
+            this.counts.set(i, 0);
+        }
+        this.totalNanos.reset();
+        this.maxNanos.reset();
+    }
+
+    // EFFECTS: restituisce una fotografia immutabile dello stato corrente dell'istogramma
+    public Snapshot snapshot() {
+        long[] copy = new long[BUCKETS];
+        long count = 0;
+
+        for(int i = 0; i < BUCKETS; i++) {
+            copy[i] = this.counts.get(i);
+            count += copy[i];
+        }
+
+        return new Snapshot(copy, count, this.totalNanos.sum(), this.maxNanos.get());
+    }
+
+    // REQUIRES: value ≥ 0
+    // EFFECTS: restituisce l'indice dell'intervallo in cui ricade value
+    private static int bucketIndex(long value) {
+        if(value < SUB_BUCKETS) { // i valori piccoli sono rappresentati esattamente
+            return (int) value;
+        }
+        int shift = (63 - Long.numberOfLeadingZeros(value)) - SUB_BUCKET_BITS;
+        int sub = (int) (value >>> shift) - SUB_BUCKETS; // i SUB_BUCKET_BITS bit successivi al bit più significativo
+        return (shift + 1) * SUB_BUCKETS + sub;
+    }
+
+    // REQUIRES: 0 ≤ index < BUCKETS
+    // EFFECTS: restituisce il valore più grande che ricade nell'intervallo di indice index
+    private static long bucketUpperBound(int index) {
+        if(index < SUB_BUCKETS) {
+            return index;
+        }
+        int shift = index / SUB_BUCKETS - 1;
+        long sub = index % SUB_BUCKETS;
+        long upper = ((SUB_BUCKETS + sub + 1) << shift) - 1;
+        return upper < 0 ? Long.MAX_VALUE : upper;
+    }
+
+    // fotografia immutabile di un LatencyHistogram
+    public static class Snapshot {
+        private final long[] counts;
+        private final long count;
+        private final long totalNanos;
+        private final long maxNanos;
+
+        private Snapshot(long[] counts, long count, long totalNanos, long maxNanos) {
+            this.counts = counts;
+            this.count = count;
+            this.totalNanos = totalNanos;
+            this.maxNanos = maxNanos;
+        }
+
+        // EFFECTS: restituisce il numero di campioni registrati
+        public long getCount() {
+            return this.count;
+        }
+
+        // EFFECTS: restituisce la durata media in nanosecondi, o 0 se non sono stati registrati campioni
+        public double getMean() {
+            return this.count == 0 ? 0 : (double) this.totalNanos / this.count;
+        }
+
+        // EFFECTS: restituisce la durata massima registrata in nanosecondi
+        public long getMax() {
+            return this.maxNanos;
+        }
+
+        // REQUIRES: 0 ≤ percentile ≤ 100
+        // THROWS: IllegalArgumentException se percentile < 0 ∨ percentile > 100 (unchecked exception)
+        // EFFECTS: restituisce (con errore relativo al più 1/16) il valore v t.c. almeno percentile% dei campioni è ≤ v;
+        //          restituisce 0 se non sono stati registrati campioni
+        public long getValueAtPercentile(double percentile) throws IllegalArgumentException {
+            if(percentile < 0 || percentile > 100) {
+                throw new IllegalArgumentException();
+            }
+            if(this.count == 0) {
+                return 0;
+            }
+
+            long target = Math.max(1, (long) Math.ceil(percentile / 100 * this.count));
+            long seen = 0;
+
+            for(int i = 0; i < this.counts.length; i++) {
+                seen += this.counts[i];
+                if(seen >= target) {
+                    // il limite superiore dell'intervallo non può superare il massimo effettivamente osservato
+                    return Math.min(LatencyHistogram.bucketUpperBound(i), this.maxNanos);
+                }
+            }
+            return this.maxNanos;
+        }
+    }
+}
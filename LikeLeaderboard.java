@@ -0,0 +1,158 @@
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.TreeSet;
+
+// classifica dei post di un MicroBlog per numero di like, globale e per autore, mantenuta incrementalmente dagli eventi:
+// ogni like aggiunto o rimosso e ogni censura la aggiornano in O(log n), e top() legge i primi k post senza scorrere né
+// copiare i post della rete (e le loro liste di like)
+// Ogni post in classifica è rappresentato da una chiave long che ordina i post per numero di like e, a parità di like, per
+// id crescente: (like << 32) | (Integer.MAX_VALUE - id), letta dalla più grande. I post censurati (il cui testo è
+// MicroBlog.CENSORED_TEXT) non compaiono in classifica, ma il loro numero di like continua a essere aggiornato.
+public class LikeLeaderboard implements MicroBlogIndex {
+    // id di ogni post della rete ↦ suo stato nella classifica
+    private final Map<Integer, Entry> entries;
+
+    // chiavi dei post non censurati, di tutta la rete e di ciascun autore
+    private final NavigableSet<Long> global;
+    private final Map<String, NavigableSet<Long>> byAuthor;
+
+    /*
+        Representation invariant:
+        this.entries ≠ null ∧ this.global ≠ null ∧ this.byAuthor ≠ null ∧
+        ∀ (id, e) ∈ this.entries . e.likes ≥ 0 ∧
+            (e.censored ⟺ key(id, e.likes) ∉ this.global) ∧ (e.censored ⟺ key(id, e.likes) ∉ this.byAuthor.get(e.author)) ∧
+        |this.global| = #{(id, e) ∈ this.entries | ¬e.censored} ∧ ∀ (a, s) ∈ this.byAuthor . s ≠ ∅
+    */
+
+    // EFFECTS: crea una classifica vuota
+    public LikeLeaderboard() {
+        this.entries = new HashMap<Integer, Entry>();
+        this.global = new TreeSet<Long>();
+        this.byAuthor = new HashMap<String, NavigableSet<Long>>();
+    }
+
+    public void apply(MicroBlogEvent event) {
+        Entry entry = this.entries.get(event.getPostId());
+        switch(event.getType()) {
+            case POST_CREATED:
+                entry = new Entry(event.getAuthor());
+                this.entries.put(event.getPostId(), entry);
+                // addIndex ripete i post già censurati come creati con il testo di censura
+                this.setCensored(event.getPostId(), entry, event.getText().equals(MicroBlog.CENSORED_TEXT));
+                break;
+            case POST_EDITED:
+            case POST_CENSORED:
+                if(entry != null) {
+                    this.setCensored(event.getPostId(), entry, event.getText().equals(MicroBlog.CENSORED_TEXT));
+                }
+                break;
+            case LIKE_ADDED:
+            case LIKE_REMOVED:
+                if(entry != null) {
+                    int likes = entry.likes + (event.getType() == MicroBlogEvent.Type.LIKE_ADDED ? 1 : -1);
+                    if(entry.censored) {
+                        entry.likes = likes;
+                    } else {
+                        this.remove(event.getPostId(), entry);
+                        entry.likes = likes;
+                        this.add(event.getPostId(), entry);
+                    }
+                }
+                break;
+            default: // le relazioni di follow non cambiano la classifica
+                break;
+        }
+    }
+
+    // REQUIRES: k ≥ 0
+    // THROWS: IllegalArgumentException se k < 0 (unchecked exception)
+    // EFFECTS: restituisce i (al più) k post non censurati con più like, ciascuno come coppia (id, numero di like), in ordine di
+    //          like decrescente e, a parità di like, di id crescente
+    public List<Map.Entry<Integer, Integer>> top(int k) throws IllegalArgumentException {
+        return LikeLeaderboard.top(this.global, k);
+    }
+
+    // REQUIRES: author ≠ null ∧ k ≥ 0
+    // THROWS: NullPointerException se author è null (unchecked exception),
+    //         IllegalArgumentException se k < 0 (unchecked exception)
+    // EFFECTS: come top(k), limitata ai post di author
+    public List<Map.Entry<Integer, Integer>> top(String author, int k) throws NullPointerException, IllegalArgumentException {
+        if(author == null) {
+            throw new NullPointerException();
+        }
+        NavigableSet<Long> keys = this.byAuthor.get(author);
+        return LikeLeaderboard.top(keys != null ? keys : Collections.<Long>emptyNavigableSet(), k);
+    }
+
+    // EFFECTS: restituisce le prime k coppie (id, numero di like) delle chiavi keys, dalla più grande
+    private static List<Map.Entry<Integer, Integer>> top(NavigableSet<Long> keys, int k) throws IllegalArgumentException {
+        if(k < 0) {
+            throw new IllegalArgumentException();
+        }
+
+        List<Map.Entry<Integer, Integer>> top = new ArrayList<Map.Entry<Integer, Integer>>(Math.min(k, keys.size()));
+        Iterator<Long> iterator = keys.descendingIterator();
+        while(top.size() < k && iterator.hasNext()) {
+            long key = iterator.next();
+            int id = Integer.MAX_VALUE - (int) key;
+            int likes = (int) (key >>> 32);
+            top.add(new AbstractMap.SimpleImmutableEntry<Integer, Integer>(id, likes));
+        }
+        return top;
+    }
+
+    // MODIFIES: this
+    // EFFECTS: toglie il post id dalla classifica se censored, altrimenti ve lo inserisce
+    private void setCensored(int id, Entry entry, boolean censored) {
+        if(censored && !entry.censored) {
+            this.remove(id, entry);
+        } else if(!censored && entry.censored) {
+            this.add(id, entry);
+        }
+        entry.censored = censored;
+    }
+
+    // MODIFIES: this
+    // EFFECTS: inserisce in classifica il post id, con il numero di like di entry
+    private void add(int id, Entry entry) {
+        long key = LikeLeaderboard.key(id, entry.likes);
+        this.global.add(key);
+        this.byAuthor.computeIfAbsent(entry.author, a -> new TreeSet<Long>()).add(key);
+    }
+
+    // MODIFIES: this
+    // EFFECTS: toglie dalla classifica il post id, con il numero di like di entry
+    private void remove(int id, Entry entry) {
+        long key = LikeLeaderboard.key(id, entry.likes);
+        this.global.remove(key);
+        NavigableSet<Long> keys = this.byAuthor.get(entry.author);
+        keys.remove(key);
+        if(keys.isEmpty()) {
+            this.byAuthor.remove(entry.author);
+        }
+    }
+
+    // EFFECTS: restituisce la chiave in classifica del post id con likes like
+    private static long key(int id, int likes) {
+        return ((long) likes << 32) | (Integer.MAX_VALUE - id);
+    }
+
+    // stato di un post: autore, numero di like ed esclusione dalla classifica
+    private static class Entry {
+        private final String author;
+        private int likes;
+        private boolean censored;
+
+        private Entry(String author) {
+            this.author = author;
+            this.likes = 0;
+            this.censored = true; // non ancora in classifica
+        }
+    }
+}
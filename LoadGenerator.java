@@ -0,0 +1,365 @@
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// generatore di carico per MicroBlog: riproduce una traccia di richieste registrata su file oppure ne sintetizza una
+// con un mix configurabile di letture e scritture, e riporta throughput e latenze di coda per ciascun tipo di richiesta.
+//
+// Il carico può essere generato a ciclo aperto (--rate R: le richieste arrivano a R richieste/s indipendentemente dai tempi
+// di risposta, e la latenza viene misurata dall'istante di arrivo previsto, includendo quindi il tempo in coda) oppure a
+// ciclo chiuso (--rate 0: ciascuno dei --concurrency thread invia una nuova richiesta appena riceve la risposta precedente).
+//
+// Formato della traccia: una richiesta per riga, campi separati da tabulazione
+//     create  <autore>  <testo>
+//     like    <id post> <utente>
+//     unlike  <id post> <utente>
+//     search  <parola1,parola2,...>
+//     influencers
+//
+// Utilizzo: java LoadGenerator [--trace FILE | --requests N] [--record FILE] [--impl microblog|badwords|reports]
+//                              [--concurrency N] [--rate R] [--arrival poisson|uniform] [--mix c,l,u,s,i]
+//                              [--users N] [--posts N] [--likes N] [--vocabulary N] [--skew S] [--seed N]
+public class LoadGenerator {
+    // tipi di richiesta supportati
+    public enum RequestType { CREATE, LIKE, UNLIKE, SEARCH, INFLUENCERS }
+
+    // singola richiesta della traccia
+    public static class Request {
+        private final RequestType type;
+        private final int postId;
+        private final String user;
+        private final String text;
+        private final List<String> words;
+
+        private Request(RequestType type, int postId, String user, String text, List<String> words) {
+            this.type = type;
+            this.postId = postId;
+            this.user = user;
+            this.text = text;
+            this.words = words;
+        }
+
+        // EFFECTS: restituisce il tipo della richiesta
+        public RequestType getType() {
+            return this.type;
+        }
+
+        // REQUIRES: line ≠ null ∧ line rispetta il formato della traccia
+        // THROWS: NullPointerException se line è null (unchecked exception),
+        //         IllegalArgumentException se line non rispetta il formato della traccia (unchecked exception)
+        // EFFECTS: restituisce la richiesta descritta da line
+        public static Request parse(String line) throws NullPointerException, IllegalArgumentException {
+            String[] fields = line.split("\t", 3);
+            try {
+                switch(fields[0]) {
+                    case "create": return new Request(RequestType.CREATE, -1, fields[1], fields[2], null);
+                    case "like": return new Request(RequestType.LIKE, Integer.parseInt(fields[1]), fields[2], null, null);
+                    case "unlike": return new Request(RequestType.UNLIKE, Integer.parseInt(fields[1]), fields[2], null, null);
+                    case "search": return new Request(RequestType.SEARCH, -1, null, null, Arrays.asList(fields[1].split(",")));
+                    case "influencers": return new Request(RequestType.INFLUENCERS, -1, null, null, null);
+                    default: throw new IllegalArgumentException("richiesta sconosciuta: " + line);
+                }
+            } catch(ArrayIndexOutOfBoundsException | NumberFormatException exc) {
+                throw new IllegalArgumentException("richiesta malformata: " + line, exc);
+            }
+        }
+
+        // EFFECTS: restituisce la rappresentazione della richiesta nel formato della traccia
+        public String toString() {
+            switch(this.type) {
+                case CREATE: return "create\t" + this.user + "\t" + this.text.replace('\n', ' ');
+                case LIKE: return "like\t" + this.postId + "\t" + this.user;
+                case UNLIKE: return "unlike\t" + this.postId + "\t" + this.user;
+                case SEARCH: return "search\t" + String.join(",", this.words);
+                default: return "influencers";
+            }
+        }
+    }
+
+    // rete sotto carico; MicroBlog non è thread-safe, quindi le richieste vengono serializzate con un lock lettori/scrittori
+    private final MicroBlog network;
+    private final ReadWriteLock lock;
+
+    // istogrammi di latenza e contatori degli errori per tipo di richiesta
+    private final Map<RequestType, LatencyHistogram> latencies;
+    private final Map<RequestType, LongAdder> errors;
+
+    /*
+        Representation invariant:
+        this.network ≠ null ∧ this.lock ≠ null ∧
+        ∀ t ∈ RequestType . this.latencies.get(t) ≠ null ∧ this.errors.get(t) ≠ null
+    */
+
+    // REQUIRES: network ≠ null
+    // THROWS: NullPointerException se network è null (unchecked exception)
+    public LoadGenerator(MicroBlog network) throws NullPointerException {
+        if(network == null) {
+            throw new NullPointerException();
+        }
+
+        this.network = network;
+        this.lock = new ReentrantReadWriteLock();
+        this.latencies = new EnumMap<RequestType, LatencyHistogram>(RequestType.class);
+        this.errors = new EnumMap<RequestType, LongAdder>(RequestType.class);
+        for(RequestType type : RequestType.values()) {
+            this.latencies.put(type, new LatencyHistogram());
+            this.errors.put(type, new LongAdder());
+        }
+    }
+
+    // REQUIRES: requests ≠ null ∧ concurrency > 0 ∧ rate ≥ 0
+    // THROWS: NullPointerException se requests è null (unchecked exception),
+    //         IllegalArgumentException se concurrency ≤ 0 ∨ rate < 0 (unchecked exception)
+    // MODIFIES: this, this.network
+    // EFFECTS: esegue tutte le richieste in requests con concurrency thread, a ciclo aperto con rate richieste/s
+    //          (arrivi di Poisson se poisson è true, equidistanziati altrimenti) o a ciclo chiuso se rate = 0;
+    //          restituisce la durata complessiva dell'esecuzione in nanosecondi
+    public long run(List<Request> requests, int concurrency, double rate, boolean poisson, long seed) throws NullPointerException, IllegalArgumentException, InterruptedException {
+        if(requests == null) {
+            throw new NullPointerException();
+        }
+        if(concurrency <= 0 || rate < 0) {
+            throw new IllegalArgumentException();
+        }
+
+        ExecutorService workers = Executors.newFixedThreadPool(concurrency);
+        long start = System.nanoTime();
+
+        if(rate == 0) { // ciclo chiuso: ogni thread preleva la prossima richiesta appena ha terminato la precedente
+            AtomicInteger next = new AtomicInteger();
+            CountDownLatch done = new CountDownLatch(concurrency);
+            for(int t = 0; t < concurrency; t++) {
+                workers.execute(() -> {
+                    for(int i = next.getAndIncrement(); i < requests.size(); i = next.getAndIncrement()) {
+                        this.execute(requests.get(i), System.nanoTime());
+                    }
+                    done.countDown();
+                });
+            }
+            done.await();
+        } else { // ciclo aperto: il thread corrente calcola l'istante di arrivo previsto di ogni richiesta e la accoda
+            Random random = new Random(seed);
+            double meanGapNanos = 1e9 / rate;
+            double offset = 0;
+            for(Request request : requests) {
+                long intended = start + (long) offset;
+                long wait = intended - System.nanoTime();
+                if(wait > 0) {
+                    LockSupport.parkNanos(wait);
+                }
+                workers.execute(() -> this.execute(request, intended));
+                offset += poisson ? -Math.log(1 - random.nextDouble()) * meanGapNanos : meanGapNanos;
+            }
+        }
+
+        workers.shutdown();
+        workers.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+        return System.nanoTime() - start;
+    }
+
+    // EFFECTS: restituisce le statistiche delle richieste di tipo type, con throughput calcolato su elapsedNanos
+    public OperationStats getStats(RequestType type, long elapsedNanos) {
+        return OperationStats.of(this.latencies.get(type).snapshot(), elapsedNanos);
+    }
+
+    // EFFECTS: restituisce il numero di richieste di tipo type terminate con un'eccezione
+    public long getErrors(RequestType type) {
+        return this.errors.get(type).sum();
+    }
+
+    // MODIFIES: this, this.network
+    // EFFECTS: esegue request sulla rete e ne registra la latenza misurata a partire dall'istante intendedStart;
+    //          le eccezioni sollevate dalla rete (es. like al proprio post) vengono contate come errori
+    private void execute(Request request, long intendedStart) {
+        boolean write = request.type == RequestType.CREATE || request.type == RequestType.LIKE || request.type == RequestType.UNLIKE;
+        if(write) {
+            this.lock.writeLock().lock();
+        } else {
+            this.lock.readLock().lock();
+        }
+
+        try {
+            switch(request.type) {
+                case CREATE: this.network.createPost(request.user, request.text); break;
+                case LIKE: this.network.likePost(request.postId, request.user); break;
+                case UNLIKE: this.network.unlikePost(request.postId, request.user); break;
+                case SEARCH: this.network.containing(request.words); break;
+                case INFLUENCERS: this.network.influencers(); break;
+            }
+        } catch(Exception exc) {
+            this.errors.get(request.type).increment();
+        } finally {
+            if(write) {
+                this.lock.writeLock().unlock();
+            } else {
+                this.lock.readLock().unlock();
+            }
+            this.latencies.get(request.type).record(System.nanoTime() - intendedStart);
+        }
+    }
+
+    // REQUIRES: generator ≠ null ∧ count ≥ 0 ∧ mix ≠ null ∧ mix.length = RequestType.values().length ∧ (∀ i . mix[i] ≥ 0) ∧ Σ mix[i] > 0
+    // THROWS: NullPointerException se generator è null ∨ mix è null (unchecked exception),
+    //         IllegalArgumentException se mix non rispetta le condizioni precedenti (unchecked exception)
+    // EFFECTS: restituisce una traccia di count richieste, dove la richiesta di tipo RequestType.values()[i] compare con probabilità
+    //          proporzionale a mix[i]; i post referenziati da like e unlike sono quelli con id in [0, generator.getPosts()),
+    //          ovvero quelli creati da generator.populate() su una rete vuota, e gli unlike annullano like generati in precedenza
+    public static List<Request> synthesize(SyntheticNetwork generator, int count, double[] mix, long seed) throws NullPointerException, IllegalArgumentException {
+        if(generator == null || mix == null) {
+            throw new NullPointerException();
+        }
+        if(mix.length != RequestType.values().length) {
+            throw new IllegalArgumentException();
+        }
+        double total = 0;
+        for(double weight : mix) {
+            if(weight < 0) {
+                throw new IllegalArgumentException();
+            }
+            total += weight;
+        }
+        if(total <= 0) {
+            throw new IllegalArgumentException();
+        }
+
+        Random random = new Random(seed);
+        List<Request> requests = new ArrayList<Request>(count);
+        List<Request> likes = new ArrayList<Request>(); // like già generati, candidati per un successivo unlike
+
+        while(requests.size() < count) {
+            double choice = random.nextDouble() * total;
+            int type = 0;
+            while(type < mix.length - 1 && choice >= mix[type]) {
+                choice -= mix[type];
+                type++;
+            }
+
+            switch(RequestType.values()[type]) {
+                case CREATE:
+                    requests.add(new Request(RequestType.CREATE, -1, generator.randomUser(), generator.randomText(), null));
+                    break;
+                case LIKE:
+                    Request like = new Request(RequestType.LIKE, generator.randomPostIndex(), generator.randomUser(), null, null);
+                    likes.add(like);
+                    requests.add(like);
+                    break;
+                case UNLIKE:
+                    if(!likes.isEmpty()) {
+                        Request liked = likes.remove(random.nextInt(likes.size()));
+                        requests.add(new Request(RequestType.UNLIKE, liked.postId, liked.user, null, null));
+                    }
+                    break;
+                case SEARCH:
+                    requests.add(new Request(RequestType.SEARCH, -1, null, null, generator.randomWords(1 + random.nextInt(3))));
+                    break;
+                case INFLUENCERS:
+                    requests.add(new Request(RequestType.INFLUENCERS, -1, null, null, null));
+                    break;
+            }
+        }
+        return requests;
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = LoadGenerator.parseOptions(args);
+
+        SyntheticNetwork generator = new SyntheticNetwork(Integer.parseInt(options.get("users")), Integer.parseInt(options.get("posts")),
+            Integer.parseInt(options.get("likes")), Integer.parseInt(options.get("vocabulary")),
+            Double.parseDouble(options.get("skew")), Long.parseLong(options.get("seed")));
+
+        MicroBlog network;
+        switch(options.get("impl")) {
+            case "badwords": network = new MicroBlogWithBadwordFiltering(generator.randomWords(20)); break;
+            case "reports": network = new MicroBlogWithReports(); break;
+            default: network = new MicroBlog();
+        }
+        generator.populate(network); // la traccia fa riferimento ai post iniziali tramite il loro id
+
+        List<Request> requests = new ArrayList<Request>();
+        if(options.get("trace") != null) {
+            try(BufferedReader reader = Files.newBufferedReader(Paths.get(options.get("trace")), StandardCharsets.UTF_8)) {
+                for(String line = reader.readLine(); line != null; line = reader.readLine()) {
+                    if(!line.isEmpty()) {
+                        requests.add(Request.parse(line));
+                    }
+                }
+            }
+        } else {
+            String[] weights = options.get("mix").split(",");
+            double[] mix = new double[weights.length];
+            for(int i = 0; i < weights.length; i++) {
+                mix[i] = Double.parseDouble(weights[i]);
+            }
+            requests = LoadGenerator.synthesize(generator, Integer.parseInt(options.get("requests")), mix, Long.parseLong(options.get("seed")));
+        }
+
+        if(options.get("record") != null) {
+            try(BufferedWriter writer = Files.newBufferedWriter(Paths.get(options.get("record")), StandardCharsets.UTF_8)) {
+                for(Request request : requests) {
+                    writer.write(request.toString());
+                    writer.newLine();
+                }
+            }
+        }
+
+        LoadGenerator load = new LoadGenerator(network);
+        long elapsed = load.run(requests, Integer.parseInt(options.get("concurrency")), Double.parseDouble(options.get("rate")),
+            options.get("arrival").equals("poisson"), Long.parseLong(options.get("seed")));
+
+        System.out.printf("# %d richieste in %.2f s (%.1f richieste/s)%n", requests.size(), elapsed / 1e9, requests.size() / (elapsed / 1e9));
+        System.out.printf("%-12s %10s %8s %12s %12s %12s %12s %12s%n", "richiesta", "numero", "errori", "op/s", "p50(µs)", "p99(µs)", "p99.9(µs)", "max(µs)");
+        for(RequestType type : RequestType.values()) {
+            OperationStats stats = load.getStats(type, elapsed);
+            System.out.printf("%-12s %10d %8d %12.1f %12.1f %12.1f %12.1f %12.1f%n", type.name().toLowerCase(), stats.getCount(),
+                load.getErrors(type), stats.getThroughput(), stats.getP50Micros(), stats.getP99Micros(), stats.getP999Micros(), stats.getMaxMicros());
+        }
+    }
+
+    // EFFECTS: restituisce le opzioni della riga di comando, completate con i valori di default
+    private static Map<String, String> parseOptions(String[] args) throws IllegalArgumentException {
+        Map<String, String> options = new LinkedHashMap<String, String>();
+        options.put("trace", null);
+        options.put("record", null);
+        options.put("requests", "100000");
+        options.put("impl", "microblog");
+        options.put("concurrency", "4");
+        options.put("rate", "0");
+        options.put("arrival", "poisson");
+        options.put("mix", "10,40,10,35,5"); // create, like, unlike, search, influencers
+        options.put("users", "1000");
+        options.put("posts", "10000");
+        options.put("likes", "50000");
+        options.put("vocabulary", "2000");
+        options.put("skew", "1.0");
+        options.put("seed", "42");
+
+        Map<String, String> given = new HashMap<String, String>();
+        for(int i = 0; i + 1 < args.length; i += 2) {
+            if(!args[i].startsWith("--") || !options.containsKey(args[i].substring(2))) {
+                throw new IllegalArgumentException("opzione sconosciuta: " + args[i]);
+            }
+            given.put(args[i].substring(2), args[i + 1]);
+        }
+        options.putAll(given);
+        return options;
+    }
+}
@@ -0,0 +1,301 @@
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// grafo delle relazioni di follow in formato CSR (vedi CsrGraph) memorizzato su disco e letto tramite memory-mapping, in
+// sola lettura, così che le elaborazioni batch (es. MicroBlog.influencers(MappedCsrGraph)) possano scorrere grafi anche di
+// più gigabyte senza costruire collezioni sullo heap: il sistema operativo mantiene in memoria solo le pagine lette
+// Formato del file (big-endian, ogni sezione allineata a 8 byte):
+//     MAGIC (int), VERSION (int), numero di utenti n (int), padding (int), numero di archi m (long)
+//     offsets: n + 1 long, gli archi uscenti dall'utente v sono targets[offsets[v]], ..., targets[offsets[v + 1] - 1]
+//     targets: m int, gli utenti seguiti, in ordine crescente per ciascun utente
+//     dizionario: n + 1 long, il nome dell'utente v occupa i byte [names[v], names[v + 1]) del blocco seguente
+//     nomi: i nomi degli utenti codificati in UTF-8, in ordine crescente (String.compareTo), per cui l'id di un utente è la
+//           sua posizione in quest'ordine e getId() è una ricerca binaria
+// Il file viene mappato in blocchi di CHUNK_SIZE byte, perché un singolo MappedByteBuffer non supera i 2 GB; poiché le
+// sezioni sono allineate, nessun long o int è diviso tra due blocchi.
+public class MappedCsrGraph {
+    private static final int MAGIC = 0x4d424347; // "MBCG"
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 24;
+
+    private static final int CHUNK_BITS = 30;
+    private static final long CHUNK_SIZE = 1L << CHUNK_BITS;
+
+    private final Path file;
+    private final MappedByteBuffer[] chunks;
+    private final int vertices;
+    private final long edges;
+
+    // posizione nel file delle sezioni
+    private final long offsetsStart;
+    private final long targetsStart;
+    private final long namesStart;
+    private final long blobStart;
+
+    /*
+        Representation invariant:
+        this.file ≠ null ∧ this.chunks ≠ null ∧ this.vertices ≥ 0 ∧ this.edges ≥ 0 ∧
+        this.offsetsStart = HEADER_SIZE ∧ this.targetsStart = this.offsetsStart + 8 * (this.vertices + 1) ∧
+        this.namesStart = this.targetsStart + 4 * this.edges arrotondato a un multiplo di 8 ∧
+        this.blobStart = this.namesStart + 8 * (this.vertices + 1) ∧
+        offsets e names sono crescenti, con offsets[0] = 0 ∧ offsets[n] = m ∧ names[0] = 0 ∧
+        this.blobStart + names[n] ≤ dimensione del file ∧ ∀ i . 0 ≤ targets[i] < this.vertices
+    */
+
+    // EFFECTS: crea il grafo che legge il file file, già mappato in chunks
+    private MappedCsrGraph(Path file, MappedByteBuffer[] chunks, long size) throws IOException {
+        this.file = file;
+        this.chunks = chunks;
+        if(size < HEADER_SIZE || this.getInt(0) != MAGIC || this.getInt(4) != VERSION) {
+            throw new IOException("grafo non valido: " + file);
+        }
+
+        this.vertices = this.getInt(8);
+        this.edges = this.getLong(16);
+        if(this.vertices < 0 || this.edges < 0) {
+            throw new IOException("grafo non valido: " + file);
+        }
+        this.offsetsStart = HEADER_SIZE;
+        this.targetsStart = this.offsetsStart + 8L * (this.vertices + 1);
+        this.namesStart = MappedCsrGraph.align(this.targetsStart + 4L * this.edges);
+        this.blobStart = this.namesStart + 8L * (this.vertices + 1);
+
+        // controllo solo i limiti delle sezioni, senza leggere l'intero file
+        if(this.blobStart > size || this.getOffset(0) != 0 || this.getOffset(this.vertices) != this.edges ||
+           this.getLong(this.namesStart) != 0 || this.blobStart + this.getLong(this.namesStart + 8L * this.vertices) > size) {
+            throw new IOException("grafo non valido: " + file);
+        }
+    }
+
+    // REQUIRES: file ≠ null ∧ follows ≠ null ∧ ∀ (u, s) ∈ follows . u ≠ null ∧ s ≠ null ∧ ∀ v ∈ s . v ≠ null
+    // THROWS: NullPointerException se file è null ∨ follows è null ∨ contiene un utente o un insieme null (unchecked exception),
+    //         IOException se la scrittura del file fallisce (checked exception)
+    // EFFECTS: scrive nel file file (sovrascrivendolo se esiste) il grafo in cui ogni utente u di follows ha un arco verso
+    //          ciascun utente di follows.get(u); gli utenti sono le chiavi di follows e tutti gli utenti seguiti. Restituisce
+    //          il grafo che legge il file
+    public static MappedCsrGraph write(Path file, Map<String, ? extends Collection<String>> follows) throws NullPointerException, IOException {
+        if(file == null || follows == null) {
+            throw new NullPointerException();
+        }
+
+        List<String> names = new ArrayList<String>(follows.keySet());
+        for(Collection<String> followed : follows.values()) {
+            for(String user : followed) {
+                if(!follows.containsKey(user)) {
+                    names.add(user);
+                }
+            }
+        }
+        Collections.sort(names); // lancia NullPointerException se un utente è null
+        int n = 0;
+        for(int i = 0; i < names.size(); i++) {
+            if(i == 0 || !names.get(i).equals(names.get(n - 1))) { // rimuovo i duplicati (utenti seguiti da più utenti)
+                names.set(n++, names.get(i));
+            }
+        }
+        names = names.subList(0, n);
+        Map<String, Integer> ids = new HashMap<String, Integer>();
+        for(int v = 0; v < n; v++) {
+            ids.put(names.get(v), v);
+        }
+
+        long m = 0;
+        for(Collection<String> followed : follows.values()) {
+            m += followed.size();
+        }
+
+        try(DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file), 1 << 16))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(n);
+            out.writeInt(0);
+            out.writeLong(m);
+
+            long offset = 0;
+            out.writeLong(offset);
+            for(String user : names) {
+                Collection<String> followed = follows.get(user);
+                offset += followed != null ? followed.size() : 0;
+                out.writeLong(offset);
+            }
+
+            for(String user : names) {
+                Collection<String> followed = follows.get(user);
+                if(followed == null) {
+                    continue;
+                }
+                int[] targets = new int[followed.size()];
+                int i = 0;
+                for(String target : followed) {
+                    targets[i++] = ids.get(target);
+                }
+                Arrays.sort(targets);
+                for(int target : targets) {
+                    out.writeInt(target);
+                }
+            }
+            if(m % 2 != 0) {
+                out.writeInt(0); // allineo il dizionario a 8 byte
+            }
+
+            List<byte[]> encoded = new ArrayList<byte[]>(n);
+            long position = 0;
+            out.writeLong(position);
+            for(String user : names) {
+                byte[] bytes = user.getBytes(StandardCharsets.UTF_8);
+                encoded.add(bytes);
+                position += bytes.length;
+                out.writeLong(position);
+            }
+            for(byte[] bytes : encoded) {
+                out.write(bytes);
+            }
+        }
+        return MappedCsrGraph.open(file);
+    }
+
+    // REQUIRES: file ≠ null
+    // THROWS: NullPointerException se file è null (unchecked exception),
+    //         IOException se il file non esiste, non è leggibile o non è un grafo valido (checked exception)
+    // EFFECTS: restituisce il grafo che legge il file file
+    public static MappedCsrGraph open(Path file) throws NullPointerException, IOException {
+        if(file == null) {
+            throw new NullPointerException();
+        }
+
+        // la mappatura resta valida anche dopo la chiusura del canale
+        try(FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            MappedByteBuffer[] chunks = new MappedByteBuffer[(int) ((size + CHUNK_SIZE - 1) >>> CHUNK_BITS)];
+            for(int c = 0; c < chunks.length; c++) {
+                long start = (long) c << CHUNK_BITS;
+                chunks[c] = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(CHUNK_SIZE, size - start));
+            }
+            return new MappedCsrGraph(file, chunks, size);
+        }
+    }
+
+    // EFFECTS: restituisce il file del grafo
+    public Path getFile() {
+        return this.file;
+    }
+
+    // EFFECTS: restituisce il numero di utenti
+    public int getNumberOfVertices() {
+        return this.vertices;
+    }
+
+    // EFFECTS: restituisce il numero di archi
+    public long getNumberOfEdges() {
+        return this.edges;
+    }
+
+    // REQUIRES: 0 ≤ v ≤ this.getNumberOfVertices()
+    // EFFECTS: restituisce la posizione del primo arco uscente da v (per v = getNumberOfVertices(), il numero di archi)
+    public long getOffset(int v) {
+        return this.getLong(this.offsetsStart + 8L * v);
+    }
+
+    // REQUIRES: 0 ≤ i < this.getNumberOfEdges()
+    // EFFECTS: restituisce l'utente seguito con l'arco in posizione i
+    public int getTarget(long i) {
+        return this.getInt(this.targetsStart + 4L * i);
+    }
+
+    // REQUIRES: 0 ≤ v < this.getNumberOfVertices()
+    // EFFECTS: restituisce il numero di utenti seguiti da v
+    public int getDegree(int v) {
+        return (int) (this.getOffset(v + 1) - this.getOffset(v));
+    }
+
+    // REQUIRES: 0 ≤ v < this.getNumberOfVertices()
+    // THROWS: IndexOutOfBoundsException se v < 0 ∨ v ≥ this.getNumberOfVertices() (unchecked exception)
+    // EFFECTS: restituisce il nome dell'utente v
+    public String getName(int v) throws IndexOutOfBoundsException {
+        if(v < 0 || v >= this.vertices) {
+            throw new IndexOutOfBoundsException();
+        }
+
+        long start = this.getLong(this.namesStart + 8L * v);
+        long end = this.getLong(this.namesStart + 8L * (v + 1));
+        byte[] bytes = new byte[(int) (end - start)];
+        for(int i = 0; i < bytes.length; i++) { // un nome può trovarsi a cavallo di due blocchi
+            long position = this.blobStart + start + i;
+            bytes[i] = this.chunks[(int) (position >>> CHUNK_BITS)].get((int) (position & (CHUNK_SIZE - 1)));
+        }
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    // REQUIRES: user ≠ null
+    // THROWS: NullPointerException se user è null (unchecked exception)
+    // EFFECTS: restituisce l'id di user, o -1 se user non è un utente del grafo
+    public int getId(String user) throws NullPointerException {
+        if(user == null) {
+            throw new NullPointerException();
+        }
+
+        int low = 0;
+        int high = this.vertices - 1;
+        while(low <= high) {
+            int mid = (low + high) >>> 1;
+            int comparison = this.getName(mid).compareTo(user);
+            if(comparison == 0) {
+                return mid;
+            }
+            if(comparison < 0) {
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return -1;
+    }
+
+    // REQUIRES: il grafo ha al più Integer.MAX_VALUE archi
+    // THROWS: IllegalStateException se il grafo ha più di Integer.MAX_VALUE archi (unchecked exception)
+    // EFFECTS: restituisce una copia del grafo sullo heap
+    public CsrGraph toCsrGraph() throws IllegalStateException {
+        if(this.edges > Integer.MAX_VALUE) {
+            throw new IllegalStateException();
+        }
+
+        int[] offsets = new int[this.vertices + 1];
+        for(int v = 0; v <= this.vertices; v++) {
+            offsets[v] = (int) this.getOffset(v);
+        }
+        int[] targets = new int[(int) this.edges];
+        for(int i = 0; i < targets.length; i++) {
+            targets[i] = this.getTarget(i);
+        }
+        return new CsrGraph(offsets, targets);
+    }
+
+    // EFFECTS: restituisce l'int in posizione position del file
+    private int getInt(long position) {
+        return this.chunks[(int) (position >>> CHUNK_BITS)].getInt((int) (position & (CHUNK_SIZE - 1)));
+    }
+
+    // EFFECTS: restituisce il long in posizione position del file
+    private long getLong(long position) {
+        return this.chunks[(int) (position >>> CHUNK_BITS)].getLong((int) (position & (CHUNK_SIZE - 1)));
+    }
+
+    // EFFECTS: restituisce il più piccolo multiplo di 8 ≥ position
+    private static long align(long position) {
+        return (position + 7) & ~7L;
+    }
+}
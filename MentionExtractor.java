@@ -0,0 +1,49 @@
+import java.util.Collection;
+
+// estrazione delle menzioni (@utente) e degli hashtag (#tag) dal testo di un post, in un'unica scansione del testo
+// Una menzione o un hashtag inizia con '@' o '#' all'inizio del testo o dopo un carattere che non fa parte di una parola
+// (così che es. "mario@example.com" non sia una menzione) e prosegue con la sequenza massimale di lettere, cifre e '_' che
+// segue (una parola secondo WordTokenizer); i nomi utente vengono riportati così come sono scritti, gli hashtag in minuscolo e senza '#'
+public class MentionExtractor {
+    // la classe contiene solo metodi statici e non deve essere istanziata
+    private MentionExtractor() {
+    }
+
+    // REQUIRES: text ≠ null
+    // THROWS: NullPointerException se text è null (unchecked exception)
+    // MODIFIES: mentions, tags
+    // EFFECTS: aggiunge a mentions gli utenti menzionati in text e a tags gli hashtag contenuti in text;
+    //          mentions o tags possono essere null se il chiamante non è interessato al corrispondente risultato
+    public static void extract(String text, Collection<String> mentions, Collection<String> tags) throws NullPointerException {
+        if(text == null) {
+            throw new NullPointerException();
+        }
+
+        int length = text.length();
+        for(int i = 0; i < length; i++) {
+            char marker = text.charAt(i);
+            if((marker != '@' && marker != '#') || (i > 0 && WordTokenizer.isWordChar(text.charAt(i - 1)))) {
+                continue;
+            }
+
+            int end = i + 1;
+            while(end < length && WordTokenizer.isWordChar(text.charAt(end))) {
+                end++;
+            }
+            if(end > i + 1) {
+                if(marker == '@' && mentions != null) {
+                    mentions.add(text.substring(i + 1, end));
+                } else if(marker == '#' && tags != null) {
+                    tags.add(WordTokenizer.fold(text.subSequence(i + 1, end)));
+                }
+            }
+            i = end - 1; // riprendo la scansione dal primo carattere che segue il nome
+        }
+    }
+
+    // REQUIRES: tag ≠ null
+    // EFFECTS: restituisce tag nella forma in cui viene memorizzato dagli indici, ovvero senza l'eventuale '#' iniziale e in minuscolo
+    public static String normalizeTag(String tag) {
+        return WordTokenizer.fold(tag.startsWith("#") ? tag.substring(1) : tag);
+    }
+}
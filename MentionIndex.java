@@ -0,0 +1,97 @@
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+// indici inversi delle menzioni e degli hashtag dei post di un MicroBlog: a ogni utente menzionato associa gli id dei post
+// che lo menzionano, a ogni hashtag gli id dei post che lo contengono (vedi MentionExtractor)
+public class MentionIndex implements MicroBlogIndex {
+    private final Map<String, Set<Integer>> mentions;
+    private final Map<String, Set<Integer>> tags;
+
+    /*
+        Representation invariant:
+        this.mentions ≠ null ∧ this.tags ≠ null ∧
+        (∀ (k, v) ∈ this.mentions . v non è vuoto ∧ ∀ id ∈ v . il testo del post con id id menziona k) ∧
+        (∀ (k, v) ∈ this.tags . v non è vuoto ∧ ∀ id ∈ v . il testo del post con id id contiene l'hashtag k)
+    */
+
+    public MentionIndex() {
+        this.mentions = new HashMap<String, Set<Integer>>();
+        this.tags = new HashMap<String, Set<Integer>>();
+    }
+
+    public void apply(MicroBlogEvent event) {
+        switch(event.getType()) {
+            case POST_CREATED:
+                this.update(event.getPostId(), null, event.getText());
+                break;
+            case POST_EDITED:
+            case POST_CENSORED:
+                this.update(event.getPostId(), event.getPreviousText(), event.getText());
+                break;
+            default: // like e follow non modificano l'indice
+        }
+    }
+
+    // EFFECTS: restituisce una vista non modificabile degli id dei post che menzionano user
+    public Set<Integer> mentionsOf(String user) {
+        Set<Integer> ids = this.mentions.get(user);
+        return ids == null ? Collections.<Integer>emptySet() : Collections.unmodifiableSet(ids);
+    }
+
+    // REQUIRES: tag ≠ null
+    // EFFECTS: restituisce una vista non modificabile degli id dei post che contengono l'hashtag tag (con o senza '#',
+    //          ignorando maiuscole e minuscole)
+    public Set<Integer> postsTagged(String tag) {
+        Set<Integer> ids = this.tags.get(MentionExtractor.normalizeTag(tag));
+        return ids == null ? Collections.<Integer>emptySet() : Collections.unmodifiableSet(ids);
+    }
+
+    // EFFECTS: restituisce una vista non modificabile degli utenti menzionati in almeno un post
+    public Set<String> getMentionedUsers() {
+        return Collections.unmodifiableSet(this.mentions.keySet());
+    }
+
+    // EFFECTS: restituisce una vista non modificabile degli hashtag contenuti in almeno un post
+    public Set<String> getTags() {
+        return Collections.unmodifiableSet(this.tags.keySet());
+    }
+
+    // MODIFIES: this
+    // EFFECTS: aggiorna gli indici del post postId, il cui testo è passato da previousText (null se il post è nuovo) a text
+    private void update(int postId, String previousText, String text) {
+        Set<String> oldMentions = new HashSet<String>();
+        Set<String> oldTags = new HashSet<String>();
+        if(previousText != null) {
+            MentionExtractor.extract(previousText, oldMentions, oldTags);
+        }
+        Set<String> newMentions = new HashSet<String>();
+        Set<String> newTags = new HashSet<String>();
+        MentionExtractor.extract(text, newMentions, newTags);
+
+        MentionIndex.update(this.mentions, postId, oldMentions, newMentions);
+        MentionIndex.update(this.tags, postId, oldTags, newTags);
+    }
+
+    // MODIFIES: index
+    // EFFECTS: rimuove postId dalle chiavi in before ma non in after e lo aggiunge a quelle in after ma non in before,
+    //          eliminando le chiavi rimaste senza post
+    private static void update(Map<String, Set<Integer>> index, int postId, Set<String> before, Set<String> after) {
+        for(String key : before) {
+            if(!after.contains(key)) {
+                Set<Integer> ids = index.get(key);
+                ids.remove(postId);
+                if(ids.isEmpty()) {
+                    index.remove(key);
+                }
+            }
+        }
+        for(String key : after) {
+            if(!before.contains(key)) {
+                index.computeIfAbsent(key, k -> new HashSet<Integer>()).add(postId);
+            }
+        }
+    }
+}
@@ -1,26 +1,123 @@
+import java.io.IOException;
+import java.nio.file.Path;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.List;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.LinkedList;
 import java.util.Map;
 import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
 import java.util.Set;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
 import javax.naming.LimitExceededException;
 
 public class MicroBlog implements SocialNetwork {
+    // Testo che sostituisce il contenuto dei post censurati
+    public static final String CENSORED_TEXT = "(deleted)";
+
     // Struttura dati che associa a un utente l'insieme degli utenti da esso seguiti
     private Map<String, Set<String>> followRelations;
 
     // Struttura dati che associa a un utente l'insieme dei post scritti da esso
     private Map<String, Set<Post>> postRelations;
 
-    // Struttura dati di supporto ottimizzata per la ricerca dei post
-    private Map<Integer, Post> postLookup;
+    // Struttura dati di supporto ottimizzata per la ricerca dei post, indicizzata direttamente per id (vedi PostTable)
+    private PostTable postLookup;
+
+    // Prossimo id unico che verrà associato a un nuovo post; volatile perché viene letto anche dal ReplicationLeader quando
+    // invia uno snapshot
+    private volatile int nextId;
+
+    // Numero totale di relazioni di follow, mantenuto per evitare di scorrere followRelations
+    private int followEdgeCount;
+
+    // Consegna asincrona degli eventi di modifica ai listener registrati
+    private EventDispatcher dispatcher;
+
+    // Numero di sequenza dell'ultimo evento di modifica generato
+    private long eventSequence;
+
+    // Indici aggiornati in modo sincrono a ogni modifica (vedi MicroBlogIndex)
+    private List<MicroBlogIndex> indexes;
+
+    // Indice per l'autocompletamento e la ricerca approssimata, creato alla prima interrogazione
+    private volatile SearchIndex searchIndex;
+
+    // Indici inversi delle menzioni (@utente) e degli hashtag (#tag) contenuti nei post
+    private MentionIndex mentionIndex;
+
+    // Parole di tendenza dei post creati di recente
+    private TrendEngine trendEngine;
+
+    // Classifica degli utenti per influenza, creata alla prima interrogazione
+    private volatile InfluenceRanker influenceRanker;
+
+    // Suggerimenti "chi seguire", creati alla prima richiesta
+    private volatile FollowRecommender followRecommender;
+
+    // Stime degli utenti distinti che hanno messo like a ciascun post e autore, create alla prima richiesta
+    private volatile ReachIndex reachIndex;
+
+    // Like di ciascun post e follower di ciascun autore come bitmap compresse, create alla prima richiesta
+    private volatile AudienceIndex audienceIndex;
+
+    // classifica dei post per numero di like (null finché non viene richiesta con mostLiked)
+    private volatile LikeLeaderboard likeLeaderboard;
+
+    // copia multi-versione letta dagli snapshot (null finché non viene chiamato enableSnapshots)
+    private volatile VersionedStore versionedStore;
+
+    // Livello freddo in cui vengono spostati i post vecchi o poco consultati; null se tutti i post sono in memoria
+    private SegmentStore coldStore;
+
+    // Numero di accessi a ciascun post in memoria dall'ultimo spostamento nel livello freddo (solo se coldStore ≠ null)
+    private Map<Integer, Integer> accessCounts;
+
+    // Per ogni utente, il numero di post nel livello freddo di ciascun autore a cui ha messo like
+    private Map<String, Map<String, Integer>> coldLikes;
+
+    // I post con id ≥ evictionHorizon sono stati creati dopo l'ultimo spostamento e non vengono considerati poco consultati
+    private int evictionHorizon;
+
+    // Filtro di Bloom sulle parole dei post in memoria, con cui containing evita di scorrerli se non possono corrispondere
+    private KeywordFilter keywordFilter;
+
+    // Numero di post modificati, censurati o spostati dall'ultima ricostruzione di keywordFilter
+    private int staleKeywords;
+
+    // Efficacia dei filtri delle parole dei post in memoria e dei segmenti del livello freddo
+    private KeywordFilterStats keywordFilterStats;
+
+    // Riconoscitore dei quasi duplicati tra gli ultimi post creati; null finché non viene chiamato enableDuplicateDetection
+    private NearDuplicateDetector duplicateDetector;
+
+    // true se createPost rifiuta i quasi duplicati, false se li crea segnalandoli in nearDuplicates
+    private boolean rejectDuplicates;
+
+    // id di ogni post creato come quasi duplicato, tra quelli ricordati da duplicateDetector, ↦ id del post precedente a cui
+    // somiglia; le segnalazioni vengono dimenticate insieme ai post, così che la mappa non cresca con il numero di post
+    private Map<Integer, Integer> nearDuplicates;
+
+    // true se i timestamp dei post sono non decrescenti negli id, condizione perché query possa usare il percorso TIME (vedi
+    // firstIdAtOrAfter); diventa false, per sempre, se viene inserito un post con timestamp precedente a quello del post con
+    // id massimo (es. l'orologio di sistema torna indietro, o i post di restore non sono ordinati nel tempo)
+    private boolean timestampsOrdered;
+
+    // id e timestamp del post con id massimo tra quelli inseriti
+    private int latestId;
+    private long latestTimestamp;
+
+    // numero minimo di post per cui getMentionedUsers(List<Post>) estrae le menzioni in parallelo
+    private static final int PARALLEL_EXTRACTION_THRESHOLD = 4096;
 
-    // Prossimo id unico che verrà associato a un nuovo post
-    private int nextId;
+    // numero minimo di post modificati dopo il quale keywordFilter viene ricostruito
+    private static final int KEYWORD_REBUILD_THRESHOLD = 64;
 
     /*
         Abstraction function:
@@ -38,16 +135,48 @@ public class MicroBlog implements SocialNetwork {
         IR(Post) ∧
         ∀ u utente . u ≠ null ∧ u ∉ /^\s+$/ ∧ u.length > 0 ∧ (∀ v utente. v ∈ this.followRelations.get(u) ⟺ (∃ p post . p.getAuthor() = v ∧ u ∈ p.getLikes())) ∧
         ∀ (k, v) ∈ this.postRelations . k = v.getAuthor() ∧
-        ∀ (k, v) ∈ this.postLookup . k = v.getId() ∧
+        ∀ p ∈ this.postLookup . this.postLookup.get(p.getId()) = p ∧
+        (this.coldStore ≠ null ⇒ ∀ p ∈ this.postLookup . ¬this.coldStore.contains(p.getId())) ∧
+        ∀ (u, m) ∈ this.coldLikes . ∀ (a, n) ∈ m . n = #{p ∈ this.coldStore | p.getAuthor() = a ∧ u ∈ p.getLikes()} > 0 ∧
         this.postRelations.keySet() = this.followRelations.keySet() ∧
-        ∀ p ∈ this.getAllPosts() . this.nextId ≠ p.getId()
+        ∀ p ∈ this.getAllPosts() . this.nextId ≠ p.getId() ∧
+        this.followEdgeCount = Σ_{(k, v) ∈ this.followRelations} v.size() ∧
+        (this.timestampsOrdered ⇒ ∀ p, q ∈ this.getAllPosts() . p.getId() < q.getId() ⇒ p.getTimestamp() ≤ q.getTimestamp())
     */
 
     public MicroBlog() {
         this.followRelations = new HashMap<String, Set<String>>();
         this.postRelations = new HashMap<String, Set<Post>>();
-        this.postLookup = new HashMap<Integer, Post>();
+        this.postLookup = new PostTable();
         this.nextId = 0;
+        this.followEdgeCount = 0;
+        this.dispatcher = new EventDispatcher();
+        this.eventSequence = 0;
+        this.indexes = new ArrayList<MicroBlogIndex>();
+        this.searchIndex = null;
+        this.influenceRanker = null;
+        this.followRecommender = null;
+        this.reachIndex = null;
+        this.audienceIndex = null;
+        this.likeLeaderboard = null;
+        this.versionedStore = null;
+        this.coldStore = null;
+        this.accessCounts = new ConcurrentHashMap<Integer, Integer>(); // aggiornata anche dalle letture concorrenti
+        this.coldLikes = new HashMap<String, Map<String, Integer>>();
+        this.evictionHorizon = 0;
+        this.keywordFilter = new KeywordFilter(0);
+        this.staleKeywords = 0;
+        this.keywordFilterStats = new KeywordFilterStats();
+        this.duplicateDetector = null;
+        this.rejectDuplicates = false;
+        this.nearDuplicates = new HashMap<Integer, Integer>();
+        this.timestampsOrdered = true;
+        this.latestId = -1;
+        this.latestTimestamp = Long.MIN_VALUE;
+        this.mentionIndex = new MentionIndex();
+        this.indexes.add(this.mentionIndex);
+        this.trendEngine = new TrendEngine();
+        this.indexes.add(this.trendEngine);
     }
 
     public MicroBlog(List<Post> posts) throws NullPointerException, LimitExceededException {
@@ -111,11 +240,19 @@ public class MicroBlog implements SocialNetwork {
             throw new NullPointerException();
         }
 
+        // conto i follower di ogni utente con un'unica scansione della map, invece di scorrerla per ciascun utente
+        Map<String, Integer> followerCounts = new HashMap<String, Integer>();
+        for(Map.Entry<String,Set<String>> entry : followers.entrySet()) {
+            for(String followed : entry.getValue()) {
+                followerCounts.merge(followed, 1, Integer::sum);
+            }
+        }
+
         List<String> influencerList = new LinkedList<String>();
         
         // itero la mappa followers per ottenere i nomi degli utenti, verificando uno per uno se rientrano nei canoni di "influencer"
         for(Map.Entry<String,Set<String>> entry : followers.entrySet()) {
-            if(entry.getValue().size() < MicroBlog.getNumerOfFollowers(entry.getKey(), followers)) {
+            if(entry.getValue().size() < followerCounts.getOrDefault(entry.getKey(), 0)) {
                 influencerList.add(entry.getKey());
             }
         }
@@ -124,8 +261,36 @@ public class MicroBlog implements SocialNetwork {
 
     }
 
+    // REQUIRES: graph ≠ null
+    // THROWS: NullPointerException se graph è null (unchecked exception)
+    // EFFECTS: come influencers(Map), sul grafo delle relazioni di follow graph (vedi exportFollowGraph), in ordine di nome;
+    //          scorre il grafo sequenzialmente senza costruire collezioni, usando solo un array di n contatori. Gli utenti che
+    //          non seguono nessuno sono considerati come chiavi con insieme vuoto
+    public static List<String> influencers(MappedCsrGraph graph) throws NullPointerException {
+        if(graph == null) {
+            throw new NullPointerException();
+        }
+
+        int n = graph.getNumberOfVertices();
+        int[] followerCounts = new int[n];
+        long edges = graph.getNumberOfEdges();
+        for(long i = 0; i < edges; i++) {
+            followerCounts[graph.getTarget(i)]++;
+        }
+
+        List<String> influencerList = new ArrayList<String>();
+        for(int v = 0; v < n; v++) {
+            if(graph.getDegree(v) < followerCounts[v]) {
+                influencerList.add(graph.getName(v));
+            }
+        }
+        return influencerList;
+    }
+
     public Set<String> getMentionedUsers() {
-        return MicroBlog.getMentionedUsers(this.getAllPosts());
+        Set<String> users = new HashSet<String>(this.postRelations.keySet());
+        users.addAll(this.mentionIndex.getMentionedUsers());
+        return users;
     }
 
     public static Set<String> getMentionedUsers(List<Post> ps) throws NullPointerException {
@@ -138,17 +303,23 @@ public class MicroBlog implements SocialNetwork {
             }
         }
 
-        Set<String> users = new HashSet<String>();
-
-        for(Post post : ps) {
+        // l'estrazione delle menzioni è indipendente per ogni post: sulle liste lunghe la distribuisco tra i thread del
+        // ForkJoinPool comune, raccogliendo i risultati in un insieme concorrente
+        Set<String> users = ConcurrentHashMap.newKeySet();
+        (ps.size() >= MicroBlog.PARALLEL_EXTRACTION_THRESHOLD ? ps.parallelStream() : ps.stream()).forEach(post -> {
             users.add(post.getAuthor()); // aggiungo l'autore del post all'insieme di ritorno
-        }
+            MentionExtractor.extract(post.getText(), users, null);
+        });
 
-        return users;
+        return new HashSet<String>(users);
     }
 
     public List<Post> writtenBy(String username) throws NullPointerException, IllegalArgumentException {
-        return MicroBlog.writtenBy(this.getAllPosts(), username);
+        List<Post> posts = MicroBlog.writtenBy(this.postLookup.toList(), username); // writtenBy restituisce delle copie
+        if(this.coldStore != null) {
+            posts.addAll(this.coldStore.writtenBy(username));
+        }
+        return posts;
     }
 
     public static List<Post> writtenBy(List<Post> ps, String username) throws NullPointerException, IllegalArgumentException {
@@ -185,34 +356,70 @@ public class MicroBlog implements SocialNetwork {
 
         List<Post> outputList = new LinkedList<Post>();
 
-        for(Map.Entry<Integer,Post> entry : this.postLookup.entrySet()) {
-            Post post = entry.getValue();
-            boolean valid = true;
-            for(String word : words) { // per ogni post, controllo che ciascuna delle parole in words sia contenuta nel testo del post
-                //System.out.println(post.getText() + " contains or not " + word);
-                if(!containsExactly(post.getText(), word)) {
-                   // System.out.println("no");
-                    valid = false;
-                    break; // se trovo una parola non contenuta, posso uscire dal ciclo più interno
+        // scorro i post in memoria solo se il filtro delle parole non esclude che uno di essi contenga tutte le parole
+        if(this.keywordFilter.mightContainAll(words)) {
+            for(Post post : this.postLookup) {
+                if(MicroBlog.containsAll(post.getText(), words)) {
+                    outputList.add(post);
                 }
-                //System.out.println("yes");
-
-            }
-            if(valid) {
-                outputList.add(post);
             }
+            this.keywordFilterStats.recordScan(!outputList.isEmpty());
+        } else {
+            this.keywordFilterStats.recordSkip();
+        }
+        if(this.coldStore != null) { // i post del livello freddo vengono letti da disco, saltando i segmenti esclusi dai loro filtri
+            outputList.addAll(this.coldStore.containing(words, post -> MicroBlog.containsAll(post.getText(), words), this.keywordFilterStats));
         }
         return outputList;
     }
 
     // Seguono i metodi non facenti parte dell'interfaccia SocialNetwork
 
+    // REQUIRES: user ≠ null ∧ user ∉ /^\s+$/ ∧ user.length > 0
+    // THROWS: NullPointerException se user è null (unchecked exception),
+    //         IllegalArgumentException se user.length = 0 ∨ user ∈ /^\s+$/ (unchecked exception)
+    // EFFECTS: restituisce una lista, ordinata per id, delle copie dei post che menzionano user (vedi MentionExtractor)
+    public List<Post> mentionsOf(String user) throws NullPointerException, IllegalArgumentException {
+        if(user == null) {
+            throw new NullPointerException();
+        }
+        if(user.trim().isEmpty()) {
+            throw new IllegalArgumentException();
+        }
+
+        return this.getPostsById(this.mentionIndex.mentionsOf(user));
+    }
+
+    // REQUIRES: tag ≠ null ∧ tag ∉ /^#?\s*$/
+    // THROWS: NullPointerException se tag è null (unchecked exception),
+    //         IllegalArgumentException se tag, senza l'eventuale '#' iniziale, è vuoto o composto da soli spazi (unchecked exception)
+    // EFFECTS: restituisce una lista, ordinata per id, delle copie dei post che contengono l'hashtag tag, indicato con o senza
+    //          '#' e senza distinguere maiuscole e minuscole
+    public List<Post> postsTagged(String tag) throws NullPointerException, IllegalArgumentException {
+        if(tag == null) {
+            throw new NullPointerException();
+        }
+        if(MentionExtractor.normalizeTag(tag).trim().isEmpty()) {
+            throw new IllegalArgumentException();
+        }
+
+        return this.getPostsById(this.mentionIndex.postsTagged(tag));
+    }
+
+    // EFFECTS: restituisce l'insieme degli utenti che sono autori di almeno un post della rete
+    //          (a differenza di getMentionedUsers(), non comprende gli utenti soltanto menzionati)
+    public Set<String> getAuthors() {
+        return new HashSet<String>(this.postRelations.keySet());
+    }
+
     // REQUIRES: author ≠ null ∧ author ∉ /^\s+$/ ∧ author.length > 0 ∧ text ≠ null ∧ text ∉ /^\s+$/ ∧ text.length > 0
     // THROWS: NullPointerException se author è null ∨ text è null (unchecked exception),
-    //         IllegalArgumentException se author.length = 0 ∨ author ∈ /^\s+$/ ∨ text.length = 0 ∨ text ∈ /^\s+$/ (unchecked exception),
+    //         IllegalArgumentException se author.length = 0 ∨ author ∈ /^\s+$/ ∨ text.length = 0 ∨ text ∈ /^\s+$/ ∨
+    //         text è un quasi duplicato di un post recente e il riconoscimento dei duplicati li rifiuta (unchecked exception),
     // MODIFIES: this
-    // EFFECTS: viene aggiunto un nuovo post alla rete sociale, con testo e autore uguali ai parametri forniti
-    //          Lo stato di this.postLookup viene modificato aggiungendo la coppia (newPost.getId(), newPost);
+    // EFFECTS: viene aggiunto un nuovo post alla rete sociale, con testo e autore uguali ai parametri forniti; se text è un
+    //          quasi duplicato di un post recente (vedi enableDuplicateDetection), il nuovo post viene segnalato come tale
+    //          Lo stato di this.postLookup viene modificato inserendo newPost nella posizione newPost.getId();
     //          se author ∉ this.postRelations.keySet() ⇒ lo stato di this.postRelations viene modificato aggiungendo la coppia (newPost.getAuthor(), {newPost})
     //                                                    e lo stato di this.followRelations viene modificato aggiungendo la coppia (newPost.getAuthor, ∅);
     //          altrimenti ⇒ lo stato di this.postRelations diventa s' dove s' è this.postRelations dove all'elemento this.postRelations.get(author)
@@ -224,12 +431,142 @@ public class MicroBlog implements SocialNetwork {
         if(author.trim().isEmpty() || text.trim().isEmpty()) {
             throw new IllegalArgumentException();
         }
+        if(text.length() > 140) { // verificato prima di assegnare l'id, così che un post rifiutato non consumi un id
+            throw new LimitExceededException();
+        }
+        // i testi senza parole (es. solo emoji) non hanno una firma e non vengono confrontati
+        int[] signature = this.duplicateDetector != null ? this.duplicateDetector.signature(text) : null;
+        if(signature == null) {
+            return this.insertPost(new Post(this.getUniqueId(), author, text));
+        }
+
+        // il confronto avviene prima di assegnare l'id, così che un quasi duplicato rifiutato non lasci traccia nella rete
+        int duplicateOf = this.duplicateDetector.findDuplicate(signature);
+        if(duplicateOf >= 0 && this.rejectDuplicates) {
+            throw new IllegalArgumentException("quasi duplicato del post " + duplicateOf);
+        }
+
+        int newId = this.insertPost(new Post(this.getUniqueId(), author, text));
+        int forgotten = this.duplicateDetector.add(newId, signature);
+        if(forgotten >= 0) {
+            this.nearDuplicates.remove(forgotten);
+        }
+        if(duplicateOf >= 0) {
+            this.nearDuplicates.put(newId, duplicateOf);
+        }
+        return newId;
+    }
+
+    // REQUIRES: id ≥ 0 ∧ ∄ p post ∈ this . p.getId() = id ∧ author ≠ null ∧ author ∉ /^\s+$/ ∧ author.length > 0 ∧ text ≠ null ∧
+    //           text ∉ /^\s+$/ ∧ 0 < text.length ≤ 140 ∧ timestamp ≠ null
+    // THROWS: come createPost(author, text), NullPointerException anche se timestamp è null (unchecked exception),
+    //         IllegalArgumentException anche se id < 0 ∨ esiste già un post con id id (unchecked exception)
+    // MODIFIES: this
+    // EFFECTS: come createPost(author, text), ma il nuovo post ha id id e come timestamp timestamp invece del prossimo id e
+    //          dell'istante corrente, e i post successivi avranno id maggiori di id; serve alle reti che riproducono le
+    //          modifiche di un'altra rete (es. ReplicationFollower), che assegna gli id in modo indipendente
+    protected int createPost(int id, String author, String text, Timestamp timestamp) throws NullPointerException, IllegalArgumentException, LimitExceededException {
+        if(author == null || text == null || timestamp == null) {
+            throw new NullPointerException();
+        }
+        if(id < 0 || author.trim().isEmpty() || text.trim().isEmpty() || this.peekPost(id) != null) {
+            throw new IllegalArgumentException();
+        }
+
+        Post post = new Post(id, author, text, timestamp, Collections.<String>emptyList());
+        this.nextId = Math.max(this.nextId, id + 1);
+        return this.insertPost(post);
+    }
+
+    // REQUIRES: this è vuota (nessun post né utente) ∧ posts ≠ null ∧ followRelations ≠ null ∧ gli id di posts sono
+    //           strettamente crescenti e minori di nextId ∧ followRelations.keySet() = {p.getAuthor() | p ∈ posts}
+    // THROWS: NullPointerException se posts è null ∨ followRelations è null (unchecked exception),
+    //         IllegalStateException se this non è vuota (unchecked exception),
+    //         IllegalArgumentException se gli id di posts non sono strettamente crescenti ∨ un id non è minore di nextId ∨
+    //         gli utenti di followRelations non sono gli autori di posts (unchecked exception)
+    // MODIFIES: this
+    // EFFECTS: porta la rete allo stato descritto da posts (con i loro id, timestamp e like), da followRelations, che non
+    //          viene ricavato dai like poiché dipende dall'ordine in cui sono stati messi, e dal prossimo id nextId (gli id
+    //          già usati dalla rete d'origine possono non corrispondere ad alcun post); serve alle reti che riproducono lo
+    //          stato di un'altra rete a partire da un suo snapshot (es. ReplicationFollower)
+    protected void restore(List<Post> posts, Map<String, Set<String>> followRelations, int nextId) throws NullPointerException, IllegalStateException, IllegalArgumentException {
+        if(posts == null || followRelations == null) {
+            throw new NullPointerException();
+        }
+        if(this.nextId > 0 || !this.postRelations.isEmpty()) {
+            throw new IllegalStateException();
+        }
+        Set<String> authors = new HashSet<String>();
+        int lastId = -1;
+        for(Post post : posts) {
+            if(post.getId() <= lastId) {
+                throw new IllegalArgumentException();
+            }
+            lastId = post.getId();
+            authors.add(post.getAuthor());
+        }
+        if(lastId >= nextId || !authors.equals(followRelations.keySet())) {
+            throw new IllegalArgumentException();
+        }
+
+        this.nextId = nextId;
+        for(Post post : posts) {
+            this.insertPost(post.clone());
+            for(String like : post.getLikes()) {
+                this.publish(MicroBlogEvent.Type.LIKE_ADDED, post.getId(), post.getAuthor(), like, null, null);
+            }
+        }
+        for(Map.Entry<String, Set<String>> entry : followRelations.entrySet()) {
+            for(String followed : entry.getValue()) {
+                this.setFollowing(entry.getKey(), followed, true);
+            }
+        }
+    }
+
+    // REQUIRES: follower ≠ null ∧ followed ≠ null ∧ follower è autore di almeno un post
+    // THROWS: NullPointerException se follower è null ∨ followed è null (unchecked exception),
+    //         NoSuchElementException se follower non è autore di alcun post (unchecked exception)
+    // MODIFIES: this
+    // EFFECTS: fa sì che follower segua followed se following è true, o non lo segua se è false, senza effetto se è già
+    //          così; serve alle reti che riproducono le relazioni di follow di un'altra rete (es. ReplicationFollower)
+    protected void setFollowing(String follower, String followed, boolean following) throws NullPointerException, NoSuchElementException {
+        if(follower == null || followed == null) {
+            throw new NullPointerException();
+        }
+        Set<String> follows = this.followRelations.get(follower);
+        if(follows == null) {
+            throw new NoSuchElementException();
+        }
+
+        if(following && follows.add(followed)) {
+            this.followEdgeCount++;
+            this.publish(MicroBlogEvent.Type.FOLLOW_ADDED, -1, followed, follower, null, null);
+        } else if(!following && follows.remove(followed)) {
+            this.followEdgeCount--;
+            this.publish(MicroBlogEvent.Type.FOLLOW_REMOVED, -1, followed, follower, null, null);
+        }
+    }
 
-        int newId = this.getUniqueId();
-        Post newPost = new Post(newId, author, text);
+    // REQUIRES: newPost ≠ null ∧ newPost.getId() < this.nextId ∧ ∄ p post ∈ this . p.getId() = newPost.getId()
+    // MODIFIES: this
+    // EFFECTS: aggiunge newPost alla rete (e il suo autore, se è il suo primo post), notificando solo POST_CREATED, e ne
+    //          restituisce l'id
+    private int insertPost(Post newPost) {
+        int newId = newPost.getId();
+        String author = newPost.getAuthor();
+        String text = newPost.getText();
+
+        long time = newPost.getTimestamp().getTime();
+        if(newId < this.latestId || time < this.latestTimestamp) {
+            this.timestampsOrdered = false; // la ricerca binaria sui timestamp non è più affidabile
+        } else {
+            this.latestId = newId;
+            this.latestTimestamp = time;
+        }
 
         // aggiungo il nuovo post alla struttura ottimizzata per la ricerca dei post
-        this.postLookup.put(newPost.getId(), newPost);
+        this.postLookup.put(newPost);
+        this.addKeywords(text);
 
         if(this.postRelations.containsKey(author)) { // verifico se è il primo post di quest'utente
             this.postRelations.get(author).add(newPost);
@@ -240,6 +577,7 @@ public class MicroBlog implements SocialNetwork {
             this.followRelations.put(author, new HashSet<String>());
         }
 
+        this.publish(MicroBlogEvent.Type.POST_CREATED, newId, author, null, text, null);
         return newId;
     }
 
@@ -259,17 +597,23 @@ public class MicroBlog implements SocialNetwork {
             throw new IllegalArgumentException();
         }
 
-        Post post = this.getPostById(postId);
+        Post post = this.getHotPostById(postId);
 
         if(post == null) {
             throw new NoSuchElementException();
         }
 
+        boolean alreadyLiked = post.isLikedBy(likedByUser);
         post.addLike(likedByUser); // aggiungo il like al post -- viene lanciata IllegalStateException se l'autore del post tenta di mettervi like
+        if(!alreadyLiked) {
+            this.publish(MicroBlogEvent.Type.LIKE_ADDED, postId, post.getAuthor(), likedByUser, null, null);
+        }
 
         // se questo è il primo post di un utente a cui likedByUser ha messo like, quell'utente viene aggiunto alla lista dei seguiti di likedByUser
         if(this.followRelations.get(likedByUser) != null && !this.followRelations.get(likedByUser).contains(post.getAuthor())) {
             this.followRelations.get(likedByUser).add(post.getAuthor());
+            this.followEdgeCount++;
+            this.publish(MicroBlogEvent.Type.FOLLOW_ADDED, -1, post.getAuthor(), likedByUser, null, null);
             return true;
         }
         return false;
@@ -290,86 +634,791 @@ public class MicroBlog implements SocialNetwork {
             throw new IllegalArgumentException();
         }
 
-        Post post = this.getPostById(postId);
+        Post post = this.getHotPostById(postId);
         
         if(post == null) {
             throw new NoSuchElementException();
         }
         
+        boolean liked = post.isLikedBy(unlikedByUser);
         post.removeLike(unlikedByUser); // rimuovo il like dal post
+        if(liked) {
+            this.publish(MicroBlogEvent.Type.LIKE_REMOVED, postId, post.getAuthor(), unlikedByUser, null, null);
+        }
 
         // se questo era l'unico post di un utente a cui unlikedByUser aveva messo like, quell'utente viene rimosso dalla lista dei seguiti di unlikedByUser
-        if(this.getNumberOfLikedPosts(unlikedByUser, post.getAuthor()) == 0) {
-            this.followRelations.get(unlikedByUser).remove(post.getAuthor());
+        // (come in likePost, solo gli utenti che sono autori di almeno un post hanno una lista dei seguiti)
+        if(this.followRelations.get(unlikedByUser) != null && this.getNumberOfLikedPosts(unlikedByUser, post.getAuthor()) == 0) {
+            if(this.followRelations.get(unlikedByUser).remove(post.getAuthor())) {
+                this.followEdgeCount--;
+                this.publish(MicroBlogEvent.Type.FOLLOW_REMOVED, -1, post.getAuthor(), unlikedByUser, null, null);
+            }
             return true;
         }
         return false;
     }
 
-    // REQUIRES: likedBy ≠ null ∧ likedBy ∉ /^\s+$/ ∧ likedBy.length > 0 ∧ ofAuthor ≠ null ∧ ofAuthor ∉ /^\s+$/ ∧ ofAuthor.length > 0
-    // THROWS: NullPointerException se likedBy è null ∨ ofAuthor è null (unchecked exception),
-    //         IllegalArgumentException se likedBy.length = 0 ∨ likedBy ∈ /^\s+$/ ∨ ofAuthor.length = 0 ∨ ofAuthor ∈ /^\s+$/ (unchecked exception)
-    // EFFECTS: restituisce il numero di post scritti dall'utente identificato da ofAuthor ai quali l'utente identificato da likedBy ha messo like
-    private int getNumberOfLikedPosts(String likedBy, String ofAuthor) throws NullPointerException, IllegalArgumentException {
-        if(likedBy == null || ofAuthor == null) {
+    // REQUIRES: postId ≥ 0 ∧ ∃ p post ∈ this . p.getId() = postId ∧ newText ≠ null ∧ newText ∉ /^\s+$/ ∧ 0 < newText.length ≤ 140
+    // THROWS: NullPointerException se newText è null (unchecked exception),
+    //         IllegalArgumentException se postId < 0 ∨ newText.length = 0 ∨ newText ∈ /^\s+$/ (unchecked exception),
+    //         NoSuchElementException se ∄ p post ∈ this . p.getId() = postId (unchecked exception),
+    //         LimitExceededException se newText.length > 140 (checked exception)
+    // MODIFIES: this
+    // EFFECTS: sostituisce il testo del post con id postId con newText; se newText coincide con il testo attuale lo stato non viene modificato
+    public void editPost(int postId, String newText) throws NullPointerException, IllegalArgumentException, NoSuchElementException, LimitExceededException {
+        if(newText == null) {
             throw new NullPointerException();
         }
-        if(likedBy.trim().isEmpty() || ofAuthor.trim().isEmpty()) {
+
+        Post post = this.getHotPostById(postId); // lancia IllegalArgumentException se postId < 0
+        if(post == null) {
+            throw new NoSuchElementException();
+        }
+
+        String previousText = post.getText();
+        if(previousText.equals(newText)) {
+            return;
+        }
+        post.editPost(newText); // verifica le restanti pre-condizioni sul testo
+        this.addKeywords(newText);
+        this.invalidateKeywords(1);
+
+        this.publish(MicroBlogEvent.Type.POST_EDITED, postId, post.getAuthor(), null, newText, previousText);
+    }
+
+    // REQUIRES: postId ≥ 0 ∧ ∃ p post ∈ this . p.getId() = postId
+    // THROWS: IllegalArgumentException se postId < 0 (unchecked exception),
+    //         NoSuchElementException se ∄ p post ∈ this . p.getId() = postId (unchecked exception)
+    // MODIFIES: this
+    // EFFECTS: sostituisce il testo del post con id postId con MicroBlog.CENSORED_TEXT; se il post è già censurato lo stato non viene modificato
+    protected void censorPost(int postId) throws IllegalArgumentException, NoSuchElementException {
+        Post post = this.getHotPostById(postId);
+        if(post == null) {
+            throw new NoSuchElementException();
+        }
+
+        String previousText = post.getText();
+        if(previousText.equals(MicroBlog.CENSORED_TEXT)) {
+            return;
+        }
+        try {
+            post.editPost(MicroBlog.CENSORED_TEXT);
+        } catch(LimitExceededException exc) {} // non può verificarsi, CENSORED_TEXT è più corto di 140 caratteri
+        this.addKeywords(MicroBlog.CENSORED_TEXT);
+        this.invalidateKeywords(1);
+
+        this.publish(MicroBlogEvent.Type.POST_CENSORED, postId, post.getAuthor(), null, MicroBlog.CENSORED_TEXT, previousText);
+    }
+
+    // REQUIRES: listener ≠ null
+    // THROWS: NullPointerException se listener è null (unchecked exception)
+    // MODIFIES: this
+    // EFFECTS: registra listener, al quale verranno consegnati in modo asincrono e a gruppi gli eventi (MicroBlogEvent)
+    //          relativi a tutte le modifiche successive della rete
+    public void addListener(MicroBlogListener listener) throws NullPointerException {
+        this.dispatcher.addListener(listener);
+    }
+
+    // MODIFIES: this
+    // EFFECTS: rimuove listener dai listener registrati, se presente
+    public void removeListener(MicroBlogListener listener) {
+        this.dispatcher.removeListener(listener);
+    }
+
+    // EFFECTS: restituisce l'ultima eccezione sollevata da un listener durante la consegna degli eventi, o null se non ce ne
+    //          sono state; l'eccezione non interrompe la consegna agli altri listener
+    public RuntimeException getListenerFailure() {
+        return this.dispatcher.getFailure();
+    }
+
+    // MODIFIES: this
+    // EFFECTS: arresta la consegna degli eventi ai listener e il thread che se ne occupa; gli eventi non ancora consegnati e
+    //          quelli delle modifiche successive non vengono più consegnati
+    public void stopListeners() {
+        this.dispatcher.shutdown();
+    }
+
+    // REQUIRES: index ≠ null
+    // THROWS: NullPointerException se index è null (unchecked exception)
+    // MODIFIES: this, index
+    // EFFECTS: consegna a index lo stato attuale della rete come sequenza di eventi (POST_CREATED per ogni post in ordine di id,
+    //          seguito da un LIKE_ADDED per ciascuno dei suoi like, poi FOLLOW_ADDED per ogni relazione di follow), tutti con
+    //          il numero di sequenza dell'ultimo evento generato, e registra index perché riceva in modo sincrono gli eventi
+    //          di tutte le modifiche successive
+    protected void addIndex(MicroBlogIndex index) throws NullPointerException {
+        if(index == null) {
+            throw new NullPointerException();
+        }
+
+        // scorro gli id in ordine leggendo un post alla volta, senza caricare in memoria tutti i post del livello freddo
+        int end = this.nextId;
+        for(int id = 0; id < end; id++) {
+            Post post = this.peekPost(id);
+            if(post == null) {
+                continue;
+            }
+            index.apply(new MicroBlogEvent(this.eventSequence, MicroBlogEvent.Type.POST_CREATED, id, post.getAuthor(), null, post.getText(), null));
+            for(String like : post.getLikes()) {
+                index.apply(new MicroBlogEvent(this.eventSequence, MicroBlogEvent.Type.LIKE_ADDED, id, post.getAuthor(), like, null, null));
+            }
+        }
+        for(Map.Entry<String, Set<String>> entry : this.followRelations.entrySet()) {
+            for(String followed : entry.getValue()) {
+                index.apply(new MicroBlogEvent(this.eventSequence, MicroBlogEvent.Type.FOLLOW_ADDED, -1, followed, entry.getKey(), null, null));
+            }
+        }
+        this.indexes.add(index);
+    }
+
+    // EFFECTS: restituisce l'indice di ricerca della rete, costruendolo alla prima chiamata; le reti che non vengono mai
+    //          interrogate in questo modo (es. quelle create temporaneamente da guessFollowers) non ne pagano il costo
+    protected SearchIndex getSearchIndex() {
+        SearchIndex index = this.searchIndex;
+        if(index == null) {
+            synchronized(this.indexes) { // più letture concorrenti potrebbero richiederlo contemporaneamente
+                index = this.searchIndex;
+                if(index == null) {
+                    index = new SearchIndex();
+                    this.addIndex(index);
+                    this.searchIndex = index;
+                }
+            }
+        }
+        return index;
+    }
+
+    // REQUIRES: store ≠ null ∧ store.size() = 0
+    // THROWS: NullPointerException se store è null (unchecked exception),
+    //         IllegalStateException se il livello freddo è già stato abilitato ∨ store.size() > 0 (unchecked exception)
+    // MODIFIES: this
+    // EFFECTS: abilita lo spostamento dei post in store (vedi evictColdPosts); da questo momento i metodi di lettura della rete
+    //          (getPost, writtenBy, containing, ...) cercano i post anche in store, e i post di store che vengono modificati
+    //          (like, modifica del testo, censura) tornano in memoria
+    public void enableTiering(SegmentStore store) throws NullPointerException, IllegalStateException {
+        if(store == null) {
+            throw new NullPointerException();
+        }
+        if(this.coldStore != null || store.size() > 0) {
+            throw new IllegalStateException();
+        }
+
+        this.coldStore = store;
+        this.accessCounts.clear();
+        this.evictionHorizon = this.nextId; // i post esistenti non sono ancora stati osservati
+    }
+
+    // REQUIRES: 0 < threshold ≤ 1 ∧ window > 0
+    // THROWS: IllegalArgumentException se threshold ∉ (0, 1] ∨ window ≤ 0 (unchecked exception)
+    // MODIFIES: this
+    // EFFECTS: abilita (o riconfigura, dimenticando i post ricordati e le loro segnalazioni) il riconoscimento dei quasi
+    //          duplicati in createPost: il testo di ogni nuovo post viene confrontato, con un NearDuplicateDetector, con quelli
+    //          degli ultimi window post creati, di qualsiasi autore, e se la somiglianza stimata con uno di essi è almeno
+    //          threshold il post viene rifiutato (se reject) o creato e segnalato (vedi getNearDuplicateOf)
+    public void enableDuplicateDetection(double threshold, int window, boolean reject) throws IllegalArgumentException {
+        this.duplicateDetector = new NearDuplicateDetector(threshold, window);
+        this.rejectDuplicates = reject;
+        this.nearDuplicates.clear();
+    }
+
+    // EFFECTS: restituisce l'id del post recente di cui il post con id postId è stato segnalato come quasi duplicato quando è
+    //          stato creato, o -1 se non è stato segnalato o non è più tra gli ultimi window post creati (vedi
+    //          enableDuplicateDetection)
+    public int getNearDuplicateOf(int postId) {
+        Integer original = this.nearDuplicates.get(postId);
+        return original != null ? original : -1;
+    }
+
+    // EFFECTS: restituisce gli id dei post segnalati come quasi duplicati tra gli ultimi window post creati, in ordine crescente
+    public List<Integer> getNearDuplicates() {
+        List<Integer> ids = new ArrayList<Integer>(this.nearDuplicates.keySet());
+        Collections.sort(ids);
+        return ids;
+    }
+
+    // REQUIRES: gli snapshot non sono già stati abilitati ∧ nessun'altra operazione sulla rete è in corso
+    // THROWS: IllegalStateException se gli snapshot sono già stati abilitati (unchecked exception)
+    // MODIFIES: this
+    // EFFECTS: abilita openSnapshot(), creando una copia multi-versione (VersionedStore) dello stato attuale della rete che
+    //          da questo momento viene aggiornata a ogni modifica
+    public void enableSnapshots() throws IllegalStateException {
+        synchronized(this.indexes) {
+            if(this.versionedStore != null) {
+                throw new IllegalStateException();
+            }
+
+            VersionedStore store = new VersionedStore(this::peekPost);
+            this.addIndex(store);
+            this.versionedStore = store;
+        }
+    }
+
+    // REQUIRES: gli snapshot sono stati abilitati con enableSnapshots
+    // THROWS: IllegalStateException se gli snapshot non sono stati abilitati (unchecked exception)
+    // EFFECTS: apre uno snapshot dello stato della rete dopo l'ultima modifica completata, che può essere letto da qualsiasi
+    //          thread senza lock anche mentre la rete viene modificata, e va chiuso quando non serve più; a differenza degli
+    //          altri metodi di lettura, può essere chiamato in concorrenza con le modifiche
+    public MicroBlogSnapshot openSnapshot() throws IllegalStateException {
+        VersionedStore store = this.versionedStore;
+        if(store == null) {
+            throw new IllegalStateException();
+        }
+        return store.open();
+    }
+
+    // REQUIRES: file ≠ null
+    // THROWS: NullPointerException se file è null (unchecked exception),
+    //         IOException se la scrittura del file fallisce (checked exception)
+    // EFFECTS: scrive nel file file (sovrascrivendolo se esiste) le relazioni di follow della rete in formato CSR, leggendole
+    //          direttamente senza copiarle, e restituisce il grafo in sola lettura mappato dal file (vedi MappedCsrGraph)
+    public MappedCsrGraph exportFollowGraph(Path file) throws NullPointerException, IOException {
+        return MappedCsrGraph.write(file, this.followRelations);
+    }
+
+    // REQUIRES: 0 ≤ port ≤ 65535 ∧ nessun'altra operazione sulla rete è in corso
+    // THROWS: IOException se non è possibile aprire il socket sulla porta richiesta (checked exception)
+    // MODIFIES: this
+    // EFFECTS: avvia un ReplicationLeader in ascolto sulla porta port dell'interfaccia di loopback (una porta libera se port = 0),
+    //          che invia ai ReplicationFollower connessi uno snapshot della rete (abilitando gli snapshot se necessario) e gli
+    //          eventi di tutte le modifiche successive, e lo restituisce; il leader conserva ReplicationLeader.RETAINED eventi
+    //          e disconnette i follower con più di ReplicationLeader.MAX_LAG eventi non confermati
+    public ReplicationLeader startReplication(int port) throws IOException {
+        return this.startReplication(port, ReplicationLeader.RETAINED, ReplicationLeader.MAX_LAG);
+    }
+
+    // REQUIRES: 0 ≤ port ≤ 65535 ∧ retained ≥ 0 ∧ maxLag > 0 ∧ nessun'altra operazione sulla rete è in corso
+    // THROWS: IllegalArgumentException se retained < 0 ∨ maxLag ≤ 0 (unchecked exception),
+    //         IOException se non è possibile aprire il socket sulla porta richiesta (checked exception)
+    // MODIFIES: this
+    // EFFECTS: come startReplication(port), ma il leader conserva almeno gli ultimi retained eventi per i follower che si
+    //          riconnettono e disconnette i follower con più di maxLag eventi non confermati; maxLag deve superare il numero
+    //          di eventi prodotti mentre un follower riceve lo snapshot, altrimenti il follower viene disconnesso ogni volta
+    public ReplicationLeader startReplication(int port, int retained, int maxLag) throws IllegalArgumentException, IOException {
+        if(retained < 0 || maxLag <= 0) {
             throw new IllegalArgumentException();
         }
 
-        Set<Post> postsByAuthor = this.postRelations.get(ofAuthor);
-        int count = 0;
+        synchronized(this.indexes) {
+            if(this.versionedStore == null) {
+                this.enableSnapshots();
+            }
 
-        for(Post post : postsByAuthor) {
-            if(post.getLikes().contains(likedBy)) {
-                count++;
+            // il leader viene registrato dopo la copia multi-versione, per cui riceve ogni evento successivo a uno snapshot dopo che lo snapshot è stato aperto
+            ReplicationLeader leader = new ReplicationLeader(port, this::peekPost, this.versionedStore::open, () -> this.nextId, this.eventSequence, retained, maxLag);
+            this.indexes.add(leader); // senza ripetere lo stato attuale, che i follower ricevono con lo snapshot
+            return leader;
+        }
+    }
+
+    // REQUIRES: maxAgeMillis ≥ 0 ∧ minAccesses ≥ 0 ∧ il livello freddo è stato abilitato con enableTiering
+    // THROWS: IllegalArgumentException se maxAgeMillis < 0 ∨ minAccesses < 0 (unchecked exception),
+    //         IllegalStateException se il livello freddo non è stato abilitato (unchecked exception),
+    //         IOException se la scrittura su disco fallisce (checked exception); se fallisce la scrittura dei post da
+    //         spostare (e non la successiva compattazione dei segmenti) nessun post viene spostato
+    // MODIFIES: this
+    // EFFECTS: sposta nel livello freddo i post in memoria creati più di maxAgeMillis millisecondi fa e quelli, già presenti al
+    //          precedente spostamento, a cui si è acceduto meno di minAccesses volte da allora (minAccesses = 0 disabilita il
+    //          secondo criterio); restituisce il numero di post spostati
+    public int evictColdPosts(long maxAgeMillis, int minAccesses) throws IllegalArgumentException, IllegalStateException, IOException {
+        if(maxAgeMillis < 0 || minAccesses < 0) {
+            throw new IllegalArgumentException();
+        }
+        if(this.coldStore == null) {
+            throw new IllegalStateException();
+        }
+
+        long cutoff = System.currentTimeMillis() - maxAgeMillis;
+        List<Post> evicted = new ArrayList<Post>();
+        for(Post post : this.postLookup) { // in ordine di id
+            boolean old = post.getTimestamp().getTime() < cutoff;
+            boolean rare = post.getId() < this.evictionHorizon && this.accessCounts.getOrDefault(post.getId(), 0) < minAccesses;
+            if(old || rare) {
+                evicted.add(post);
             }
         }
 
-        return count;
+        this.coldStore.append(evicted); // se la scrittura fallisce la rete non è stata ancora modificata
+        for(Post post : evicted) {
+            this.postLookup.remove(post.getId());
+            this.postRelations.get(post.getAuthor()).remove(post); // l'autore resta tra gli utenti anche senza post in memoria
+            this.updateColdLikes(post, 1);
+        }
+        this.invalidateKeywords(evicted.size());
+        this.accessCounts.clear();
+        this.evictionHorizon = this.nextId;
+        this.coldStore.compact();
+        return evicted.size();
     }
 
-    // REQUIRES: user ≠ null ∧ user ∉ /^\s+$/ ∧ user.length > 0
+    // EFFECTS: restituisce i contatori dell'efficacia dei filtri di Bloom usati da containing (sui post in memoria e sui
+    //          segmenti del livello freddo)
+    public KeywordFilterStats getKeywordFilterStats() {
+        return this.keywordFilterStats;
+    }
+
+    // REQUIRES: k ≥ 0 ∧ windowMillis > 0
+    // THROWS: IllegalArgumentException se k < 0 ∨ windowMillis ≤ 0 (unchecked exception)
+    // EFFECTS: restituisce le (al più) k parole più frequenti nei post creati negli ultimi windowMillis millisecondi (al più
+    //          nell'ultima ora), ciascuna associata alla stima della propria frequenza, dalla più frequente (vedi TrendEngine);
+    //          il costo non dipende dal numero di post della rete
+    public List<Map.Entry<String, Integer>> trending(int k, long windowMillis) throws IllegalArgumentException {
+        return this.trendEngine.trending(k, windowMillis);
+    }
+
+    // REQUIRES: k ≥ 0
+    // THROWS: IllegalArgumentException se k < 0 (unchecked exception)
+    // EFFECTS: restituisce i (al più) k post non censurati con più like, ciascuno come coppia (id, numero di like), in ordine di
+    //          like decrescente e, a parità di like, di id crescente (vedi LikeLeaderboard); il costo dipende solo da k
+    public List<Map.Entry<Integer, Integer>> mostLiked(int k) throws IllegalArgumentException {
+        return this.getLikeLeaderboard().top(k);
+    }
+
+    // REQUIRES: author ≠ null ∧ k ≥ 0
+    // THROWS: NullPointerException se author è null (unchecked exception),
+    //         IllegalArgumentException se k < 0 (unchecked exception)
+    // EFFECTS: come mostLiked(k), limitata ai post di author
+    public List<Map.Entry<Integer, Integer>> mostLiked(String author, int k) throws NullPointerException, IllegalArgumentException {
+        return this.getLikeLeaderboard().top(author, k);
+    }
+
+    // REQUIRES: k ≥ 0
+    // THROWS: IllegalArgumentException se k < 0 (unchecked exception)
+    // EFFECTS: restituisce i (al più) k utenti più influenti della rete secondo InfluenceRanker, ciascuno associato al proprio
+    //          punteggio (i punteggi di tutti gli autori sommano a 1), in ordine di punteggio decrescente
+    public List<Map.Entry<String, Double>> rankedInfluencers(int k) throws IllegalArgumentException {
+        InfluenceRanker ranker = this.influenceRanker;
+        if(ranker == null) {
+            synchronized(this.indexes) {
+                ranker = this.influenceRanker;
+                if(ranker == null) {
+                    // la classifica legge direttamente followRelations e viene ricalcolata per intero alla prima richiesta,
+                    // per cui non è necessario ripetergli lo stato attuale con addIndex()
+                    ranker = new InfluenceRanker(this.followRelations);
+                    this.indexes.add(ranker);
+                    this.influenceRanker = ranker;
+                }
+            }
+        }
+        return ranker.top(k);
+    }
+
+    // REQUIRES: user ≠ null ∧ user ∉ /^\s+$/ ∧ user.length > 0 ∧ k ≥ 0
     // THROWS: NullPointerException se user è null (unchecked exception),
-    //         IllegalArgumentException se user.length = 0 ∨ user ∈ /^\s+$/) (unchecked exception)
-    // EFFECTS: restituisce il numero di follower che l'utente user ha all'interno della rete (this)
-    //          (dove tale numero è uguale alla sommatoria su tutte le chiavi delle occorrenze di user all'interno dei valori di tali chiavi)
-    private int getNumerOfFollowers(String user) throws NullPointerException, IllegalArgumentException {
+    //         IllegalArgumentException se user.length = 0 ∨ user ∈ /^\s+$/ ∨ k < 0 (unchecked exception)
+    // EFFECTS: restituisce al più k autori che user non segue ancora e che potrebbe voler seguire (vedi FollowRecommender),
+    //          dal più consigliato
+    public List<String> recommendFollows(String user, int k) throws NullPointerException, IllegalArgumentException {
         if(user == null) {
             throw new NullPointerException();
         }
-        if(user.trim().isEmpty()) {
+        if(user.trim().isEmpty() || k < 0) {
             throw new IllegalArgumentException();
         }
 
-        return MicroBlog.getNumerOfFollowers(user, this.followRelations);
+        FollowRecommender recommender = this.followRecommender;
+        if(recommender == null) {
+            synchronized(this.indexes) {
+                recommender = this.followRecommender;
+                if(recommender == null) {
+                    recommender = new FollowRecommender();
+                    this.addIndex(recommender);
+                    this.followRecommender = recommender;
+                }
+            }
+        }
+        return recommender.recommend(user, k);
     }
 
-    // REQUIRES: user ≠ null ∧ user ∉ /^\s+$/ ∧ user.length > 0 ∧ followers ≠ null ∧ (∀ (k, v) ∈ followers . v ≠ null ∧ (∀ s ∈ v . s ≠ null ∧ s ∉ /^\s+$/ ∧ s.length > 0))
-    // THROWS: NullPointerException se user è null ∨ followers è null ∨ (∃ (k, v) ∈ followers . v è null) (unchecked exception),
-    //         IllegalArgumentException se (∃ (k, v) ∈ followers . (∃ s ∈ v . s è null ∨ s.length = 0 ∨ s ∈ /^\s+$/)) (unchecked exception)
-    // EFFECTS: restituisce il numero di follower che l'utente user ha all'interno della map followers
-    //          (dove tale numero è uguale alla sommatoria su tutte le chiavi delle occorrenze di user all'interno dei valori di tali chiavi)
-    private static int getNumerOfFollowers(String user, Map<String, Set<String>> followers) throws NullPointerException, IllegalArgumentException {
-        if(user == null) {
+    // REQUIRES: author ≠ null ∧ author ∉ /^\s+$/ ∧ author.length > 0
+    // THROWS: NullPointerException se author è null (unchecked exception),
+    //         IllegalArgumentException se author.length = 0 ∨ author ∈ /^\s+$/ (unchecked exception)
+    // EFFECTS: restituisce la stima (vedi HyperLogLog) del numero di utenti distinti che hanno messo like ad almeno un post di
+    //          author, compresi quelli che in seguito hanno rimosso il like
+    public long estimatedReach(String author) throws NullPointerException, IllegalArgumentException {
+        if(author == null) {
             throw new NullPointerException();
         }
-        if(user.trim().isEmpty()) {
+        if(author.trim().isEmpty()) {
             throw new IllegalArgumentException();
         }
-        if(followers == null) {
+
+        return this.getReachIndex().estimatedReach(author);
+    }
+
+    // REQUIRES: authors ≠ null ∧ (∀ a ∈ authors . a ≠ null ∧ a ∉ /^\s+$/ ∧ a.length > 0)
+    // THROWS: NullPointerException se authors è null ∨ (∃ a ∈ authors . a è null) (unchecked exception),
+    //         IllegalArgumentException se ∃ a ∈ authors . a.length = 0 ∨ a ∈ /^\s+$/ (unchecked exception)
+    // EFFECTS: restituisce la stima del numero di utenti distinti che hanno messo like ad almeno un post di un autore in authors,
+    //          contando una sola volta gli utenti comuni a più autori
+    public long estimatedReach(Set<String> authors) throws NullPointerException, IllegalArgumentException {
+        return this.getReachSketch(authors).estimate();
+    }
+
+    // REQUIRES: authors ≠ null ∧ (∀ a ∈ authors . a ≠ null ∧ a ∉ /^\s+$/ ∧ a.length > 0)
+    // THROWS: come estimatedReach(Set<String>)
+    // EFFECTS: restituisce un nuovo sketch HyperLogLog degli utenti distinti che hanno messo like ad almeno un post di un autore
+    //          in authors, che può essere unito agli sketch di altre reti (es. altre partizioni) con HyperLogLog.merge()
+    public HyperLogLog getReachSketch(Set<String> authors) throws NullPointerException, IllegalArgumentException {
+        if(authors == null) {
+            throw new NullPointerException();
+        }
+        for(String author : authors) {
+            if(author == null) {
+                throw new NullPointerException();
+            }
+            if(author.trim().isEmpty()) {
+                throw new IllegalArgumentException();
+            }
+        }
+
+        return this.getReachIndex().sketchOf(authors);
+    }
+
+    // REQUIRES: postId ≥ 0
+    // THROWS: IllegalArgumentException se postId < 0 (unchecked exception)
+    // EFFECTS: restituisce la stima del numero di utenti distinti che hanno messo like al post con id postId (0 se il post non
+    //          esiste), compresi quelli che in seguito hanno rimosso il like
+    public long estimatedLikers(int postId) throws IllegalArgumentException {
+        if(postId < 0) {
+            throw new IllegalArgumentException();
+        }
+
+        return this.getReachIndex().estimatedLikers(postId);
+    }
+
+    // REQUIRES: first ≥ 0 ∧ second ≥ 0
+    // THROWS: IllegalArgumentException se first < 0 ∨ second < 0 (unchecked exception)
+    // EFFECTS: restituisce gli utenti che hanno messo like sia al post con id first sia a quello con id second (nessuno se uno
+    //          dei due post non esiste), calcolati come intersezione di bitmap (vedi AudienceIndex)
+    public List<String> likedBoth(int first, int second) throws IllegalArgumentException {
+        if(first < 0 || second < 0) {
+            throw new IllegalArgumentException();
+        }
+
+        return this.getAudienceIndex().likedBoth(first, second);
+    }
+
+    // REQUIRES: first ≠ null ∧ first ∉ /^\s+$/ ∧ first.length > 0 ∧ second ≠ null ∧ second ∉ /^\s+$/ ∧ second.length > 0
+    // THROWS: NullPointerException se first è null ∨ second è null (unchecked exception),
+    //         IllegalArgumentException se first o second è vuoto o composto da soli spazi (unchecked exception)
+    // EFFECTS: restituisce gli utenti che seguono sia first sia second, calcolati come intersezione di bitmap (vedi AudienceIndex)
+    public List<String> commonFollowers(String first, String second) throws NullPointerException, IllegalArgumentException {
+        if(first == null || second == null) {
+            throw new NullPointerException();
+        }
+        if(first.trim().isEmpty() || second.trim().isEmpty()) {
+            throw new IllegalArgumentException();
+        }
+
+        return this.getAudienceIndex().commonFollowers(first, second);
+    }
+
+    // EFFECTS: restituisce l'indice delle bitmap dei like e dei follower, creandolo (e ripetendogli lo stato attuale) alla
+    //          prima richiesta
+    private AudienceIndex getAudienceIndex() {
+        AudienceIndex index = this.audienceIndex;
+        if(index == null) {
+            synchronized(this.indexes) {
+                index = this.audienceIndex;
+                if(index == null) {
+                    index = new AudienceIndex();
+                    this.addIndex(index);
+                    this.audienceIndex = index;
+                }
+            }
+        }
+        return index;
+    }
+
+    // EFFECTS: restituisce la classifica dei post per numero di like, creandola (e ripetendole lo stato attuale) alla prima richiesta
+    private LikeLeaderboard getLikeLeaderboard() {
+        LikeLeaderboard leaderboard = this.likeLeaderboard;
+        if(leaderboard == null) {
+            synchronized(this.indexes) {
+                leaderboard = this.likeLeaderboard;
+                if(leaderboard == null) {
+                    leaderboard = new LikeLeaderboard();
+                    this.addIndex(leaderboard);
+                    this.likeLeaderboard = leaderboard;
+                }
+            }
+        }
+        return leaderboard;
+    }
+
+    // EFFECTS: restituisce l'indice delle stime di portata, creandolo (e ripetendogli lo stato attuale) alla prima richiesta
+    private ReachIndex getReachIndex() {
+        ReachIndex index = this.reachIndex;
+        if(index == null) {
+            synchronized(this.indexes) {
+                index = this.reachIndex;
+                if(index == null) {
+                    index = new ReachIndex();
+                    this.addIndex(index);
+                    this.reachIndex = index;
+                }
+            }
+        }
+        return index;
+    }
+
+    // REQUIRES: prefix ≠ null ∧ limit ≥ 0
+    // THROWS: NullPointerException se prefix è null (unchecked exception),
+    //         IllegalArgumentException se limit < 0 (unchecked exception)
+    // EFFECTS: restituisce al più limit utenti con almeno un post il cui nome inizia con prefix, in ordine lessicografico
+    public List<String> completeUsername(String prefix, int limit) throws NullPointerException, IllegalArgumentException {
+        return this.getSearchIndex().completeUsername(prefix, limit);
+    }
+
+    // REQUIRES: username ≠ null ∧ maxDistance ≥ 0 ∧ limit ≥ 0
+    // THROWS: NullPointerException se username è null (unchecked exception),
+    //         IllegalArgumentException se maxDistance < 0 ∨ limit < 0 (unchecked exception)
+    // EFFECTS: restituisce al più limit utenti con almeno un post il cui nome dista al più maxDistance modifiche (inserimenti,
+    //          cancellazioni o sostituzioni di un carattere) da username, dal più simile
+    public List<String> similarUsernames(String username, int maxDistance, int limit) throws NullPointerException, IllegalArgumentException {
+        return this.getSearchIndex().similarUsernames(username, maxDistance, limit);
+    }
+
+    // REQUIRES: prefix ≠ null ∧ limit ≥ 0
+    // THROWS: NullPointerException se prefix è null (unchecked exception),
+    //         IllegalArgumentException se limit < 0 (unchecked exception)
+    // EFFECTS: restituisce al più limit parole contenute nei post che iniziano con prefix (in minuscolo, in ordine lessicografico)
+    public List<String> completeWord(String prefix, int limit) throws NullPointerException, IllegalArgumentException {
+        return this.getSearchIndex().completeWord(prefix, limit);
+    }
+
+    // REQUIRES: word ≠ null ∧ maxDistance ≥ 0 ∧ limit ≥ 0
+    // THROWS: NullPointerException se word è null (unchecked exception),
+    //         IllegalArgumentException se maxDistance < 0 ∨ limit < 0 (unchecked exception)
+    // EFFECTS: restituisce al più limit parole contenute nei post (in minuscolo) che distano al più maxDistance modifiche da word,
+    //          dalla più simile
+    public List<String> similarWords(String word, int maxDistance, int limit) throws NullPointerException, IllegalArgumentException {
+        return this.getSearchIndex().similarWords(word, maxDistance, limit);
+    }
+
+    // REQUIRES: query ≠ null
+    // THROWS: NullPointerException se query è null (unchecked exception)
+    // EFFECTS: restituisce le copie dei post della rete che soddisfano tutti i predicati di query, nell'ordine di
+    //          query.getOrder(), esclusi i primi query.getOffset() e al più query.getLimit()
+    //          I candidati vengono letti dal percorso di accesso scelto da explain(query) e ciascuno viene filtrato con
+    //          query.matches(); dei post selezionati vengono tenuti solo i primi offset + limit secondo l'ordinamento (la
+    //          rilevanza viene calcolata una sola volta per post) e vengono copiati solo quelli restituiti.
+    public List<Post> query(PostQuery query) throws NullPointerException {
+        QueryPlan plan = this.explain(query);
+        int wanted = (int) Math.min(Integer.MAX_VALUE, (long) query.getOffset() + query.getLimit());
+        if(wanted == 0 || plan.getEstimate() == 0) {
+            return new ArrayList<Post>();
+        }
+
+        Map<Post, Integer> relevance = query.getOrder() == PostQuery.Order.RELEVANCE ? new IdentityHashMap<Post, Integer>() : null;
+        Comparator<Post> order = MicroBlog.comparator(query.getOrder(), relevance);
+        PriorityQueue<Post> top = new PriorityQueue<Post>(order.reversed()); // i post selezionati migliori, dal peggiore
+        Consumer<Post> collect = post -> {
+            if(!query.matches(post)) {
+                return;
+            }
+            if(relevance != null) {
+                relevance.put(post, MicroBlog.getRelevance(post.getText(), query.relevanceWords()));
+            }
+            top.add(post);
+            if(top.size() > wanted) {
+                Post worst = top.poll();
+                if(relevance != null) {
+                    relevance.remove(worst);
+                }
+            }
+        };
+
+        switch(plan.getAccessPath()) {
+            case AUTHOR:
+                Set<Post> written = this.postRelations.get(query.getAuthor());
+                if(written != null) {
+                    written.forEach(collect);
+                }
+                if(this.coldStore != null) {
+                    this.coldStore.writtenBy(query.getAuthor()).forEach(collect);
+                }
+                break;
+            case WORD:
+                for(int id : this.getSearchIndex().getWords().get(plan.getKey())) {
+                    Post post = this.peekPost(id);
+                    if(post != null) {
+                        collect.accept(post);
+                    }
+                }
+                break;
+            case TIME:
+                for(int id = plan.getFrom(); id < plan.getTo(); id++) {
+                    Post post = this.peekPost(id);
+                    if(post != null) {
+                        collect.accept(post);
+                    }
+                }
+                break;
+            default:
+                List<String> words = query.getWords();
+                if(words.isEmpty() || this.keywordFilter.mightContainAll(words)) {
+                    this.postLookup.forEach(collect);
+                }
+                if(this.coldStore != null) {
+                    if(words.isEmpty()) {
+                        this.coldStore.forEach(collect);
+                    } else { // i segmenti esclusi dai loro filtri non vengono letti
+                        this.coldStore.containing(words, query::matches, this.keywordFilterStats).forEach(collect);
+                    }
+                }
+        }
+
+        List<Post> selected = new ArrayList<Post>(top);
+        selected.sort(order);
+        List<Post> posts = new ArrayList<Post>(Math.max(0, selected.size() - query.getOffset()));
+        for(int i = query.getOffset(); i < selected.size(); i++) {
+            Post post = selected.get(i);
+            posts.add(this.postLookup.get(post.getId()) == post ? post.clone() : post); // le copie lette da disco sono già nuove istanze
+        }
+        return posts;
+    }
+
+    // REQUIRES: query ≠ null
+    // THROWS: NullPointerException se query è null (unchecked exception)
+    // EFFECTS: restituisce il piano con cui query(query) legge i post candidati: il percorso di accesso con la stima più
+    //          bassa tra i post dell'autore (se richiesto), i post che contengono la parola meno frequente tra quelle
+    //          richieste secondo l'indice di ricerca (costruito alla prima interrogazione con parole), l'intervallo di id dei
+    //          post compresi nell'intervallo di tempo (se richiesto) e tutti i post della rete
+    //          L'intervallo di id viene trovato con una ricerca binaria sui timestamp, poiché createPost assegna id crescenti
+    //          a post con timestamp non decrescenti.
+    public QueryPlan explain(PostQuery query) throws NullPointerException {
+        long cold = this.coldStore == null ? 0 : this.coldStore.size();
+        QueryPlan plan = new QueryPlan(QueryPlan.AccessPath.SCAN, null, 0, 0, this.postLookup.size() + cold);
+
+        if(query.getAuthor() != null) {
+            Set<Post> written = this.postRelations.get(query.getAuthor());
+            long estimate = (written == null ? 0 : written.size()) + cold; // del livello freddo vengono letti gli autori di tutti i post
+            if(estimate < plan.getEstimate()) {
+                plan = new QueryPlan(QueryPlan.AccessPath.AUTHOR, null, 0, 0, estimate);
+            }
+        }
+
+        if(!query.getWords().isEmpty()) {
+            // un post che contiene una parola richiesta ne contiene ogni token, per cui basta l'insieme di un token qualsiasi
+            WordTrie index = this.getSearchIndex().getWords();
+            WordTokenizer tokenizer = new WordTokenizer("");
+            for(String word : query.getWords()) {
+                for(tokenizer.reset(word); tokenizer.next(); ) {
+                    String token = tokenizer.word();
+                    int estimate = index.get(token).size();
+                    if(estimate < plan.getEstimate()) {
+                        plan = new QueryPlan(QueryPlan.AccessPath.WORD, token, 0, 0, estimate);
+                    }
+                }
+            }
+        }
+
+        // l'intervallo di id viene ricavato con una ricerca binaria sui timestamp, corretta solo se sono ordinati negli id
+        if(this.timestampsOrdered && (query.getSince() != Long.MIN_VALUE || query.getUntil() != Long.MAX_VALUE)) {
+            int from = query.getSince() == Long.MIN_VALUE ? 0 : this.firstIdAtOrAfter(query.getSince());
+            int to = query.getUntil() == Long.MAX_VALUE ? this.nextId : this.firstIdAtOrAfter(query.getUntil() + 1);
+            to = Math.max(from, to);
+            if(to - from < plan.getEstimate()) {
+                plan = new QueryPlan(QueryPlan.AccessPath.TIME, null, from, to, to - from);
+            }
+        }
+        return plan;
+    }
+
+    // EFFECTS: restituisce il comparatore dell'ordinamento order (a parità, per id crescente), che per RELEVANCE legge la
+    //          rilevanza dei post da relevance
+    private static Comparator<Post> comparator(PostQuery.Order order, Map<Post, Integer> relevance) {
+        Comparator<Post> byId = Comparator.comparingInt(Post::getId);
+        switch(order) {
+            case NEWEST:
+                return byId.reversed();
+            case RELEVANCE:
+                Comparator<Post> byRelevance = Comparator.comparingInt(relevance::get);
+                return byRelevance.reversed().thenComparing(byId);
+            case LIKES:
+                Comparator<Post> byLikes = Comparator.comparingInt(Post::getNumberOfLikes);
+                return byLikes.reversed().thenComparing(byId);
+            default:
+                return byId;
+        }
+    }
+
+    // REQUIRES: this.timestampsOrdered
+    // EFFECTS: restituisce il minimo id tale che tutti i post con id maggiore o uguale abbiano timestamp non precedente a
+    //          time (ricerca binaria, dati i timestamp non decrescenti negli id), o this.nextId se non ne esistono
+    private int firstIdAtOrAfter(long time) {
+        int low = 0;
+        int high = this.nextId;
+        while(low < high) {
+            int middle = (low + high) >>> 1;
+            Post post = null;
+            int id = middle;
+            while(post == null && id < high) { // salto gli id senza post
+                post = this.peekPost(id++);
+            }
+            if(post == null || post.getTimestamp().getTime() >= time) {
+                high = middle;
+            } else {
+                low = id;
+            }
+        }
+        return low;
+    }
+
+    // EFFECTS: restituisce il post con id id, o una sua copia letta da disco se si trova nel livello freddo, o null se non
+    //          esiste; a differenza di getPostById() non conta l'accesso
+    private Post peekPost(int id) {
+        Post post = this.postLookup.get(id);
+        if(post == null && this.coldStore != null) {
+            post = this.coldStore.get(id);
+        }
+        return post;
+    }
+
+    // MODIFIES: this
+    // EFFECTS: assegna il prossimo numero di sequenza alla modifica descritta dai parametri, la notifica in modo sincrono agli
+    //          indici registrati e, se esistono listener registrati, accoda il corrispondente MicroBlogEvent per la consegna
+    private void publish(MicroBlogEvent.Type type, int postId, String author, String user, String text, String previousText) {
+        long sequence = ++(this.eventSequence);
+        boolean listeners = this.dispatcher.hasListeners();
+        if(listeners || !this.indexes.isEmpty()) { // evito di allocare l'evento se nessuno lo riceverà
+            MicroBlogEvent event = new MicroBlogEvent(sequence, type, postId, author, user, text, previousText);
+            for(MicroBlogIndex index : this.indexes) {
+                index.apply(event);
+            }
+            if(listeners) {
+                this.dispatcher.publish(event);
+            }
+        }
+    }
+
+    // REQUIRES: likedBy ≠ null ∧ likedBy ∉ /^\s+$/ ∧ likedBy.length > 0 ∧ ofAuthor ≠ null ∧ ofAuthor ∉ /^\s+$/ ∧ ofAuthor.length > 0
+    // THROWS: NullPointerException se likedBy è null ∨ ofAuthor è null (unchecked exception),
+    //         IllegalArgumentException se likedBy.length = 0 ∨ likedBy ∈ /^\s+$/ ∨ ofAuthor.length = 0 ∨ ofAuthor ∈ /^\s+$/ (unchecked exception)
+    // EFFECTS: restituisce il numero di post scritti dall'utente identificato da ofAuthor ai quali l'utente identificato da likedBy ha messo like
+    protected int getNumberOfLikedPosts(String likedBy, String ofAuthor) throws NullPointerException, IllegalArgumentException {
+        if(likedBy == null || ofAuthor == null) {
             throw new NullPointerException();
         }
+        if(likedBy.trim().isEmpty() || ofAuthor.trim().isEmpty()) {
+            throw new IllegalArgumentException();
+        }
 
+        Set<Post> postsByAuthor = this.postRelations.get(ofAuthor);
         int count = 0;
 
-        for(Map.Entry<String,Set<String>> entry : followers.entrySet()) {
-            if(entry.getValue().contains(user)) {
+        for(Post post : postsByAuthor) {
+            if(post.getLikes().contains(likedBy)) {
                 count++;
             }
         }
 
+        // i like ai post nel livello freddo sono contati a parte, senza rileggerli da disco
+        Map<String, Integer> coldCounts = this.coldLikes.get(likedBy);
+        if(coldCounts != null) {
+            count += coldCounts.getOrDefault(ofAuthor, 0);
+        }
+
         return count;
     }
 
@@ -387,6 +1436,47 @@ public class MicroBlog implements SocialNetwork {
         return copy;
     }
 
+    // EFFECTS: restituisce true se e solo se user è autore di almeno un post della rete
+    public boolean isAuthor(String user) {
+        return this.postRelations.containsKey(user);
+    }
+
+    // REQUIRES: user ≠ null
+    // THROWS: NullPointerException se user è null (unchecked exception)
+    // EFFECTS: restituisce una copia dell'insieme degli utenti seguiti da user, o null se user non è autore di alcun post della rete;
+    //          a differenza di getFollowRelations() non copia l'intero grafo
+    public Set<String> getFollowing(String user) throws NullPointerException {
+        if(user == null) {
+            throw new NullPointerException();
+        }
+
+        Set<String> following = this.followRelations.get(user);
+        return following == null ? null : new HashSet<String>(following);
+    }
+
+    // REQUIRES: id ≥ 0
+    // THROWS: IllegalArgumentException se id < 0 (unchecked exception)
+    // EFFECTS: restituisce una copia del post che ha id uguale al parametro id, o null se non esiste un post con quell'id
+    public Post getPost(int id) throws IllegalArgumentException {
+        Post post = this.getPostById(id);
+        return post == null ? null : post.clone();
+    }
+
+    // EFFECTS: restituisce il numero di post presenti nella rete
+    public int getNumberOfPosts() {
+        return this.postLookup.size() + (this.coldStore == null ? 0 : this.coldStore.size());
+    }
+
+    // EFFECTS: restituisce il numero di utenti che hanno almeno un post nella rete
+    public int getNumberOfUsers() {
+        return this.postRelations.size();
+    }
+
+    // EFFECTS: restituisce il numero di relazioni di follow presenti nella rete, ovvero Σ_{u utente} #(utenti seguiti da u)
+    public int getNumberOfFollowEdges() {
+        return this.followEdgeCount;
+    }
+
     // REQUIRES: searchWords ≠ null ∧ (∀ w ∈ searchWords . w ≠ null ∧ w ∉ /^\s+$/ ∧ w.length > 0)
     // THROWS: NullPointerException se searchWords è null ∨ (∃ w ∈ searchWords . w è null) (unchecked exception),
     //         IllegalArgumentException se ∃ w ∈ searchWords . w.length = 0 ∨ w ∈ /^\s+$/ (unchecked exception)
@@ -394,49 +1484,64 @@ public class MicroBlog implements SocialNetwork {
     //          Formalmente: sia λ(p) = #{w ∈ searchWords | w ⊆ p.getText()}. Allora l'output è
     //          [p1, p2, ..., pn] dove λ(p1) ≥ λ(p2) ≥ ... ≥ λ(pn)
     public List<Post> sortByRelevance(List<String> searchWords) throws NullPointerException, IllegalArgumentException {
+        // la rilevanza di ciascun post viene calcolata una sola volta, non a ogni confronto dell'ordinamento
         List<Post> outputList = this.getAllPosts();
-
-        outputList.sort((p, q) -> {
-            int count1, count2;
-            count1 = count2 = 0;
-            for(String word : searchWords) { // conto il numero di parole in searchWords che compaiono nei due generici post della lista
-                if(containsExactly(p.getText(), word)) {
-                    count1++;
-                }
-                if(containsExactly(q.getText(), word)) {
-                    count2++;
-                }
-            }
-            return count2 - count1; // la funzione lambda restituisce la differenza dei due conteggi, utilizzata poi da sort per l'ordinamento
-        });
+        Map<Post, Integer> relevance = new IdentityHashMap<Post, Integer>();
+        for(Post post : outputList) {
+            relevance.put(post, MicroBlog.getRelevance(post.getText(), searchWords));
+        }
+        outputList.sort((p, q) -> relevance.get(q) - relevance.get(p));
 
         return outputList;
     }
 
-    // REQUIRES: str ≠ null ∧ substr ≠ null
-    // THROWS: NullPointerException se str è null ∨ substr è null
-    // EFFECTS: restituisce true se la stringa substr, trattata come parola, è contenuta in str; false altrimenti.
-    //          Utilizza una espressione regolare e il word boundary per verificare che la parola *esatta* sia contenuta nella stringa,
-    //          e non sia per esempio prefisso di una parola più lunga
-    private boolean containsExactly(String str, String substr) {
-        String regex = ".*\\b" + substr + "\\b.*"; // creo un'espressione regolare -- \b è il word boundary, utilizzato per riconoscere l'inizio o la fine di una parola
-        Pattern pattern = Pattern.compile(regex, Pattern.CASE_INSENSITIVE);
-        Matcher matcher = pattern.matcher(str); // cerco la parola substr all'interno della stringa str
+    // REQUIRES: text ≠ null ∧ searchWords ≠ null ∧ (∀ w ∈ searchWords . w ≠ null)
+    // THROWS: NullPointerException se text è null ∨ searchWords è null ∨ (∃ w ∈ searchWords . w è null) (unchecked exception)
+    // EFFECTS: restituisce la rilevanza di text rispetto a searchWords, ovvero #{w ∈ searchWords | w ⊆ text} (la stessa misura usata
+    //          da sortByRelevance), così che chi combina risultati ordinati di più reti possa confrontarli; w ⊆ text indica che w
+    //          compare in text come parola intera, ignorando maiuscole e minuscole (WordTokenizer.containsWord)
+    public static int getRelevance(String text, List<String> searchWords) throws NullPointerException {
+        if(text == null || searchWords == null) {
+            throw new NullPointerException();
+        }
 
-        return matcher.matches();
+        int count = 0;
+        for(String word : searchWords) {
+            if(WordTokenizer.containsWord(text, word)) {
+                count++;
+            }
+        }
+        return count;
     }
 
     // EFFECTS: restituisce una lista contenente tutti i post che sono stati aggiunti alla rete
     public List<Post> getAllPosts() {
         List<Post> posts = new LinkedList<Post>();
 
-        for(Map.Entry<Integer, Post> entry : this.postLookup.entrySet()) {
-            posts.add(entry.getValue().clone());
+        for(Post post : this.postLookup) {
+            posts.add(post.clone());
+        }
+        if(this.coldStore != null) {
+            this.coldStore.forEach(posts::add); // le copie lette da disco sono già nuove istanze
         }
 
         return posts;
     }
 
+    // REQUIRES: ∀ id ∈ ids . ∃ p post ∈ this . p.getId() = id
+    // EFFECTS: restituisce una lista, ordinata per id, delle copie dei post con id in ids
+    private List<Post> getPostsById(Set<Integer> ids) {
+        List<Integer> sorted = new ArrayList<Integer>(ids);
+        Collections.sort(sorted);
+
+        List<Post> posts = new ArrayList<Post>(sorted.size());
+        for(int id : sorted) {
+            Post post = this.postLookup.get(id);
+            posts.add(post != null ? post.clone() : this.coldStore.get(id));
+        }
+        return posts;
+    }
+
     // EFFECTS: restituisce il contenuto della variabile di istanza nextId e la incrementa successivamente, garantendo
     //          che ogni output sia unico
     // MODIFIES: this
@@ -446,11 +1551,104 @@ public class MicroBlog implements SocialNetwork {
 
     // REQUIRES: id ≥ 0
     // THROWS: IllegalArgumentException se id < 0 (unchecked exception)
-    // EFFECTS: restituisce il solo post che ha id uguale al parametro id, o null se non esiste un post con quell'id
+    // EFFECTS: restituisce il solo post che ha id uguale al parametro id, o null se non esiste un post con quell'id;
+    //          se il post si trova nel livello freddo ne restituisce una copia letta da disco, che non deve essere modificata
     protected Post getPostById(int id) throws IllegalArgumentException {
         if(id < 0) {
             throw new IllegalArgumentException();
         }
-        return this.postLookup.get(id);
+
+        Post post = this.postLookup.get(id);
+        if(post != null) {
+            this.recordAccess(id);
+            return post;
+        }
+        return this.coldStore == null ? null : this.coldStore.get(id);
+    }
+
+    // REQUIRES: id ≥ 0
+    // THROWS: IllegalArgumentException se id < 0 (unchecked exception)
+    // MODIFIES: this
+    // EFFECTS: come getPostById(), ma se il post si trova nel livello freddo lo riporta in memoria, così che possa essere modificato
+    private Post getHotPostById(int id) throws IllegalArgumentException {
+        if(id < 0) {
+            throw new IllegalArgumentException();
+        }
+
+        Post post = this.postLookup.get(id);
+        if(post == null && this.coldStore != null) {
+            post = this.coldStore.remove(id);
+            if(post != null) {
+                this.postLookup.put(post);
+                this.postRelations.get(post.getAuthor()).add(post);
+                this.updateColdLikes(post, -1);
+                this.addKeywords(post.getText());
+            }
+        }
+        if(post != null) {
+            this.recordAccess(id);
+        }
+        return post;
+    }
+
+    // MODIFIES: this
+    // EFFECTS: se il livello freddo è abilitato, conta un accesso al post in memoria con id id
+    private void recordAccess(int id) {
+        if(this.coldStore != null) {
+            this.accessCounts.merge(id, 1, Integer::sum);
+        }
+    }
+
+    // MODIFIES: this
+    // EFFECTS: aggiunge delta al numero di post dell'autore di post nel livello freddo a cui ha messo like ciascun utente tra
+    //          i like di post, eliminando i conteggi che diventano 0
+    private void updateColdLikes(Post post, int delta) {
+        for(String like : post.getLikes()) {
+            Map<String, Integer> counts = this.coldLikes.computeIfAbsent(like, k -> new HashMap<String, Integer>());
+            counts.merge(post.getAuthor(), delta, (a, b) -> a + b == 0 ? null : a + b);
+            if(counts.isEmpty()) {
+                this.coldLikes.remove(like);
+            }
+        }
+    }
+
+    // MODIFIES: this
+    // EFFECTS: aggiunge le parole di text al filtro delle parole dei post in memoria, che cresce da sé senza rileggere i post
+    private void addKeywords(String text) {
+        this.keywordFilter.addText(text);
+    }
+
+    // MODIFIES: this
+    // EFFECTS: registra che count post in memoria hanno cambiato testo o sono stati spostati: le loro vecchie parole restano nel
+    //          filtro (causando solo falsi positivi) finché i post interessati non superano un decimo di quelli in memoria,
+    //          poi il filtro viene ricostruito
+    private void invalidateKeywords(int count) {
+        this.staleKeywords += count;
+        if(this.staleKeywords > Math.max(MicroBlog.KEYWORD_REBUILD_THRESHOLD, this.postLookup.size() / 10)) {
+            this.rebuildKeywordFilter();
+        }
+    }
+
+    // MODIFIES: this
+    // EFFECTS: ricostruisce il filtro delle parole a partire dai testi dei post in memoria
+    private void rebuildKeywordFilter() {
+        List<String> texts = new ArrayList<String>(this.postLookup.size());
+        for(Post post : this.postLookup) {
+            texts.add(post.getText());
+        }
+        this.keywordFilter = KeywordFilter.of(texts);
+        this.staleKeywords = 0;
+    }
+
+    // REQUIRES: text ≠ null ∧ words ≠ null ∧ (∀ w ∈ words . w ≠ null)
+    // EFFECTS: restituisce true se e solo se ciascuna delle parole in words è contenuta in text come parola intera
+    //          (WordTokenizer.containsWord), ignorando maiuscole e minuscole
+    private static boolean containsAll(String text, List<String> words) {
+        for(String word : words) {
+            if(!WordTokenizer.containsWord(text, word)) {
+                return false; // se trovo una parola non contenuta, posso interrompere la ricerca
+            }
+        }
+        return true;
     }
 }
@@ -0,0 +1,200 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import javax.naming.LimitExceededException;
+
+// suite di microbenchmark per MicroBlog e le sue sottoclassi
+// Ogni benchmark viene eseguito su una rete sintetica (vedi SyntheticNetwork) con una fase di riscaldamento seguita da
+// più iterazioni di misura a durata fissa; per ogni operazione vengono riportati throughput e percentili di latenza.
+//
+// Utilizzo: java MicroBlogBenchmark [--users N] [--posts N] [--likes N] [--vocabulary N] [--skew S] [--seed N]
+//                                   [--warmup MS] [--iterations N] [--time MS] [--bench nome1,nome2,...]
+public class MicroBlogBenchmark {
+    // dimensione dei pool di input precalcolati, in modo che la generazione degli argomenti non venga misurata
+    private static final int INPUT_POOL_SIZE = 4096;
+
+    // singola operazione misurata; il valore restituito viene consumato per evitare che il JIT elimini la chiamata
+    private interface Operation {
+        Object run(int iteration) throws Exception;
+    }
+
+    // accumulatore dei risultati delle operazioni (equivalente del Blackhole di JMH)
+    private static volatile int sink;
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = MicroBlogBenchmark.parseOptions(args);
+
+        int users = Integer.parseInt(options.get("users"));
+        int posts = Integer.parseInt(options.get("posts"));
+        int likes = Integer.parseInt(options.get("likes"));
+        int vocabulary = Integer.parseInt(options.get("vocabulary"));
+        double skew = Double.parseDouble(options.get("skew"));
+        long seed = Long.parseLong(options.get("seed"));
+        long warmupMillis = Long.parseLong(options.get("warmup"));
+        int iterations = Integer.parseInt(options.get("iterations"));
+        long timeMillis = Long.parseLong(options.get("time"));
+        List<String> benchmarks = Arrays.asList(options.get("bench").split(",\\s*"));
+
+        System.out.printf("# rete sintetica: %d utenti, %d post, %d like, vocabolario di %d parole, skew %.2f%n",
+            users, posts, likes, vocabulary, skew);
+        System.out.printf("%-20s %14s %12s %12s %12s %12s%n", "benchmark", "op/s", "media(µs)", "p50(µs)", "p99(µs)", "max(µs)");
+
+        for(String name : benchmarks) {
+            // ogni benchmark parte da una rete nuova generata con lo stesso seed, così che i risultati siano confrontabili
+            SyntheticNetwork generator = new SyntheticNetwork(users, posts, likes, vocabulary, skew, seed);
+            Operation operation = MicroBlogBenchmark.prepare(name, generator);
+            if(operation == null) {
+                System.out.println("benchmark sconosciuto: " + name);
+                continue;
+            }
+
+            MicroBlogBenchmark.measure(operation, warmupMillis, null);
+            LatencyHistogram histogram = new LatencyHistogram();
+            long elapsed = 0;
+            for(int i = 0; i < iterations; i++) {
+                elapsed += MicroBlogBenchmark.measure(operation, timeMillis, histogram);
+            }
+
+            OperationStats stats = OperationStats.of(histogram.snapshot(), elapsed);
+            System.out.printf("%-20s %14.1f %12.2f %12.2f %12.2f %12.2f%n", name, stats.getThroughput(),
+                stats.getMeanMicros(), stats.getP50Micros(), stats.getP99Micros(), stats.getMaxMicros());
+        }
+    }
+
+    // REQUIRES: name ≠ null ∧ generator ≠ null
+    // EFFECTS: costruisce la rete e gli input del benchmark name e restituisce l'operazione da misurare,
+    //          o null se name non identifica alcun benchmark
+    private static Operation prepare(String name, SyntheticNetwork generator) throws LimitExceededException {
+        switch(name) {
+            case "createPost": {
+                MicroBlog network = new MicroBlog();
+                generator.populate(network);
+                String[] authors = new String[INPUT_POOL_SIZE];
+                String[] texts = new String[INPUT_POOL_SIZE];
+                for(int i = 0; i < INPUT_POOL_SIZE; i++) {
+                    authors[i] = generator.randomUser();
+                    texts[i] = generator.randomText();
+                }
+                return i -> network.createPost(authors[i % INPUT_POOL_SIZE], texts[i % INPUT_POOL_SIZE]);
+            }
+            case "likeUnlike": {
+                MicroBlog network = new MicroBlog();
+                int[] ids = generator.populate(network);
+                // scelgo coppie (post, utente) valide: l'utente deve essere un autore della rete e non l'autore del post
+                List<String> authors = new ArrayList<String>(network.getAuthors());
+                int[] postIds = new int[INPUT_POOL_SIZE];
+                String[] likers = new String[INPUT_POOL_SIZE];
+                int filled = 0;
+                while(filled < INPUT_POOL_SIZE) {
+                    int id = ids[generator.randomPostIndex()];
+                    String user = authors.get(Math.floorMod(generator.randomUser().hashCode(), authors.size()));
+                    if(!user.equals(network.getPostById(id).getAuthor())) {
+                        postIds[filled] = id;
+                        likers[filled] = user;
+                        filled++;
+                    }
+                }
+                // le iterazioni pari mettono un like, quelle dispari lo tolgono, lasciando la rete invariata
+                return i -> {
+                    int k = (i >>> 1) % INPUT_POOL_SIZE;
+                    return (i & 1) == 0 ? network.likePost(postIds[k], likers[k]) : network.unlikePost(postIds[k], likers[k]);
+                };
+            }
+            case "containing":
+            case "sortByRelevance": {
+                MicroBlog network = new MicroBlog();
+                generator.populate(network);
+                List<List<String>> queries = new ArrayList<List<String>>(INPUT_POOL_SIZE);
+                for(int i = 0; i < INPUT_POOL_SIZE; i++) {
+                    queries.add(generator.randomWords(1 + i % 3));
+                }
+                if(name.equals("containing")) {
+                    return i -> network.containing(queries.get(i % INPUT_POOL_SIZE));
+                }
+                return i -> network.sortByRelevance(queries.get(i % INPUT_POOL_SIZE));
+            }
+            case "influencers": {
+                MicroBlog network = new MicroBlog();
+                generator.populate(network);
+                return i -> network.influencers();
+            }
+            case "guessFollowers": {
+                MicroBlog network = new MicroBlog();
+                generator.populate(network);
+                List<Post> posts = network.getAllPosts();
+                return i -> MicroBlog.guessFollowers(posts);
+            }
+            case "badwordFiltering": {
+                // le parole più frequenti del vocabolario sono considerate offensive, così che il filtro abbia lavoro da fare
+                List<String> badwords = new ArrayList<String>();
+                for(int i = 0; i < 20; i++) {
+                    badwords.add(generator.word(i));
+                }
+                MicroBlog network = new MicroBlogWithBadwordFiltering(badwords);
+                generator.populate(network);
+                String[] authors = new String[INPUT_POOL_SIZE];
+                String[] texts = new String[INPUT_POOL_SIZE];
+                for(int i = 0; i < INPUT_POOL_SIZE; i++) {
+                    authors[i] = generator.randomUser();
+                    texts[i] = generator.randomText();
+                }
+                return i -> network.createPost(authors[i % INPUT_POOL_SIZE], texts[i % INPUT_POOL_SIZE]);
+            }
+            default:
+                return null;
+        }
+    }
+
+    // REQUIRES: operation ≠ null ∧ millis > 0
+    // MODIFIES: histogram (se non null)
+    // EFFECTS: esegue ripetutamente operation per circa millis millisecondi, registrando la latenza di ogni chiamata in histogram
+    //          (se histogram ≠ null); restituisce la durata effettiva della misura in nanosecondi
+    private static long measure(Operation operation, long millis, LatencyHistogram histogram) throws Exception {
+        long start = System.nanoTime();
+        long deadline = start + millis * 1_000_000;
+        int hash = 0;
+        int iteration = 0;
+        long now = start;
+
+        while(now < deadline) {
+            long before = now;
+            Object result = operation.run(iteration++);
+            now = System.nanoTime();
+            hash += System.identityHashCode(result); // O(1), a differenza di hashCode() sulle liste
+            if(histogram != null) {
+                histogram.record(now - before);
+            }
+        }
+
+        sink += hash;
+        return now - start;
+    }
+
+    // EFFECTS: restituisce le opzioni della riga di comando, completate con i valori di default
+    private static Map<String, String> parseOptions(String[] args) throws IllegalArgumentException {
+        Map<String, String> options = new LinkedHashMap<String, String>();
+        options.put("users", "1000");
+        options.put("posts", "10000");
+        options.put("likes", "50000");
+        options.put("vocabulary", "2000");
+        options.put("skew", "1.0");
+        options.put("seed", "42");
+        options.put("warmup", "2000");
+        options.put("iterations", "5");
+        options.put("time", "1000");
+        options.put("bench", "createPost,likeUnlike,containing,sortByRelevance,influencers,guessFollowers,badwordFiltering");
+
+        Map<String, String> given = new HashMap<String, String>();
+        for(int i = 0; i + 1 < args.length; i += 2) {
+            if(!args[i].startsWith("--") || !options.containsKey(args[i].substring(2))) {
+                throw new IllegalArgumentException("opzione sconosciuta: " + args[i]);
+            }
+            given.put(args[i].substring(2), args[i + 1]);
+        }
+        options.putAll(given);
+        return options;
+    }
+}
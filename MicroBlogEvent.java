@@ -0,0 +1,82 @@
+// evento immutabile che descrive una singola modifica dello stato di un MicroBlog
+public class MicroBlogEvent {
+    // tipi di modifica notificati da MicroBlog
+    public enum Type {
+        POST_CREATED,   // postId, author, text
+        POST_EDITED,    // postId, author, text (nuovo testo), previousText
+        POST_CENSORED,  // postId, author, text ("(deleted)"), previousText
+        LIKE_ADDED,     // postId, author, user (chi ha messo like)
+        LIKE_REMOVED,   // postId, author, user (chi ha tolto il like)
+        FOLLOW_ADDED,   // author (utente seguito), user (nuovo follower)
+        FOLLOW_REMOVED  // author (utente non più seguito), user (ex follower)
+    }
+
+    private final long sequence;
+    private final Type type;
+    private final int postId;
+    private final String author;
+    private final String user;
+    private final String text;
+    private final String previousText;
+
+    /*
+        Representation invariant:
+        this.sequence ≥ 0 ∧ this.type ≠ null ∧ this.author ≠ null ∧
+        (this.type ∈ {FOLLOW_ADDED, FOLLOW_REMOVED} ⟺ this.postId = -1) ∧
+        (this.type ∈ {LIKE_ADDED, LIKE_REMOVED, FOLLOW_ADDED, FOLLOW_REMOVED} ⟺ this.user ≠ null) ∧
+        (this.type ∈ {POST_CREATED, POST_EDITED, POST_CENSORED} ⟺ this.text ≠ null) ∧
+        (this.type ∈ {POST_EDITED, POST_CENSORED} ⟺ this.previousText ≠ null)
+    */
+
+    // pre-condizioni non verificate in quanto gli eventi vengono creati solo da MicroBlog
+    public MicroBlogEvent(long sequence, Type type, int postId, String author, String user, String text, String previousText) {
+        this.sequence = sequence;
+        this.type = type;
+        this.postId = postId;
+        this.author = author;
+        this.user = user;
+        this.text = text;
+        this.previousText = previousText;
+    }
+
+    // EFFECTS: restituisce il numero di sequenza dell'evento; gli eventi di una stessa rete hanno numeri strettamente crescenti
+    //          nell'ordine in cui le modifiche sono state applicate
+    public long getSequence() {
+        return this.sequence;
+    }
+
+    // EFFECTS: restituisce il tipo dell'evento
+    public Type getType() {
+        return this.type;
+    }
+
+    // EFFECTS: restituisce l'id del post coinvolto, o -1 per gli eventi di follow
+    public int getPostId() {
+        return this.postId;
+    }
+
+    // EFFECTS: restituisce l'autore del post coinvolto o, per gli eventi di follow, l'utente seguito
+    public String getAuthor() {
+        return this.author;
+    }
+
+    // EFFECTS: restituisce l'utente che ha messo o tolto il like o, per gli eventi di follow, il follower; null negli altri casi
+    public String getUser() {
+        return this.user;
+    }
+
+    // EFFECTS: restituisce il testo del post dopo la modifica, o null per gli eventi di like e di follow
+    public String getText() {
+        return this.text;
+    }
+
+    // EFFECTS: restituisce il testo del post prima della modifica per gli eventi POST_EDITED e POST_CENSORED, null negli altri casi
+    public String getPreviousText() {
+        return this.previousText;
+    }
+
+    // EFFECTS: restituisce una rappresentazione dell'istanza (this) come stringa
+    public String toString() {
+        return "#" + this.sequence + " " + this.type + " (post " + this.postId + ", author " + this.author + ", user " + this.user + ")";
+    }
+}
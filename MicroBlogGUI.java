@@ -1,9 +1,16 @@
 import java.awt.Component;
-import java.util.Arrays;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
-import java.util.stream.Collectors;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
 import javax.naming.LimitExceededException;
 import javax.swing.DefaultListCellRenderer;
 import javax.swing.DefaultListModel;
@@ -11,6 +18,7 @@ import javax.swing.JFrame;
 import javax.swing.JList;
 import javax.swing.JOptionPane;
 import javax.swing.JRadioButton;
+import javax.swing.SwingUtilities;
 
 /**
  *
@@ -53,15 +61,33 @@ public class MicroBlogGUI extends javax.swing.JPanel {
       
     }
     
+    // larghezza fissa delle celle della lista dei post, sufficiente per un post di 140 caratteri su una riga
+    private static final int POST_CELL_WIDTH = 1000;
+
+    // numero massimo di autori proposti quando il filtro per autore non trova post
+    private static final int AUTHOR_SUGGESTIONS = 8;
+
     private MicroBlog network;
     private DefaultListModel postsModel;
     private DefaultListModel usersModel;
     private DefaultListModel influencersModel;
     private DefaultListModel idsModel;
-    private LinkedList<Integer> postIds;
     private LikeButtonCellRenderer likeCellRenderer;
     private PostCellRenderer postCellRenderer;
-    private LinkedList<Integer> storedIds;
+
+    // thread su cui vengono eseguite tutte le operazioni sulla rete, così che il thread di Swing non resti mai bloccato
+    // (essendo uno solo, serializza anche gli accessi alla rete, che non è thread-safe)
+    private ExecutorService networkWorker;
+
+    // posizione di ciascun post mostrato all'interno di postsModel (e di idsModel, che è allineato a postsModel)
+    private Map<Integer, Integer> postIndex;
+    // utenti già presenti in usersModel
+    private Set<String> shownUsers;
+    // true se postsModel mostra tutti i post della rete, e quindi i nuovi post vanno aggiunti alla lista
+    private boolean showingAllPosts;
+    // stato del ricalcolo in background della lista degli influencer
+    private boolean influencersRefreshRunning;
+    private boolean influencersRefreshNeeded;
 
     public MicroBlogGUI() {
         network = new MicroBlog();
@@ -69,11 +95,20 @@ public class MicroBlogGUI extends javax.swing.JPanel {
         usersModel = new DefaultListModel();
         idsModel = new DefaultListModel();
         influencersModel = new DefaultListModel();
-        postIds = new LinkedList<Integer>();
-        storedIds = new LinkedList<Integer>();
         likeCellRenderer = new LikeButtonCellRenderer();
         postCellRenderer = new PostCellRenderer();
+        networkWorker = Executors.newSingleThreadExecutor(task -> {
+            Thread thread = new Thread(task, "MicroBlogGUI-network");
+            thread.setDaemon(true);
+            return thread;
+        });
+        postIndex = new HashMap<Integer, Integer>();
+        shownUsers = new HashSet<String>();
+        showingAllPosts = true;
         initComponents();
+
+        // le liste vengono aggiornate in modo incrementale a partire dagli eventi della rete, applicati sul thread di Swing
+        network.addListener(events -> SwingUtilities.invokeLater(() -> applyEvents(events)));
     }
 
     public static void main(String args[]) {
@@ -104,6 +139,8 @@ public class MicroBlogGUI extends javax.swing.JPanel {
         jScrollPane2 = new javax.swing.JScrollPane();
         postsList = new javax.swing.JList<Post>(postsModel);
         postsList.setCellRenderer(postCellRenderer);
+        // con dimensioni fisse delle celle la JList non deve misurare ogni elemento, ma disegna solo quelli visibili
+        postsList.setFixedCellWidth(POST_CELL_WIDTH);
         postsLabel = new javax.swing.JLabel();
         jScrollPane3 = new javax.swing.JScrollPane();
         usersList = new javax.swing.JList<>();
@@ -114,6 +151,12 @@ public class MicroBlogGUI extends javax.swing.JPanel {
         jScrollPane5 = new javax.swing.JScrollPane();
         likeButtonsList = new javax.swing.JList<>();
         likeButtonsList.setCellRenderer(likeCellRenderer);
+        // i pulsanti di like hanno la stessa altezza fissa dei post, così che ogni pulsante resti allineato al proprio post
+        int cellHeight = Math.max(
+            postCellRenderer.getListCellRendererComponent(postsList, "MicroBlog", 0, false, false).getPreferredSize().height,
+            likeCellRenderer.getListCellRendererComponent(likeButtonsList, 0, 0, false, false).getPreferredSize().height);
+        postsList.setFixedCellHeight(cellHeight);
+        likeButtonsList.setFixedCellHeight(cellHeight);
         jLabel5 = new javax.swing.JLabel();
         allPostsRadioButton = new javax.swing.JRadioButton();
         filterAuthorRadioButton = new javax.swing.JRadioButton();
@@ -272,125 +315,265 @@ public class MicroBlogGUI extends javax.swing.JPanel {
     }// </editor-fold>                        
 
     private void submitButtonActionPerformed(java.awt.event.ActionEvent evt) {                                             
-        try {
-            int newId = network.createPost(usernameTextField.getText(), postContentTextArea.getText());
+        String author = usernameTextField.getText();
+        String text = postContentTextArea.getText();
+        // il nuovo post viene aggiunto alle liste quando arriva il corrispondente evento della rete
+        runInBackground(() -> network.createPost(author, text), newId -> {
             usernameTextField.setText("");
             postContentTextArea.setText("");
-            postIds.add(newId);
-            storedIds.add(newId);
-            updateLists();
-            showAllIds();
-        } catch(LimitExceededException exc) {
-            JOptionPane.showMessageDialog(null,
-                "La lunghezza massima del post è di 140 caratteri.");
-        } catch(IllegalArgumentException exc) {
-            JOptionPane.showMessageDialog(null,
-                "Il nome utente e il contenuto del post non possono essere vuoti o composti da soli spazi.");
-        }
+            allPostsRadioButton.setSelected(true);
+        }, exc -> {
+            if(exc instanceof LimitExceededException) {
+                JOptionPane.showMessageDialog(null,
+                    "La lunghezza massima del post è di 140 caratteri.");
+            } else if(exc instanceof IllegalArgumentException) {
+                JOptionPane.showMessageDialog(null,
+                    "Il nome utente e il contenuto del post non possono essere vuoti o composti da soli spazi.");
+            } else {
+                showError(exc);
+            }
+        });
     }
 
     private void likeButtonsListMouseClicked(java.awt.event.MouseEvent evt) {                                             
+        Integer postId = this.likeButtonsList.getSelectedValue();
+        if(postId == null) return;
         String likingUser = JOptionPane.showInputDialog("Nome dell'utente che mette like: ");
-        try {
-            network.likePost(this.likeButtonsList.getSelectedValue(), likingUser);
+        if(likingUser == null) return; // finestra annullata
+        runInBackground(() -> network.likePost(postId, likingUser), followed -> {
             JOptionPane.showMessageDialog(null, "Like aggiunto");
-            updateLists();
             allPostsRadioButton.setSelected(true);
-            showAllIds();
-        } catch(IllegalStateException exc) {
-            JOptionPane.showMessageDialog(null, "Non puoi mettere like al tuo post");
-        } catch(IllegalArgumentException exc) {
-            JOptionPane.showMessageDialog(null, "Il nome utente non può essere vuoto o composto da soli spazi");
-        }
+        }, exc -> {
+            if(exc instanceof IllegalStateException) {
+                JOptionPane.showMessageDialog(null, "Non puoi mettere like al tuo post");
+            } else if(exc instanceof IllegalArgumentException) {
+                JOptionPane.showMessageDialog(null, "Il nome utente non può essere vuoto o composto da soli spazi");
+            } else {
+                showError(exc);
+            }
+        });
     }
 
     private void usersListMouseClicked(java.awt.event.MouseEvent evt) {                                       
-        if(this.usersList.getSelectedValue() == null) return;
-        String str = "";
-        
-        Set<String> followers = network.getFollowRelations().get(this.usersList.getSelectedValue());
-        for(String follower : followers) {
-            str += follower + ", ";
-        }
-        if(str.length() > 0) {
-            str = str.substring(0, str.length() - 2);
-            str = this.usersList.getSelectedValue() + " segue: " + str;
-        } else str = this.usersList.getSelectedValue() + " non segue alcun utente";
-        
-        JOptionPane.showMessageDialog(null, str);
+        String user = this.usersList.getSelectedValue();
+        if(user == null) return;
+
+        // viene copiato solo l'insieme degli utenti seguiti da user, non l'intero grafo
+        runInBackground(() -> network.getFollowing(user), following -> {
+            String str;
+            if(following != null && !following.isEmpty()) {
+                str = user + " segue: " + String.join(", ", following);
+            } else str = user + " non segue alcun utente";
+
+            JOptionPane.showMessageDialog(null, str);
+        }, null);
     }
 
     private void filterAuthorRadioButtonItemStateChanged(java.awt.event.ItemEvent evt) {                                                         
         JRadioButton source = (JRadioButton) evt.getSource();
-                if(source.isSelected()) {
-                   String author = JOptionPane.showInputDialog("Mostra i post scritti da: ");
-                   try {
-                    List<Post> iterator = network.writtenBy(author);
-                    postsModel.clear();
-                    postsModel.addAll(iterator);
-                    alterShownIds(iterator);
-                   } catch(IllegalArgumentException exc) {
-                       JOptionPane.showMessageDialog(null, "Il nome utente non può essere vuoto o composto da soli spazi");
-                       allPostsRadioButton.setSelected(true);
-                   }
+        if(source.isSelected()) {
+            String author = JOptionPane.showInputDialog("Mostra i post scritti da: ");
+            showingAllPosts = false;
+            runInBackground(() -> network.writtenBy(author), posts -> {
+                if(posts.isEmpty()) { // nessun post: il nome potrebbe essere incompleto o contenere un errore di battitura
+                    suggestAuthors(author);
+                } else {
+                    showPosts(posts);
+                }
+            }, exc -> {
+                if(exc instanceof IllegalArgumentException) {
+                    JOptionPane.showMessageDialog(null, "Il nome utente non può essere vuoto o composto da soli spazi");
                 }
+                allPostsRadioButton.setSelected(true);
+            });
+        }
     }                                                        
 
+    // propone gli autori il cui nome inizia con author o è simile a esso e mostra i post di quello scelto
+    private void suggestAuthors(String author) {
+        runInBackground(() -> {
+            Set<String> suggestions = new LinkedHashSet<String>(network.completeUsername(author, AUTHOR_SUGGESTIONS));
+            suggestions.addAll(network.similarUsernames(author, 2, AUTHOR_SUGGESTIONS));
+            return new ArrayList<String>(suggestions);
+        }, suggestions -> {
+            if(suggestions.isEmpty()) {
+                showPosts(new ArrayList<Post>());
+                return;
+            }
+            Object choice = JOptionPane.showInputDialog(null, "Nessun post di \"" + author + "\". Forse cercavi:", "Autore non trovato",
+                JOptionPane.QUESTION_MESSAGE, null, suggestions.toArray(), suggestions.get(0));
+            if(choice == null) {
+                showPosts(new ArrayList<Post>());
+            } else {
+                runInBackground(() -> network.writtenBy((String) choice), this::showPosts, null);
+            }
+        }, null);
+    }
+
     private void allPostsRadioButtonItemStateChanged(java.awt.event.ItemEvent evt) {                                                     
-            JRadioButton source = (JRadioButton) evt.getSource();
-                if(source.isSelected()) {
-                    postsModel.clear();
-                    postsModel.addAll(network.getAllPosts());
-                    showAllIds();
-                }
+        JRadioButton source = (JRadioButton) evt.getSource();
+        if(source.isSelected()) {
+            showingAllPosts = true;
+            runInBackground(() -> network.getAllPosts(), this::showPosts, null);
+        }
     }                                                    
 
     private void filterKeywordsRadioButtonItemStateChanged(java.awt.event.ItemEvent evt) {                                                           
-                JRadioButton source = (JRadioButton) evt.getSource();
-                if(source.isSelected()) {
-                   String keywordsStr = JOptionPane.showInputDialog("Parole da cercare (separate da virgola): ");
-                   try {
-                    postsModel.clear();
-                    String[] keywordsAsArray = keywordsStr.split(",\\s*");
-                    List<String> keywords = new LinkedList<>(Arrays.asList(keywordsAsArray));
-                    List<Post> iterator = network.containing(keywords);
-                    postsModel.addAll(iterator);
-                    alterShownIds(iterator);
-                   } catch(IllegalArgumentException exc) {
-                       JOptionPane.showMessageDialog(null, "Le parole non possono essere composte da soli spazi");
-                       allPostsRadioButton.setSelected(true);
-                   }
+        JRadioButton source = (JRadioButton) evt.getSource();
+        if(source.isSelected()) {
+            String keywordsStr = JOptionPane.showInputDialog("Parole da cercare (separate da spazi o virgole): ");
+            if(keywordsStr == null) { // finestra annullata
+                allPostsRadioButton.setSelected(true);
+                return;
+            }
+            showingAllPosts = false;
+            // le parole vengono separate con lo stesso tokenizer usato da containing (su spazi, virgole e ogni altro carattere
+            // che non fa parte di una parola), così che ogni parola inserita sia cercabile
+            List<String> keywords = new LinkedList<>(WordTokenizer.words(keywordsStr));
+            runInBackground(() -> network.containing(keywords), this::showPosts, exc -> {
+                if(exc instanceof IllegalArgumentException) {
+                    JOptionPane.showMessageDialog(null, "Le parole non possono essere composte da soli spazi");
                 }
+                allPostsRadioButton.setSelected(true);
+            });
+        }
     }                                                          
 
-    private void updateLists() {
+    // esegue query sul thread della rete e consegna il risultato a onSuccess (o l'eccezione a onError, se non null)
+    // sul thread di Swing
+    private <T> void runInBackground(Callable<T> query, Consumer<T> onSuccess, Consumer<Exception> onError) {
+        networkWorker.execute(() -> {
+            try {
+                T result = query.call();
+                SwingUtilities.invokeLater(() -> onSuccess.accept(result));
+            } catch(Exception exc) {
+                SwingUtilities.invokeLater(() -> {
+                    if(onError != null) {
+                        onError.accept(exc);
+                    } else {
+                        showError(exc);
+                    }
+                });
+            }
+        });
+    }
+
+    // mostra una finestra di errore per un'eccezione imprevista, invece di perderla sulla console
+    private void showError(Exception exc) {
+        String message = exc.getMessage() != null ? exc.getMessage() : exc.getClass().getSimpleName();
+        JOptionPane.showMessageDialog(null, "Si è verificato un errore imprevisto: " + message, "Errore", JOptionPane.ERROR_MESSAGE);
+    }
+
+    // sostituisce i post mostrati (e i relativi pulsanti di like) con posts
+    private void showPosts(List<Post> posts) {
         postsModel.clear();
-        postsModel.addAll(network.getAllPosts());
-
-        usersModel.clear();
-        usersModel.addAll(network.getMentionedUsers());
-        
-        influencersModel.clear();
-        influencersModel.addAll(network.influencers());
-        
+        postsModel.addAll(posts);
+
+        postIndex.clear();
+        List<Integer> ids = new ArrayList<Integer>(posts.size());
+        for(Post post : posts) {
+            postIndex.put(post.getId(), ids.size());
+            ids.add(post.getId());
+        }
         idsModel.clear();
-        idsModel.addAll(postIds);
+        idsModel.addAll(ids);
     }
-    
-    private void alterShownIds(List<Post> shownPosts) {        
-        this.postIds.clear();
-        postIds.addAll(shownPosts.stream().map(p -> p.getId()).collect(Collectors.toList()));
-        
-        idsModel.clear();
-        idsModel.addAll(postIds);
+
+    // applica alle liste le modifiche descritte da events: i nuovi utenti vengono aggiunti subito, mentre i post creati o
+    // modificati e gli influencer vengono riletti in background
+    private void applyEvents(List<MicroBlogEvent> events) {
+        List<Integer> changedPosts = new ArrayList<Integer>();
+        boolean followsChanged = false;
+
+        for(MicroBlogEvent event : events) {
+            switch(event.getType()) {
+                case POST_CREATED:
+                    if(shownUsers.add(event.getAuthor())) {
+                        usersModel.addElement(event.getAuthor());
+                    }
+                    if(showingAllPosts) {
+                        changedPosts.add(event.getPostId());
+                    }
+                    break;
+                case POST_EDITED:
+                case POST_CENSORED:
+                    if(postIndex.containsKey(event.getPostId())) {
+                        changedPosts.add(event.getPostId());
+                    }
+                    break;
+                case FOLLOW_ADDED:
+                case FOLLOW_REMOVED:
+                    followsChanged = true;
+                    break;
+                default: // i like non modificano il contenuto delle liste
+            }
+        }
+
+        if(!changedPosts.isEmpty()) {
+            runInBackground(() -> {
+                List<Post> posts = new ArrayList<Post>(changedPosts.size());
+                for(int id : changedPosts) {
+                    Post post = network.getPost(id);
+                    if(post != null) {
+                        posts.add(post);
+                    }
+                }
+                return posts;
+            }, this::mergePosts, null);
+        }
+        if(followsChanged) {
+            refreshInfluencers();
+        }
     }
-    
-    private void showAllIds() {
-        postIds.clear();
-        postIds.addAll(storedIds);
-        
-        idsModel.clear();
-        idsModel.addAll(postIds);
+
+    // aggiorna i post già mostrati con le copie in posts e aggiunge in coda gli altri, se sono mostrati tutti i post della rete
+    private void mergePosts(List<Post> posts) {
+        for(Post post : posts) {
+            Integer index = postIndex.get(post.getId());
+            if(index != null) {
+                postsModel.set(index, post);
+            } else if(showingAllPosts) {
+                postIndex.put(post.getId(), postsModel.size());
+                postsModel.addElement(post);
+                idsModel.addElement(post.getId());
+            }
+        }
+    }
+
+    // ricalcola gli influencer in background; le richieste che arrivano durante un ricalcolo vengono accorpate in uno solo successivo
+    private void refreshInfluencers() {
+        if(influencersRefreshRunning) {
+            influencersRefreshNeeded = true;
+            return;
+        }
+        influencersRefreshRunning = true;
+        influencersRefreshNeeded = false;
+
+        runInBackground(() -> network.influencers(), influencers -> {
+            // applico solo le differenze rispetto alla lista mostrata
+            Set<String> updated = new HashSet<String>(influencers);
+            Set<String> shown = new HashSet<String>();
+            for(int i = influencersModel.size() - 1; i >= 0; i--) {
+                if(!updated.contains(influencersModel.get(i))) {
+                    influencersModel.remove(i);
+                } else {
+                    shown.add((String) influencersModel.get(i));
+                }
+            }
+            for(String influencer : influencers) {
+                if(!shown.contains(influencer)) {
+                    influencersModel.addElement(influencer);
+                }
+            }
+
+            influencersRefreshRunning = false;
+            if(influencersRefreshNeeded) {
+                refreshInfluencers();
+            }
+        }, exc -> {
+            influencersRefreshRunning = false;
+            showError(exc);
+        });
     }
 
     private javax.swing.JRadioButton allPostsRadioButton;
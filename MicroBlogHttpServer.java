@@ -0,0 +1,625 @@
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.reflect.Method;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import javax.naming.LimitExceededException;
+
+// server HTTP/JSON incorporato (basato su com.sun.net.httpserver del JDK) che espone le operazioni di un MicroBlog
+//
+// Endpoint (i parametri possono essere passati nella query string o, per POST, nel corpo application/x-www-form-urlencoded;
+// le liste di parole sono separate da virgole):
+//     POST   /posts?author=A&text=T        crea un post                          → 201 {"id": n}
+//     GET    /posts                        tutti i post                          → [post, ...]
+//     GET    /posts?author=A               writtenBy(A)                          → [post, ...]
+//     GET    /posts?contains=w1,w2         containing([w1, w2])                  → [post, ...]
+//     GET    /posts?relevance=w1,w2        sortByRelevance([w1, w2])             → [post, ...]
+//     GET    /posts?mentions=U             mentionsOf(U)                         → [post, ...]
+//     GET    /posts?tag=T                  postsTagged(T)                        → [post, ...]
+//     GET    /posts/{id}                   il post con id {id}                   → post
+//     POST   /posts/{id}/likes?user=U      likePost({id}, U)                     → {"follow": true|false}
+//     DELETE /posts/{id}/likes?user=U      unlikePost({id}, U)                   → {"follow": true|false}
+//     GET    /influencers                  influencers()                         → [utente, ...]
+//     GET    /influencers?top=K            rankedInfluencers(K)                  → [{"user": "...", "score": s}, ...]
+//     GET    /follows                      getFollowRelations()                  → {utente: [utente, ...], ...}
+//     GET    /follows?user=U               utenti seguiti da U                   → [utente, ...]
+//     GET    /recommendations?user=U&k=K   recommendFollows(U, K), K = 10 se assente → [utente, ...]
+//     GET    /reach?authors=A1,A2          estimatedReach({A1, A2})              → {"reach": n}
+//     GET    /trending?k=K&window=S        trending(K, S secondi), K = 10 e S = 3600 se assenti → [{"word": "...", "count": n}, ...]
+//     GET    /top?k=K&author=A             mostLiked(A, K) o mostLiked(K) se A è assente, K = 10 se assente → [{"id": n, "likes": n}, ...]
+//     GET    /query?author=A&words=w1,w2&since=MS&until=MS&minLikes=N&maxLikes=N&censored=B&order=O&offset=N&limit=N
+//                                           query(...) con i soli predicati indicati, O = id|newest|relevance|likes → [post, ...]
+// dove post = {"id": n, "author": "...", "text": "...", "timestamp": ms, "likes": ["...", ...]}
+// Gli errori sono restituiti come {"error": "..."} con stato 400 (parametri non validi), 404 (post o utente inesistente),
+// 405 (metodo non consentito), 409 (like al proprio post), 500 (errore interno) o 503 (server sovraccarico).
+//
+// Ogni richiesta viene eseguita su un virtual thread se il JDK li supporta (Java 21 o successivo), altrimenti su un pool
+// di thread di dimensione fissa. Le connessioni sono persistenti (keep-alive) e le richieste inviate in pipeline sulla stessa
+// connessione vengono servite nell'ordine di arrivo. Il numero di richieste accettate ma non ancora completate è limitato:
+// oltre il limite il server risponde subito 503 invece di accodarle.
+//
+// Il server è in ascolto sull'interfaccia di loopback, salvo che venga indicato esplicitamente un altro indirizzo.
+//
+// Utilizzo: java MicroBlogHttpServer [--port N] [--bind INDIRIZZO] [--threads N] [--max-pending N] [--impl microblog|badwords|reports]
+public class MicroBlogHttpServer implements AutoCloseable {
+    private final MicroBlog network;
+    private final HttpServer server;
+    private final ExecutorService workers;
+
+    // letture concorrenti, scritture esclusive: MicroBlog non è thread-safe
+    private final ReadWriteLock lock;
+
+    // permessi per le richieste accettate e non ancora completate (in coda o in esecuzione)
+    private final Semaphore pending;
+
+    // true nel thread che esegue una richiesta rifiutata per sovraccarico
+    private static final ThreadLocal<Boolean> REJECTED = ThreadLocal.withInitial(() -> Boolean.FALSE);
+
+    // numero di suggerimenti restituiti da /recommendations se la richiesta non specifica k
+    private static final int DEFAULT_RECOMMENDATIONS = 10;
+
+    // numero di parole e durata in secondi della finestra di /trending se la richiesta non li specifica
+    private static final int DEFAULT_TRENDING = 10;
+    private static final int DEFAULT_TRENDING_WINDOW = 3600;
+
+    // numero di post restituiti da /top se la richiesta non specifica k
+    private static final int DEFAULT_TOP = 10;
+
+    private final LongAdder served;
+    private final LongAdder rejected;
+
+    static {
+        // il server del JDK non disabilita l'algoritmo di Nagle sui socket accettati: con intestazioni e corpo della risposta
+        // scritti separatamente, ogni richiesta su una connessione persistente attenderebbe l'ACK ritardato del client
+        if(System.getProperty("sun.net.httpserver.nodelay") == null) {
+            System.setProperty("sun.net.httpserver.nodelay", "true");
+        }
+    }
+
+    /*
+        Representation invariant:
+        this.network ≠ null ∧ this.server ≠ null ∧ this.workers ≠ null ∧ this.lock ≠ null ∧ this.pending ≠ null ∧
+        this.served ≠ null ∧ this.rejected ≠ null
+    */
+
+    // REQUIRES: network ≠ null ∧ 0 ≤ port ≤ 65535 ∧ threads > 0 ∧ maxPending > 0
+    // THROWS: NullPointerException se network è null (unchecked exception),
+    //         IllegalArgumentException se threads ≤ 0 ∨ maxPending ≤ 0 (unchecked exception),
+    //         IOException se non è possibile aprire il socket sulla porta port (checked exception)
+    // EFFECTS: crea un server, non ancora avviato, che espone network sulla porta port (una porta libera se port = 0)
+    //          dell'interfaccia di loopback; threads è il numero di thread usati se i virtual thread non sono disponibili,
+    //          maxPending il numero massimo di richieste accettate e non ancora completate
+    public MicroBlogHttpServer(MicroBlog network, int port, int threads, int maxPending) throws NullPointerException, IllegalArgumentException, IOException {
+        this(network, InetAddress.getLoopbackAddress(), port, threads, maxPending);
+    }
+
+    // REQUIRES: network ≠ null ∧ bindAddress ≠ null ∧ 0 ≤ port ≤ 65535 ∧ threads > 0 ∧ maxPending > 0
+    // THROWS: NullPointerException se network è null ∨ bindAddress è null (unchecked exception),
+    //         IllegalArgumentException se threads ≤ 0 ∨ maxPending ≤ 0 (unchecked exception),
+    //         IOException se non è possibile aprire il socket sulla porta port di bindAddress (checked exception)
+    // EFFECTS: come MicroBlogHttpServer(network, port, threads, maxPending), ma in ascolto sull'indirizzo bindAddress invece
+    //          che sull'interfaccia di loopback (es. l'indirizzo jolly 0.0.0.0 per accettare connessioni da altri host)
+    public MicroBlogHttpServer(MicroBlog network, InetAddress bindAddress, int port, int threads, int maxPending) throws NullPointerException, IllegalArgumentException, IOException {
+        if(network == null || bindAddress == null) {
+            throw new NullPointerException();
+        }
+        if(threads <= 0 || maxPending <= 0) {
+            throw new IllegalArgumentException();
+        }
+
+        this.network = network;
+        this.lock = new ReentrantReadWriteLock();
+        this.pending = new Semaphore(maxPending);
+        this.served = new LongAdder();
+        this.rejected = new LongAdder();
+        this.workers = MicroBlogHttpServer.newWorkers(threads);
+
+        this.server = HttpServer.create(new InetSocketAddress(bindAddress, port), maxPending);
+        this.server.createContext("/", this::handle);
+        // l'ammissione avviene quando il server consegna la richiesta all'executor, così che anche le richieste in coda
+        // contino nel limite; quelle in eccesso vengono comunque eseguite, ma rispondono subito 503
+        this.server.setExecutor(task -> {
+            boolean admitted = this.pending.tryAcquire();
+            this.workers.execute(() -> {
+                MicroBlogHttpServer.REJECTED.set(!admitted);
+                try {
+                    task.run();
+                } finally {
+                    MicroBlogHttpServer.REJECTED.remove();
+                    if(admitted) {
+                        this.pending.release();
+                    }
+                }
+            });
+        });
+    }
+
+    // MODIFIES: this
+    // EFFECTS: avvia il server
+    public void start() {
+        this.server.start();
+    }
+
+    // EFFECTS: restituisce la porta su cui il server è in ascolto
+    public int getPort() {
+        return this.server.getAddress().getPort();
+    }
+
+    // EFFECTS: restituisce il numero di richieste servite (con qualunque esito diverso da 503)
+    public long getServedRequests() {
+        return this.served.sum();
+    }
+
+    // EFFECTS: restituisce il numero di richieste rifiutate con 503 per sovraccarico
+    public long getRejectedRequests() {
+        return this.rejected.sum();
+    }
+
+    // MODIFIES: this
+    // EFFECTS: arresta il server, attendendo al più un secondo il completamento delle richieste in corso
+    public void close() {
+        this.server.stop(1);
+        this.workers.shutdown();
+        try {
+            this.workers.awaitTermination(1, TimeUnit.SECONDS);
+        } catch(InterruptedException exc) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // EFFECTS: serve la richiesta exchange e ne chiude lo scambio
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            if(MicroBlogHttpServer.REJECTED.get()) {
+                this.rejected.increment();
+                MicroBlogHttpServer.send(exchange, 503, MicroBlogHttpServer.error("server sovraccarico"));
+                return;
+            }
+
+            int status;
+            String body;
+            try {
+                Map<String, String> params = MicroBlogHttpServer.parseParameters(exchange);
+                String[] path = exchange.getRequestURI().getPath().split("/");
+                String[] result = this.route(exchange.getRequestMethod(), Arrays.copyOfRange(path, Math.min(1, path.length), path.length), params);
+                status = Integer.parseInt(result[0]);
+                body = result[1];
+            } catch(NullPointerException | IllegalArgumentException | LimitExceededException exc) {
+                status = 400;
+                body = MicroBlogHttpServer.error(exc.getMessage() == null ? "richiesta non valida" : exc.getMessage());
+            } catch(NoSuchElementException exc) {
+                status = 404;
+                body = MicroBlogHttpServer.error("non trovato");
+            } catch(UnsupportedOperationException exc) {
+                status = 405;
+                body = MicroBlogHttpServer.error("metodo non consentito");
+            } catch(RuntimeException exc) { // qualunque altro errore non deve lasciare la richiesta senza risposta
+                status = 500;
+                body = MicroBlogHttpServer.error("errore interno");
+            }
+
+            this.served.increment();
+            MicroBlogHttpServer.send(exchange, status, body);
+        } finally {
+            exchange.close(); // la connessione resta aperta per le richieste successive (keep-alive)
+        }
+    }
+
+    // EFFECTS: esegue l'operazione identificata da method e path con i parametri params, e restituisce {stato, corpo JSON}
+    private String[] route(String method, String[] path, Map<String, String> params) throws NullPointerException, IllegalArgumentException, NoSuchElementException, IllegalStateException, UnsupportedOperationException, LimitExceededException {
+        if(path.length == 0) {
+            throw new NoSuchElementException();
+        }
+
+        switch(path[0]) {
+            case "posts":
+                if(path.length == 1) {
+                    if(method.equals("POST")) {
+                        int id = this.write(() -> this.network.createPost(params.get("author"), params.get("text")));
+                        return new String[] { "201", "{\"id\":" + id + "}" };
+                    }
+                    MicroBlogHttpServer.requireGet(method);
+                    return MicroBlogHttpServer.ok(MicroBlogHttpServer.posts(this.read(() -> this.searchPosts(params))));
+                }
+
+                int id = MicroBlogHttpServer.parseId(path[1]);
+                if(path.length == 2) {
+                    MicroBlogHttpServer.requireGet(method);
+                    Post post = this.read(() -> this.network.getPost(id));
+                    if(post == null) {
+                        throw new NoSuchElementException();
+                    }
+                    return MicroBlogHttpServer.ok(MicroBlogHttpServer.post(new StringBuilder(), post).toString());
+                }
+                if(path.length == 3 && path[2].equals("likes")) {
+                    boolean follow;
+                    if(method.equals("POST")) {
+                        String user = params.get("user");
+                        try {
+                            follow = this.write(() -> this.network.likePost(id, user));
+                        } catch(IllegalStateException exc) {
+                            // likePost solleva IllegalStateException per il like al proprio post, ma altri errori (es. di
+                            // un'estensione di MicroBlog) possono avere lo stesso tipo: lo distinguo dall'autore del post
+                            Post post = this.read(() -> this.network.getPost(id));
+                            if(post != null && post.getAuthor().equals(user)) {
+                                return new String[] { "409", MicroBlogHttpServer.error("un utente non può mettere like ai propri post") };
+                            }
+                            throw exc;
+                        }
+                    } else if(method.equals("DELETE")) {
+                        follow = this.write(() -> this.network.unlikePost(id, params.get("user")));
+                    } else {
+                        throw new UnsupportedOperationException(method);
+                    }
+                    return MicroBlogHttpServer.ok("{\"follow\":" + follow + "}");
+                }
+                throw new NoSuchElementException();
+            case "influencers":
+                MicroBlogHttpServer.requireGet(method);
+                if(params.containsKey("top")) {
+                    int k = MicroBlogHttpServer.parseId(params.get("top"));
+                    return MicroBlogHttpServer.ok(MicroBlogHttpServer.scores(this.read(() -> this.network.rankedInfluencers(k))));
+                }
+                return MicroBlogHttpServer.ok(MicroBlogHttpServer.strings(new StringBuilder(), this.read(this.network::influencers)).toString());
+            case "follows":
+                MicroBlogHttpServer.requireGet(method);
+                if(params.containsKey("user")) {
+                    Set<String> following = this.read(() -> this.network.getFollowing(params.get("user")));
+                    if(following == null) {
+                        throw new NoSuchElementException();
+                    }
+                    return MicroBlogHttpServer.ok(MicroBlogHttpServer.strings(new StringBuilder(), following).toString());
+                }
+                return MicroBlogHttpServer.ok(MicroBlogHttpServer.follows(this.read(this.network::getFollowRelations)));
+            case "recommendations":
+                MicroBlogHttpServer.requireGet(method);
+                int k = params.containsKey("k") ? MicroBlogHttpServer.parseId(params.get("k")) : DEFAULT_RECOMMENDATIONS;
+                List<String> recommendations = this.read(() -> this.network.recommendFollows(params.get("user"), k));
+                return MicroBlogHttpServer.ok(MicroBlogHttpServer.strings(new StringBuilder(), recommendations).toString());
+            case "reach":
+                MicroBlogHttpServer.requireGet(method);
+                if(!params.containsKey("authors")) {
+                    throw new NullPointerException();
+                }
+                Set<String> authors = new HashSet<String>(Arrays.asList(params.get("authors").split(",")));
+                return MicroBlogHttpServer.ok("{\"reach\":" + this.read(() -> this.network.estimatedReach(authors)) + "}");
+            case "trending":
+                MicroBlogHttpServer.requireGet(method);
+                int top = params.containsKey("k") ? MicroBlogHttpServer.parseId(params.get("k")) : DEFAULT_TRENDING;
+                long window = 1000L * (params.containsKey("window") ? MicroBlogHttpServer.parseId(params.get("window")) : DEFAULT_TRENDING_WINDOW);
+                return MicroBlogHttpServer.ok(MicroBlogHttpServer.counts(this.read(() -> this.network.trending(top, window))));
+            case "top":
+                MicroBlogHttpServer.requireGet(method);
+                int limit = params.containsKey("k") ? MicroBlogHttpServer.parseId(params.get("k")) : DEFAULT_TOP;
+                String author = params.get("author");
+                return MicroBlogHttpServer.ok(MicroBlogHttpServer.likes(this.read(() -> author != null ? this.network.mostLiked(author, limit) : this.network.mostLiked(limit))));
+            case "query":
+                MicroBlogHttpServer.requireGet(method);
+                PostQuery query = MicroBlogHttpServer.parseQuery(params);
+                return MicroBlogHttpServer.ok(MicroBlogHttpServer.posts(this.read(() -> this.network.query(query))));
+            default:
+                throw new NoSuchElementException();
+        }
+    }
+
+    // EFFECTS: esegue la ricerca di GET /posts descritta da params
+    private List<Post> searchPosts(Map<String, String> params) {
+        if(params.containsKey("author")) {
+            return this.network.writtenBy(params.get("author"));
+        }
+        if(params.containsKey("contains")) {
+            return this.network.containing(Arrays.asList(params.get("contains").split(",")));
+        }
+        if(params.containsKey("relevance")) {
+            return this.network.sortByRelevance(Arrays.asList(params.get("relevance").split(",")));
+        }
+        if(params.containsKey("mentions")) {
+            return this.network.mentionsOf(params.get("mentions"));
+        }
+        if(params.containsKey("tag")) {
+            return this.network.postsTagged(params.get("tag"));
+        }
+        return this.network.getAllPosts();
+    }
+
+    // operazione sulla rete che può sollevare l'eccezione checked di createPost
+    private interface NetworkCall<T> {
+        T call() throws LimitExceededException;
+    }
+
+    // EFFECTS: esegue call con il lock di lettura
+    private <T> T read(NetworkCall<T> call) throws LimitExceededException {
+        this.lock.readLock().lock();
+        try {
+            return call.call();
+        } finally {
+            this.lock.readLock().unlock();
+        }
+    }
+
+    // EFFECTS: esegue call con il lock di scrittura
+    private <T> T write(NetworkCall<T> call) throws LimitExceededException {
+        this.lock.writeLock().lock();
+        try {
+            return call.call();
+        } finally {
+            this.lock.writeLock().unlock();
+        }
+    }
+
+    private static String[] ok(String body) {
+        return new String[] { "200", body };
+    }
+
+    // THROWS: UnsupportedOperationException se method non è GET (unchecked exception)
+    private static void requireGet(String method) throws UnsupportedOperationException {
+        if(!method.equals("GET")) {
+            throw new UnsupportedOperationException(method);
+        }
+    }
+
+    // THROWS: IllegalArgumentException se segment non è un id valido (unchecked exception)
+    private static int parseId(String segment) throws IllegalArgumentException {
+        try {
+            return Integer.parseInt(segment);
+        } catch(NumberFormatException exc) {
+            throw new IllegalArgumentException("id non valido: " + segment);
+        }
+    }
+
+    // EFFECTS: restituisce l'interrogazione di GET /query descritta da params
+    private static PostQuery parseQuery(Map<String, String> params) throws NullPointerException, IllegalArgumentException {
+        PostQuery query = new PostQuery();
+        if(params.containsKey("author")) {
+            query.writtenBy(params.get("author"));
+        }
+        if(params.containsKey("words")) {
+            query.containing(Arrays.asList(params.get("words").split(",")));
+        }
+        if(params.containsKey("since")) {
+            query.since(new Timestamp(MicroBlogHttpServer.parseTime(params.get("since"))));
+        }
+        if(params.containsKey("until")) {
+            query.until(new Timestamp(MicroBlogHttpServer.parseTime(params.get("until"))));
+        }
+        if(params.containsKey("minLikes")) {
+            query.minLikes(MicroBlogHttpServer.parseId(params.get("minLikes")));
+        }
+        if(params.containsKey("maxLikes")) {
+            query.maxLikes(MicroBlogHttpServer.parseId(params.get("maxLikes")));
+        }
+        if(params.containsKey("censored")) {
+            query.censored(Boolean.parseBoolean(params.get("censored")));
+        }
+        if(params.containsKey("order")) {
+            query.orderBy(PostQuery.Order.valueOf(params.get("order").toUpperCase())); // IllegalArgumentException se non esiste
+        }
+        if(params.containsKey("offset")) {
+            query.offset(MicroBlogHttpServer.parseId(params.get("offset")));
+        }
+        if(params.containsKey("limit")) {
+            query.limit(MicroBlogHttpServer.parseId(params.get("limit")));
+        }
+        return query;
+    }
+
+    // THROWS: IllegalArgumentException se segment non è un istante in millisecondi valido (unchecked exception)
+    // EFFECTS: restituisce l'istante in millisecondi rappresentato da segment
+    private static long parseTime(String segment) throws IllegalArgumentException {
+        try {
+            return Long.parseLong(segment);
+        } catch(NumberFormatException exc) {
+            throw new IllegalArgumentException("istante non valido: " + segment);
+        }
+    }
+
+    // EFFECTS: restituisce i parametri della query string e, per le richieste POST, del corpo della richiesta
+    private static Map<String, String> parseParameters(HttpExchange exchange) throws IOException {
+        Map<String, String> params = new HashMap<String, String>();
+        MicroBlogHttpServer.decodeParameters(exchange.getRequestURI().getRawQuery(), params);
+
+        try(InputStream in = exchange.getRequestBody()) {
+            ByteArrayOutputStream body = new ByteArrayOutputStream();
+            byte[] buffer = new byte[4096];
+            for(int n = in.read(buffer); n != -1; n = in.read(buffer)) {
+                body.write(buffer, 0, n);
+            }
+            if(body.size() > 0) {
+                MicroBlogHttpServer.decodeParameters(body.toString(StandardCharsets.UTF_8.name()), params);
+            }
+        }
+        return params;
+    }
+
+    // MODIFIES: params
+    // EFFECTS: aggiunge a params le coppie nome=valore codificate in encoded (application/x-www-form-urlencoded)
+    private static void decodeParameters(String encoded, Map<String, String> params) throws IOException {
+        if(encoded == null || encoded.isEmpty()) {
+            return;
+        }
+        for(String pair : encoded.split("&")) {
+            int separator = pair.indexOf('=');
+            String name = separator < 0 ? pair : pair.substring(0, separator);
+            String value = separator < 0 ? "" : pair.substring(separator + 1);
+            params.put(URLDecoder.decode(name, StandardCharsets.UTF_8.name()), URLDecoder.decode(value, StandardCharsets.UTF_8.name()));
+        }
+    }
+
+    // EFFECTS: invia la risposta con stato status e corpo JSON body
+    private static void send(HttpExchange exchange, int status, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try(OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    private static String error(String message) {
+        return MicroBlogHttpServer.string(new StringBuilder("{\"error\":"), message).append('}').toString();
+    }
+
+    private static String posts(List<Post> posts) {
+        StringBuilder json = new StringBuilder("[");
+        for(Post post : posts) {
+            if(json.length() > 1) {
+                json.append(',');
+            }
+            MicroBlogHttpServer.post(json, post);
+        }
+        return json.append(']').toString();
+    }
+
+    private static StringBuilder post(StringBuilder json, Post post) {
+        json.append("{\"id\":").append(post.getId()).append(",\"author\":");
+        MicroBlogHttpServer.string(json, post.getAuthor()).append(",\"text\":");
+        MicroBlogHttpServer.string(json, post.getText()).append(",\"timestamp\":").append(post.getTimestamp().getTime()).append(",\"likes\":");
+        return MicroBlogHttpServer.strings(json, post.getLikes()).append('}');
+    }
+
+    private static String scores(List<Map.Entry<String, Double>> scores) {
+        StringBuilder json = new StringBuilder("[");
+        for(Map.Entry<String, Double> score : scores) {
+            if(json.length() > 1) {
+                json.append(',');
+            }
+            MicroBlogHttpServer.string(json.append("{\"user\":"), score.getKey()).append(",\"score\":").append(score.getValue()).append('}');
+        }
+        return json.append(']').toString();
+    }
+
+    private static String counts(List<Map.Entry<String, Integer>> counts) {
+        StringBuilder json = new StringBuilder("[");
+        for(Map.Entry<String, Integer> count : counts) {
+            if(json.length() > 1) {
+                json.append(',');
+            }
+            MicroBlogHttpServer.string(json.append("{\"word\":"), count.getKey()).append(",\"count\":").append(count.getValue()).append('}');
+        }
+        return json.append(']').toString();
+    }
+
+    private static String likes(List<Map.Entry<Integer, Integer>> likes) {
+        StringBuilder json = new StringBuilder("[");
+        for(Map.Entry<Integer, Integer> entry : likes) {
+            if(json.length() > 1) {
+                json.append(',');
+            }
+            json.append("{\"id\":").append(entry.getKey()).append(",\"likes\":").append(entry.getValue()).append('}');
+        }
+        return json.append(']').toString();
+    }
+
+    private static String follows(Map<String, Set<String>> follows) {
+        StringBuilder json = new StringBuilder("{");
+        for(Map.Entry<String, Set<String>> entry : follows.entrySet()) {
+            if(json.length() > 1) {
+                json.append(',');
+            }
+            MicroBlogHttpServer.string(json, entry.getKey()).append(':');
+            MicroBlogHttpServer.strings(json, entry.getValue());
+        }
+        return json.append('}').toString();
+    }
+
+    private static StringBuilder strings(StringBuilder json, Collection<String> strings) {
+        json.append('[');
+        boolean first = true;
+        for(String string : strings) {
+            if(!first) {
+                json.append(',');
+            }
+            MicroBlogHttpServer.string(json, string);
+            first = false;
+        }
+        return json.append(']');
+    }
+
+    // EFFECTS: aggiunge a json la stringa JSON che rappresenta string
+    private static StringBuilder string(StringBuilder json, String string) {
+        json.append('"');
+        for(int i = 0; i < string.length(); i++) {
+            char c = string.charAt(i);
+            switch(c) {
+                case '"': json.append("\\\""); break;
+                case '\\': json.append("\\\\"); break;
+                case '\n': json.append("\\n"); break;
+                case '\r': json.append("\\r"); break;
+                case '\t': json.append("\\t"); break;
+                default:
+                    if(c < 0x20) {
+                        json.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        json.append(c);
+                    }
+            }
+        }
+        return json.append('"');
+    }
+
+    // EFFECTS: restituisce un executor che esegue ogni richiesta su un nuovo virtual thread, se il JDK in uso li supporta,
+    //          altrimenti un pool di threads thread daemon
+    private static ExecutorService newWorkers(int threads) {
+        try {
+            // Executors.newVirtualThreadPerTaskExecutor() esiste solo da Java 21; il progetto è compilato per Java 11
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factory.invoke(null);
+        } catch(ReflectiveOperationException exc) {
+            return Executors.newFixedThreadPool(threads, task -> {
+                Thread thread = new Thread(task, "MicroBlogHttpServer-worker");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        Map<String, String> options = new HashMap<String, String>();
+        options.put("port", "8080");
+        options.put("bind", InetAddress.getLoopbackAddress().getHostAddress());
+        options.put("threads", String.valueOf(4 * Runtime.getRuntime().availableProcessors()));
+        options.put("max-pending", "10000");
+        options.put("impl", "microblog");
+        for(int i = 0; i + 1 < args.length; i += 2) {
+            if(!args[i].startsWith("--") || !options.containsKey(args[i].substring(2))) {
+                throw new IllegalArgumentException("opzione sconosciuta: " + args[i]);
+            }
+            options.put(args[i].substring(2), args[i + 1]);
+        }
+
+        MicroBlog network;
+        switch(options.get("impl")) {
+            case "badwords": network = new MicroBlogWithBadwordFiltering(Arrays.<String>asList()); break;
+            case "reports": network = new MicroBlogWithReports(); break;
+            default: network = new MicroBlog();
+        }
+
+        InetAddress bindAddress = InetAddress.getByName(options.get("bind"));
+        MicroBlogHttpServer server = new MicroBlogHttpServer(network, bindAddress, Integer.parseInt(options.get("port")),
+            Integer.parseInt(options.get("threads")), Integer.parseInt(options.get("max-pending")));
+        server.start();
+        System.out.println("In ascolto su http://" + bindAddress.getHostAddress() + ":" + server.getPort() + "/");
+    }
+}
@@ -0,0 +1,10 @@
+// struttura ausiliaria mantenuta da un MicroBlog e aggiornata in modo sincrono: a differenza di un MicroBlogListener, riceve
+// ogni evento nel thread che esegue la modifica, prima che l'operazione della rete termini, per cui le interrogazioni
+// successive osservano sempre l'indice aggiornato
+// Le implementazioni non devono modificare la rete né sollevare eccezioni
+public interface MicroBlogIndex {
+    // REQUIRES: event ≠ null
+    // MODIFIES: this
+    // EFFECTS: aggiorna l'indice in base alla modifica descritta da event
+    public void apply(MicroBlogEvent event);
+}
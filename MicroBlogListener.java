@@ -0,0 +1,10 @@
+import java.util.List;
+
+// interfaccia degli osservatori delle modifiche di un MicroBlog
+// Gli eventi vengono consegnati in modo asincrono, a gruppi, da un thread dedicato della rete: l'implementazione di
+// onEvents non deve quindi accedere alla rete assumendo che lo stato corrisponda all'ultimo evento ricevuto
+public interface MicroBlogListener {
+    // REQUIRES: events ≠ null ∧ events.size() > 0
+    // EFFECTS: riceve un gruppo di eventi, ordinati per numero di sequenza crescente
+    public void onEvents(List<MicroBlogEvent> events);
+}
@@ -0,0 +1,51 @@
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+// partizione di ShardedMicroBlog eseguita nella stessa JVM (o ospitata da ShardServer in un processo separato)
+// È un MicroBlog a tutti gli effetti; in più offre le operazioni di MicroBlogShard, che descrivono i like in termini di
+// relazioni "utente → autore" locali alla partizione, senza richiedere che chi mette like sia autore di post nella partizione
+public class MicroBlogPartition extends MicroBlog implements MicroBlogShard {
+    public MicroBlogPartition() {
+        super();
+    }
+
+    public boolean addLike(int postId, String user) throws NullPointerException, IllegalArgumentException, NoSuchElementException, IllegalStateException {
+        Post post = this.getPostById(postId); // lancia IllegalArgumentException se postId < 0
+        if(post == null) {
+            throw new NoSuchElementException();
+        }
+
+        boolean first = this.getNumberOfLikedPosts(user, post.getAuthor()) == 0; // verifica anche le pre-condizioni su user
+        this.likePost(postId, user);
+        return first;
+    }
+
+    public boolean removeLike(int postId, String user) throws NullPointerException, IllegalArgumentException, NoSuchElementException {
+        Post post = this.getPostById(postId);
+        if(post == null) {
+            throw new NoSuchElementException();
+        }
+
+        int before = this.getNumberOfLikedPosts(user, post.getAuthor());
+        this.unlikePost(postId, user);
+        return before > 0 && this.getNumberOfLikedPosts(user, post.getAuthor()) == 0;
+    }
+
+    public Map<String, Set<String>> getLikeRelations() {
+        Map<String, Set<String>> relations = new HashMap<String, Set<String>>();
+
+        for(Post post : this.getAllPosts()) {
+            for(String like : post.getLikes()) {
+                relations.computeIfAbsent(like, k -> new HashSet<String>()).add(post.getAuthor());
+            }
+        }
+        return relations;
+    }
+
+    public void close() {
+        // una partizione locale non ha risorse da rilasciare
+    }
+}
@@ -0,0 +1,67 @@
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import javax.naming.LimitExceededException;
+
+// operazioni offerte da una partizione di ShardedMicroBlog, eseguita nella stessa JVM (MicroBlogPartition) o in un processo
+// separato raggiungibile via socket (RemoteShard)
+// Gli id dei post sono locali alla partizione; la conversione in id globali è compito di ShardedMicroBlog
+public interface MicroBlogShard extends AutoCloseable {
+    // EFFECTS: come MicroBlog.createPost(); restituisce l'id locale del post creato
+    public int createPost(String author, String text) throws NullPointerException, IllegalArgumentException, LimitExceededException;
+
+    // REQUIRES: come MicroBlog.likePost()
+    // THROWS: come MicroBlog.likePost()
+    // MODIFIES: this
+    // EFFECTS: aggiunge il like di user al post con id locale postId; restituisce true se e solo se prima dell'operazione
+    //          user non aveva messo like ad alcun post dell'autore di quel post (indipendentemente dal fatto che user abbia post)
+    public boolean addLike(int postId, String user) throws NullPointerException, IllegalArgumentException, NoSuchElementException, IllegalStateException;
+
+    // REQUIRES: come MicroBlog.unlikePost()
+    // THROWS: come MicroBlog.unlikePost()
+    // MODIFIES: this
+    // EFFECTS: rimuove il like di user dal post con id locale postId; restituisce true se e solo se dopo l'operazione
+    //          user non ha più messo like ad alcun post dell'autore, mentre prima sì
+    public boolean removeLike(int postId, String user) throws NullPointerException, IllegalArgumentException, NoSuchElementException;
+
+    // EFFECTS: come MicroBlog.getPost()
+    public Post getPost(int postId) throws IllegalArgumentException;
+
+    // EFFECTS: come MicroBlog.getAllPosts()
+    public List<Post> getAllPosts();
+
+    // EFFECTS: come MicroBlog.writtenBy()
+    public List<Post> writtenBy(String username) throws NullPointerException, IllegalArgumentException;
+
+    // EFFECTS: come MicroBlog.containing()
+    public List<Post> containing(List<String> words) throws NullPointerException, IllegalArgumentException;
+
+    // EFFECTS: come MicroBlog.sortByRelevance()
+    public List<Post> sortByRelevance(List<String> searchWords) throws NullPointerException, IllegalArgumentException;
+
+    // EFFECTS: come MicroBlog.mentionsOf()
+    public List<Post> mentionsOf(String user) throws NullPointerException, IllegalArgumentException;
+
+    // EFFECTS: come MicroBlog.postsTagged()
+    public List<Post> postsTagged(String tag) throws NullPointerException, IllegalArgumentException;
+
+    // EFFECTS: come MicroBlog.getAuthors()
+    public Set<String> getAuthors();
+
+    // EFFECTS: come MicroBlog.isAuthor()
+    public boolean isAuthor(String user);
+
+    // EFFECTS: come MicroBlog.getMentionedUsers()
+    public Set<String> getMentionedUsers();
+
+    // EFFECTS: restituisce una map che associa a ogni utente u che ha messo almeno un like nella partizione l'insieme degli autori
+    //          dei post della partizione a cui u ha messo like (u non deve necessariamente essere autore di post)
+    public Map<String, Set<String>> getLikeRelations();
+
+    // EFFECTS: come MicroBlog.getReachSketch(), limitato ai post della partizione
+    public HyperLogLog getReachSketch(Set<String> authors) throws NullPointerException, IllegalArgumentException;
+
+    // EFFECTS: rilascia le risorse associate alla partizione (es. la connessione con un processo remoto)
+    public void close();
+}
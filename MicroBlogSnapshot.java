@@ -0,0 +1,87 @@
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+// vista in sola lettura dello stato di un MicroBlog a un numero di sequenza fissato (vedi MicroBlog.openSnapshot): le
+// letture restituiscono sempre lo stato della rete dopo l'evento getSequence(), anche se nel frattempo la rete viene
+// modificata, e non bloccano né vengono bloccate dalle modifiche
+// Finché lo snapshot è aperto le versioni che legge non vengono recuperate, per cui va chiuso (es. con try-with-resources)
+// appena non serve più.
+public class MicroBlogSnapshot implements AutoCloseable {
+    private final VersionedStore store;
+    private final long sequence;
+    private volatile boolean closed;
+
+    /*
+        Representation invariant:
+        this.store ≠ null ∧ (¬this.closed ⇒ this.sequence è un'epoca registrata in this.store)
+    */
+
+    // il costruttore non è pubblico perché gli snapshot vengono aperti solo da VersionedStore.open()
+    MicroBlogSnapshot(VersionedStore store, long sequence) {
+        this.store = store;
+        this.sequence = sequence;
+        this.closed = false;
+    }
+
+    // EFFECTS: restituisce il numero di sequenza dell'ultimo evento visibile nello snapshot
+    public long getSequence() {
+        return this.sequence;
+    }
+
+    // REQUIRES: id ≥ 0 ∧ this non è stato chiuso
+    // THROWS: IllegalArgumentException se id < 0 (unchecked exception),
+    //         IllegalStateException se this è stato chiuso (unchecked exception)
+    // EFFECTS: restituisce una copia del post con id id com'era nello snapshot, o null se non esisteva
+    public Post getPost(int id) throws IllegalArgumentException, IllegalStateException {
+        if(id < 0) {
+            throw new IllegalArgumentException();
+        }
+        this.checkOpen();
+
+        return this.store.getPost(id, this.sequence);
+    }
+
+    // REQUIRES: this non è stato chiuso
+    // THROWS: IllegalStateException se this è stato chiuso (unchecked exception)
+    // EFFECTS: restituisce una lista, ordinata per id, delle copie di tutti i post della rete com'erano nello snapshot
+    public List<Post> getAllPosts() throws IllegalStateException {
+        this.checkOpen();
+        return this.store.getAllPosts(this.sequence);
+    }
+
+    // REQUIRES: this non è stato chiuso
+    // THROWS: IllegalStateException se this è stato chiuso (unchecked exception)
+    // EFFECTS: restituisce una copia delle relazioni di follow della rete com'erano nello snapshot (vedi MicroBlog.getFollowRelations)
+    public Map<String, Set<String>> getFollowRelations() throws IllegalStateException {
+        this.checkOpen();
+        return this.store.getFollowRelations(this.sequence);
+    }
+
+    // REQUIRES: this non è stato chiuso
+    // THROWS: IllegalStateException se this è stato chiuso (unchecked exception)
+    // EFFECTS: restituisce gli influencer della rete com'era nello snapshot (vedi MicroBlog.influencers)
+    public List<String> influencers() throws IllegalStateException {
+        return MicroBlog.influencers(this.getFollowRelations());
+    }
+
+    // MODIFIES: this
+    // EFFECTS: chiude lo snapshot, permettendo il recupero delle versioni che solo questo leggeva; le chiamate successive
+    //          non hanno effetto
+    public void close() {
+        synchronized(this) {
+            if(this.closed) {
+                return;
+            }
+            this.closed = true;
+        }
+        this.store.release(this.sequence);
+    }
+
+    // THROWS: IllegalStateException se this è stato chiuso (unchecked exception)
+    private void checkOpen() throws IllegalStateException {
+        if(this.closed) {
+            throw new IllegalStateException();
+        }
+    }
+}
@@ -1,4 +1,6 @@
+import java.util.BitSet;
 import java.util.HashSet;
+import java.util.NoSuchElementException;
 import java.util.Set;
 
 import javax.naming.LimitExceededException;
@@ -12,7 +14,8 @@ public class MicroBlogWithBadwordFiltering extends MicroBlog {
         Representation invariant:
         IR(MicroBlog) ∧
         ∀ w ∈ badword . w ≠ null ∧ w ∉ /^\s+$/ ∧ w.length > 0 ∧
-        ∀ p post ∈ this . ∀ w ∈ badwords . w ⊈ p.getText()
+        ∀ p post ∈ this . ∀ w ∈ badwords . w ⊈ p.getText(), dove w ⊆ t indica che w compare in t come parola intera, ignorando
+        maiuscole e minuscole (WordTokenizer.containsWord)
     */
 
     public MicroBlogWithBadwordFiltering(List<String> badwords) throws NullPointerException, IllegalArgumentException {
@@ -37,21 +40,60 @@ public class MicroBlogWithBadwordFiltering extends MicroBlog {
     // REQUIRES: eredita le pre-condizioni del metodo createPost() della superclasse
     // THROWS: stesse eccezioni del metodo createPost() della superclasse
     // MODIFIES: this
-    // EFFECTS: chiama il metodo createPost() della superclasse. Dopodiché, sostituisce tutte le occorrenze delle stringhe contenute in
-    //          this.badwords all'interno del post con "***". Restituisce l'id del post creato
+    // EFFECTS: sostituisce tutte le occorrenze delle parole contenute in this.badwords all'interno di text con "***", dopodiché
+    //          chiama il metodo createPost() della superclasse con il testo censurato. Restituisce l'id del post creato, o -1 se
+    //          il testo censurato supera i 140 caratteri
     @Override
     public int createPost(String author, String text) throws NullPointerException, IllegalArgumentException {
+        if(text == null) {
+            throw new NullPointerException();
+        }
+
         try {
-            int retId = super.createPost(author, text); // effettuo la chiamata al metodo della superclasse, che verificherà le pre-condizioni e creerà il post
-            Post createdPost = this.getPostById(retId);
+            // il post viene creato direttamente con il testo censurato, così che i listener della rete non ricevano mai il testo originale
+            return super.createPost(author, this.filter(text));
+        } catch(LimitExceededException exc) { return -1; } // try catch obbligatorio per l'eccezione checked
+    }
 
-            String filteredText = text;
-            for(String badword : this.badwords) {
-                filteredText = filteredText.replaceAll(badword, "***"); // per ogni stringa in badwords, sostituisco le occorrenze di quella stringa con "***" nel post
+    // REQUIRES: eredita le pre-condizioni del metodo editPost() della superclasse
+    // THROWS: stesse eccezioni del metodo editPost() della superclasse
+    // MODIFIES: this
+    // EFFECTS: chiama il metodo editPost() della superclasse con il testo newText censurato come in createPost()
+    @Override
+    public void editPost(int postId, String newText) throws NullPointerException, IllegalArgumentException, NoSuchElementException, LimitExceededException {
+        if(newText == null) {
+            throw new NullPointerException();
+        }
+
+        super.editPost(postId, this.filter(newText));
+    }
+
+    // REQUIRES: text ≠ null
+    // EFFECTS: restituisce text dove ogni occorrenza delle parole in this.badwords (come parola intera, ignorando maiuscole e
+    //          minuscole) è sostituita da "***"; occorrenze sovrapposte o adiacenti vengono sostituite da un unico "***"
+    private String filter(String text) {
+        // prima marco i caratteri da censurare, poi costruisco il testo censurato in un'unica passata
+        BitSet censored = null;
+        for(String badword : this.badwords) {
+            for(int i = WordTokenizer.indexOf(text, badword, 0); i >= 0; i = WordTokenizer.indexOf(text, badword, i + badword.length())) {
+                if(censored == null) {
+                    censored = new BitSet(text.length());
+                }
+                censored.set(i, i + badword.length());
             }
+        }
+        if(censored == null) {
+            return text; // nessuna parola offensiva: il testo non viene copiato
+        }
 
-            createdPost.editPost(filteredText); // sostituisco il testo originale del post con quello censurato
-            return retId;
-        } catch(LimitExceededException exc) { return -1; } // try catch obbligatorio per l'eccezione checked
+        StringBuilder filteredText = new StringBuilder(text.length());
+        for(int i = 0; i < text.length(); i++) {
+            if(!censored.get(i)) {
+                filteredText.append(text.charAt(i));
+            } else if(i == 0 || !censored.get(i - 1)) {
+                filteredText.append("***");
+            }
+        }
+        return filteredText.toString();
     }
 }
@@ -5,7 +5,6 @@ import java.util.LinkedList;
 import java.util.Map;
 import java.util.NoSuchElementException;
 import java.util.Set;
-import javax.naming.LimitExceededException;
 
 public class MicroBlogWithReports extends MicroBlog {
     // classe interna alla rete sociale che contiene una coppia (stringa, int) che rappresenta una segnalazione fatta da un utente a un post
@@ -31,7 +30,7 @@ public class MicroBlogWithReports extends MicroBlog {
     /*
         Representation invariant:
         IR(MicroBlog) ∧
-        ∀ p post ∈ this . reports.get(p.getId()).size() ≥ this.maxReportCount ⇒ p.getText() = '(deleted)'
+        ∀ p post ∈ this . reports.get(p.getId()).size() ≥ this.maxReportCount ⇒ p.getText() = MicroBlog.CENSORED_TEXT
     */
 
     public MicroBlogWithReports() {
@@ -64,32 +63,29 @@ public class MicroBlogWithReports extends MicroBlog {
             throw new IllegalArgumentException();
         }
 
-        try {
-            Post post = this.getPostById(postId); // ottengo il post che ha l'id richiesto
-       
-        
-            if(post == null) {
-                throw new NoSuchElementException();
-            }
-            if(post.getAuthor() == user) { // se colui che sta cercando di segnalare il post è l'autore del post stesso, lancio IllegalStateException
-                throw new IllegalStateException();
-            }
-            if(this.reports.get(postId) == null) { // se è la prima segnalazione al post, creo un nuovo insieme per quel post
-                this.reports.put(postId, new HashSet<Report>());
-            }
-            
+        Post post = this.getPostById(postId); // ottengo il post che ha l'id richiesto
 
-            for(Report report : this.reports.get(postId)) { // se l'utente che sta cercando di segnalare il post lo ha già segnalato, lancio IllegalStateException
-                if(report.getReporter() == user) {
-                    throw new IllegalStateException();
-                }
-            }
+        if(post == null) {
+            throw new NoSuchElementException();
+        }
+        if(post.getAuthor() == user) { // se colui che sta cercando di segnalare il post è l'autore del post stesso, lancio IllegalStateException
+            throw new IllegalStateException();
+        }
+        if(this.reports.get(postId) == null) { // se è la prima segnalazione al post, creo un nuovo insieme per quel post
+            this.reports.put(postId, new HashSet<Report>());
+        }
 
-            this.reports.get(postId).add(new Report(user, postId));
 
-            if(reports.get(postId).size() >= this.maxReportCount) { // se il post è stato segnalato un numero sufficientemente grande di volte, nascondo il contenuto del post
-                post.editPost("(deleted)");
+        for(Report report : this.reports.get(postId)) { // se l'utente che sta cercando di segnalare il post lo ha già segnalato, lancio IllegalStateException
+            if(report.getReporter() == user) {
+                throw new IllegalStateException();
             }
-        } catch(LimitExceededException exc) {}
+        }
+
+        this.reports.get(postId).add(new Report(user, postId));
+
+        if(reports.get(postId).size() >= this.maxReportCount) { // se il post è stato segnalato un numero sufficientemente grande di volte, nascondo il contenuto del post
+            this.censorPost(postId); // la rete notifica la censura ai propri listener
+        }
     }
 }
@@ -0,0 +1,245 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SplittableRandom;
+
+// riconoscimento dei post quasi duplicati (es. ondate di spam con piccole variazioni del testo) tra gli ultimi post creati
+// La somiglianza tra due testi è l'indice di Jaccard dei loro insiemi di shingle, le sequenze di SHINGLE_LENGTH caratteri
+// consecutivi del testo normalizzato (con WordTokenizer.fold, e con ogni sequenza di caratteri che non fanno parte di una
+// parola ridotta a uno spazio). La firma MinHash di un testo è il minimo di ciascuna di SIGNATURE_SIZE funzioni hash sui
+// suoi shingle: la frazione di posizioni in cui due firme coincidono stima l'indice di Jaccard dei due testi.
+// Per non confrontare un nuovo post con tutti i precedenti, le firme sono divise in bande di righe consecutive (LSH): sono
+// confrontati solo i post che hanno almeno una banda identica a quella del nuovo post, e il numero di righe per banda è
+// scelto in base alla soglia così che un post con somiglianza pari alla soglia sia confrontato con probabilità ≥ 95%.
+// Sono ricordate solo le firme degli ultimi window post aggiunti, per cui la memoria non dipende dal numero di post.
+public class NearDuplicateDetector {
+    // numero di funzioni hash della firma
+    public static final int SIGNATURE_SIZE = 128;
+
+    // lunghezza degli shingle
+    public static final int SHINGLE_LENGTH = 4;
+
+    private final double threshold;
+    private final int window;
+    private final int rows;
+
+    // moltiplicatori (dispari) e incrementi delle funzioni hash della firma
+    private final long[] multipliers;
+    private final long[] increments;
+
+    // per ogni banda, chiave della banda ↦ id dei post della finestra con quella chiave
+    private final List<Map<Long, Set<Integer>>> bands;
+
+    // firme dei post della finestra; order contiene i loro id in ordine di inserimento, in modo circolare
+    private final Map<Integer, int[]> signatures;
+    private final int[] order;
+    private int next;
+
+    /*
+        Representation invariant:
+        0 < this.threshold ≤ 1 ∧ this.window > 0 ∧ this.rows > 0 ∧ this.rows ≤ SIGNATURE_SIZE ∧
+        this.bands.size() = SIGNATURE_SIZE / this.rows ∧ this.signatures.size() ≤ this.window ∧ this.order.length = this.window ∧
+        ∀ (id, s) ∈ this.signatures . s.length = SIGNATURE_SIZE ∧ ∀ b . id ∈ this.bands.get(b).get(chiave della banda b di s)
+    */
+
+    // REQUIRES: 0 < threshold ≤ 1 ∧ window > 0
+    // THROWS: IllegalArgumentException se threshold ∉ (0, 1] ∨ window ≤ 0 (unchecked exception)
+    // EFFECTS: crea un riconoscitore che considera quasi duplicati due testi con somiglianza stimata almeno threshold,
+    //          ricordando gli ultimi window post
+    public NearDuplicateDetector(double threshold, int window) throws IllegalArgumentException {
+        if(!(threshold > 0 && threshold <= 1) || window <= 0) {
+            throw new IllegalArgumentException();
+        }
+
+        this.threshold = threshold;
+        this.window = window;
+
+        // il massimo numero di righe per banda (meno candidati da confrontare) con cui un testo con somiglianza pari alla soglia
+        // ha almeno una banda identica con probabilità ≥ 95%; le righe che avanzano non fanno parte di alcuna banda
+        int rows = 1;
+        for(int r = 2; r <= SIGNATURE_SIZE; r++) {
+            double missed = Math.pow(1 - Math.pow(threshold, r), SIGNATURE_SIZE / r);
+            if(missed <= 0.05) {
+                rows = r;
+            }
+        }
+        this.rows = rows;
+
+        SplittableRandom random = new SplittableRandom(0x5eed);
+        this.multipliers = new long[SIGNATURE_SIZE];
+        this.increments = new long[SIGNATURE_SIZE];
+        for(int i = 0; i < SIGNATURE_SIZE; i++) {
+            this.multipliers[i] = random.nextLong() | 1;
+            this.increments[i] = random.nextLong();
+        }
+
+        this.bands = new ArrayList<Map<Long, Set<Integer>>>();
+        for(int b = 0; b < SIGNATURE_SIZE / rows; b++) {
+            this.bands.add(new HashMap<Long, Set<Integer>>());
+        }
+        this.signatures = new HashMap<Integer, int[]>();
+        this.order = new int[window];
+        this.next = 0;
+    }
+
+    // EFFECTS: restituisce la soglia di somiglianza
+    public double getThreshold() {
+        return this.threshold;
+    }
+
+    // EFFECTS: restituisce il numero di post ricordati
+    public int getWindow() {
+        return this.window;
+    }
+
+    // REQUIRES: text ≠ null
+    // THROWS: NullPointerException se text è null (unchecked exception)
+    // EFFECTS: restituisce la firma MinHash di text, o null se text non contiene caratteri che fanno parte di una parola (es.
+    //          solo emoji o punteggiatura): il testo normalizzato sarebbe vuoto e tutti questi testi avrebbero la stessa firma
+    public int[] signature(CharSequence text) throws NullPointerException {
+        int[] signature = new int[SIGNATURE_SIZE];
+        Arrays.fill(signature, Integer.MAX_VALUE);
+
+        // scorro il testo normalizzato senza costruirlo, mantenendo gli ultimi SHINGLE_LENGTH caratteri (16 bit ciascuno)
+        long shingle = 0;
+        int length = 0;
+        boolean separator = true; // evito spazi iniziali e ripetuti
+        for(int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if(WordTokenizer.isWordChar(c)) {
+                c = WordTokenizer.fold(c);
+                separator = false;
+            } else if(!separator) {
+                c = ' ';
+                separator = true;
+            } else {
+                continue;
+            }
+
+            shingle = (shingle << 16) | c;
+            length++;
+            if(length >= SHINGLE_LENGTH) {
+                this.update(signature, shingle);
+            }
+        }
+        if(length == 0) {
+            return null;
+        }
+        if(length < SHINGLE_LENGTH) {
+            this.update(signature, shingle); // i testi più corti di uno shingle formano un solo shingle
+        }
+        return signature;
+    }
+
+    // REQUIRES: signature ≠ null ∧ signature.length = SIGNATURE_SIZE
+    // THROWS: NullPointerException se signature è null (unchecked exception),
+    //         IllegalArgumentException se signature.length ≠ SIGNATURE_SIZE (unchecked exception)
+    // EFFECTS: restituisce l'id di un post ricordato la cui somiglianza stimata con il testo con firma signature è almeno la
+    //          soglia, o -1 se non ce ne sono (tra quelli con almeno una banda identica)
+    public int findDuplicate(int[] signature) throws NullPointerException, IllegalArgumentException {
+        if(signature.length != SIGNATURE_SIZE) {
+            throw new IllegalArgumentException();
+        }
+
+        // un candidato viene scartato appena le posizioni diverse rendono impossibile raggiungere la soglia
+        int allowed = SIGNATURE_SIZE - (int) Math.ceil(this.threshold * SIGNATURE_SIZE);
+        Set<Integer> compared = new HashSet<Integer>();
+        for(int b = 0; b < this.bands.size(); b++) {
+            Set<Integer> candidates = this.bands.get(b).get(this.bandKey(signature, b));
+            if(candidates == null) {
+                continue;
+            }
+            for(int id : candidates) {
+                if(compared.add(id) && NearDuplicateDetector.differences(signature, this.signatures.get(id), allowed) <= allowed) {
+                    return id;
+                }
+            }
+        }
+        return -1;
+    }
+
+    // REQUIRES: signature ≠ null ∧ signature.length = SIGNATURE_SIZE ∧ id non è tra i post ricordati
+    // THROWS: NullPointerException se signature è null (unchecked exception),
+    //         IllegalArgumentException se signature.length ≠ SIGNATURE_SIZE ∨ id è tra i post ricordati (unchecked exception)
+    // MODIFIES: this
+    // EFFECTS: ricorda il post con id id e firma signature, dimenticando il post aggiunto meno di recente se i post ricordati
+    //          sono già window; restituisce l'id del post dimenticato, o -1 se nessun post è stato dimenticato
+    public int add(int id, int[] signature) throws NullPointerException, IllegalArgumentException {
+        if(signature.length != SIGNATURE_SIZE || this.signatures.containsKey(id)) {
+            throw new IllegalArgumentException();
+        }
+
+        int oldest = -1;
+        if(this.signatures.size() == this.window) {
+            oldest = this.order[this.next];
+            int[] evicted = this.signatures.remove(oldest);
+            for(int b = 0; b < this.bands.size(); b++) {
+                Map<Long, Set<Integer>> band = this.bands.get(b);
+                long key = this.bandKey(evicted, b);
+                Set<Integer> ids = band.get(key);
+                ids.remove(oldest);
+                if(ids.isEmpty()) {
+                    band.remove(key);
+                }
+            }
+        }
+
+        this.signatures.put(id, signature);
+        for(int b = 0; b < this.bands.size(); b++) {
+            this.bands.get(b).computeIfAbsent(this.bandKey(signature, b), k -> new HashSet<Integer>(2)).add(id);
+        }
+        this.order[this.next] = id;
+        this.next = (this.next + 1) % this.window;
+        return oldest;
+    }
+
+    // REQUIRES: first ≠ null ∧ second ≠ null ∧ first.length = second.length > 0
+    // THROWS: NullPointerException se first è null ∨ second è null (unchecked exception)
+    // EFFECTS: restituisce la somiglianza stimata dei testi con firme first e second, ovvero la frazione di posizioni in cui
+    //          le firme coincidono
+    public static double similarity(int[] first, int[] second) throws NullPointerException {
+        int equal = 0;
+        for(int i = 0; i < first.length; i++) {
+            if(first[i] == second[i]) {
+                equal++;
+            }
+        }
+        return (double) equal / first.length;
+    }
+
+    // EFFECTS: restituisce il numero di posizioni in cui first e second sono diverse, o un valore > limit se sono più di limit
+    private static int differences(int[] first, int[] second, int limit) {
+        int different = 0;
+        for(int i = 0; i < first.length && different <= limit; i++) {
+            if(first[i] != second[i]) {
+                different++;
+            }
+        }
+        return different;
+    }
+
+    // MODIFIES: signature
+    // EFFECTS: aggiorna signature con lo shingle shingle
+    private void update(int[] signature, long shingle) {
+        for(int i = 0; i < SIGNATURE_SIZE; i++) {
+            long hash = shingle * this.multipliers[i] + this.increments[i];
+            int value = (int) ((hash ^ (hash >>> 29)) >>> 32); // i bit alti, mescolati, sono i più uniformi
+            if(value < signature[i]) {
+                signature[i] = value;
+            }
+        }
+    }
+
+    // EFFECTS: restituisce la chiave della banda band di signature
+    private long bandKey(int[] signature, int band) {
+        long key = band;
+        for(int i = band * this.rows; i < (band + 1) * this.rows; i++) {
+            key = key * 0x9e3779b97f4a7c15L + signature[i];
+        }
+        return key;
+    }
+}
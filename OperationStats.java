@@ -0,0 +1,93 @@
+import java.beans.ConstructorProperties;
+
+// statistiche immutabili relative a una singola operazione di una rete sociale, esposte anche via JMX come CompositeData
+public class OperationStats {
+    private final long count;
+    private final double throughput;
+    private final double meanMicros;
+    private final double p50Micros;
+    private final double p90Micros;
+    private final double p99Micros;
+    private final double p999Micros;
+    private final double maxMicros;
+
+    @ConstructorProperties({"count", "throughput", "meanMicros", "p50Micros", "p90Micros", "p99Micros", "p999Micros", "maxMicros"})
+    public OperationStats(long count, double throughput, double meanMicros, double p50Micros, double p90Micros,
+                          double p99Micros, double p999Micros, double maxMicros) {
+        this.count = count;
+        this.throughput = throughput;
+        this.meanMicros = meanMicros;
+        this.p50Micros = p50Micros;
+        this.p90Micros = p90Micros;
+        this.p99Micros = p99Micros;
+        this.p999Micros = p999Micros;
+        this.maxMicros = maxMicros;
+    }
+
+    // REQUIRES: snapshot ≠ null ∧ elapsedNanos ≥ 0
+    // THROWS: NullPointerException se snapshot è null (unchecked exception)
+    // EFFECTS: restituisce le statistiche derivate da snapshot, dove il throughput è calcolato sull'intervallo di durata elapsedNanos
+    public static OperationStats of(LatencyHistogram.Snapshot snapshot, long elapsedNanos) throws NullPointerException {
+        if(snapshot == null) {
+            throw new NullPointerException();
+        }
+
+        double seconds = elapsedNanos / 1e9;
+        return new OperationStats(
+            snapshot.getCount(),
+            seconds > 0 ? snapshot.getCount() / seconds : 0,
+            snapshot.getMean() / 1e3,
+            snapshot.getValueAtPercentile(50) / 1e3,
+            snapshot.getValueAtPercentile(90) / 1e3,
+            snapshot.getValueAtPercentile(99) / 1e3,
+            snapshot.getValueAtPercentile(99.9) / 1e3,
+            snapshot.getMax() / 1e3
+        );
+    }
+
+    // EFFECTS: restituisce il numero di chiamate registrate
+    public long getCount() {
+        return this.count;
+    }
+
+    // EFFECTS: restituisce il numero medio di chiamate al secondo
+    public double getThroughput() {
+        return this.throughput;
+    }
+
+    // EFFECTS: restituisce la latenza media in microsecondi
+    public double getMeanMicros() {
+        return this.meanMicros;
+    }
+
+    // EFFECTS: restituisce la mediana della latenza in microsecondi
+    public double getP50Micros() {
+        return this.p50Micros;
+    }
+
+    // EFFECTS: restituisce il 90-esimo percentile della latenza in microsecondi
+    public double getP90Micros() {
+        return this.p90Micros;
+    }
+
+    // EFFECTS: restituisce il 99-esimo percentile della latenza in microsecondi
+    public double getP99Micros() {
+        return this.p99Micros;
+    }
+
+    // EFFECTS: restituisce il 99.9-esimo percentile della latenza in microsecondi
+    public double getP999Micros() {
+        return this.p999Micros;
+    }
+
+    // EFFECTS: restituisce la latenza massima in microsecondi
+    public double getMaxMicros() {
+        return this.maxMicros;
+    }
+
+    // EFFECTS: restituisce una rappresentazione dell'istanza (this) come stringa
+    public String toString() {
+        return String.format("count=%d, %.1f op/s, mean=%.1fµs, p50=%.1fµs, p90=%.1fµs, p99=%.1fµs, p99.9=%.1fµs, max=%.1fµs",
+            this.count, this.throughput, this.meanMicros, this.p50Micros, this.p90Micros, this.p99Micros, this.p999Micros, this.maxMicros);
+    }
+}
@@ -1,5 +1,6 @@
 // Author: Samuele Bonini (mat. 597443)
 import java.sql.Timestamp;
+import java.util.Collection;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Set;
@@ -50,6 +51,25 @@ public class Post implements Cloneable {
         this.likes = new LinkedList<String>();
     }
 
+    // REQUIRES: stesse pre-condizioni del costruttore precedente ∧ timestamp ≠ null ∧ likes ≠ null ∧
+    //           (∀ l ∈ likes . l ≠ null ∧ l.length > 0 ∧ l ∉ /^\s+$/ ∧ l ≠ author)
+    // THROWS: stesse eccezioni del costruttore precedente, NullPointerException anche se timestamp è null ∨ likes è null ∨ (∃ l ∈ likes . l è null),
+    //         IllegalArgumentException anche se ∃ l ∈ likes . l.length = 0 ∨ l ∈ /^\s+$/, IllegalStateException se author ∈ likes
+    // EFFECTS: crea un post con timestamp e like già assegnati; il costruttore non è pubblico perché serve solo alle classi che
+    //          ricostruiscono post esistenti (es. ricevuti da un'altra partizione della rete o letti da disco), mentre i nuovi post
+    //          devono sempre avere come timestamp l'istante di creazione
+    Post(int id, String author, String text, Timestamp timestamp, Collection<String> likes) throws NullPointerException, LimitExceededException, IllegalArgumentException, IllegalStateException {
+        this(id, author, text);
+        if(timestamp == null || likes == null) {
+            throw new NullPointerException();
+        }
+
+        this.timestamp = timestamp;
+        for(String like : likes) {
+            this.addLike(like);
+        }
+    }
+
     // EFFECTS: restituisce l'attributo id dell'oggetto
     public int getId() {
         return this.id;
@@ -170,6 +190,16 @@ public class Post implements Cloneable {
         }
     }
 
+    // EFFECTS: restituisce true se e solo se user ∈ this.likes, senza copiare la lista dei like
+    public boolean isLikedBy(String user) {
+        return this.likes.contains(user);
+    }
+
+    // EFFECTS: restituisce il numero di like del post, senza copiarne la lista
+    public int getNumberOfLikes() {
+        return this.likes.size();
+    }
+
     // EFFECTS: restituisce una copia del campo this.likes dell'istanza
     public List<String> getLikes() {
         List<String> deepCopy = new LinkedList<String>();
@@ -0,0 +1,118 @@
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import javax.naming.LimitExceededException;
+
+// codifica binaria dei post, utilizzata per trasferirli tra processi e per memorizzarli su disco
+// Formato: id (int), autore (stringa), testo (stringa), timestamp in millisecondi (long), numero di like (int), like (stringa
+// ciascuno), dove ogni stringa è scritta da writeString come numero di byte (int) seguito dalla codifica UTF-8; a differenza
+// di writeUTF non c'è un limite di 65535 byte, che i nomi utente (di lunghezza arbitraria) potrebbero superare
+public class PostCodec {
+    // la classe contiene solo metodi statici e non deve essere istanziata
+    private PostCodec() {
+    }
+
+    // REQUIRES: out ≠ null ∧ post ≠ null
+    // THROWS: NullPointerException se out è null ∨ post è null (unchecked exception),
+    //         IOException se la scrittura su out fallisce (checked exception)
+    // MODIFIES: out
+    // EFFECTS: scrive su out la codifica di post
+    public static void write(DataOutput out, Post post) throws NullPointerException, IOException {
+        if(out == null || post == null) {
+            throw new NullPointerException();
+        }
+
+        out.writeInt(post.getId());
+        PostCodec.writeString(out, post.getAuthor());
+        PostCodec.writeString(out, post.getText());
+        out.writeLong(post.getTimestamp().getTime());
+        List<String> likes = post.getLikes();
+        out.writeInt(likes.size());
+        for(String like : likes) {
+            PostCodec.writeString(out, like);
+        }
+    }
+
+    // REQUIRES: in ≠ null
+    // THROWS: NullPointerException se in è null (unchecked exception),
+    //         IOException se la lettura da in fallisce o i dati letti non codificano un post valido (checked exception)
+    // MODIFIES: in
+    // EFFECTS: legge da in la codifica di un post e restituisce il post corrispondente
+    public static Post read(DataInput in) throws NullPointerException, IOException {
+        if(in == null) {
+            throw new NullPointerException();
+        }
+
+        int id = in.readInt();
+        String author = PostCodec.readString(in);
+        String text = PostCodec.readString(in);
+        Timestamp timestamp = new Timestamp(in.readLong());
+        int count = in.readInt();
+        List<String> likes = new ArrayList<String>(count);
+        for(int i = 0; i < count; i++) {
+            likes.add(PostCodec.readString(in));
+        }
+
+        try {
+            return new Post(id, author, text, timestamp, likes);
+        } catch(LimitExceededException | IllegalArgumentException | IllegalStateException exc) {
+            throw new IOException("post non valido", exc);
+        }
+    }
+
+    // REQUIRES: out ≠ null ∧ posts ≠ null ∧ (∀ p ∈ posts . p ≠ null)
+    // THROWS: NullPointerException se out è null ∨ posts è null ∨ (∃ p ∈ posts . p è null) (unchecked exception),
+    //         IOException se la scrittura su out fallisce (checked exception)
+    // MODIFIES: out
+    // EFFECTS: scrive su out il numero di post in posts seguito dalla codifica di ciascuno di essi
+    public static void writeList(DataOutput out, List<Post> posts) throws NullPointerException, IOException {
+        out.writeInt(posts.size());
+        for(Post post : posts) {
+            PostCodec.write(out, post);
+        }
+    }
+
+    // REQUIRES: in ≠ null
+    // THROWS: NullPointerException se in è null (unchecked exception),
+    //         IOException se la lettura da in fallisce o i dati letti non sono validi (checked exception)
+    // MODIFIES: in
+    // EFFECTS: legge da in una lista di post scritta da writeList
+    public static List<Post> readList(DataInput in) throws NullPointerException, IOException {
+        int count = in.readInt();
+        List<Post> posts = new ArrayList<Post>(count);
+        for(int i = 0; i < count; i++) {
+            posts.add(PostCodec.read(in));
+        }
+        return posts;
+    }
+
+    // REQUIRES: out ≠ null ∧ string ≠ null
+    // THROWS: NullPointerException se out è null ∨ string è null (unchecked exception),
+    //         IOException se la scrittura su out fallisce (checked exception)
+    // MODIFIES: out
+    // EFFECTS: scrive su out il numero di byte della codifica UTF-8 di string seguito dalla codifica stessa
+    public static void writeString(DataOutput out, String string) throws NullPointerException, IOException {
+        byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    // REQUIRES: in ≠ null
+    // THROWS: NullPointerException se in è null (unchecked exception),
+    //         IOException se la lettura da in fallisce o la lunghezza letta è negativa (checked exception)
+    // MODIFIES: in
+    // EFFECTS: legge da in una stringa scritta da writeString
+    public static String readString(DataInput in) throws NullPointerException, IOException {
+        int length = in.readInt();
+        if(length < 0) {
+            throw new IOException("lunghezza non valida: " + length);
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
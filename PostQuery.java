@@ -0,0 +1,273 @@
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+// interrogazione composta sui post di un MicroBlog (vedi MicroBlog.query): congiunzione di predicati su autore, parole
+// contenute, intervallo di tempo, numero di like e stato di censura, con ordinamento e paginazione del risultato
+// I metodi di configurazione modificano l'interrogazione e restituiscono this, così che possano essere concatenati, es.
+//     new PostQuery().writtenBy("alice").containing(words).since(t).orderBy(PostQuery.Order.RELEVANCE).limit(10)
+// I predicati non impostati sono sempre soddisfatti; matches() li valuta tutti in un solo passaggio sul post, dal meno al
+// più costoso, mentre la scelta di quale predicato usare per trovare i candidati spetta alla rete (vedi MicroBlog.explain).
+public class PostQuery {
+    // ordinamenti del risultato; a parità di criterio i post sono ordinati per id crescente
+    public enum Order {
+        ID,         // per id crescente, ovvero dal più vecchio
+        NEWEST,     // per id decrescente, ovvero dal più recente
+        RELEVANCE,  // per rilevanza decrescente rispetto alle parole di relevanceWords() (vedi MicroBlog.getRelevance)
+        LIKES       // per numero di like decrescente
+    }
+
+    private String author;
+    private List<String> words;
+    private List<String> relevanceWords;
+    private long since;
+    private long until;
+    private int minLikes;
+    private int maxLikes;
+    private Boolean censored;
+    private Order order;
+    private int offset;
+    private int limit;
+
+    /*
+        Representation invariant:
+        (this.author ≠ null ⇒ this.author ∉ /^\s+$/ ∧ this.author.length > 0) ∧
+        this.words ≠ null ∧ (∀ w ∈ this.words . w ≠ null ∧ w ∉ /^\s+$/ ∧ w.length > 0) ∧
+        (this.relevanceWords ≠ null ⇒ ∀ w ∈ this.relevanceWords . w ≠ null ∧ w ∉ /^\s+$/ ∧ w.length > 0) ∧
+        0 ≤ this.minLikes ∧ 0 ≤ this.maxLikes ∧ this.order ≠ null ∧ this.offset ≥ 0 ∧ this.limit ≥ 0
+    */
+
+    // EFFECTS: crea un'interrogazione che restituisce tutti i post della rete, per id crescente
+    public PostQuery() {
+        this.author = null;
+        this.words = Collections.<String>emptyList();
+        this.relevanceWords = null;
+        this.since = Long.MIN_VALUE;
+        this.until = Long.MAX_VALUE;
+        this.minLikes = 0;
+        this.maxLikes = Integer.MAX_VALUE;
+        this.censored = null;
+        this.order = Order.ID;
+        this.offset = 0;
+        this.limit = Integer.MAX_VALUE;
+    }
+
+    // REQUIRES: author ≠ null ∧ author ∉ /^\s+$/ ∧ author.length > 0
+    // THROWS: NullPointerException se author è null (unchecked exception),
+    //         IllegalArgumentException se author.length = 0 ∨ author ∈ /^\s+$/ (unchecked exception)
+    // MODIFIES: this
+    // EFFECTS: limita il risultato ai post scritti da author
+    public PostQuery writtenBy(String author) throws NullPointerException, IllegalArgumentException {
+        if(author == null) {
+            throw new NullPointerException();
+        }
+        if(author.trim().isEmpty()) {
+            throw new IllegalArgumentException();
+        }
+
+        this.author = author;
+        return this;
+    }
+
+    // REQUIRES: words ≠ null ∧ (∀ w ∈ words . w ≠ null ∧ w ∉ /^\s+$/ ∧ w.length > 0)
+    // THROWS: NullPointerException se words è null ∨ (∃ w ∈ words . w è null) (unchecked exception),
+    //         IllegalArgumentException se ∃ w ∈ words . w.length = 0 ∨ w ∈ /^\s+$/ (unchecked exception)
+    // MODIFIES: this
+    // EFFECTS: limita il risultato ai post che contengono tutte le parole in words, come in MicroBlog.containing
+    public PostQuery containing(List<String> words) throws NullPointerException, IllegalArgumentException {
+        this.words = PostQuery.checkWords(words);
+        return this;
+    }
+
+    // REQUIRES: since ≠ null
+    // THROWS: NullPointerException se since è null (unchecked exception)
+    // MODIFIES: this
+    // EFFECTS: limita il risultato ai post con timestamp non precedente a since
+    public PostQuery since(Timestamp since) throws NullPointerException {
+        this.since = since.getTime();
+        return this;
+    }
+
+    // REQUIRES: until ≠ null
+    // THROWS: NullPointerException se until è null (unchecked exception)
+    // MODIFIES: this
+    // EFFECTS: limita il risultato ai post con timestamp non successivo a until
+    public PostQuery until(Timestamp until) throws NullPointerException {
+        this.until = until.getTime();
+        return this;
+    }
+
+    // REQUIRES: minLikes ≥ 0
+    // THROWS: IllegalArgumentException se minLikes < 0 (unchecked exception)
+    // MODIFIES: this
+    // EFFECTS: limita il risultato ai post con almeno minLikes like
+    public PostQuery minLikes(int minLikes) throws IllegalArgumentException {
+        if(minLikes < 0) {
+            throw new IllegalArgumentException();
+        }
+
+        this.minLikes = minLikes;
+        return this;
+    }
+
+    // REQUIRES: maxLikes ≥ 0
+    // THROWS: IllegalArgumentException se maxLikes < 0 (unchecked exception)
+    // MODIFIES: this
+    // EFFECTS: limita il risultato ai post con al più maxLikes like
+    public PostQuery maxLikes(int maxLikes) throws IllegalArgumentException {
+        if(maxLikes < 0) {
+            throw new IllegalArgumentException();
+        }
+
+        this.maxLikes = maxLikes;
+        return this;
+    }
+
+    // MODIFIES: this
+    // EFFECTS: limita il risultato ai post censurati (il cui testo è MicroBlog.CENSORED_TEXT) se censored è true, o a quelli
+    //          non censurati se censored è false
+    public PostQuery censored(boolean censored) {
+        this.censored = censored;
+        return this;
+    }
+
+    // REQUIRES: order ≠ null
+    // THROWS: NullPointerException se order è null (unchecked exception)
+    // MODIFIES: this
+    // EFFECTS: imposta l'ordinamento del risultato
+    public PostQuery orderBy(Order order) throws NullPointerException {
+        if(order == null) {
+            throw new NullPointerException();
+        }
+
+        this.order = order;
+        return this;
+    }
+
+    // REQUIRES: words ≠ null ∧ (∀ w ∈ words . w ≠ null ∧ w ∉ /^\s+$/ ∧ w.length > 0)
+    // THROWS: NullPointerException se words è null ∨ (∃ w ∈ words . w è null) (unchecked exception),
+    //         IllegalArgumentException se ∃ w ∈ words . w.length = 0 ∨ w ∈ /^\s+$/ (unchecked exception)
+    // MODIFIES: this
+    // EFFECTS: ordina il risultato per rilevanza rispetto a words, che a differenza delle parole di containing() non devono
+    //          essere contenute nei post
+    public PostQuery orderByRelevance(List<String> words) throws NullPointerException, IllegalArgumentException {
+        this.relevanceWords = PostQuery.checkWords(words);
+        this.order = Order.RELEVANCE;
+        return this;
+    }
+
+    // REQUIRES: offset ≥ 0
+    // THROWS: IllegalArgumentException se offset < 0 (unchecked exception)
+    // MODIFIES: this
+    // EFFECTS: esclude dal risultato i primi offset post secondo l'ordinamento
+    public PostQuery offset(int offset) throws IllegalArgumentException {
+        if(offset < 0) {
+            throw new IllegalArgumentException();
+        }
+
+        this.offset = offset;
+        return this;
+    }
+
+    // REQUIRES: limit ≥ 0
+    // THROWS: IllegalArgumentException se limit < 0 (unchecked exception)
+    // MODIFIES: this
+    // EFFECTS: limita il risultato ai primi limit post (dopo aver escluso i primi offset)
+    public PostQuery limit(int limit) throws IllegalArgumentException {
+        if(limit < 0) {
+            throw new IllegalArgumentException();
+        }
+
+        this.limit = limit;
+        return this;
+    }
+
+    // EFFECTS: restituisce l'autore richiesto, o null se il predicato sull'autore non è impostato
+    public String getAuthor() {
+        return this.author;
+    }
+
+    // EFFECTS: restituisce le parole che i post devono contenere (una lista vuota se il predicato non è impostato)
+    public List<String> getWords() {
+        return Collections.unmodifiableList(this.words);
+    }
+
+    // EFFECTS: restituisce le parole rispetto a cui è calcolata la rilevanza: quelle di orderByRelevance() se impostate,
+    //          altrimenti quelle di containing()
+    public List<String> relevanceWords() {
+        return Collections.unmodifiableList(this.relevanceWords != null ? this.relevanceWords : this.words);
+    }
+
+    // EFFECTS: restituisce l'istante minimo (in millisecondi) dei post, Long.MIN_VALUE se il predicato non è impostato
+    public long getSince() {
+        return this.since;
+    }
+
+    // EFFECTS: restituisce l'istante massimo (in millisecondi) dei post, Long.MAX_VALUE se il predicato non è impostato
+    public long getUntil() {
+        return this.until;
+    }
+
+    // EFFECTS: restituisce l'ordinamento del risultato
+    public Order getOrder() {
+        return this.order;
+    }
+
+    // EFFECTS: restituisce il numero di post esclusi dall'inizio del risultato
+    public int getOffset() {
+        return this.offset;
+    }
+
+    // EFFECTS: restituisce il numero massimo di post del risultato, Integer.MAX_VALUE se non è limitato
+    public int getLimit() {
+        return this.limit;
+    }
+
+    // REQUIRES: post ≠ null
+    // THROWS: NullPointerException se post è null (unchecked exception)
+    // EFFECTS: restituisce true se e solo se post soddisfa tutti i predicati dell'interrogazione; le parole vengono cercate
+    //          per ultime, solo nei post che soddisfano gli altri predicati
+    public boolean matches(Post post) throws NullPointerException {
+        if(this.author != null && !this.author.equals(post.getAuthor())) {
+            return false;
+        }
+        if(this.since != Long.MIN_VALUE || this.until != Long.MAX_VALUE) {
+            long time = post.getTimestamp().getTime();
+            if(time < this.since || time > this.until) {
+                return false;
+            }
+        }
+        if(this.minLikes > 0 || this.maxLikes < Integer.MAX_VALUE) {
+            int likes = post.getNumberOfLikes();
+            if(likes < this.minLikes || likes > this.maxLikes) {
+                return false;
+            }
+        }
+        if(this.censored != null && this.censored != post.getText().equals(MicroBlog.CENSORED_TEXT)) {
+            return false;
+        }
+        for(String word : this.words) {
+            if(!WordTokenizer.containsWord(post.getText(), word)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // EFFECTS: restituisce una copia di words dopo averne verificato gli elementi
+    private static List<String> checkWords(List<String> words) throws NullPointerException, IllegalArgumentException {
+        if(words == null) {
+            throw new NullPointerException();
+        }
+        for(String word : words) {
+            if(word == null) {
+                throw new NullPointerException();
+            }
+            if(word.trim().isEmpty()) {
+                throw new IllegalArgumentException();
+            }
+        }
+        return new ArrayList<String>(words);
+    }
+}
@@ -0,0 +1,230 @@
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+// segmento immutabile di post memorizzato su disco e letto tramite memory-mapping (vedi SegmentStore)
+// Formato del file: MAGIC (int), numero di post n (int), indice di n coppie (id, offset del record) ordinate per id
+// (int, int), seguiti dai record dei post codificati con PostCodec nello stesso ordine. La lunghezza di un record è la
+// differenza tra il suo offset e quello del record successivo (o la dimensione del file per l'ultimo).
+// La ricerca di un id è una ricerca binaria sull'indice, senza strutture sullo heap: il sistema operativo mantiene in
+// memoria solo le pagine del file effettivamente lette. L'unica struttura sullo heap è il KeywordFilter delle parole dei
+// post, con cui le ricerche per parola saltano i segmenti che non possono contenerle.
+public class PostSegment {
+    private static final int MAGIC = 0x4d425347; // "MBSG"
+    private static final int HEADER_SIZE = 8;
+    private static final int ENTRY_SIZE = 8;
+
+    private final Path file;
+    private final MappedByteBuffer buffer;
+    private final int count;
+    private final KeywordFilter keywords;
+
+    /*
+        Representation invariant:
+        this.file ≠ null ∧ this.buffer ≠ null ∧ this.count ≥ 0 ∧ this.buffer.getInt(0) = MAGIC ∧ this.buffer.getInt(4) = this.count ∧
+        gli id dell'indice sono strettamente crescenti ∧ gli offset dei record sono crescenti e interni al file ∧
+        this.keywords ≠ null ∧ this.keywords contiene le parole dei testi di tutti i post del segmento
+    */
+
+    // EFFECTS: crea un segmento che legge il file già mappato in buffer; se keywords è null il filtro delle parole viene
+    //          ricostruito leggendo tutti i post
+    private PostSegment(Path file, MappedByteBuffer buffer, KeywordFilter keywords) throws IOException {
+        if(buffer.capacity() < HEADER_SIZE || buffer.getInt(0) != MAGIC) {
+            throw new IOException("segmento non valido: " + file);
+        }
+
+        this.file = file;
+        this.buffer = buffer;
+        this.count = buffer.getInt(4);
+        if(this.count < 0 || HEADER_SIZE + (long) this.count * ENTRY_SIZE > buffer.capacity()) {
+            throw new IOException("segmento non valido: " + file);
+        }
+
+        if(keywords == null) {
+            List<String> texts = new ArrayList<String>(this.count);
+            for(int index = 0; index < this.count; index++) {
+                texts.add(this.getAt(index).getText());
+            }
+            keywords = KeywordFilter.of(texts);
+        }
+        this.keywords = keywords;
+    }
+
+    // REQUIRES: file ≠ null ∧ posts ≠ null ∧ (∀ p ∈ posts . p ≠ null) ∧ gli id di posts sono strettamente crescenti
+    // THROWS: NullPointerException se file è null ∨ posts è null ∨ (∃ p ∈ posts . p è null) (unchecked exception),
+    //         IllegalArgumentException se gli id di posts non sono strettamente crescenti (unchecked exception),
+    //         IOException se la scrittura del file fallisce (checked exception)
+    // EFFECTS: scrive posts nel file file (sovrascrivendolo se esiste) e restituisce il segmento che lo legge
+    public static PostSegment write(Path file, List<Post> posts) throws NullPointerException, IllegalArgumentException, IOException {
+        if(file == null || posts == null) {
+            throw new NullPointerException();
+        }
+
+        // codifico i record in memoria per conoscerne gli offset prima di scrivere l'indice
+        ByteArrayOutputStream records = new ByteArrayOutputStream();
+        DataOutputStream recordOut = new DataOutputStream(records);
+        List<String> texts = new ArrayList<String>(posts.size());
+        int[] offsets = new int[posts.size()];
+        int dataStart = HEADER_SIZE + posts.size() * ENTRY_SIZE;
+        for(int i = 0; i < posts.size(); i++) {
+            if(i > 0 && posts.get(i).getId() <= posts.get(i - 1).getId()) {
+                throw new IllegalArgumentException();
+            }
+            offsets[i] = dataStart + recordOut.size();
+            PostCodec.write(recordOut, posts.get(i));
+            texts.add(posts.get(i).getText());
+        }
+
+        try(DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(posts.size());
+            for(int i = 0; i < posts.size(); i++) {
+                out.writeInt(posts.get(i).getId());
+                out.writeInt(offsets[i]);
+            }
+            records.writeTo(out);
+        }
+        return PostSegment.map(file, KeywordFilter.of(texts));
+    }
+
+    // REQUIRES: file ≠ null
+    // THROWS: NullPointerException se file è null (unchecked exception),
+    //         IOException se il file non esiste, non è leggibile o non è un segmento valido (checked exception)
+    // EFFECTS: restituisce il segmento che legge il file file
+    public static PostSegment open(Path file) throws NullPointerException, IOException {
+        if(file == null) {
+            throw new NullPointerException();
+        }
+
+        return PostSegment.map(file, null);
+    }
+
+    // EFFECTS: mappa in memoria il file file e restituisce il segmento che lo legge, con il filtro delle parole keywords
+    //          (ricostruito dal file se null)
+    private static PostSegment map(Path file, KeywordFilter keywords) throws IOException {
+        // la mappatura resta valida anche dopo la chiusura del canale
+        try(FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            return new PostSegment(file, channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()), keywords);
+        }
+    }
+
+    // EFFECTS: restituisce il file del segmento
+    public Path getFile() {
+        return this.file;
+    }
+
+    // REQUIRES: words ≠ null ∧ (∀ w ∈ words . w ≠ null)
+    // THROWS: NullPointerException se words è null ∨ (∃ w ∈ words . w è null) (unchecked exception)
+    // EFFECTS: restituisce false se nessun post del segmento può contenere tutte le parole in words (vedi KeywordFilter)
+    public boolean mightContainAll(List<String> words) throws NullPointerException {
+        return this.keywords.mightContainAll(words);
+    }
+
+    // EFFECTS: restituisce il numero di post del segmento
+    public int size() {
+        return this.count;
+    }
+
+    // REQUIRES: 0 ≤ index < this.size()
+    // THROWS: IndexOutOfBoundsException se index < 0 ∨ index ≥ this.size() (unchecked exception)
+    // EFFECTS: restituisce l'id del post in posizione index (i post sono ordinati per id)
+    public int getId(int index) throws IndexOutOfBoundsException {
+        this.checkIndex(index);
+        return this.buffer.getInt(HEADER_SIZE + index * ENTRY_SIZE);
+    }
+
+    // EFFECTS: restituisce la posizione del post con id id, o -1 se il segmento non lo contiene
+    public int indexOf(int id) {
+        int low = 0;
+        int high = this.count - 1;
+        while(low <= high) {
+            int middle = (low + high) >>> 1;
+            int current = this.buffer.getInt(HEADER_SIZE + middle * ENTRY_SIZE);
+            if(current < id) {
+                low = middle + 1;
+            } else if(current > id) {
+                high = middle - 1;
+            } else {
+                return middle;
+            }
+        }
+        return -1;
+    }
+
+    // EFFECTS: restituisce una nuova copia del post con id id, o null se il segmento non lo contiene
+    public Post get(int id) {
+        int index = this.indexOf(id);
+        return index < 0 ? null : this.getAt(index);
+    }
+
+    // REQUIRES: 0 ≤ index < this.size()
+    // THROWS: IndexOutOfBoundsException se index < 0 ∨ index ≥ this.size() (unchecked exception),
+    //         UncheckedIOException se il record non codifica un post valido (unchecked exception)
+    // EFFECTS: restituisce una nuova copia del post in posizione index
+    public Post getAt(int index) throws IndexOutOfBoundsException, UncheckedIOException {
+        try {
+            return PostCodec.read(new DataInputStream(new ByteArrayInputStream(this.record(index))));
+        } catch(IOException exc) {
+            throw new UncheckedIOException(exc);
+        }
+    }
+
+    // REQUIRES: 0 ≤ index < this.size()
+    // THROWS: IndexOutOfBoundsException se index < 0 ∨ index ≥ this.size() (unchecked exception),
+    //         UncheckedIOException se il record non codifica un post valido (unchecked exception)
+    // EFFECTS: restituisce l'autore del post in posizione index, decodificando solo il campo autore del record
+    public String getAuthorAt(int index) throws IndexOutOfBoundsException, UncheckedIOException {
+        this.checkIndex(index);
+        ByteBuffer record = this.buffer.duplicate();
+        record.position(this.offset(index) + 4); // salto l'id
+        int length = record.getInt(); // numero di byte seguito dalla codifica UTF-8 (PostCodec.writeString)
+        if(length < 0 || length > record.remaining()) {
+            throw new UncheckedIOException(new IOException("lunghezza non valida: " + length));
+        }
+        byte[] author = new byte[length];
+        record.get(author);
+        return new String(author, StandardCharsets.UTF_8);
+    }
+
+    // THROWS: IOException se l'eliminazione del file fallisce (checked exception)
+    // EFFECTS: elimina il file del segmento; il segmento non deve essere più usato
+    public void delete() throws IOException {
+        Files.deleteIfExists(this.file);
+    }
+
+    // EFFECTS: restituisce una copia dei byte del record in posizione index
+    private byte[] record(int index) {
+        this.checkIndex(index);
+        int start = this.offset(index);
+        int end = index + 1 < this.count ? this.offset(index + 1) : this.buffer.capacity();
+
+        byte[] bytes = new byte[end - start];
+        ByteBuffer record = this.buffer.duplicate(); // ogni lettura usa una propria posizione, per cui le letture concorrenti sono sicure
+        record.position(start);
+        record.get(bytes);
+        return bytes;
+    }
+
+    private int offset(int index) {
+        return this.buffer.getInt(HEADER_SIZE + index * ENTRY_SIZE + 4);
+    }
+
+    private void checkIndex(int index) throws IndexOutOfBoundsException {
+        if(index < 0 || index >= this.count) {
+            throw new IndexOutOfBoundsException(String.valueOf(index));
+        }
+    }
+}
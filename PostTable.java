@@ -0,0 +1,180 @@
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+// tabella dei post di un MicroBlog indicizzata direttamente per id: poiché gli id sono assegnati in modo crescente a partire
+// da 0, il post con id id si trova nella posizione id & (CHUNK_SIZE - 1) del blocco id / CHUNK_SIZE, senza boxing dell'id,
+// calcolo di hash o nodi di una map
+// I blocchi vengono allocati quando serve il primo id che contengono; la posizione di un post rimosso (es. spostato nel
+// livello freddo) resta vuota come "lapide" finché il post non viene reinserito, e un blocco le cui posizioni sono tutte vuote
+// viene rilasciato. La scansione procede per id crescenti, blocco per blocco.
+// Le modifiche devono essere eseguite da un solo thread alla volta; le letture (get, size, iterazione) non acquisiscono lock e
+// possono essere concorrenti alle modifiche: le posizioni e l'elenco dei blocchi sono pubblicati con scritture volatili, per
+// cui un lettore vede sempre un post completamente inserito o nessun post (l'iterazione è debolmente consistente).
+public class PostTable implements Iterable<Post> {
+    private static final int CHUNK_BITS = 10;
+    private static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+
+    // blocchi di CHUNK_SIZE posizioni (null se non ancora allocati o rilasciati); sostituito da uno più grande quando serve
+    private volatile AtomicReferenceArray<AtomicReferenceArray<Post>> chunks;
+
+    // numero di posizioni occupate di ciascun blocco, letto e modificato solo dal thread che modifica la tabella
+    private int[] occupied;
+
+    private volatile int size;
+
+    /*
+        Abstraction function:
+        AF(c) = { (id, p) | c.chunks.get(id >>> CHUNK_BITS) ≠ null ∧ p = c.chunks.get(id >>> CHUNK_BITS).get(id & (CHUNK_SIZE - 1)) ≠ null }
+
+        Representation invariant:
+        this.chunks ≠ null ∧ this.occupied ≠ null ∧ this.occupied.length = this.chunks.length() ∧
+        ∀ i . (this.chunks.get(i) = null ⇒ this.occupied[i] = 0) ∧
+              (this.chunks.get(i) ≠ null ⇒ this.occupied[i] = #{j | this.chunks.get(i).get(j) ≠ null} ∧ this.chunks.get(i).length() = CHUNK_SIZE) ∧
+        ∀ (id, p) ∈ AF(this) . p.getId() = id ∧
+        this.size = Σ this.occupied
+    */
+
+    public PostTable() {
+        this.chunks = new AtomicReferenceArray<AtomicReferenceArray<Post>>(16);
+        this.occupied = new int[16];
+        this.size = 0;
+    }
+
+    // EFFECTS: restituisce il numero di post nella tabella
+    public int size() {
+        return this.size;
+    }
+
+    // EFFECTS: restituisce il post con id id, o null se non è nella tabella (in particolare se id < 0)
+    public Post get(int id) {
+        if(id < 0) {
+            return null;
+        }
+
+        AtomicReferenceArray<AtomicReferenceArray<Post>> chunks = this.chunks;
+        int index = id >>> CHUNK_BITS;
+        if(index >= chunks.length()) {
+            return null;
+        }
+        AtomicReferenceArray<Post> chunk = chunks.get(index);
+        return chunk == null ? null : chunk.get(id & (CHUNK_SIZE - 1));
+    }
+
+    // REQUIRES: post ≠ null ∧ post.getId() ≥ 0
+    // THROWS: NullPointerException se post è null (unchecked exception),
+    //         IllegalArgumentException se post.getId() < 0 (unchecked exception)
+    // MODIFIES: this
+    // EFFECTS: inserisce post nella posizione del suo id e restituisce il post che la occupava, o null se era vuota
+    public Post put(Post post) throws NullPointerException, IllegalArgumentException {
+        int id = post.getId();
+        if(id < 0) {
+            throw new IllegalArgumentException();
+        }
+
+        int index = id >>> CHUNK_BITS;
+        AtomicReferenceArray<AtomicReferenceArray<Post>> chunks = this.chunks;
+        if(index >= chunks.length()) {
+            chunks = this.grow(index + 1);
+        }
+        AtomicReferenceArray<Post> chunk = chunks.get(index);
+        if(chunk == null) {
+            chunk = new AtomicReferenceArray<Post>(CHUNK_SIZE);
+            chunks.set(index, chunk);
+        }
+
+        Post previous = chunk.getAndSet(id & (CHUNK_SIZE - 1), post);
+        if(previous == null) {
+            this.occupied[index]++;
+            this.size++;
+        }
+        return previous;
+    }
+
+    // MODIFIES: this
+    // EFFECTS: rimuove il post con id id, lasciandone vuota la posizione, e lo restituisce, o restituisce null se non era nella
+    //          tabella; il blocco che lo conteneva viene rilasciato se non contiene altri post
+    public Post remove(int id) {
+        Post previous = this.get(id);
+        if(previous == null) {
+            return null;
+        }
+
+        int index = id >>> CHUNK_BITS;
+        AtomicReferenceArray<AtomicReferenceArray<Post>> chunks = this.chunks;
+        chunks.get(index).set(id & (CHUNK_SIZE - 1), null);
+        this.size--;
+        if(--(this.occupied[index]) == 0) {
+            chunks.set(index, null);
+        }
+        return previous;
+    }
+
+    // EFFECTS: restituisce una nuova lista con i post della tabella in ordine di id
+    public List<Post> toList() {
+        List<Post> posts = new ArrayList<Post>(this.size);
+        for(Post post : this) {
+            posts.add(post);
+        }
+        return posts;
+    }
+
+    // EFFECTS: restituisce un iteratore sui post della tabella in ordine di id, che non supporta remove()
+    public Iterator<Post> iterator() {
+        AtomicReferenceArray<AtomicReferenceArray<Post>> chunks = this.chunks;
+        return new Iterator<Post>() {
+            private int index = -1; // blocco corrente
+            private int slot = CHUNK_SIZE; // prossima posizione da esaminare nel blocco corrente
+            private AtomicReferenceArray<Post> chunk = null;
+            private Post next = this.advance();
+
+            public boolean hasNext() {
+                return this.next != null;
+            }
+
+            public Post next() {
+                if(this.next == null) {
+                    throw new NoSuchElementException();
+                }
+                Post post = this.next;
+                this.next = this.advance();
+                return post;
+            }
+
+            // EFFECTS: restituisce il prossimo post, o null se la scansione è terminata
+            private Post advance() {
+                while(true) {
+                    while(this.chunk != null && this.slot < CHUNK_SIZE) {
+                        Post post = this.chunk.get((this.slot)++);
+                        if(post != null) {
+                            return post;
+                        }
+                    }
+                    if(++(this.index) >= chunks.length()) {
+                        return null;
+                    }
+                    this.chunk = chunks.get(this.index);
+                    this.slot = 0;
+                }
+            }
+        };
+    }
+
+    // MODIFIES: this
+    // EFFECTS: sostituisce l'elenco dei blocchi con uno di almeno minLength posizioni (raddoppiando la dimensione) e lo restituisce
+    private AtomicReferenceArray<AtomicReferenceArray<Post>> grow(int minLength) {
+        AtomicReferenceArray<AtomicReferenceArray<Post>> old = this.chunks;
+        int length = Math.max(minLength, old.length() * 2);
+        AtomicReferenceArray<AtomicReferenceArray<Post>> chunks = new AtomicReferenceArray<AtomicReferenceArray<Post>>(length);
+        for(int i = 0; i < old.length(); i++) {
+            chunks.set(i, old.get(i));
+        }
+        int[] occupied = new int[length];
+        System.arraycopy(this.occupied, 0, occupied, 0, this.occupied.length);
+        this.occupied = occupied;
+        this.chunks = chunks; // pubblico il nuovo elenco solo dopo averlo riempito
+        return chunks;
+    }
+}
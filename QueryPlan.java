@@ -0,0 +1,73 @@
+// piano di esecuzione di una PostQuery scelto da MicroBlog.explain: il percorso di accesso da cui leggere i post candidati
+// e la stima del loro numero; i predicati dell'interrogazione vengono poi valutati su ciascun candidato
+public class QueryPlan {
+    // percorsi di accesso, in ordine di preferenza a parità di stima
+    public enum AccessPath {
+        AUTHOR, // i post dell'autore richiesto
+        WORD,   // i post che contengono la parola getKey(), secondo l'indice di ricerca
+        TIME,   // i post con id in [getFrom(), getTo()), che contengono quelli dell'intervallo di tempo richiesto
+        SCAN    // tutti i post della rete
+    }
+
+    private final AccessPath path;
+    private final String key;
+    private final int from;
+    private final int to;
+    private final long estimate;
+
+    /*
+        Representation invariant:
+        this.path ≠ null ∧ (this.path = WORD ⟺ this.key ≠ null) ∧ 0 ≤ this.from ≤ this.to ∧ this.estimate ≥ 0
+    */
+
+    // REQUIRES: path ≠ null ∧ (path = WORD ⟺ key ≠ null) ∧ 0 ≤ from ≤ to ∧ estimate ≥ 0
+    // THROWS: NullPointerException se path è null (unchecked exception),
+    //         IllegalArgumentException se una delle altre condizioni non è soddisfatta (unchecked exception)
+    // EFFECTS: crea un piano che legge i candidati da path, con chiave key e intervallo di id [from, to) se richiesti dal
+    //          percorso, stimando estimate candidati
+    public QueryPlan(AccessPath path, String key, int from, int to, long estimate) throws NullPointerException, IllegalArgumentException {
+        if(path == null) {
+            throw new NullPointerException();
+        }
+        if((path == AccessPath.WORD) != (key != null) || from < 0 || from > to || estimate < 0) {
+            throw new IllegalArgumentException();
+        }
+
+        this.path = path;
+        this.key = key;
+        this.from = from;
+        this.to = to;
+        this.estimate = estimate;
+    }
+
+    // EFFECTS: restituisce il percorso di accesso
+    public AccessPath getAccessPath() {
+        return this.path;
+    }
+
+    // EFFECTS: restituisce la parola (normalizzata con WordTokenizer.fold) del percorso WORD, o null per gli altri percorsi
+    public String getKey() {
+        return this.key;
+    }
+
+    // EFFECTS: restituisce il primo id dell'intervallo del percorso TIME
+    public int getFrom() {
+        return this.from;
+    }
+
+    // EFFECTS: restituisce l'id successivo all'ultimo dell'intervallo del percorso TIME
+    public int getTo() {
+        return this.to;
+    }
+
+    // EFFECTS: restituisce la stima del numero di post candidati che il piano legge
+    public long getEstimate() {
+        return this.estimate;
+    }
+
+    // EFFECTS: restituisce una descrizione leggibile del piano, es. "WORD(pizza) ~12"
+    public String toString() {
+        String detail = this.path == AccessPath.WORD ? "(" + this.key + ")" : this.path == AccessPath.TIME ? "[" + this.from + ", " + this.to + ")" : "";
+        return this.path + detail + " ~" + this.estimate;
+    }
+}
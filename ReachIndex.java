@@ -0,0 +1,56 @@
+import java.util.HashMap;
+import java.util.Map;
+
+// stime della "portata" dei post di un MicroBlog: per ogni post e per ogni autore uno sketch HyperLogLog degli utenti distinti
+// che vi hanno messo like, aggiornato a ogni like senza scorrere i like già presenti
+// Gli sketch non supportano la rimozione, per cui la portata conta tutti gli utenti che hanno messo like almeno una volta,
+// anche se in seguito lo hanno rimosso.
+public class ReachIndex implements MicroBlogIndex {
+    private final Map<Integer, HyperLogLog> posts;
+    private final Map<String, HyperLogLog> authors;
+
+    /*
+        Representation invariant:
+        this.posts ≠ null ∧ this.authors ≠ null ∧
+        (∀ (k, v) ∈ this.posts . v ≠ null ∧ v stima gli utenti che hanno messo like al post con id k) ∧
+        (∀ (k, v) ∈ this.authors . v ≠ null ∧ v è l'unione degli sketch dei post di k)
+    */
+
+    public ReachIndex() {
+        this.posts = new HashMap<Integer, HyperLogLog>();
+        this.authors = new HashMap<String, HyperLogLog>();
+    }
+
+    public void apply(MicroBlogEvent event) {
+        if(event.getType() == MicroBlogEvent.Type.LIKE_ADDED) {
+            this.posts.computeIfAbsent(event.getPostId(), k -> new HyperLogLog()).add(event.getUser());
+            this.authors.computeIfAbsent(event.getAuthor(), k -> new HyperLogLog()).add(event.getUser());
+        }
+    }
+
+    // EFFECTS: restituisce la stima del numero di utenti distinti che hanno messo like al post con id postId
+    public long estimatedLikers(int postId) {
+        HyperLogLog sketch = this.posts.get(postId);
+        return sketch == null ? 0 : sketch.estimate();
+    }
+
+    // EFFECTS: restituisce la stima del numero di utenti distinti che hanno messo like ad almeno un post di author
+    public long estimatedReach(String author) {
+        HyperLogLog sketch = this.authors.get(author);
+        return sketch == null ? 0 : sketch.estimate();
+    }
+
+    // REQUIRES: authors ≠ null
+    // THROWS: NullPointerException se authors è null (unchecked exception)
+    // EFFECTS: restituisce un nuovo sketch degli utenti distinti che hanno messo like ad almeno un post di un autore in authors
+    public HyperLogLog sketchOf(Iterable<String> authors) throws NullPointerException {
+        HyperLogLog union = new HyperLogLog();
+        for(String author : authors) {
+            HyperLogLog sketch = this.authors.get(author);
+            if(sketch != null) {
+                union.merge(sketch);
+            }
+        }
+        return union;
+    }
+}
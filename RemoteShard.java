@@ -0,0 +1,339 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import javax.naming.LimitExceededException;
+
+// partizione di ShardedMicroBlog ospitata da un ShardServer in un processo separato e raggiunta via socket di loopback
+// Ogni istanza usa una sola connessione, per cui le chiamate vengono serializzate; gli errori di comunicazione vengono
+// segnalati con UncheckedIOException. Ogni richiesta viene codificata per intero in un buffer prima di essere inviata, così
+// che un errore durante la codifica non lasci sulla connessione una richiesta incompleta; dopo un errore di comunicazione
+// lo stato della connessione non è più noto, per cui viene chiusa e le chiamate successive falliscono.
+public class RemoteShard implements MicroBlogShard {
+    private final Socket socket;
+    private final DataInputStream in;
+    private final DataOutputStream out;
+
+    // richiesta in corso di codifica, inviata da send()
+    private final ByteArrayOutputStream buffer;
+    private final DataOutputStream request;
+
+    // errore che ha interrotto la connessione, o null se la connessione è utilizzabile
+    private IOException broken;
+
+    // processo che ospita la partizione, se avviato da spawn(); null altrimenti
+    private final Process process;
+
+    /*
+        Representation invariant:
+        this.socket ≠ null ∧ this.in ≠ null ∧ this.out ≠ null ∧ this.in e this.out sono gli stream di this.socket ∧
+        this.buffer ≠ null ∧ this.request ≠ null ∧ this.request scrive su this.buffer ∧ (this.broken ≠ null ⇒ this.socket è chiuso)
+    */
+
+    // REQUIRES: 0 < port ≤ 65535
+    // THROWS: IOException se non è possibile connettersi a un ShardServer sulla porta port dell'interfaccia di loopback (checked exception)
+    public RemoteShard(int port) throws IOException {
+        this(port, null);
+    }
+
+    private RemoteShard(int port, Process process) throws IOException {
+        this.socket = new Socket(InetAddress.getLoopbackAddress(), port);
+        this.socket.setTcpNoDelay(true);
+        this.in = new DataInputStream(new BufferedInputStream(this.socket.getInputStream()));
+        this.out = new DataOutputStream(new BufferedOutputStream(this.socket.getOutputStream()));
+        this.buffer = new ByteArrayOutputStream();
+        this.request = new DataOutputStream(this.buffer);
+        this.broken = null;
+        this.process = process;
+    }
+
+    // THROWS: IOException se non è possibile avviare il processo o connettersi a esso (checked exception)
+    // EFFECTS: avvia un nuovo processo ShardServer con lo stesso classpath del processo corrente e restituisce una RemoteShard
+    //          connessa a esso; il processo termina alla chiusura della RemoteShard o del processo corrente
+    public static RemoteShard spawn() throws IOException {
+        String java = System.getProperty("java.home") + File.separator + "bin" + File.separator + "java";
+        ProcessBuilder builder = new ProcessBuilder(java, "-cp", System.getProperty("java.class.path"), "ShardServer", "0", "--exit-with-parent");
+        builder.redirectError(ProcessBuilder.Redirect.INHERIT);
+        Process process = builder.start();
+
+        // il server comunica sulla prima riga dell'output la porta su cui è in ascolto
+        BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8));
+        String line = reader.readLine();
+        if(line == null) {
+            process.destroy();
+            throw new IOException("il processo della partizione è terminato prima di essere pronto");
+        }
+
+        try {
+            return new RemoteShard(Integer.parseInt(line.trim()), process);
+        } catch(IOException | NumberFormatException exc) {
+            process.destroy();
+            throw new IOException("impossibile connettersi alla partizione", exc);
+        }
+    }
+
+    public synchronized int createPost(String author, String text) throws NullPointerException, IllegalArgumentException, LimitExceededException {
+        if(author == null || text == null) {
+            throw new NullPointerException();
+        }
+
+        try {
+            DataOutputStream request = this.begin(ShardServer.CREATE_POST);
+            PostCodec.writeString(request, author);
+            PostCodec.writeString(request, text);
+            this.send();
+            return this.in.readInt();
+        } catch(IllegalStateException exc) {
+            if(exc.getCause() instanceof LimitExceededException) { // vedi send()
+                throw (LimitExceededException) exc.getCause();
+            }
+            throw exc;
+        } catch(IOException exc) {
+            throw this.fail(exc);
+        }
+    }
+
+    public synchronized boolean addLike(int postId, String user) throws NullPointerException, IllegalArgumentException, NoSuchElementException, IllegalStateException {
+        return this.like(ShardServer.ADD_LIKE, postId, user);
+    }
+
+    public synchronized boolean removeLike(int postId, String user) throws NullPointerException, IllegalArgumentException, NoSuchElementException {
+        return this.like(ShardServer.REMOVE_LIKE, postId, user);
+    }
+
+    public synchronized Post getPost(int postId) throws IllegalArgumentException {
+        try {
+            this.begin(ShardServer.GET_POST).writeInt(postId);
+            this.send();
+            return this.in.readBoolean() ? PostCodec.read(this.in) : null;
+        } catch(IOException exc) {
+            throw this.fail(exc);
+        }
+    }
+
+    public synchronized List<Post> getAllPosts() {
+        try {
+            this.begin(ShardServer.GET_ALL_POSTS);
+            this.send();
+            return PostCodec.readList(this.in);
+        } catch(IOException exc) {
+            throw this.fail(exc);
+        }
+    }
+
+    public synchronized List<Post> writtenBy(String username) throws NullPointerException, IllegalArgumentException {
+        return this.query(ShardServer.WRITTEN_BY, username);
+    }
+
+    public synchronized List<Post> containing(List<String> words) throws NullPointerException, IllegalArgumentException {
+        return this.search(ShardServer.CONTAINING, words);
+    }
+
+    public synchronized List<Post> sortByRelevance(List<String> searchWords) throws NullPointerException, IllegalArgumentException {
+        return this.search(ShardServer.SORT_BY_RELEVANCE, searchWords);
+    }
+
+    public synchronized List<Post> mentionsOf(String user) throws NullPointerException, IllegalArgumentException {
+        return this.query(ShardServer.MENTIONS_OF, user);
+    }
+
+    public synchronized List<Post> postsTagged(String tag) throws NullPointerException, IllegalArgumentException {
+        return this.query(ShardServer.POSTS_TAGGED, tag);
+    }
+
+    public synchronized Set<String> getAuthors() {
+        return this.users(ShardServer.GET_AUTHORS);
+    }
+
+    public synchronized boolean isAuthor(String user) {
+        if(user == null) {
+            return false; // come MicroBlog.isAuthor(), nessun utente null è autore
+        }
+
+        try {
+            PostCodec.writeString(this.begin(ShardServer.IS_AUTHOR), user);
+            this.send();
+            return this.in.readBoolean();
+        } catch(IOException exc) {
+            throw this.fail(exc);
+        }
+    }
+
+    public synchronized Set<String> getMentionedUsers() {
+        return this.users(ShardServer.GET_MENTIONED_USERS);
+    }
+
+    public synchronized Map<String, Set<String>> getLikeRelations() {
+        try {
+            this.begin(ShardServer.GET_LIKE_RELATIONS);
+            this.send();
+            int count = this.in.readInt();
+            Map<String, Set<String>> relations = new HashMap<String, Set<String>>();
+            for(int i = 0; i < count; i++) {
+                String user = PostCodec.readString(this.in);
+                relations.put(user, new HashSet<String>(ShardServer.readStrings(this.in)));
+            }
+            return relations;
+        } catch(IOException exc) {
+            throw this.fail(exc);
+        }
+    }
+
+    public synchronized HyperLogLog getReachSketch(Set<String> authors) throws NullPointerException, IllegalArgumentException {
+        if(authors == null) {
+            throw new NullPointerException();
+        }
+        for(String author : authors) {
+            if(author == null) {
+                throw new NullPointerException();
+            }
+        }
+
+        try {
+            ShardServer.writeStrings(this.begin(ShardServer.GET_REACH_SKETCH), authors);
+            this.send();
+            return HyperLogLog.read(this.in);
+        } catch(IOException exc) {
+            throw this.fail(exc);
+        }
+    }
+
+    public synchronized void close() {
+        try {
+            this.socket.close();
+        } catch(IOException exc) {
+            // la connessione viene comunque abbandonata
+        }
+        if(this.process != null) {
+            this.process.destroy();
+        }
+    }
+
+    // EFFECTS: esegue l'operazione operation (ADD_LIKE o REMOVE_LIKE) sul post postId per l'utente user
+    private boolean like(byte operation, int postId, String user) {
+        if(user == null) {
+            throw new NullPointerException();
+        }
+
+        try {
+            DataOutputStream request = this.begin(operation);
+            request.writeInt(postId);
+            PostCodec.writeString(request, user);
+            this.send();
+            return this.in.readBoolean();
+        } catch(IOException exc) {
+            throw this.fail(exc);
+        }
+    }
+
+    // EFFECTS: esegue la ricerca operation (WRITTEN_BY, MENTIONS_OF o POSTS_TAGGED) con l'argomento argument
+    private List<Post> query(byte operation, String argument) {
+        if(argument == null) {
+            throw new NullPointerException();
+        }
+
+        try {
+            PostCodec.writeString(this.begin(operation), argument);
+            this.send();
+            return PostCodec.readList(this.in);
+        } catch(IOException exc) {
+            throw this.fail(exc);
+        }
+    }
+
+    // EFFECTS: esegue l'operazione operation (GET_MENTIONED_USERS o GET_AUTHORS), che restituisce un insieme di utenti
+    private Set<String> users(byte operation) {
+        try {
+            this.begin(operation);
+            this.send();
+            return new HashSet<String>(ShardServer.readStrings(this.in));
+        } catch(IOException exc) {
+            throw this.fail(exc);
+        }
+    }
+
+    // EFFECTS: esegue la ricerca operation (CONTAINING o SORT_BY_RELEVANCE) con le parole words
+    private List<Post> search(byte operation, List<String> words) {
+        if(words == null) {
+            throw new NullPointerException();
+        }
+        for(String word : words) {
+            if(word == null) {
+                throw new NullPointerException();
+            }
+        }
+
+        try {
+            ShardServer.writeStrings(this.begin(operation), words);
+            this.send();
+            return PostCodec.readList(this.in);
+        } catch(IOException exc) {
+            throw this.fail(exc);
+        }
+    }
+
+    // THROWS: IOException se la connessione è stata interrotta da un errore precedente (checked exception)
+    // MODIFIES: this
+    // EFFECTS: inizia la codifica di una nuova richiesta per l'operazione operation e restituisce lo stream su cui scriverne
+    //          gli argomenti
+    private DataOutputStream begin(byte operation) throws IOException {
+        if(this.broken != null) {
+            throw new IOException("connessione con la partizione interrotta", this.broken);
+        }
+        this.buffer.reset();
+        this.request.writeByte(operation);
+        return this.request;
+    }
+
+    // EFFECTS: invia la richiesta codificata da begin() e legge lo stato della risposta; se il server ha segnalato un'eccezione,
+    //          la solleva nuovamente nel processo corrente (l'unica eccezione checked, LimitExceededException, viene incapsulata
+    //          in una IllegalStateException e ripristinata da createPost())
+    private void send() throws IOException {
+        this.buffer.writeTo(this.out);
+        this.out.flush();
+        if(this.in.readByte() == ShardServer.OK) {
+            return;
+        }
+
+        String type = PostCodec.readString(this.in);
+        String message = PostCodec.readString(this.in);
+        switch(type) {
+            case "NullPointerException": throw new NullPointerException(message);
+            case "IllegalArgumentException": throw new IllegalArgumentException(message);
+            case "NoSuchElementException": throw new NoSuchElementException(message);
+            case "IllegalStateException": throw new IllegalStateException(message);
+            case "LimitExceededException": throw new IllegalStateException(new LimitExceededException(message));
+            default: throw new IllegalStateException(type + ": " + message);
+        }
+    }
+
+    // MODIFIES: this
+    // EFFECTS: chiude la connessione, il cui stato non è più noto dopo l'errore exc, e restituisce l'eccezione unchecked con
+    //          cui segnalarlo
+    private UncheckedIOException fail(IOException exc) {
+        if(this.broken == null) {
+            this.broken = exc;
+            try {
+                this.socket.close();
+            } catch(IOException closeExc) {
+                // la connessione viene comunque abbandonata
+            }
+        }
+        return new UncheckedIOException(exc);
+    }
+}
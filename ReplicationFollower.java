@@ -0,0 +1,353 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.sql.Timestamp;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+import javax.naming.LimitExceededException;
+
+// lato follower della replicazione di un MicroBlog: una replica in sola lettura della rete di un ReplicationLeader, che
+// parte da uno snapshot della rete del leader e applica nello stesso ordine gli eventi delle modifiche successive, così che
+// le letture (ricerche, influencer, ...) possano essere distribuite su più processi
+// Gli eventi vengono ricevuti e applicati a gruppi da un thread dedicato, che conferma al leader ogni gruppo applicato.
+// Se la connessione si interrompe (es. perché il leader ha disconnesso la replica rimasta troppo indietro) il thread si
+// riconnette, fino a RECONNECT_ATTEMPTS tentativi consecutivi, chiedendo gli eventi successivi all'ultimo applicato; se il
+// leader li ha già scartati la replica viene sostituita da una nuova, costruita da un nuovo snapshot.
+// Le letture vanno eseguite con read(), che le esclude dall'applicazione dei gruppi; i metodi che modificano la rete
+// restituita da getNetwork() sollevano UnsupportedOperationException.
+public class ReplicationFollower implements Closeable {
+    // numero massimo di tentativi consecutivi di riconnessione e attesa prima del secondo tentativo (raddoppiata a ogni tentativo)
+    static final int RECONNECT_ATTEMPTS = 5;
+    static final long RECONNECT_DELAY_MILLIS = 50;
+
+    private final int port;
+    private final ReadWriteLock lock;
+
+    // replica attuale, sostituita (con il write lock di this.lock) a ogni nuovo snapshot
+    private volatile Replica network;
+
+    // connessione attuale con il leader; in e out sono usati solo dal costruttore e dal thread che applica gli eventi
+    private volatile Socket socket;
+    private DataInputStream in;
+    private DataOutputStream out;
+
+    // numero di sequenza (del leader) dell'ultimo evento applicato e dell'ultimo evento del leader noto
+    private volatile long applied;
+    private volatile long leaderSequence;
+
+    // numero di snapshot ricevuti e di riconnessioni riuscite
+    private volatile int snapshots;
+    private volatile int reconnections;
+
+    private volatile boolean closed;
+
+    // eccezione che ha interrotto la replicazione, o null se è ancora in corso (o è stata chiusa con close)
+    private volatile Exception failure;
+
+    /*
+        Representation invariant:
+        0 < this.port ≤ 65535 ∧ this.lock ≠ null ∧ this.network ≠ null ∧ this.socket ≠ null ∧ this.in ≠ null ∧ this.out ≠ null ∧
+        this.applied ≤ this.leaderSequence ∧ this.snapshots ≥ 1 ∧ this.reconnections ≥ 0 ∧
+        lo stato di this.network è quello della rete del leader dopo l'evento this.applied
+    */
+
+    // REQUIRES: 0 < port ≤ 65535
+    // THROWS: IOException se la connessione al leader in ascolto sulla porta port dell'interfaccia di loopback fallisce o
+    //         lo snapshot ricevuto non è valido (checked exception)
+    // EFFECTS: crea una replica vuota, la porta allo stato di uno snapshot della rete del leader e avvia l'applicazione
+    //          degli eventi successivi
+    public ReplicationFollower(int port) throws IOException {
+        this.port = port;
+        this.lock = new ReentrantReadWriteLock();
+        this.snapshots = 0;
+        this.reconnections = 0;
+        this.closed = false;
+        this.failure = null;
+
+        this.connect(-1); // la replica è vuota: serve uno snapshot
+
+        Thread applier = new Thread(this::receive, "ReplicationFollower-" + this.socket.getLocalPort());
+        applier.setDaemon(true);
+        applier.start();
+    }
+
+    // EFFECTS: restituisce la replica attuale, che dopo un nuovo snapshot viene sostituita e non riceve più eventi; non deve
+    //          essere letta in concorrenza con l'applicazione degli eventi (vedi read)
+    public MicroBlog getNetwork() {
+        return this.network;
+    }
+
+    // REQUIRES: reader ≠ null
+    // THROWS: NullPointerException se reader è null (unchecked exception), oltre alle eccezioni sollevate da reader
+    // EFFECTS: restituisce il risultato di reader applicato alla replica, escludendo l'applicazione degli eventi durante la
+    //          lettura; più letture possono essere eseguite in concorrenza
+    public <T> T read(Function<MicroBlog, T> reader) throws NullPointerException {
+        if(reader == null) {
+            throw new NullPointerException();
+        }
+
+        this.lock.readLock().lock();
+        try {
+            return reader.apply(this.network);
+        } finally {
+            this.lock.readLock().unlock();
+        }
+    }
+
+    // EFFECTS: restituisce il numero di sequenza (del leader) dell'ultimo evento applicato alla replica
+    public long getAppliedSequence() {
+        return this.applied;
+    }
+
+    // EFFECTS: restituisce il ritardo della replica, ovvero il numero di eventi del leader noti e non ancora applicati
+    public long getLag() {
+        return this.leaderSequence - this.applied;
+    }
+
+    // EFFECTS: restituisce il numero di snapshot ricevuti dal leader (1 se la replica non è mai stata ricostruita)
+    public int getSnapshots() {
+        return this.snapshots;
+    }
+
+    // EFFECTS: restituisce il numero di riconnessioni al leader riuscite
+    public int getReconnections() {
+        return this.reconnections;
+    }
+
+    // EFFECTS: restituisce true se e solo se la replica riceve ancora gli eventi del leader, anche se si sta riconnettendo
+    public boolean isConnected() {
+        return !this.closed && this.failure == null;
+    }
+
+    // EFFECTS: restituisce l'eccezione che ha interrotto la replicazione, o null se non si è interrotta per un errore
+    public Exception getFailure() {
+        return this.failure;
+    }
+
+    // MODIFIES: this
+    // EFFECTS: chiude la connessione con il leader, senza riconnettersi; la replica resta leggibile nello stato raggiunto
+    public void close() throws IOException {
+        this.closed = true;
+        this.socket.close();
+    }
+
+    // THROWS: IOException se la connessione al leader fallisce o lo snapshot ricevuto non è valido (checked exception)
+    // MODIFIES: this
+    // EFFECTS: si connette al leader chiedendo gli eventi successivi a position, o uno snapshot se position < 0 o se il leader
+    //          ha già scartato quegli eventi; uno snapshot sostituisce la replica con una nuova che ne ha lo stato
+    private void connect(long position) throws IOException {
+        Socket socket = new Socket(InetAddress.getLoopbackAddress(), this.port);
+        try {
+            socket.setTcpNoDelay(true);
+            DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+
+            out.writeLong(position);
+            out.flush();
+            byte response = in.readByte();
+            if(response == ReplicationLeader.BEHIND && position >= 0) {
+                socket.close();
+                this.connect(-1);
+                return;
+            }
+            if(response == ReplicationLeader.SNAPSHOT) {
+                long sequence = in.readLong();
+                int nextId = in.readInt();
+                List<Post> posts = PostCodec.readList(in);
+                Map<String, Set<String>> follows = ReplicationFollower.readFollows(in);
+                Replica network = new Replica();
+                network.restore(posts, follows, nextId);
+
+                this.lock.writeLock().lock();
+                try {
+                    this.network = network;
+                    this.applied = sequence;
+                    this.leaderSequence = sequence;
+                } finally {
+                    this.lock.writeLock().unlock();
+                }
+                this.snapshots++;
+            } else if(response != ReplicationLeader.TAIL || position < 0) {
+                throw new IOException("risposta inattesa dal leader: " + response);
+            }
+
+            this.socket = socket;
+            this.in = in;
+            this.out = out;
+            if(this.closed) {
+                socket.close(); // close è stato invocato durante la connessione
+            }
+        } catch(IOException | RuntimeException exc) {
+            socket.close();
+            throw exc instanceof IOException ? (IOException) exc : new IOException("snapshot non valido", exc);
+        }
+    }
+
+    // EFFECTS: riceve e applica i gruppi di eventi del leader, confermandoli, finché la replica non viene chiusa, riconnettendosi
+    //          se la connessione si interrompe
+    private void receive() {
+        while(!this.closed) {
+            try {
+                this.apply();
+            } catch(IOException exc) {
+                if(!this.closed && !this.reconnect(exc)) {
+                    return;
+                }
+            } catch(RuntimeException exc) {
+                // un evento non applicabile o fuori sequenza: la replica non è più allineata al leader
+                if(!this.closed) {
+                    this.failure = exc;
+                    try {
+                        this.socket.close();
+                    } catch(IOException ignored) {}
+                }
+                return;
+            }
+        }
+    }
+
+    // THROWS: IOException se la connessione si interrompe (checked exception),
+    //         IllegalStateException se un evento non è applicabile o è fuori sequenza (unchecked exception)
+    // MODIFIES: this
+    // EFFECTS: riceve e applica i gruppi di eventi del leader dalla connessione attuale, confermandoli
+    private void apply() throws IOException, IllegalStateException {
+        while(true) {
+            int count = this.in.readInt();
+            long latest = this.in.readLong();
+            ReplicationLeader.Record[] batch = new ReplicationLeader.Record[count];
+            for(int i = 0; i < count; i++) {
+                batch[i] = ReplicationLeader.Record.read(this.in);
+            }
+
+            this.lock.writeLock().lock();
+            try {
+                for(ReplicationLeader.Record record : batch) {
+                    if(record.sequence != this.applied + 1) {
+                        throw new IllegalStateException("evento fuori sequenza: " + record.sequence + " dopo " + this.applied);
+                    }
+                    this.network.replay(record);
+                    this.applied = record.sequence;
+                }
+            } finally {
+                this.lock.writeLock().unlock();
+            }
+            this.leaderSequence = latest;
+
+            this.out.writeLong(this.applied); // una sola conferma per gruppo
+            this.out.flush();
+        }
+    }
+
+    // MODIFIES: this
+    // EFFECTS: chiude la connessione interrotta e tenta di riconnettersi al leader, riprendendo dall'ultimo evento applicato;
+    //          restituisce true se ci riesce, altrimenti registra l'ultimo errore (cause se non ci sono stati tentativi) e
+    //          restituisce false
+    private boolean reconnect(IOException cause) {
+        try {
+            this.socket.close();
+        } catch(IOException ignored) {}
+
+        long delay = RECONNECT_DELAY_MILLIS;
+        for(int attempt = 0; attempt < RECONNECT_ATTEMPTS && !this.closed; attempt++) {
+            try {
+                if(attempt > 0) {
+                    Thread.sleep(delay);
+                    delay *= 2;
+                }
+                this.connect(this.applied);
+                this.reconnections++;
+                return true;
+            } catch(IOException exc) {
+                cause = exc;
+            } catch(InterruptedException exc) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        if(!this.closed) {
+            this.failure = cause;
+        }
+        return false;
+    }
+
+    // EFFECTS: legge da in le relazioni di follow scritte da ReplicationLeader
+    private static Map<String, Set<String>> readFollows(DataInputStream in) throws IOException {
+        int users = in.readInt();
+        Map<String, Set<String>> follows = new HashMap<String, Set<String>>();
+        for(int i = 0; i < users; i++) {
+            String user = PostCodec.readString(in);
+            int count = in.readInt();
+            Set<String> following = new HashSet<String>();
+            for(int j = 0; j < count; j++) {
+                following.add(PostCodec.readString(in));
+            }
+            follows.put(user, following);
+        }
+        return follows;
+    }
+
+    // rete in sola lettura, modificata solo dagli eventi del leader
+    private static class Replica extends MicroBlog {
+        public int createPost(String author, String text) {
+            throw new UnsupportedOperationException();
+        }
+
+        public boolean likePost(int postId, String likedByUser) {
+            throw new UnsupportedOperationException();
+        }
+
+        public boolean unlikePost(int postId, String unlikedByUser) {
+            throw new UnsupportedOperationException();
+        }
+
+        public void editPost(int postId, String newText) {
+            throw new UnsupportedOperationException();
+        }
+
+        // THROWS: IllegalStateException se la modifica non è applicabile alla replica (unchecked exception)
+        // MODIFIES: this
+        // EFFECTS: applica alla replica la modifica descritta da record; le relazioni di follow vengono ricavate dai like come
+        //          sul leader, per cui gli eventi di follow hanno effetto solo se la replica le ha ricavate diversamente
+        //          (es. se lo snapshot è stato preso tra un like e il follow che ne deriva)
+        private void replay(ReplicationLeader.Record record) throws IllegalStateException {
+            try {
+                switch(record.type) {
+                    case POST_CREATED:
+                        // l'id è quello assegnato dal leader, che può aver saltato degli id (es. con uno snapshot preso
+                        // mentre un post veniva creato)
+                        super.createPost(record.postId, record.author, record.text, new Timestamp(record.timestamp));
+                        break;
+                    case POST_EDITED:
+                        super.editPost(record.postId, record.text);
+                        break;
+                    case POST_CENSORED:
+                        super.censorPost(record.postId);
+                        break;
+                    case LIKE_ADDED:
+                        super.likePost(record.postId, record.user);
+                        break;
+                    case LIKE_REMOVED:
+                        super.unlikePost(record.postId, record.user);
+                        break;
+                    case FOLLOW_ADDED:
+                    case FOLLOW_REMOVED:
+                        super.setFollowing(record.user, record.author, record.type == MicroBlogEvent.Type.FOLLOW_ADDED);
+                        break;
+                }
+            } catch(LimitExceededException | RuntimeException exc) {
+                throw new IllegalStateException("evento non applicabile: " + record.type + " " + record.postId, exc);
+            }
+        }
+    }
+}
@@ -0,0 +1,410 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.IntFunction;
+import java.util.function.IntSupplier;
+import java.util.function.Supplier;
+
+// lato leader della replicazione di un MicroBlog (vedi MicroBlog.startReplication): registra in ordine gli eventi di tutte le
+// modifiche della rete e li invia ai ReplicationFollower connessi su un socket dell'interfaccia di loopback
+// Protocollo: il follower invia il numero di sequenza dell'ultimo evento applicato (-1 se la sua rete è vuota); il leader
+// risponde con un byte: TAIL se conserva tutti gli eventi successivi, SNAPSHOT seguito dal numero di sequenza, dal prossimo
+// id della rete, dai post (PostCodec.writeList) e dalle relazioni di follow di uno snapshot della rete se il follower è vuoto,
+// o BEHIND se il leader ha già scartato eventi che il follower non ha applicato (il follower chiede allora uno snapshot). Poi il leader invia gruppi di al più BATCH eventi, ciascuno preceduto dal numero di
+// eventi e dal numero di sequenza dell'ultimo evento del leader, e il follower conferma ogni gruppo applicato inviando il
+// numero di sequenza dell'ultimo evento del gruppo.
+// Il leader conserva almeno gli ultimi retained eventi, e tutti quelli non ancora confermati dai follower connessi, così
+// che un follower disconnesso per poco possa riprendere dall'ultimo evento applicato. Un follower con più di maxLag eventi
+// non confermati viene disconnesso, così che non trattenga in memoria un numero illimitato di eventi: si riconnette
+// riprendendo dall'ultimo evento applicato, o con un nuovo snapshot se quegli eventi sono stati scartati.
+public class ReplicationLeader implements MicroBlogIndex, Closeable {
+    // risposte alla richiesta iniziale del follower
+    static final byte TAIL = 0;
+    static final byte SNAPSHOT = 1;
+    static final byte BEHIND = 2;
+
+    // numero massimo di eventi di un gruppo
+    static final int BATCH = 256;
+
+    // valori predefiniti del numero minimo di eventi conservati per i follower che si riconnettono e del numero massimo di
+    // eventi non confermati da un follower prima che venga disconnesso
+    public static final int RETAINED = 1 << 16;
+    public static final int MAX_LAG = 1 << 20;
+
+    private final IntFunction<Post> lookup;
+    private final Supplier<MicroBlogSnapshot> snapshots;
+    private final IntSupplier nextIds;
+    private final ServerSocket server;
+    private final int retained;
+    private final int maxLag;
+
+    // eventi conservati, in un array circolare: l'evento con numero di sequenza trimmed + 1 + i è log[(head + i) % log.length]
+    private Record[] log;
+    private int head;
+    private int size;
+    private long trimmed;
+
+    // connessione di ciascun follower ↦ numero di sequenza dell'ultimo evento confermato
+    private final Map<Socket, Long> acknowledged;
+
+    private boolean closed;
+
+    // ultimo errore nell'accettare le connessioni dei follower o nel preparare i dati da inviare, o null se non ce ne sono stati
+    private volatile Exception failure;
+
+    /*
+        Representation invariant:
+        this.lookup ≠ null ∧ this.snapshots ≠ null ∧ this.nextIds ≠ null ∧ this.server ≠ null ∧ this.log ≠ null ∧ this.acknowledged ≠ null ∧
+        this.retained ≥ 0 ∧ this.maxLag > 0 ∧
+        0 ≤ this.size ≤ this.log.length ∧ this.log.length è una potenza di 2 ∧
+        ∀ 0 ≤ i < this.size . this.log[(this.head + i) % this.log.length].sequence = this.trimmed + 1 + i ∧
+        ∀ (s, a) ∈ this.acknowledged . this.trimmed ≤ a ∧ this.trimmed + this.size - a ≤ this.maxLag
+        Lo stato, esclusi i campi final, è protetto dal lock di this.
+    */
+
+    // REQUIRES: 0 ≤ port ≤ 65535 ∧ lookup ≠ null ∧ snapshots ≠ null ∧ nextIds ≠ null ∧ sequence è il numero di sequenza
+    //           dell'ultimo evento della rete ∧ retained ≥ 0 ∧ maxLag > 0
+    // THROWS: IOException se non è possibile aprire il socket sulla porta richiesta (checked exception)
+    // EFFECTS: crea un leader in ascolto sulla porta port dell'interfaccia di loopback (una porta libera se port = 0), che legge
+    //          i timestamp dei post creati da lookup, apre con snapshots gli snapshot inviati ai follower vuoti e legge da
+    //          nextIds il prossimo id della rete, conservando almeno gli ultimi retained eventi e disconnettendo i follower
+    //          con più di maxLag eventi non confermati; il costruttore non è pubblico perché il leader viene creato e
+    //          registrato da MicroBlog.startReplication
+    ReplicationLeader(int port, IntFunction<Post> lookup, Supplier<MicroBlogSnapshot> snapshots, IntSupplier nextIds, long sequence, int retained, int maxLag) throws IOException {
+        this.lookup = lookup;
+        this.snapshots = snapshots;
+        this.nextIds = nextIds;
+        this.retained = retained;
+        this.maxLag = maxLag;
+        this.server = new ServerSocket(port, 50, InetAddress.getLoopbackAddress());
+        this.log = new Record[1024];
+        this.head = 0;
+        this.size = 0;
+        this.trimmed = sequence;
+        this.acknowledged = new HashMap<Socket, Long>();
+        this.closed = false;
+
+        Thread acceptor = new Thread(this::serve, "ReplicationLeader-" + this.getPort());
+        acceptor.setDaemon(true);
+        acceptor.start();
+    }
+
+    // EFFECTS: restituisce la porta su cui il leader è in ascolto
+    public int getPort() {
+        return this.server.getLocalPort();
+    }
+
+    public void apply(MicroBlogEvent event) {
+        // il timestamp dei post va letto ora, nel thread che modifica la rete, perché l'evento non lo contiene
+        long timestamp = event.getType() == MicroBlogEvent.Type.POST_CREATED ? this.lookup.apply(event.getPostId()).getTimestamp().getTime() : 0;
+        Record record = new Record(event, timestamp);
+
+        synchronized(this) {
+            if(this.closed) {
+                return;
+            }
+            if(this.size == this.log.length) {
+                Record[] log = new Record[this.log.length * 2];
+                for(int i = 0; i < this.size; i++) {
+                    log[i] = this.record(i);
+                }
+                this.log = log;
+                this.head = 0;
+            }
+            this.log[(this.head + this.size) & (this.log.length - 1)] = record;
+            this.size++;
+            this.trim();
+            this.notifyAll(); // sveglio i thread che inviano gli eventi ai follower
+        }
+    }
+
+    // EFFECTS: restituisce il numero di sequenza dell'ultimo evento registrato
+    public synchronized long getSequence() {
+        return this.trimmed + this.size;
+    }
+
+    // EFFECTS: restituisce il numero di follower connessi
+    public synchronized int getNumberOfFollowers() {
+        return this.acknowledged.size();
+    }
+
+    // EFFECTS: restituisce il massimo ritardo, in numero di eventi non ancora confermati, tra i follower connessi (0 se non
+    //          ce ne sono)
+    public synchronized long getMaxLag() {
+        long lag = 0;
+        for(long acknowledged : this.acknowledged.values()) {
+            lag = Math.max(lag, this.trimmed + this.size - acknowledged);
+        }
+        return lag;
+    }
+
+    // EFFECTS: restituisce l'ultimo errore nell'accettare le connessioni dei follower o nel preparare lo snapshot da inviare a
+    //          un follower, o null se non ce ne sono stati
+    public Exception getFailure() {
+        return this.failure;
+    }
+
+    // MODIFIES: this
+    // EFFECTS: chiude le connessioni con i follower, che si riconnettono riprendendo dall'ultimo evento applicato; serve ai
+    //          test della riconnessione
+    synchronized void disconnectFollowers() {
+        for(Socket socket : this.acknowledged.keySet()) {
+            try {
+                socket.close();
+            } catch(IOException ignored) {}
+        }
+        this.acknowledged.clear();
+        this.notifyAll();
+    }
+
+    // MODIFIES: this
+    // EFFECTS: chiude il socket e le connessioni con i follower; gli eventi successivi non vengono più registrati
+    public void close() throws IOException {
+        synchronized(this) {
+            this.closed = true;
+            for(Socket socket : this.acknowledged.keySet()) {
+                socket.close();
+            }
+            this.log = new Record[1];
+            this.size = 0;
+            this.notifyAll();
+        }
+        this.server.close();
+    }
+
+    // EFFECTS: accetta connessioni finché il leader non viene chiuso, servendo ciascun follower su un thread dedicato
+    private void serve() {
+        while(!this.server.isClosed()) {
+            try {
+                Socket socket = this.server.accept();
+                Thread sender = new Thread(() -> this.handle(socket), "ReplicationLeader-" + socket.getPort());
+                sender.setDaemon(true);
+                sender.start();
+            } catch(IOException exc) {
+                if(!this.server.isClosed()) {
+                    this.failure = exc; // il leader continua ad accettare connessioni, l'errore è esposto da getFailure
+                }
+            }
+        }
+    }
+
+    // EFFECTS: porta il follower connesso a socket allo stato attuale e gli invia gli eventi successivi finché la connessione
+    //          non viene chiusa
+    private void handle(Socket socket) {
+        try(Socket s = socket) {
+            s.setTcpNoDelay(true);
+            DataInputStream in = new DataInputStream(new BufferedInputStream(s.getInputStream()));
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(s.getOutputStream()));
+
+            long position = in.readLong();
+            MicroBlogSnapshot snapshot = null;
+            int nextId = 0;
+            synchronized(this) {
+                if(this.closed) {
+                    return;
+                }
+                if(position < 0) {
+                    // con il lock di this nessun evento successivo allo snapshot può essere scartato prima che il follower
+                    // sia registrato
+                    snapshot = this.snapshots.get();
+                    position = snapshot.getSequence();
+                    // letto dopo lo snapshot, è maggiore degli id dei suoi post; i post creati nel frattempo arrivano con i
+                    // propri eventi e il loro id
+                    nextId = this.nextIds.getAsInt();
+                } else if(position < this.trimmed || position > this.trimmed + this.size || this.trimmed + this.size - position > this.maxLag) {
+                    // oltre maxLag il follower verrebbe subito disconnesso di nuovo
+                    out.writeByte(BEHIND);
+                    out.flush();
+                    return;
+                }
+                this.acknowledged.put(s, position);
+            }
+
+            try {
+                if(snapshot != null) {
+                    out.writeByte(SNAPSHOT);
+                    out.writeLong(position);
+                    out.writeInt(nextId);
+                    PostCodec.writeList(out, snapshot.getAllPosts());
+                    ReplicationLeader.writeFollows(out, snapshot.getFollowRelations());
+                    snapshot.close();
+                    snapshot = null;
+                } else {
+                    out.writeByte(TAIL);
+                }
+                out.flush();
+
+                Thread acknowledger = new Thread(() -> this.acknowledge(s, in), "ReplicationLeader-ack-" + s.getPort());
+                acknowledger.setDaemon(true);
+                acknowledger.start();
+
+                Record[] batch = new Record[BATCH];
+                while(true) {
+                    int count;
+                    long latest;
+                    synchronized(this) {
+                        while(!this.closed && !s.isClosed() && this.trimmed + this.size <= position) {
+                            this.wait();
+                        }
+                        if(this.closed || s.isClosed()) {
+                            return;
+                        }
+                        latest = this.trimmed + this.size;
+                        count = (int) Math.min(BATCH, latest - position);
+                        int first = (int) (position - this.trimmed); // gli eventi non confermati non vengono scartati
+                        for(int i = 0; i < count; i++) {
+                            batch[i] = this.record(first + i);
+                        }
+                    }
+
+                    out.writeInt(count);
+                    out.writeLong(latest);
+                    for(int i = 0; i < count; i++) {
+                        batch[i].write(out);
+                    }
+                    out.flush();
+                    position += count;
+                }
+            } finally {
+                if(snapshot != null) {
+                    snapshot.close();
+                }
+                synchronized(this) {
+                    this.acknowledged.remove(s);
+                    this.trim();
+                }
+            }
+        } catch(IOException exc) {
+            // il follower si è disconnesso
+        } catch(RuntimeException exc) {
+            this.failure = exc; // es. dallo snapshot; la connessione viene chiusa e il follower si riconnette
+        } catch(InterruptedException exc) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // EFFECTS: registra le conferme ricevute da in finché la connessione socket non viene chiusa, poi la chiude
+    private void acknowledge(Socket socket, DataInputStream in) {
+        try {
+            while(true) {
+                long sequence = in.readLong();
+                synchronized(this) {
+                    this.acknowledged.computeIfPresent(socket, (k, v) -> Math.max(v, sequence));
+                    this.trim();
+                }
+            }
+        } catch(IOException exc) {
+            try {
+                socket.close();
+            } catch(IOException ignored) {}
+            synchronized(this) {
+                this.notifyAll(); // il thread che invia gli eventi a questo follower termina
+            }
+        }
+    }
+
+    // MODIFIES: this
+    // EFFECTS: disconnette i follower con più di maxLag eventi non confermati, poi scarta gli eventi più vecchi oltre i retained
+    //          più recenti che tutti i follower ancora connessi hanno confermato
+    private void trim() {
+        long latest = this.trimmed + this.size;
+        long horizon = Long.MAX_VALUE;
+        Iterator<Map.Entry<Socket, Long>> followers = this.acknowledged.entrySet().iterator();
+        while(followers.hasNext()) {
+            Map.Entry<Socket, Long> follower = followers.next();
+            if(latest - follower.getValue() > this.maxLag) {
+                // il thread che invia gli eventi a questo follower termina appena trova il socket chiuso
+                try {
+                    follower.getKey().close();
+                } catch(IOException ignored) {}
+                followers.remove();
+            } else {
+                horizon = Math.min(horizon, follower.getValue());
+            }
+        }
+        while(this.size > this.retained && this.trimmed < horizon) {
+            this.log[this.head] = null;
+            this.head = (this.head + 1) & (this.log.length - 1);
+            this.size--;
+            this.trimmed++;
+        }
+    }
+
+    // EFFECTS: restituisce l'i-esimo evento conservato
+    private Record record(int i) {
+        return this.log[(this.head + i) & (this.log.length - 1)];
+    }
+
+    // EFFECTS: scrive su out le relazioni di follow follows, nel formato letto da ReplicationFollower
+    private static void writeFollows(DataOutputStream out, Map<String, Set<String>> follows) throws IOException {
+        out.writeInt(follows.size());
+        for(Map.Entry<String, Set<String>> entry : follows.entrySet()) {
+            PostCodec.writeString(out, entry.getKey());
+            out.writeInt(entry.getValue().size());
+            for(String followed : entry.getValue()) {
+                PostCodec.writeString(out, followed);
+            }
+        }
+    }
+
+    // evento registrato, con il timestamp del post per gli eventi POST_CREATED
+    static class Record {
+        final long sequence;
+        final MicroBlogEvent.Type type;
+        final int postId;
+        final String author;
+        final String user;
+        final String text;
+        final long timestamp;
+
+        Record(MicroBlogEvent event, long timestamp) {
+            this(event.getSequence(), event.getType(), event.getPostId(), event.getAuthor(), event.getUser(), event.getText(), timestamp);
+        }
+
+        Record(long sequence, MicroBlogEvent.Type type, int postId, String author, String user, String text, long timestamp) {
+            this.sequence = sequence;
+            this.type = type;
+            this.postId = postId;
+            this.author = author;
+            this.user = user;
+            this.text = text;
+            this.timestamp = timestamp;
+        }
+
+        // EFFECTS: scrive su out l'evento, nel formato letto da read()
+        void write(DataOutputStream out) throws IOException {
+            out.writeLong(this.sequence);
+            out.writeByte(this.type.ordinal());
+            out.writeInt(this.postId);
+            PostCodec.writeString(out, this.author);
+            PostCodec.writeString(out, this.user == null ? "" : this.user); // i nomi utente non sono mai vuoti
+            PostCodec.writeString(out, this.text == null ? "" : this.text); // i testi dei post non sono mai vuoti
+            out.writeLong(this.timestamp);
+        }
+
+        // EFFECTS: legge da in un evento scritto da write()
+        static Record read(DataInputStream in) throws IOException {
+            long sequence = in.readLong();
+            int type = in.readByte();
+            if(type < 0 || type >= MicroBlogEvent.Type.values().length) {
+                throw new IOException("tipo di evento non valido: " + type);
+            }
+            int postId = in.readInt();
+            String author = PostCodec.readString(in);
+            String user = PostCodec.readString(in);
+            String text = PostCodec.readString(in);
+            long timestamp = in.readLong();
+            return new Record(sequence, MicroBlogEvent.Type.values()[type], postId, author, user.isEmpty() ? null : user, text.isEmpty() ? null : text, timestamp);
+        }
+    }
+}
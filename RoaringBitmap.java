@@ -0,0 +1,486 @@
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+// insieme compresso di interi non negativi (tipicamente id densi di utenti, vedi UserDictionary), organizzato come un
+// "roaring bitmap": gli interi sono divisi in blocchi di 2^16 valori con gli stessi 16 bit alti, e ogni blocco non vuoto è
+// memorizzato in un contenitore scelto in base al numero di elementi
+// Un blocco con al più ARRAY_MAX elementi è un array ordinato dei 16 bit bassi (2 byte per elemento), uno più denso è una
+// bitmap di 2^16 bit (8 KB); la forma cambia automaticamente in entrambe le direzioni. Unione, intersezione e cardinalità
+// dell'intersezione lavorano contenitore per contenitore: tra due bitmap procedono 64 elementi alla volta, tra due array
+// per fusione, tra un array e una bitmap consultando la bitmap per ciascun elemento dell'array.
+public class RoaringBitmap {
+    // numero massimo di elementi di un contenitore in forma di array: oltre questa soglia la bitmap occupa meno spazio
+    private static final int ARRAY_MAX = 4096;
+
+    // 16 bit alti dei blocchi non vuoti, in ordine crescente, nelle prime size posizioni
+    private char[] keys;
+    private Container[] containers;
+    private int size;
+
+    /*
+        Abstraction function:
+        AF(c) = { c.keys[i] << 16 | v | 0 ≤ i < c.size ∧ v ∈ c.containers[i] }
+
+        Representation invariant:
+        this.keys ≠ null ∧ this.containers ≠ null ∧ this.keys.length = this.containers.length ∧ 0 ≤ this.size ≤ this.keys.length ∧
+        this.keys[0..size) è strettamente crescente ∧
+        ∀ i < this.size . this.containers[i] ≠ null ∧ this.containers[i].cardinality > 0 ∧
+            (this.containers[i] è un ArrayContainer ⟺ this.containers[i].cardinality ≤ ARRAY_MAX)
+    */
+
+    // EFFECTS: crea un insieme vuoto
+    public RoaringBitmap() {
+        this.keys = new char[4];
+        this.containers = new Container[4];
+        this.size = 0;
+    }
+
+    // REQUIRES: ∀ v ∈ values . v ≥ 0
+    // THROWS: IllegalArgumentException se ∃ v ∈ values . v < 0 (unchecked exception)
+    // EFFECTS: restituisce un nuovo insieme contenente values
+    public static RoaringBitmap of(int... values) throws IllegalArgumentException {
+        RoaringBitmap bitmap = new RoaringBitmap();
+        for(int value : values) {
+            bitmap.add(value);
+        }
+        return bitmap;
+    }
+
+    // REQUIRES: value ≥ 0
+    // THROWS: IllegalArgumentException se value < 0 (unchecked exception)
+    // MODIFIES: this
+    // EFFECTS: aggiunge value all'insieme e restituisce true se non era già presente
+    public boolean add(int value) throws IllegalArgumentException {
+        if(value < 0) {
+            throw new IllegalArgumentException();
+        }
+
+        char key = (char) (value >>> 16);
+        int position = Arrays.binarySearch(this.keys, 0, this.size, key);
+        if(position < 0) {
+            position = -position - 1;
+            this.insert(position, key, new ArrayContainer());
+        }
+        Container container = this.containers[position];
+        int before = container.cardinality;
+        this.containers[position] = container.add((char) value);
+        return this.containers[position].cardinality > before;
+    }
+
+    // MODIFIES: this
+    // EFFECTS: rimuove value dall'insieme e restituisce true se era presente
+    public boolean remove(int value) {
+        if(value < 0) {
+            return false;
+        }
+
+        int position = Arrays.binarySearch(this.keys, 0, this.size, (char) (value >>> 16));
+        if(position < 0) {
+            return false;
+        }
+        Container container = this.containers[position];
+        int before = container.cardinality;
+        container = container.remove((char) value);
+        if(container.cardinality == 0) {
+            System.arraycopy(this.keys, position + 1, this.keys, position, this.size - position - 1);
+            System.arraycopy(this.containers, position + 1, this.containers, position, this.size - position - 1);
+            this.containers[--(this.size)] = null;
+        } else {
+            this.containers[position] = container;
+        }
+        return container.cardinality < before;
+    }
+
+    // EFFECTS: restituisce true se e solo se value appartiene all'insieme
+    public boolean contains(int value) {
+        if(value < 0) {
+            return false;
+        }
+
+        int position = Arrays.binarySearch(this.keys, 0, this.size, (char) (value >>> 16));
+        return position >= 0 && this.containers[position].contains((char) value);
+    }
+
+    // EFFECTS: restituisce il numero di elementi dell'insieme
+    public int getCardinality() {
+        int cardinality = 0;
+        for(int i = 0; i < this.size; i++) {
+            cardinality += this.containers[i].cardinality;
+        }
+        return cardinality;
+    }
+
+    // EFFECTS: restituisce true se e solo se l'insieme è vuoto
+    public boolean isEmpty() {
+        return this.size == 0;
+    }
+
+    // REQUIRES: other ≠ null
+    // THROWS: NullPointerException se other è null (unchecked exception)
+    // EFFECTS: restituisce un nuovo insieme, intersezione di this e other
+    public RoaringBitmap and(RoaringBitmap other) throws NullPointerException {
+        RoaringBitmap result = new RoaringBitmap();
+        int i = 0, j = 0;
+        while(i < this.size && j < other.size) {
+            if(this.keys[i] < other.keys[j]) {
+                i++;
+            } else if(this.keys[i] > other.keys[j]) {
+                j++;
+            } else {
+                Container container = this.containers[i].and(other.containers[j]);
+                if(container.cardinality > 0) {
+                    result.insert(result.size, this.keys[i], container);
+                }
+                i++;
+                j++;
+            }
+        }
+        return result;
+    }
+
+    // REQUIRES: other ≠ null
+    // THROWS: NullPointerException se other è null (unchecked exception)
+    // EFFECTS: restituisce il numero di elementi dell'intersezione di this e other, senza costruirla
+    public int andCardinality(RoaringBitmap other) throws NullPointerException {
+        int cardinality = 0;
+        int i = 0, j = 0;
+        while(i < this.size && j < other.size) {
+            if(this.keys[i] < other.keys[j]) {
+                i++;
+            } else if(this.keys[i] > other.keys[j]) {
+                j++;
+            } else {
+                cardinality += this.containers[i].andCardinality(other.containers[j]);
+                i++;
+                j++;
+            }
+        }
+        return cardinality;
+    }
+
+    // REQUIRES: other ≠ null
+    // THROWS: NullPointerException se other è null (unchecked exception)
+    // EFFECTS: restituisce un nuovo insieme, unione di this e other
+    public RoaringBitmap or(RoaringBitmap other) throws NullPointerException {
+        RoaringBitmap result = new RoaringBitmap();
+        int i = 0, j = 0;
+        while(i < this.size || j < other.size) {
+            if(j == other.size || (i < this.size && this.keys[i] < other.keys[j])) {
+                result.insert(result.size, this.keys[i], this.containers[i].copy());
+                i++;
+            } else if(i == this.size || this.keys[i] > other.keys[j]) {
+                result.insert(result.size, other.keys[j], other.containers[j].copy());
+                j++;
+            } else {
+                result.insert(result.size, this.keys[i], this.containers[i].or(other.containers[j]));
+                i++;
+                j++;
+            }
+        }
+        return result;
+    }
+
+    // REQUIRES: action ≠ null
+    // THROWS: NullPointerException se action è null (unchecked exception)
+    // EFFECTS: esegue action su ciascun elemento dell'insieme, in ordine crescente
+    public void forEach(IntConsumer action) throws NullPointerException {
+        for(int i = 0; i < this.size; i++) {
+            this.containers[i].forEach(this.keys[i] << 16, action);
+        }
+    }
+
+    // EFFECTS: restituisce gli elementi dell'insieme in ordine crescente
+    public int[] toArray() {
+        int[] values = new int[this.getCardinality()];
+        int[] next = { 0 };
+        this.forEach(value -> values[(next[0])++] = value);
+        return values;
+    }
+
+    // MODIFIES: this
+    // EFFECTS: inserisce il contenitore container con chiave key nella posizione position
+    private void insert(int position, char key, Container container) {
+        if(this.size == this.keys.length) {
+            this.keys = Arrays.copyOf(this.keys, this.size * 2);
+            this.containers = Arrays.copyOf(this.containers, this.size * 2);
+        }
+        System.arraycopy(this.keys, position, this.keys, position + 1, this.size - position);
+        System.arraycopy(this.containers, position, this.containers, position + 1, this.size - position);
+        this.keys[position] = key;
+        this.containers[position] = container;
+        this.size++;
+    }
+
+    // insieme dei 16 bit bassi degli elementi di un blocco; le operazioni che cambiano la cardinalità restituiscono il
+    // contenitore da usare al posto di this, che può essere di forma diversa
+    private abstract static class Container {
+        protected int cardinality;
+
+        abstract Container add(char value);
+        abstract Container remove(char value);
+        abstract boolean contains(char value);
+        abstract Container and(Container other);
+        abstract int andCardinality(Container other);
+        abstract Container or(Container other);
+        abstract Container copy();
+        abstract void forEach(int high, IntConsumer action);
+    }
+
+    // blocco sparso: array ordinato dei valori
+    private static final class ArrayContainer extends Container {
+        private char[] values;
+
+        ArrayContainer() {
+            this(new char[4], 0);
+        }
+
+        ArrayContainer(char[] values, int cardinality) {
+            this.values = values;
+            this.cardinality = cardinality;
+        }
+
+        Container add(char value) {
+            int position = Arrays.binarySearch(this.values, 0, this.cardinality, value);
+            if(position >= 0) {
+                return this;
+            }
+            if(this.cardinality == ARRAY_MAX) { // il blocco diventa denso
+                return this.toBitmap().add(value);
+            }
+
+            position = -position - 1;
+            if(this.cardinality == this.values.length) {
+                this.values = Arrays.copyOf(this.values, Math.min(ARRAY_MAX, this.cardinality * 2));
+            }
+            System.arraycopy(this.values, position, this.values, position + 1, this.cardinality - position);
+            this.values[position] = value;
+            this.cardinality++;
+            return this;
+        }
+
+        Container remove(char value) {
+            int position = Arrays.binarySearch(this.values, 0, this.cardinality, value);
+            if(position >= 0) {
+                System.arraycopy(this.values, position + 1, this.values, position, this.cardinality - position - 1);
+                this.cardinality--;
+            }
+            return this;
+        }
+
+        boolean contains(char value) {
+            return Arrays.binarySearch(this.values, 0, this.cardinality, value) >= 0;
+        }
+
+        Container and(Container other) {
+            char[] result = new char[Math.min(this.cardinality, other.cardinality)];
+            int count = 0;
+            if(other instanceof BitmapContainer) {
+                for(int i = 0; i < this.cardinality; i++) {
+                    if(other.contains(this.values[i])) {
+                        result[count++] = this.values[i];
+                    }
+                }
+            } else {
+                ArrayContainer array = (ArrayContainer) other;
+                for(int i = 0, j = 0; i < this.cardinality && j < array.cardinality; ) {
+                    if(this.values[i] < array.values[j]) {
+                        i++;
+                    } else if(this.values[i] > array.values[j]) {
+                        j++;
+                    } else {
+                        result[count++] = this.values[i];
+                        i++;
+                        j++;
+                    }
+                }
+            }
+            return new ArrayContainer(result, count);
+        }
+
+        int andCardinality(Container other) {
+            int count = 0;
+            if(other instanceof BitmapContainer) {
+                for(int i = 0; i < this.cardinality; i++) {
+                    if(other.contains(this.values[i])) {
+                        count++;
+                    }
+                }
+                return count;
+            }
+
+            ArrayContainer array = (ArrayContainer) other;
+            for(int i = 0, j = 0; i < this.cardinality && j < array.cardinality; ) {
+                if(this.values[i] < array.values[j]) {
+                    i++;
+                } else if(this.values[i] > array.values[j]) {
+                    j++;
+                } else {
+                    count++;
+                    i++;
+                    j++;
+                }
+            }
+            return count;
+        }
+
+        Container or(Container other) {
+            if(other instanceof BitmapContainer) {
+                return other.or(this);
+            }
+
+            ArrayContainer array = (ArrayContainer) other;
+            if(this.cardinality + array.cardinality > ARRAY_MAX) {
+                return this.toBitmap().or(array);
+            }
+            char[] result = new char[this.cardinality + array.cardinality];
+            int count = 0;
+            int i = 0, j = 0;
+            while(i < this.cardinality || j < array.cardinality) {
+                if(j == array.cardinality || (i < this.cardinality && this.values[i] < array.values[j])) {
+                    result[count++] = this.values[i++];
+                } else if(i == this.cardinality || this.values[i] > array.values[j]) {
+                    result[count++] = array.values[j++];
+                } else {
+                    result[count++] = this.values[i++];
+                    j++;
+                }
+            }
+            return new ArrayContainer(result, count);
+        }
+
+        Container copy() {
+            return new ArrayContainer(Arrays.copyOf(this.values, Math.max(4, this.cardinality)), this.cardinality);
+        }
+
+        void forEach(int high, IntConsumer action) {
+            for(int i = 0; i < this.cardinality; i++) {
+                action.accept(high | this.values[i]);
+            }
+        }
+
+        // EFFECTS: restituisce un BitmapContainer con gli stessi valori
+        BitmapContainer toBitmap() {
+            BitmapContainer bitmap = new BitmapContainer();
+            for(int i = 0; i < this.cardinality; i++) {
+                bitmap.words[this.values[i] >>> 6] |= 1L << this.values[i];
+            }
+            bitmap.cardinality = this.cardinality;
+            return bitmap;
+        }
+    }
+
+    // blocco denso: un bit per ciascuno dei 2^16 valori
+    private static final class BitmapContainer extends Container {
+        private final long[] words;
+
+        BitmapContainer() {
+            this.words = new long[1 << 10];
+            this.cardinality = 0;
+        }
+
+        Container add(char value) {
+            long bit = 1L << value;
+            if((this.words[value >>> 6] & bit) == 0) {
+                this.words[value >>> 6] |= bit;
+                this.cardinality++;
+            }
+            return this;
+        }
+
+        Container remove(char value) {
+            long bit = 1L << value;
+            if((this.words[value >>> 6] & bit) != 0) {
+                this.words[value >>> 6] &= ~bit;
+                this.cardinality--;
+                if(this.cardinality <= ARRAY_MAX) { // il blocco torna sparso
+                    return this.toArray();
+                }
+            }
+            return this;
+        }
+
+        boolean contains(char value) {
+            return (this.words[value >>> 6] & (1L << value)) != 0;
+        }
+
+        Container and(Container other) {
+            if(other instanceof ArrayContainer) {
+                return other.and(this);
+            }
+
+            BitmapContainer bitmap = (BitmapContainer) other;
+            BitmapContainer result = new BitmapContainer();
+            int cardinality = 0;
+            for(int i = 0; i < this.words.length; i++) {
+                result.words[i] = this.words[i] & bitmap.words[i];
+                cardinality += Long.bitCount(result.words[i]);
+            }
+            result.cardinality = cardinality;
+            return cardinality <= ARRAY_MAX ? result.toArray() : result;
+        }
+
+        int andCardinality(Container other) {
+            if(other instanceof ArrayContainer) {
+                return other.andCardinality(this);
+            }
+
+            BitmapContainer bitmap = (BitmapContainer) other;
+            int cardinality = 0;
+            for(int i = 0; i < this.words.length; i++) {
+                cardinality += Long.bitCount(this.words[i] & bitmap.words[i]);
+            }
+            return cardinality;
+        }
+
+        Container or(Container other) {
+            BitmapContainer result = (BitmapContainer) this.copy();
+            if(other instanceof ArrayContainer) {
+                ArrayContainer array = (ArrayContainer) other;
+                for(int i = 0; i < array.cardinality; i++) {
+                    result.add(array.values[i]);
+                }
+                return result.cardinality <= ARRAY_MAX ? result.toArray() : result;
+            }
+
+            BitmapContainer bitmap = (BitmapContainer) other;
+            int cardinality = 0;
+            for(int i = 0; i < result.words.length; i++) {
+                result.words[i] |= bitmap.words[i];
+                cardinality += Long.bitCount(result.words[i]);
+            }
+            result.cardinality = cardinality;
+            return cardinality <= ARRAY_MAX ? result.toArray() : result;
+        }
+
+        Container copy() {
+            BitmapContainer copy = new BitmapContainer();
+            System.arraycopy(this.words, 0, copy.words, 0, this.words.length);
+            copy.cardinality = this.cardinality;
+            return copy;
+        }
+
+        void forEach(int high, IntConsumer action) {
+            for(int i = 0; i < this.words.length; i++) {
+                long word = this.words[i];
+                while(word != 0) {
+                    action.accept(high | (i << 6) | Long.numberOfTrailingZeros(word));
+                    word &= word - 1;
+                }
+            }
+        }
+
+        // EFFECTS: restituisce un ArrayContainer con gli stessi valori
+        ArrayContainer toArray() {
+            char[] values = new char[Math.max(4, this.cardinality)];
+            int count = 0;
+            for(int i = 0; i < this.words.length; i++) {
+                long word = this.words[i];
+                while(word != 0) {
+                    values[count++] = (char) ((i << 6) | Long.numberOfTrailingZeros(word));
+                    word &= word - 1;
+                }
+            }
+            return new ArrayContainer(values, count);
+        }
+    }
+}
@@ -0,0 +1,94 @@
+import java.util.List;
+import java.util.Set;
+
+// indice di ricerca di un MicroBlog: due WordTrie che associano a ogni nome utente gli id dei post che ha scritto e a ogni
+// parola (in minuscolo) gli id dei post che la contengono, aggiornati a ogni creazione, modifica o censura di un post
+public class SearchIndex implements MicroBlogIndex {
+    private final WordTrie users;
+    private final WordTrie words;
+
+    /*
+        Representation invariant:
+        this.users ≠ null ∧ this.words ≠ null ∧
+        ∀ (u, ids) ∈ this.users . ∀ id ∈ ids . il post con id id è stato scritto da u ∧
+        ∀ (w, ids) ∈ this.words . ∀ id ∈ ids . w ∈ SearchIndex.words(testo del post con id id)
+    */
+
+    public SearchIndex() {
+        this.users = new WordTrie();
+        this.words = new WordTrie();
+    }
+
+    public void apply(MicroBlogEvent event) {
+        switch(event.getType()) {
+            case POST_CREATED:
+                this.users.add(event.getAuthor(), event.getPostId());
+                for(String word : SearchIndex.words(event.getText())) {
+                    this.words.add(word, event.getPostId());
+                }
+                break;
+            case POST_EDITED:
+            case POST_CENSORED:
+                Set<String> before = SearchIndex.words(event.getPreviousText());
+                Set<String> after = SearchIndex.words(event.getText());
+                for(String word : before) {
+                    if(!after.contains(word)) {
+                        this.words.remove(word, event.getPostId());
+                    }
+                }
+                for(String word : after) {
+                    if(!before.contains(word)) {
+                        this.words.add(word, event.getPostId());
+                    }
+                }
+                break;
+            default: // like e follow non modificano l'indice
+        }
+    }
+
+    // EFFECTS: restituisce il trie dei nomi utente (autori di almeno un post)
+    public WordTrie getUsers() {
+        return this.users;
+    }
+
+    // EFFECTS: restituisce il trie delle parole contenute nei post
+    public WordTrie getWords() {
+        return this.words;
+    }
+
+    // REQUIRES: prefix ≠ null ∧ limit ≥ 0
+    // THROWS: come WordTrie.keysWithPrefix()
+    // EFFECTS: restituisce al più limit nomi utente che iniziano con prefix, in ordine lessicografico
+    public List<String> completeUsername(String prefix, int limit) throws NullPointerException, IllegalArgumentException {
+        return this.users.keysWithPrefix(prefix, limit);
+    }
+
+    // REQUIRES: username ≠ null ∧ maxDistance ≥ 0 ∧ limit ≥ 0
+    // THROWS: come WordTrie.keysWithin()
+    // EFFECTS: restituisce al più limit nomi utente a distanza di edit al più maxDistance da username, dal più simile
+    public List<String> similarUsernames(String username, int maxDistance, int limit) throws NullPointerException, IllegalArgumentException {
+        return this.users.keysWithin(username, maxDistance, limit);
+    }
+
+    // REQUIRES: prefix ≠ null ∧ limit ≥ 0
+    // THROWS: come WordTrie.keysWithPrefix()
+    // EFFECTS: restituisce al più limit parole dei post (in minuscolo) che iniziano con prefix, ignorando maiuscole e minuscole
+    public List<String> completeWord(String prefix, int limit) throws NullPointerException, IllegalArgumentException {
+        return this.words.keysWithPrefix(WordTokenizer.fold(prefix), limit);
+    }
+
+    // REQUIRES: word ≠ null ∧ maxDistance ≥ 0 ∧ limit ≥ 0
+    // THROWS: come WordTrie.keysWithin()
+    // EFFECTS: restituisce al più limit parole dei post (in minuscolo) a distanza di edit al più maxDistance da word,
+    //          ignorando maiuscole e minuscole, dalla più simile
+    public List<String> similarWords(String word, int maxDistance, int limit) throws NullPointerException, IllegalArgumentException {
+        return this.words.keysWithin(WordTokenizer.fold(word), maxDistance, limit);
+    }
+
+    // REQUIRES: text ≠ null
+    // EFFECTS: restituisce l'insieme delle parole (sequenze massimali di lettere, cifre e '_', in minuscolo) contenute in text,
+    //          secondo WordTokenizer
+    public static Set<String> words(String text) {
+        return WordTokenizer.words(text);
+    }
+}
@@ -0,0 +1,272 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+// livello "freddo" di un MicroBlog: i post spostati fuori dalla memoria vengono scritti in segmenti immutabili (PostSegment)
+// all'interno di una directory, e riletti da disco tramite memory-mapping quando servono
+// Poiché i segmenti non vengono mai modificati, un post riportato in memoria (es. perché ha ricevuto un like) viene solo
+// marcato come rimosso; se in seguito viene spostato di nuovo, la copia aggiornata finisce in un segmento più recente, che
+// ha la precedenza sui precedenti. I segmenti in cui meno della metà dei post è ancora valida vengono compattati.
+// I segmenti hanno senso solo insieme allo stato in memoria della rete che li ha scritti: close() elimina i file.
+public class SegmentStore implements Closeable {
+    private final Path directory;
+
+    // segmenti dal meno al più recente
+    private final List<PostSegment> segments;
+
+    // segmento ↦ numero di post del segmento di cui è la copia valida
+    private final Map<PostSegment, Integer> live;
+
+    // id dei post riportati in memoria dopo essere stati scritti su disco
+    private final BitSet removed;
+
+    private int size;
+    private int nextSegment;
+
+    /*
+        Representation invariant:
+        this.directory ≠ null ∧ this.segments ≠ null ∧ this.live ≠ null ∧ this.removed ≠ null ∧
+        this.live.keySet() = this.segments ∧
+        la copia valida di un id non rimosso è quella nel segmento più recente che lo contiene ∧
+        this.size = #{id | ∃ s ∈ this.segments . id ∈ s ∧ ¬this.removed.get(id)} = Σ this.live.values()
+    */
+
+    // REQUIRES: directory ≠ null
+    // THROWS: NullPointerException se directory è null (unchecked exception),
+    //         IOException se la directory non esiste e non può essere creata (checked exception)
+    // EFFECTS: crea un livello freddo vuoto che scrive i propri segmenti nella directory directory
+    public SegmentStore(Path directory) throws NullPointerException, IOException {
+        if(directory == null) {
+            throw new NullPointerException();
+        }
+
+        this.directory = Files.createDirectories(directory);
+        this.segments = new ArrayList<PostSegment>();
+        this.live = new HashMap<PostSegment, Integer>();
+        this.removed = new BitSet();
+        this.size = 0;
+        this.nextSegment = 0;
+    }
+
+    // EFFECTS: restituisce il numero di post memorizzati
+    public int size() {
+        return this.size;
+    }
+
+    // EFFECTS: restituisce il numero di segmenti su disco
+    public int getNumberOfSegments() {
+        return this.segments.size();
+    }
+
+    // EFFECTS: restituisce true se e solo se il post con id id è memorizzato
+    public boolean contains(int id) {
+        return this.locate(id) != null;
+    }
+
+    // EFFECTS: restituisce una nuova copia del post con id id letta da disco, o null se il post non è memorizzato
+    public Post get(int id) {
+        PostSegment segment = this.locate(id);
+        return segment == null ? null : segment.get(id);
+    }
+
+    // REQUIRES: posts ≠ null ∧ (∀ p ∈ posts . p ≠ null ∧ ¬this.contains(p.getId())) ∧ gli id di posts sono strettamente crescenti
+    // THROWS: NullPointerException se posts è null ∨ (∃ p ∈ posts . p è null) (unchecked exception),
+    //         IllegalArgumentException se gli id di posts non sono strettamente crescenti (unchecked exception),
+    //         IOException se la scrittura del segmento fallisce (checked exception)
+    // MODIFIES: this
+    // EFFECTS: scrive posts in un nuovo segmento
+    public void append(List<Post> posts) throws NullPointerException, IllegalArgumentException, IOException {
+        if(posts == null) {
+            throw new NullPointerException();
+        }
+        if(posts.isEmpty()) {
+            return;
+        }
+
+        PostSegment segment = PostSegment.write(this.nextFile(), posts);
+        this.segments.add(segment);
+        this.live.put(segment, posts.size());
+        for(Post post : posts) {
+            this.removed.clear(post.getId());
+        }
+        this.size += posts.size();
+    }
+
+    // MODIFIES: this
+    // EFFECTS: se il post con id id è memorizzato, lo rimuove e ne restituisce una copia, altrimenti restituisce null
+    public Post remove(int id) {
+        PostSegment segment = this.locate(id);
+        if(segment == null) {
+            return null;
+        }
+
+        Post post = segment.get(id);
+        this.removed.set(id);
+        this.live.merge(segment, -1, Integer::sum);
+        this.size--;
+        return post;
+    }
+
+    // REQUIRES: action ≠ null
+    // THROWS: NullPointerException se action è null (unchecked exception)
+    // EFFECTS: esegue action su una nuova copia di ciascun post memorizzato, in ordine non specificato
+    public void forEach(Consumer<Post> action) throws NullPointerException {
+        this.forEachIndex((segment, index) -> action.accept(segment.getAt(index)));
+    }
+
+    // REQUIRES: words ≠ null ∧ (∀ w ∈ words . w ≠ null) ∧ condition ≠ null ∧ stats ≠ null
+    // THROWS: NullPointerException se words è null ∨ (∃ w ∈ words . w è null) ∨ condition è null ∨ stats è null (unchecked exception)
+    // MODIFIES: stats
+    // EFFECTS: restituisce le copie dei post memorizzati che soddisfano condition, dove condition è vera solo per post che
+    //          contengono tutte le parole in words; i segmenti il cui KeywordFilter esclude words non vengono letti, e l'esito
+    //          di ciascun segmento viene registrato in stats
+    public List<Post> containing(List<String> words, Predicate<Post> condition, KeywordFilterStats stats) throws NullPointerException {
+        if(words == null || condition == null || stats == null) {
+            throw new NullPointerException();
+        }
+
+        List<Post> posts = new ArrayList<Post>();
+        BitSet seen = (BitSet) this.removed.clone();
+        for(int i = this.segments.size() - 1; i >= 0; i--) {
+            PostSegment segment = this.segments.get(i);
+            boolean candidate = segment.mightContainAll(words);
+            boolean matched = false;
+            for(int index = 0; index < segment.size(); index++) {
+                int id = segment.getId(index);
+                if(seen.get(id)) {
+                    continue;
+                }
+                seen.set(id); // anche nei segmenti saltati, così che le copie non più valide dei segmenti precedenti vengano ignorate
+                if(candidate) {
+                    Post post = segment.getAt(index);
+                    if(condition.test(post)) {
+                        posts.add(post);
+                        matched = true;
+                    }
+                }
+            }
+            if(candidate) {
+                stats.recordScan(matched);
+            } else {
+                stats.recordSkip();
+            }
+        }
+        return posts;
+    }
+
+    // REQUIRES: author ≠ null
+    // THROWS: NullPointerException se author è null (unchecked exception)
+    // EFFECTS: restituisce le copie dei post memorizzati scritti da author; dei post degli altri autori viene letto solo l'autore
+    public List<Post> writtenBy(String author) throws NullPointerException {
+        if(author == null) {
+            throw new NullPointerException();
+        }
+
+        List<Post> posts = new ArrayList<Post>();
+        this.forEachIndex((segment, index) -> {
+            if(author.equals(segment.getAuthorAt(index))) {
+                posts.add(segment.getAt(index));
+            }
+        });
+        return posts;
+    }
+
+    // THROWS: IOException se la scrittura del nuovo segmento o l'eliminazione dei vecchi fallisce (checked exception)
+    // MODIFIES: this
+    // EFFECTS: riscrive in un unico nuovo segmento i post validi dei segmenti (diversi dal più recente) in cui meno della
+    //          metà dei post è ancora valida, ed elimina questi ultimi; restituisce il numero di segmenti eliminati
+    public int compact() throws IOException {
+        List<PostSegment> sparse = new ArrayList<PostSegment>();
+        for(int i = 0; i < this.segments.size() - 1; i++) {
+            PostSegment segment = this.segments.get(i);
+            if(this.live.get(segment) * 2 < segment.size()) {
+                sparse.add(segment);
+            }
+        }
+        if(sparse.isEmpty()) {
+            return 0;
+        }
+
+        // raccolgo le copie valide in ordine di id, unendo gli id (già ordinati) dei singoli segmenti
+        List<Post> survivors = new ArrayList<Post>();
+        for(PostSegment segment : sparse) {
+            for(int index = 0; index < segment.size(); index++) {
+                if(this.locate(segment.getId(index)) == segment) {
+                    survivors.add(segment.getAt(index));
+                }
+            }
+        }
+        survivors.sort((p, q) -> p.compareTo(q));
+
+        // il nuovo segmento è il più recente, per cui le sue copie hanno la precedenza su quelle dei segmenti eliminati
+        for(PostSegment segment : sparse) {
+            this.size -= this.live.get(segment);
+        }
+        this.append(survivors);
+        for(PostSegment segment : sparse) {
+            this.segments.remove(segment);
+            this.live.remove(segment);
+            segment.delete();
+        }
+        return sparse.size();
+    }
+
+    // THROWS: IOException se l'eliminazione di un file fallisce (checked exception)
+    // MODIFIES: this
+    // EFFECTS: elimina tutti i segmenti; il livello freddo diventa vuoto
+    public void close() throws IOException {
+        for(PostSegment segment : this.segments) {
+            segment.delete();
+        }
+        this.segments.clear();
+        this.live.clear();
+        this.removed.clear();
+        this.size = 0;
+    }
+
+    // operazione sulla posizione index di un segmento
+    private interface IndexAction {
+        void accept(PostSegment segment, int index);
+    }
+
+    // EFFECTS: esegue action sulla posizione della copia valida di ciascun post memorizzato
+    private void forEachIndex(IndexAction action) {
+        BitSet seen = (BitSet) this.removed.clone(); // i post rimossi e quelli già visitati in un segmento più recente
+        for(int i = this.segments.size() - 1; i >= 0; i--) {
+            PostSegment segment = this.segments.get(i);
+            for(int index = 0; index < segment.size(); index++) {
+                int id = segment.getId(index);
+                if(!seen.get(id)) {
+                    seen.set(id);
+                    action.accept(segment, index);
+                }
+            }
+        }
+    }
+
+    // EFFECTS: restituisce il segmento che contiene la copia valida del post con id id, o null se il post non è memorizzato
+    private PostSegment locate(int id) {
+        if(id < 0 || this.removed.get(id)) {
+            return null;
+        }
+        for(int i = this.segments.size() - 1; i >= 0; i--) {
+            if(this.segments.get(i).indexOf(id) >= 0) {
+                return this.segments.get(i);
+            }
+        }
+        return null;
+    }
+
+    // EFFECTS: restituisce il percorso del prossimo segmento
+    private Path nextFile() {
+        return this.directory.resolve(String.format("segment-%06d.seg", (this.nextSegment)++));
+    }
+}
@@ -0,0 +1,281 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+// processo che ospita una MicroBlogPartition e la rende disponibile, tramite RemoteShard, su un socket dell'interfaccia di loopback
+// Protocollo: ogni richiesta è un byte che identifica l'operazione seguito dagli argomenti; ogni risposta è un byte di stato
+// (OK o ERROR) seguito dal risultato o dal nome e dal messaggio dell'eccezione sollevata. Le stringhe sono codificate con
+// PostCodec.writeString.
+//
+// Utilizzo: java ShardServer [porta] [--exit-with-parent]
+//     con porta 0 viene scelta una porta libera, che viene stampata su stdout; con --exit-with-parent il processo termina
+//     quando il suo stdin viene chiuso, ovvero quando termina il processo che lo ha avviato
+public class ShardServer implements AutoCloseable {
+    // codici delle operazioni
+    static final byte CREATE_POST = 1;
+    static final byte ADD_LIKE = 2;
+    static final byte REMOVE_LIKE = 3;
+    static final byte GET_POST = 4;
+    static final byte GET_ALL_POSTS = 5;
+    static final byte WRITTEN_BY = 6;
+    static final byte CONTAINING = 7;
+    static final byte SORT_BY_RELEVANCE = 8;
+    static final byte GET_MENTIONED_USERS = 9;
+    static final byte GET_LIKE_RELATIONS = 10;
+    static final byte IS_AUTHOR = 11;
+    static final byte GET_AUTHORS = 12;
+    static final byte MENTIONS_OF = 13;
+    static final byte POSTS_TAGGED = 14;
+    static final byte GET_REACH_SKETCH = 15;
+
+    // codici di stato delle risposte
+    static final byte OK = 0;
+    static final byte ERROR = 1;
+
+    private final MicroBlogPartition partition;
+    private final ServerSocket server;
+
+    // ultimo errore nell'accettare una connessione o nel servirla, o null se non ce ne sono stati
+    private volatile IOException failure;
+
+    /*
+        Representation invariant:
+        this.partition ≠ null ∧ this.server ≠ null ∧ this.server è associato all'interfaccia di loopback
+    */
+
+    // REQUIRES: 0 ≤ port ≤ 65535
+    // THROWS: IOException se non è possibile aprire il socket sulla porta richiesta (checked exception)
+    // EFFECTS: crea una partizione vuota in ascolto sulla porta port dell'interfaccia di loopback (una porta libera se port = 0)
+    public ShardServer(int port) throws IOException {
+        this.partition = new MicroBlogPartition();
+        this.server = new ServerSocket(port, 50, InetAddress.getLoopbackAddress());
+    }
+
+    // EFFECTS: restituisce la porta su cui il server è in ascolto
+    public int getPort() {
+        return this.server.getLocalPort();
+    }
+
+    // EFFECTS: restituisce l'ultimo errore nell'accettare una connessione o nel servirla (es. una richiesta non valida), o null
+    //          se non ce ne sono stati; la connessione in cui si è verificato l'errore viene chiusa
+    public IOException getFailure() {
+        return this.failure;
+    }
+
+    // EFFECTS: accetta connessioni finché il server non viene chiuso, servendo ciascuna su un thread dedicato
+    public void serve() {
+        while(!this.server.isClosed()) {
+            try {
+                Socket socket = this.server.accept();
+                Thread handler = new Thread(() -> this.handle(socket), "ShardServer-" + socket.getPort());
+                handler.setDaemon(true);
+                handler.start();
+            } catch(IOException exc) {
+                if(!this.server.isClosed()) {
+                    this.failure = exc; // il server continua ad accettare connessioni
+                }
+            }
+        }
+    }
+
+    public void close() throws IOException {
+        this.server.close();
+    }
+
+    // EFFECTS: serve le richieste ricevute su socket finché il client non chiude la connessione
+    private void handle(Socket socket) {
+        try(Socket s = socket) {
+            s.setTcpNoDelay(true);
+            DataInputStream in = new DataInputStream(new BufferedInputStream(s.getInputStream()));
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(s.getOutputStream()));
+
+            while(true) {
+                byte operation;
+                try {
+                    operation = in.readByte();
+                } catch(EOFException exc) {
+                    return; // il client ha chiuso la connessione
+                }
+                this.execute(operation, in, out);
+                out.flush();
+            }
+        } catch(IOException exc) {
+            this.failure = exc; // la connessione viene chiusa, il client riceve a sua volta un errore di comunicazione
+        }
+    }
+
+    // EFFECTS: legge da in gli argomenti dell'operazione operation, la esegue sulla partizione e scrive la risposta su out
+    private void execute(byte operation, DataInputStream in, DataOutputStream out) throws IOException {
+        try {
+            switch(operation) {
+                case CREATE_POST: {
+                    String author = PostCodec.readString(in);
+                    String text = PostCodec.readString(in);
+                    int id;
+                    synchronized(this.partition) {
+                        id = this.partition.createPost(author, text);
+                    }
+                    out.writeByte(OK);
+                    out.writeInt(id);
+                    break;
+                }
+                case ADD_LIKE:
+                case REMOVE_LIKE: {
+                    int postId = in.readInt();
+                    String user = PostCodec.readString(in);
+                    boolean result;
+                    synchronized(this.partition) {
+                        result = operation == ADD_LIKE ? this.partition.addLike(postId, user) : this.partition.removeLike(postId, user);
+                    }
+                    out.writeByte(OK);
+                    out.writeBoolean(result);
+                    break;
+                }
+                case GET_POST: {
+                    int postId = in.readInt();
+                    Post post;
+                    synchronized(this.partition) {
+                        post = this.partition.getPost(postId);
+                    }
+                    out.writeByte(OK);
+                    out.writeBoolean(post != null);
+                    if(post != null) {
+                        PostCodec.write(out, post);
+                    }
+                    break;
+                }
+                case GET_ALL_POSTS:
+                case WRITTEN_BY:
+                case CONTAINING:
+                case SORT_BY_RELEVANCE:
+                case MENTIONS_OF:
+                case POSTS_TAGGED: {
+                    String username = operation == WRITTEN_BY || operation == MENTIONS_OF || operation == POSTS_TAGGED ? PostCodec.readString(in) : null;
+                    List<String> words = operation == CONTAINING || operation == SORT_BY_RELEVANCE ? ShardServer.readStrings(in) : null;
+                    List<Post> posts;
+                    synchronized(this.partition) {
+                        if(operation == GET_ALL_POSTS) {
+                            posts = this.partition.getAllPosts();
+                        } else if(operation == WRITTEN_BY) {
+                            posts = this.partition.writtenBy(username);
+                        } else if(operation == CONTAINING) {
+                            posts = this.partition.containing(words);
+                        } else if(operation == MENTIONS_OF) {
+                            posts = this.partition.mentionsOf(username);
+                        } else if(operation == POSTS_TAGGED) {
+                            posts = this.partition.postsTagged(username);
+                        } else {
+                            posts = this.partition.sortByRelevance(words);
+                        }
+                    }
+                    out.writeByte(OK);
+                    PostCodec.writeList(out, posts);
+                    break;
+                }
+                case IS_AUTHOR: {
+                    String user = PostCodec.readString(in);
+                    boolean author;
+                    synchronized(this.partition) {
+                        author = this.partition.isAuthor(user);
+                    }
+                    out.writeByte(OK);
+                    out.writeBoolean(author);
+                    break;
+                }
+                case GET_MENTIONED_USERS:
+                case GET_AUTHORS: {
+                    Set<String> users;
+                    synchronized(this.partition) {
+                        users = operation == GET_AUTHORS ? this.partition.getAuthors() : this.partition.getMentionedUsers();
+                    }
+                    out.writeByte(OK);
+                    ShardServer.writeStrings(out, users);
+                    break;
+                }
+                case GET_LIKE_RELATIONS: {
+                    Map<String, Set<String>> relations;
+                    synchronized(this.partition) {
+                        relations = this.partition.getLikeRelations();
+                    }
+                    out.writeByte(OK);
+                    out.writeInt(relations.size());
+                    for(Map.Entry<String, Set<String>> entry : relations.entrySet()) {
+                        PostCodec.writeString(out, entry.getKey());
+                        ShardServer.writeStrings(out, entry.getValue());
+                    }
+                    break;
+                }
+                case GET_REACH_SKETCH: {
+                    Set<String> authors = new HashSet<String>(ShardServer.readStrings(in));
+                    HyperLogLog sketch;
+                    synchronized(this.partition) {
+                        sketch = this.partition.getReachSketch(authors);
+                    }
+                    out.writeByte(OK);
+                    sketch.write(out);
+                    break;
+                }
+                default:
+                    throw new IOException("operazione sconosciuta: " + operation);
+            }
+        } catch(Exception exc) {
+            if(exc instanceof IOException) {
+                throw (IOException) exc;
+            }
+            // le eccezioni della partizione vengono inoltrate al client, che le solleva nuovamente
+            out.writeByte(ERROR);
+            PostCodec.writeString(out, exc.getClass().getSimpleName());
+            PostCodec.writeString(out, exc.getMessage() == null ? "" : exc.getMessage());
+        }
+    }
+
+    // EFFECTS: scrive su out il numero di stringhe in strings seguito dalle stringhe stesse
+    static void writeStrings(DataOutputStream out, Collection<String> strings) throws IOException {
+        out.writeInt(strings.size());
+        for(String string : strings) {
+            PostCodec.writeString(out, string);
+        }
+    }
+
+    // EFFECTS: legge da in una lista di stringhe scritta da writeStrings
+    static List<String> readStrings(DataInputStream in) throws IOException {
+        int count = in.readInt();
+        List<String> strings = new ArrayList<String>(count);
+        for(int i = 0; i < count; i++) {
+            strings.add(PostCodec.readString(in));
+        }
+        return strings;
+    }
+
+    public static void main(String[] args) throws IOException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : 0;
+        if(args.length > 1 && args[1].equals("--exit-with-parent")) {
+            Thread watchdog = new Thread(() -> {
+                try {
+                    while(System.in.read() != -1) {} // attendo la chiusura dello stdin
+                } catch(IOException exc) {}
+                System.exit(0);
+            }, "ShardServer-watchdog");
+            watchdog.setDaemon(true);
+            watchdog.start();
+        }
+        try(ShardServer shard = new ShardServer(port)) {
+            // la prima riga dell'output comunica la porta al processo che ha avviato la partizione (vedi RemoteShard.spawn())
+            System.out.println(shard.getPort());
+            System.out.flush();
+            shard.serve();
+        }
+    }
+}
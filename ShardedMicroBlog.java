@@ -0,0 +1,542 @@
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import javax.naming.LimitExceededException;
+
+// rete sociale partizionata per autore su più MicroBlogShard, eseguite nella stessa JVM (MicroBlogPartition) o in processi
+// separati (RemoteShard); aggiungendo partizioni cresce la capacità complessiva della rete
+// Tutti i post di un autore risiedono nella stessa partizione (la sua "partizione di casa"), per cui writtenBy e createPost
+// coinvolgono una sola partizione; le ricerche vengono inviate in parallelo a tutte le partizioni e i risultati vengono uniti.
+// Per ogni partizione viene mantenuto localmente un filtro di Bloom delle parole dei suoi post (KeywordFilter), con cui
+// containing interroga solo le partizioni che possono contenere tutte le parole cercate.
+// Le relazioni di follow non vengono memorizzate: sono ricavate al momento della richiesta dai like di ciascuna partizione,
+// secondo la definizione di SocialNetwork (u ~ v ⟺ u è autore ∧ ∃ p post . p.getAuthor() = v ∧ u ∈ p.getLikes())
+public class ShardedMicroBlog implements SocialNetwork, AutoCloseable {
+    private final MicroBlogShard[] shards;
+
+    // thread usati per interrogare le partizioni in parallelo
+    private final ExecutorService executor;
+
+    // filtri delle parole dei post di ciascuna partizione, letti e modificati possedendo il lock della partizione
+    private final KeywordFilter[] keywordFilters;
+
+    private final KeywordFilterStats keywordFilterStats;
+
+    // per ogni partizione, id locale successivo all'ultimo restituito da createPost, letto e modificato possedendo il lock della
+    // partizione; serve a rifiutare un nuovo post prima di crearlo se il suo id globale non sarebbe rappresentabile
+    private final long[] nextLocalIds;
+
+    /*
+        Abstraction function:
+        AF(c) = < { p' | ∃ i . 0 ≤ i < c.shards.length ∧ p ∈ c.shards[i].getAllPosts() ∧ p' = p con id p.getId() * c.shards.length + i } >
+
+        Representation invariant:
+        c.shards ≠ null ∧ c.shards.length > 0 ∧ (∀ i . 0 ≤ i < c.shards.length ⇒ c.shards[i] ≠ null) ∧
+        (∀ i . ∀ p ∈ c.shards[i].getAllPosts() . c.shardOf(p.getAuthor()) = i) ∧ c.executor ≠ null ∧
+        c.keywordFilters.length = c.shards.length ∧ (∀ i . c.keywordFilters[i] contiene le parole dei post di c.shards[i]) ∧
+        c.keywordFilterStats ≠ null ∧ c.nextLocalIds.length = c.shards.length ∧
+        (∀ i . ∀ p ∈ c.shards[i].getAllPosts() . p.getId() < c.nextLocalIds[i] ∧ p.getId() * c.shards.length + i ≤ Integer.MAX_VALUE)
+    */
+
+    // REQUIRES: shardCount > 0
+    // THROWS: IllegalArgumentException se shardCount ≤ 0 (unchecked exception)
+    // EFFECTS: crea una rete vuota partizionata su shardCount MicroBlogPartition nella JVM corrente
+    public ShardedMicroBlog(int shardCount) throws IllegalArgumentException {
+        this(ShardedMicroBlog.localShards(shardCount));
+    }
+
+    // REQUIRES: shards ≠ null ∧ shards.size() > 0 ∧ (∀ s ∈ shards . s ≠ null ∧ s non contiene post)
+    // THROWS: NullPointerException se shards è null ∨ (∃ s ∈ shards . s è null) (unchecked exception),
+    //         IllegalArgumentException se shards è vuota (unchecked exception)
+    // EFFECTS: crea una rete partizionata sulle partizioni shards, nell'ordine dato; la rete acquisisce le partizioni e le chiude in close()
+    public ShardedMicroBlog(List<MicroBlogShard> shards) throws NullPointerException, IllegalArgumentException {
+        if(shards == null) {
+            throw new NullPointerException();
+        }
+        if(shards.isEmpty()) {
+            throw new IllegalArgumentException();
+        }
+        for(MicroBlogShard shard : shards) {
+            if(shard == null) {
+                throw new NullPointerException();
+            }
+        }
+
+        this.shards = shards.toArray(new MicroBlogShard[0]);
+        this.executor = Executors.newFixedThreadPool(this.shards.length, task -> {
+            Thread thread = new Thread(task, "ShardedMicroBlog-worker");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.keywordFilters = new KeywordFilter[this.shards.length];
+        for(int i = 0; i < this.shards.length; i++) {
+            this.keywordFilters[i] = new KeywordFilter(0);
+        }
+        this.keywordFilterStats = new KeywordFilterStats();
+        this.nextLocalIds = new long[this.shards.length];
+    }
+
+    // REQUIRES: shardCount > 0
+    // THROWS: IllegalArgumentException se shardCount ≤ 0 (unchecked exception),
+    //         IOException se non è possibile avviare i processi delle partizioni (checked exception)
+    // EFFECTS: crea una rete vuota partizionata su shardCount processi ShardServer avviati con RemoteShard.spawn()
+    public static ShardedMicroBlog withProcesses(int shardCount) throws IllegalArgumentException, IOException {
+        if(shardCount <= 0) {
+            throw new IllegalArgumentException();
+        }
+
+        List<MicroBlogShard> shards = new ArrayList<MicroBlogShard>(shardCount);
+        try {
+            for(int i = 0; i < shardCount; i++) {
+                shards.add(RemoteShard.spawn());
+            }
+        } catch(IOException exc) {
+            for(MicroBlogShard shard : shards) { // termino i processi già avviati
+                shard.close();
+            }
+            throw exc;
+        }
+        return new ShardedMicroBlog(shards);
+    }
+
+    // EFFECTS: restituisce il numero di partizioni della rete
+    public int getNumberOfShards() {
+        return this.shards.length;
+    }
+
+    // EFFECTS: restituisce i contatori dell'efficacia dei filtri con cui containing salta le partizioni
+    public KeywordFilterStats getKeywordFilterStats() {
+        return this.keywordFilterStats;
+    }
+
+    /*
+        Seguono le implementazioni dei metodi definiti dall'interfaccia
+        Le clausole REQUIRES, MODIFIES, THROWS, EFFECTS per questi metodi sono riportate nel file
+        dell'interfaccia SocialNetwork.java per maggiore leggibilità
+    */
+
+    public List<String> influencers() {
+        return MicroBlog.influencers(this.getFollowRelations());
+    }
+
+    public Set<String> getMentionedUsers() {
+        Set<String> users = new HashSet<String>();
+        for(Set<String> shardUsers : this.scatter(MicroBlogShard::getMentionedUsers)) {
+            users.addAll(shardUsers);
+        }
+        return users;
+    }
+
+    public List<Post> writtenBy(String username) throws NullPointerException, IllegalArgumentException {
+        if(username == null) {
+            throw new NullPointerException();
+        }
+        if(username.trim().isEmpty()) {
+            throw new IllegalArgumentException();
+        }
+
+        int index = this.shardOf(username);
+        MicroBlogShard shard = this.shards[index];
+        List<Post> posts;
+        synchronized(shard) {
+            posts = shard.writtenBy(username);
+        }
+        return this.toGlobal(index, posts);
+    }
+
+    public List<Post> containing(List<String> words) throws NullPointerException, IllegalArgumentException {
+        ShardedMicroBlog.checkWords(words);
+
+        // interrogo solo le partizioni il cui filtro non esclude tutte le parole
+        boolean[] selected = new boolean[this.shards.length];
+        for(int i = 0; i < this.shards.length; i++) {
+            synchronized(this.shards[i]) {
+                selected[i] = this.keywordFilters[i].mightContainAll(words);
+            }
+        }
+
+        List<List<Post>> results = this.scatter(shard -> shard.containing(words), selected);
+        List<Post> posts = new LinkedList<Post>();
+        for(int i = 0; i < results.size(); i++) {
+            if(selected[i]) {
+                this.keywordFilterStats.recordScan(!results.get(i).isEmpty());
+                posts.addAll(this.toGlobal(i, results.get(i)));
+            } else {
+                this.keywordFilterStats.recordSkip();
+            }
+        }
+        return posts;
+    }
+
+    // REQUIRES: come MicroBlog.mentionsOf()
+    // THROWS: come MicroBlog.mentionsOf()
+    // EFFECTS: come MicroBlog.mentionsOf(); i post vengono cercati in tutte le partizioni
+    public List<Post> mentionsOf(String user) throws NullPointerException, IllegalArgumentException {
+        return this.gatherById(shard -> shard.mentionsOf(user));
+    }
+
+    // REQUIRES: come MicroBlog.postsTagged()
+    // THROWS: come MicroBlog.postsTagged()
+    // EFFECTS: come MicroBlog.postsTagged(); i post vengono cercati in tutte le partizioni
+    public List<Post> postsTagged(String tag) throws NullPointerException, IllegalArgumentException {
+        return this.gatherById(shard -> shard.postsTagged(tag));
+    }
+
+    // REQUIRES: author ≠ null ∧ author ∉ /^\s+$/ ∧ author.length > 0 ∧ text ≠ null ∧ text ∉ /^\s+$/ ∧ 0 < text.length ≤ 140
+    // THROWS: come MicroBlog.createPost(),
+    //         IllegalStateException se l'id globale del nuovo post non sarebbe rappresentabile con un int (unchecked exception)
+    // MODIFIES: this
+    // EFFECTS: aggiunge un nuovo post di author con testo text nella partizione di casa di author e ne restituisce l'id globale
+    public int createPost(String author, String text) throws NullPointerException, IllegalArgumentException, LimitExceededException, IllegalStateException {
+        if(author == null || text == null) {
+            throw new NullPointerException();
+        }
+        if(author.trim().isEmpty() || text.trim().isEmpty()) {
+            throw new IllegalArgumentException();
+        }
+        if(text.length() > 140) { // verificato prima di contattare la partizione, che può essere in un altro processo
+            throw new LimitExceededException();
+        }
+
+        int index = this.shardOf(author);
+        MicroBlogShard shard = this.shards[index];
+        synchronized(shard) {
+            if(this.nextLocalIds[index] > this.maxLocalId(index)) {
+                throw new IllegalStateException("id dei post esauriti nella partizione " + index);
+            }
+            int localId = shard.createPost(author, text);
+            this.nextLocalIds[index] = (long) localId + 1;
+            this.keywordFilters[index].addText(text); // il filtro cresce da sé, senza rileggere i post della partizione
+            return this.toGlobal(index, localId);
+        }
+    }
+
+    // REQUIRES: come MicroBlog.likePost()
+    // THROWS: come MicroBlog.likePost()
+    // MODIFIES: this
+    // EFFECTS: aggiunge il like di likedByUser al post con id postId; restituisce true se e solo se likedByUser è autore di
+    //          almeno un post e non seguiva ancora l'autore del post (come MicroBlog.likePost())
+    public boolean likePost(int postId, String likedByUser) throws NullPointerException, IllegalArgumentException, NoSuchElementException, IllegalStateException {
+        if(likedByUser == null) {
+            throw new NullPointerException();
+        }
+        if(likedByUser.trim().isEmpty() || postId < 0) {
+            throw new IllegalArgumentException();
+        }
+
+        MicroBlogShard shard = this.shards[postId % this.shards.length];
+        boolean first;
+        synchronized(shard) {
+            first = shard.addLike(postId / this.shards.length, likedByUser);
+        }
+        return first && this.isAuthor(likedByUser);
+    }
+
+    // REQUIRES: come MicroBlog.unlikePost()
+    // THROWS: come MicroBlog.unlikePost()
+    // MODIFIES: this
+    // EFFECTS: rimuove il like di unlikedByUser dal post con id postId; restituisce true se e solo se unlikedByUser è autore di
+    //          almeno un post e, dopo l'operazione, non segue più l'autore del post
+    public boolean unlikePost(int postId, String unlikedByUser) throws NullPointerException, IllegalArgumentException, NoSuchElementException {
+        if(unlikedByUser == null) {
+            throw new NullPointerException();
+        }
+        if(unlikedByUser.trim().isEmpty() || postId < 0) {
+            throw new IllegalArgumentException();
+        }
+
+        MicroBlogShard shard = this.shards[postId % this.shards.length];
+        boolean last;
+        synchronized(shard) {
+            last = shard.removeLike(postId / this.shards.length, unlikedByUser);
+        }
+        return last && this.isAuthor(unlikedByUser);
+    }
+
+    // REQUIRES: come MicroBlog.estimatedReach(String)
+    // THROWS: come MicroBlog.estimatedReach(String)
+    // EFFECTS: come MicroBlog.estimatedReach(String); viene interrogata solo la partizione di casa di author
+    public long estimatedReach(String author) throws NullPointerException, IllegalArgumentException {
+        if(author == null) {
+            throw new NullPointerException();
+        }
+
+        return this.estimatedReach(Collections.singleton(author));
+    }
+
+    // REQUIRES: come MicroBlog.estimatedReach(Set<String>)
+    // THROWS: come MicroBlog.estimatedReach(Set<String>)
+    // EFFECTS: come MicroBlog.estimatedReach(Set<String>); ogni partizione di casa di almeno un autore in authors restituisce lo
+    //          sketch dei propri autori, e gli sketch vengono uniti localmente
+    public long estimatedReach(Set<String> authors) throws NullPointerException, IllegalArgumentException {
+        if(authors == null) {
+            throw new NullPointerException();
+        }
+
+        // autori raggruppati per partizione di casa
+        Map<MicroBlogShard, Set<String>> groups = new IdentityHashMap<MicroBlogShard, Set<String>>();
+        boolean[] selected = new boolean[this.shards.length];
+        for(String author : authors) {
+            if(author == null) {
+                throw new NullPointerException();
+            }
+            if(author.trim().isEmpty()) {
+                throw new IllegalArgumentException();
+            }
+            int index = this.shardOf(author);
+            groups.computeIfAbsent(this.shards[index], k -> new HashSet<String>()).add(author);
+            selected[index] = true;
+        }
+
+        HyperLogLog union = new HyperLogLog();
+        for(HyperLogLog sketch : this.scatter(shard -> shard.getReachSketch(groups.get(shard)), selected)) {
+            if(sketch != null) {
+                union.merge(sketch);
+            }
+        }
+        return union.estimate();
+    }
+
+    // EFFECTS: restituisce true se e solo se user è autore di almeno un post della rete
+    public boolean isAuthor(String user) {
+        if(user == null) {
+            return false;
+        }
+
+        MicroBlogShard shard = this.shards[this.shardOf(user)];
+        synchronized(shard) {
+            return shard.isAuthor(user);
+        }
+    }
+
+    // REQUIRES: id ≥ 0
+    // THROWS: IllegalArgumentException se id < 0 (unchecked exception)
+    // EFFECTS: restituisce una copia del post che ha id uguale al parametro id, o null se non esiste un post con quell'id
+    public Post getPost(int id) throws IllegalArgumentException {
+        if(id < 0) {
+            throw new IllegalArgumentException();
+        }
+
+        int index = id % this.shards.length;
+        MicroBlogShard shard = this.shards[index];
+        Post post;
+        synchronized(shard) {
+            post = shard.getPost(id / this.shards.length);
+        }
+        return post == null ? null : this.toGlobal(index, post);
+    }
+
+    // EFFECTS: restituisce una lista contenente tutti i post della rete, ordinati per id
+    public List<Post> getAllPosts() {
+        return this.gatherById(MicroBlogShard::getAllPosts);
+    }
+
+    // EFFECTS: restituisce una map che esplicita le relazioni di "follower" all'interno della rete (vedi MicroBlog.getFollowRelations()),
+    //          ricavata dai like raccolti da tutte le partizioni
+    public Map<String, Set<String>> getFollowRelations() {
+        Map<String, Set<String>> follows = new HashMap<String, Set<String>>();
+        for(Set<String> authors : this.scatter(MicroBlogShard::getAuthors)) {
+            for(String author : authors) {
+                follows.put(author, new HashSet<String>());
+            }
+        }
+
+        // un utente segue un autore se ha messo like ad almeno un suo post, in qualunque partizione si trovi
+        for(Map<String, Set<String>> relations : this.scatter(MicroBlogShard::getLikeRelations)) {
+            for(Map.Entry<String, Set<String>> entry : relations.entrySet()) {
+                Set<String> following = follows.get(entry.getKey());
+                if(following != null) {
+                    following.addAll(entry.getValue());
+                }
+            }
+        }
+        return follows;
+    }
+
+    // REQUIRES: come MicroBlog.sortByRelevance()
+    // THROWS: come MicroBlog.sortByRelevance()
+    // EFFECTS: come MicroBlog.sortByRelevance(); i risultati già ordinati delle partizioni vengono fusi senza essere riordinati
+    public List<Post> sortByRelevance(List<String> searchWords) throws NullPointerException, IllegalArgumentException {
+        ShardedMicroBlog.checkWords(searchWords);
+
+        List<List<Post>> results = this.scatter(shard -> shard.sortByRelevance(searchWords));
+
+        // fusione a k vie: ogni elemento della coda è {partizione, posizione, rilevanza} del prossimo post di una partizione
+        List<List<Post>> sorted = new ArrayList<List<Post>>(results.size());
+        PriorityQueue<int[]> heads = new PriorityQueue<int[]>((a, b) -> a[2] != b[2] ? b[2] - a[2] : a[0] - b[0]);
+        int total = 0;
+        for(int i = 0; i < results.size(); i++) {
+            List<Post> posts = new ArrayList<Post>(this.toGlobal(i, results.get(i)));
+            sorted.add(posts);
+            total += posts.size();
+            if(!posts.isEmpty()) {
+                heads.add(new int[] { i, 0, MicroBlog.getRelevance(posts.get(0).getText(), searchWords) });
+            }
+        }
+
+        List<Post> merged = new ArrayList<Post>(total);
+        while(!heads.isEmpty()) {
+            int[] head = heads.poll();
+            List<Post> posts = sorted.get(head[0]);
+            merged.add(posts.get(head[1]));
+            if(head[1] + 1 < posts.size()) {
+                heads.add(new int[] { head[0], head[1] + 1, MicroBlog.getRelevance(posts.get(head[1] + 1).getText(), searchWords) });
+            }
+        }
+        return merged;
+    }
+
+    // MODIFIES: this
+    // EFFECTS: chiude tutte le partizioni (terminando gli eventuali processi remoti) e i thread della rete
+    public void close() {
+        this.executor.shutdown();
+        for(MicroBlogShard shard : this.shards) {
+            synchronized(shard) {
+                shard.close();
+            }
+        }
+    }
+
+    // operazione da eseguire su una singola partizione
+    private interface ShardCall<T> {
+        T call(MicroBlogShard shard);
+    }
+
+    // EFFECTS: esegue call su tutte le partizioni in parallelo e restituisce i risultati nell'ordine delle partizioni;
+    //          se una chiamata solleva un'eccezione unchecked, questa viene sollevata nuovamente nel thread chiamante
+    private <T> List<T> scatter(ShardCall<T> call) {
+        return this.scatter(call, null);
+    }
+
+    // EFFECTS: come scatter(call), ma esegue call solo sulle partizioni i con selected[i] (tutte se selected è null);
+    //          il risultato delle partizioni escluse è null
+    private <T> List<T> scatter(ShardCall<T> call, boolean[] selected) {
+        List<Future<T>> futures = new ArrayList<Future<T>>(this.shards.length);
+        for(int i = 0; i < this.shards.length; i++) {
+            MicroBlogShard shard = this.shards[i];
+            if(selected != null && !selected[i]) {
+                futures.add(null);
+                continue;
+            }
+            futures.add(this.executor.submit(() -> {
+                synchronized(shard) {
+                    return call.call(shard);
+                }
+            }));
+        }
+
+        List<T> results = new ArrayList<T>(futures.size());
+        for(Future<T> future : futures) {
+            if(future == null) {
+                results.add(null);
+                continue;
+            }
+            try {
+                results.add(future.get());
+            } catch(ExecutionException exc) {
+                if(exc.getCause() instanceof RuntimeException) {
+                    throw (RuntimeException) exc.getCause();
+                }
+                throw new IllegalStateException(exc.getCause());
+            } catch(InterruptedException exc) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException(exc);
+            }
+        }
+        return results;
+    }
+
+    // EFFECTS: esegue call su tutte le partizioni e restituisce l'unione dei post ottenuti, con gli id globali e ordinati per id
+    private List<Post> gatherById(ShardCall<List<Post>> call) {
+        List<List<Post>> results = this.scatter(call);
+        List<Post> posts = new ArrayList<Post>();
+        for(int i = 0; i < results.size(); i++) {
+            posts.addAll(this.toGlobal(i, results.get(i)));
+        }
+        posts.sort(Comparator.comparingInt(Post::getId));
+        return posts;
+    }
+
+    // EFFECTS: restituisce l'indice della partizione di casa di author
+    private int shardOf(String author) {
+        return Math.floorMod(author.hashCode(), this.shards.length);
+    }
+
+    // EFFECTS: restituisce il massimo id locale della partizione index il cui id globale è rappresentabile con un int
+    private int maxLocalId(int index) {
+        return (Integer.MAX_VALUE - index) / this.shards.length;
+    }
+
+    // REQUIRES: 0 ≤ localId ≤ this.maxLocalId(index)
+    // THROWS: IllegalStateException se localId > this.maxLocalId(index) (unchecked exception)
+    // EFFECTS: restituisce l'id globale del post con id locale localId nella partizione index
+    private int toGlobal(int index, int localId) throws IllegalStateException {
+        if(localId > this.maxLocalId(index)) { // solo se la partizione salta degli id, createPost lo impedisce altrimenti
+            throw new IllegalStateException("id globale non rappresentabile: " + localId + " nella partizione " + index);
+        }
+        return localId * this.shards.length + index;
+    }
+
+    // EFFECTS: restituisce una copia di post, appartenente alla partizione index, con l'id locale sostituito da quello globale
+    private Post toGlobal(int index, Post post) {
+        try {
+            return new Post(this.toGlobal(index, post.getId()), post.getAuthor(), post.getText(), post.getTimestamp(), post.getLikes());
+        } catch(LimitExceededException exc) {
+            throw new IllegalStateException(exc); // non può verificarsi, il post è già stato validato dalla partizione
+        }
+    }
+
+    // EFFECTS: restituisce la lista dei post di posts, appartenenti alla partizione index, con gli id globali
+    private List<Post> toGlobal(int index, List<Post> posts) {
+        List<Post> global = new ArrayList<Post>(posts.size());
+        for(Post post : posts) {
+            global.add(this.toGlobal(index, post));
+        }
+        return global;
+    }
+
+    // REQUIRES: words ≠ null ∧ (∀ w ∈ words . w ≠ null ∧ w ∉ /^\s+$/ ∧ w.length > 0)
+    // THROWS: NullPointerException se words è null ∨ (∃ w ∈ words . w è null) (unchecked exception),
+    //         IllegalArgumentException se ∃ w ∈ words . w.length = 0 ∨ w ∈ /^\s+$/ (unchecked exception)
+    private static void checkWords(List<String> words) throws NullPointerException, IllegalArgumentException {
+        if(words == null) {
+            throw new NullPointerException();
+        }
+        for(String word : words) {
+            if(word == null) {
+                throw new NullPointerException();
+            }
+            if(word.trim().isEmpty()) {
+                throw new IllegalArgumentException();
+            }
+        }
+    }
+
+    // THROWS: IllegalArgumentException se shardCount ≤ 0 (unchecked exception)
+    // EFFECTS: restituisce shardCount nuove MicroBlogPartition vuote
+    private static List<MicroBlogShard> localShards(int shardCount) throws IllegalArgumentException {
+        if(shardCount <= 0) {
+            throw new IllegalArgumentException();
+        }
+
+        List<MicroBlogShard> shards = new ArrayList<MicroBlogShard>(shardCount);
+        for(int i = 0; i < shardCount; i++) {
+            shards.add(new MicroBlogPartition());
+        }
+        return shards;
+    }
+}
@@ -29,13 +29,16 @@ public interface SocialNetwork {
     public List<String> influencers();
 
     // EFFECTS: restituisce un insieme di stringhe che identificano gli utenti che hanno almeno un post a essi associato all'interno dell'istanza (this)
-    //          Formalmente: l'output è {this.getAllPosts().get(i).getAuthor() | 0 ≤ i < this.getAllPosts().size()}
+    //          o che sono menzionati (@utente, vedi MentionExtractor) nel testo di almeno un post
+    //          Formalmente: sia ps = this.getAllPosts(). Allora l'output è
+    //          {ps.get(i).getAuthor() | 0 ≤ i < ps.size()} ∪ {u | ∃ i . 0 ≤ i < ps.size() ∧ ps.get(i).getText() menziona u}
     public Set<String> getMentionedUsers();
 
     // REQUIRES: ps ≠ null ∧ (∀ p ∈ ps . p ≠ null)
     // THROWS: NullPointerException se ps è null ∨ (∃ p ∈ ps . p è null) (unchecked exception)
     // EFFECTS: restituisce un insieme di stringhe che identificano gli utenti che hanno almeno un post a essi associato all'interno della lista ps
-    //          Formalmente: l'output è {ps.get(i).getAuthor() | 0 ≤ i < ps.size()}
+    //          o che sono menzionati (@utente, vedi MentionExtractor) nel testo di almeno un post della lista
+    //          Formalmente: l'output è {ps.get(i).getAuthor() | 0 ≤ i < ps.size()} ∪ {u | ∃ i . 0 ≤ i < ps.size() ∧ ps.get(i).getText() menziona u}
     public static Set<String> getMentionedUsers(List<Post> ps) throws NullPointerException {
         throw new UnsupportedOperationException(); // implementazione di default del metodo statico all'interno dell'interfaccia (richiesto dalla specifica di Java)
     }
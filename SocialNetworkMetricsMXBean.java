@@ -0,0 +1,33 @@
+// interfaccia di gestione esposta via JMX da InstrumentedMicroBlog
+// ogni attributo di tipo OperationStats viene presentato dai client JMX (es. jconsole) come CompositeData
+public interface SocialNetworkMetricsMXBean {
+    // EFFECTS: restituisce il numero di post presenti nella rete
+    public int getPostCount();
+
+    // EFFECTS: restituisce il numero di utenti che hanno almeno un post nella rete
+    public int getUserCount();
+
+    // EFFECTS: restituisce il numero di relazioni di follow (archi del grafo dei follower) presenti nella rete
+    public int getFollowEdgeCount();
+
+    // EFFECTS: restituisce la frazione dei gruppi di post (post in memoria, segmenti su disco) senza risultati per una ricerca
+    //          containing che il filtro di Bloom non ha saltato, ovvero il tasso di falsi positivi osservato
+    public double getKeywordFilterFalsePositiveRate();
+
+    // EFFECTS: restituisce il numero di gruppi di post saltati da containing grazie ai filtri di Bloom
+    public long getKeywordFilterSkipCount();
+
+    // EFFECTS: restituiscono le statistiche di latenza e throughput della singola operazione
+    public OperationStats getCreatePostStats();
+    public OperationStats getLikePostStats();
+    public OperationStats getUnlikePostStats();
+    public OperationStats getContainingStats();
+    public OperationStats getWrittenByStats();
+    public OperationStats getInfluencersStats();
+    public OperationStats getMentionedUsersStats();
+    public OperationStats getSortByRelevanceStats();
+
+    // MODIFIES: this
+    // EFFECTS: azzera tutte le statistiche registrate, compresi i contatori dei filtri di Bloom (i gauge non vengono modificati)
+    public void resetStats();
+}
@@ -0,0 +1,148 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import javax.naming.LimitExceededException;
+
+// generatore di reti sociali sintetiche, utilizzato da benchmark e generatori di carico
+// Sia la scelta degli autori dei post sia quella dei like seguono distribuzioni di Zipf con parametro skew,
+// in modo da riprodurre la presenza di pochi utenti molto attivi e di pochi post molto popolari
+public class SyntheticNetwork {
+    // numero massimo di caratteri di un post (limite imposto dalla classe Post)
+    private static final int MAX_TEXT_LENGTH = 140;
+
+    private final int users;
+    private final int posts;
+    private final int likes;
+    private final double skew;
+
+    // distribuzioni di Zipf usate per scegliere rispettivamente un utente, un post e una parola del vocabolario
+    private final ZipfDistribution userDistribution;
+    private final ZipfDistribution postDistribution;
+    private final ZipfDistribution wordDistribution;
+
+    private final Random random;
+
+    /*
+        Representation invariant:
+        this.users > 1 ∧ this.posts > 0 ∧ this.likes ≥ 0 ∧ this.skew ≥ 0 ∧
+        this.userDistribution.size() = this.users ∧ this.postDistribution.size() = this.posts ∧
+        this.random ≠ null
+    */
+
+    // REQUIRES: users > 1 ∧ posts > 0 ∧ likes ≥ 0 ∧ vocabulary > 0 ∧ skew ≥ 0
+    // THROWS: IllegalArgumentException se una delle condizioni precedenti non è soddisfatta (unchecked exception)
+    // EFFECTS: crea un generatore di reti con users utenti, posts post, likes like (tentati) e un vocabolario di vocabulary parole;
+    //          a parità di seed le reti generate sono identiche
+    public SyntheticNetwork(int users, int posts, int likes, int vocabulary, double skew, long seed) throws IllegalArgumentException {
+        if(users <= 1 || posts <= 0 || likes < 0 || vocabulary <= 0 || skew < 0) {
+            throw new IllegalArgumentException();
+        }
+
+        this.users = users;
+        this.posts = posts;
+        this.likes = likes;
+        this.skew = skew;
+        this.userDistribution = new ZipfDistribution(users, skew);
+        this.postDistribution = new ZipfDistribution(posts, skew);
+        this.wordDistribution = new ZipfDistribution(vocabulary, skew);
+        this.random = new Random(seed);
+    }
+
+    // EFFECTS: restituisce il numero di utenti della rete generata
+    public int getUsers() {
+        return this.users;
+    }
+
+    // EFFECTS: restituisce il numero di post della rete generata
+    public int getPosts() {
+        return this.posts;
+    }
+
+    // EFFECTS: restituisce il parametro di asimmetria delle distribuzioni
+    public double getSkew() {
+        return this.skew;
+    }
+
+    // EFFECTS: restituisce il nome dell'utente di indice i
+    public String userName(int i) {
+        return "user" + i;
+    }
+
+    // EFFECTS: restituisce la parola del vocabolario di indice i
+    public String word(int i) {
+        return "w" + i;
+    }
+
+    // EFFECTS: restituisce il nome di un utente estratto secondo la distribuzione di Zipf
+    public String randomUser() {
+        return this.userName(this.userDistribution.next(this.random));
+    }
+
+    // EFFECTS: restituisce l'indice (in [0, this.getPosts())) di un post estratto secondo la distribuzione di Zipf
+    public int randomPostIndex() {
+        return this.postDistribution.next(this.random);
+    }
+
+    // EFFECTS: restituisce una parola del vocabolario estratta secondo la distribuzione di Zipf
+    public String randomWord() {
+        return this.word(this.wordDistribution.next(this.random));
+    }
+
+    // REQUIRES: count ≥ 0
+    // EFFECTS: restituisce una lista di count parole estratte dal vocabolario
+    public List<String> randomWords(int count) {
+        List<String> words = new ArrayList<String>(count);
+        for(int i = 0; i < count; i++) {
+            words.add(this.randomWord());
+        }
+        return words;
+    }
+
+    // EFFECTS: restituisce un testo valido per un post (non vuoto e di al più 140 caratteri) composto da parole del vocabolario
+    public String randomText() {
+        StringBuilder text = new StringBuilder(this.randomWord());
+        int length = 3 + this.random.nextInt(12);
+
+        for(int i = 1; i < length; i++) {
+            String word = this.randomWord();
+            if(text.length() + word.length() + 1 > MAX_TEXT_LENGTH) {
+                break;
+            }
+            text.append(' ').append(word);
+        }
+        return text.toString();
+    }
+
+    // REQUIRES: network ≠ null
+    // THROWS: NullPointerException se network è null (unchecked exception)
+    // MODIFIES: network
+    // EFFECTS: aggiunge a network this.getPosts() post e fino a this.likes like (i like di un autore a un proprio post vengono scartati);
+    //          restituisce gli id dei post creati, nell'ordine di creazione
+    public int[] populate(MicroBlog network) throws NullPointerException {
+        if(network == null) {
+            throw new NullPointerException();
+        }
+
+        int[] ids = new int[this.posts];
+        String[] authors = new String[this.posts];
+
+        try {
+            for(int i = 0; i < this.posts; i++) {
+                authors[i] = this.randomUser();
+                ids[i] = network.createPost(authors[i], this.randomText());
+            }
+        } catch(LimitExceededException exc) { // non può verificarsi perché randomText() rispetta il limite di lunghezza
+            throw new IllegalStateException(exc);
+        }
+
+        for(int i = 0; i < this.likes; i++) {
+            int post = this.randomPostIndex();
+            String user = this.randomUser();
+            if(!user.equals(authors[post])) {
+                network.likePost(ids[post], user);
+            }
+        }
+
+        return ids;
+    }
+}
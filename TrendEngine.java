@@ -0,0 +1,251 @@
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.function.LongSupplier;
+
+// parole di tendenza dei post di un MicroBlog: conta le parole dei nuovi post (secondo WordTokenizer) in una finestra
+// scorrevole divisa in intervalli di tempo di uguale durata, senza mai rileggere i post
+// Ogni intervallo ha un count-min sketch (una matrice di contatori, in cui una parola incrementa un contatore per riga e la
+// sua frequenza è stimata dal minimo di questi, per cui non viene mai sottostimata) e l'insieme delle CANDIDATES parole con
+// la stima più alta nell'intervallo. trending() stima la frequenza nella finestra richiesta delle sole parole candidate
+// degli intervalli che la compongono: memoria e tempo di risposta dipendono dal numero di intervalli e non dal numero di post.
+// Sono conteggiate solo le parole dei post creati (non quelle aggiunte da modifiche o censure) di almeno MIN_WORD_LENGTH
+// caratteri, così che articoli e preposizioni non occupino la classifica.
+public class TrendEngine implements MicroBlogIndex {
+    // durata predefinita di un intervallo e numero predefinito di intervalli (la finestra massima è di un'ora)
+    public static final long DEFAULT_BUCKET_MILLIS = 60 * 1000;
+    public static final int DEFAULT_BUCKETS = 60;
+
+    // numero di righe e di colonne (una potenza di 2) dello sketch di ciascun intervallo
+    private static final int DEPTH = 4;
+    private static final int WIDTH = 2048;
+
+    // numero massimo di parole candidate di ciascun intervallo
+    private static final int CANDIDATES = 64;
+
+    // lunghezza minima delle parole conteggiate
+    private static final int MIN_WORD_LENGTH = 3;
+
+    private final long bucketMillis;
+    private final LongSupplier clock;
+
+    // intervalli, usati in modo circolare: l'intervallo numero n (a partire da 0 all'istante 0) occupa buckets[n % buckets.length]
+    private final Bucket[] buckets;
+
+    // riutilizzato da apply() per scorrere le parole di ciascun post
+    private final WordTokenizer tokenizer;
+
+    /*
+        Representation invariant:
+        this.bucketMillis > 0 ∧ this.clock ≠ null ∧ this.buckets ≠ null ∧ this.buckets.length > 0 ∧ this.tokenizer ≠ null ∧
+        ∀ i . this.buckets[i] ≠ null ∧ (this.buckets[i].number = Long.MIN_VALUE ∨ this.buckets[i].number mod this.buckets.length = i)
+    */
+
+    // EFFECTS: crea un indice delle tendenze con DEFAULT_BUCKETS intervalli di DEFAULT_BUCKET_MILLIS millisecondi
+    public TrendEngine() {
+        this(DEFAULT_BUCKET_MILLIS, DEFAULT_BUCKETS, System::currentTimeMillis);
+    }
+
+    // REQUIRES: bucketMillis > 0 ∧ numBuckets > 0 ∧ clock ≠ null
+    // THROWS: IllegalArgumentException se bucketMillis ≤ 0 ∨ numBuckets ≤ 0 (unchecked exception),
+    //         NullPointerException se clock è null (unchecked exception)
+    // EFFECTS: crea un indice delle tendenze con numBuckets intervalli di bucketMillis millisecondi, che legge l'istante
+    //          corrente (in millisecondi) da clock
+    public TrendEngine(long bucketMillis, int numBuckets, LongSupplier clock) throws IllegalArgumentException, NullPointerException {
+        if(bucketMillis <= 0 || numBuckets <= 0) {
+            throw new IllegalArgumentException();
+        }
+        if(clock == null) {
+            throw new NullPointerException();
+        }
+
+        this.bucketMillis = bucketMillis;
+        this.clock = clock;
+        this.buckets = new Bucket[numBuckets];
+        for(int i = 0; i < numBuckets; i++) {
+            this.buckets[i] = new Bucket();
+        }
+        this.tokenizer = new WordTokenizer("");
+    }
+
+    public void apply(MicroBlogEvent event) {
+        if(event.getType() != MicroBlogEvent.Type.POST_CREATED) {
+            return; // like, follow, modifiche e censure non contano come nuove occorrenze
+        }
+
+        Bucket bucket = this.current();
+        CharSequence text = event.getText();
+        for(this.tokenizer.reset(text); this.tokenizer.next(); ) {
+            int start = this.tokenizer.start();
+            int end = this.tokenizer.end();
+            if(end - start >= MIN_WORD_LENGTH) {
+                bucket.add(TrendEngine.hash(text, start, end), this.tokenizer);
+            }
+        }
+    }
+
+    // REQUIRES: k ≥ 0 ∧ windowMillis > 0
+    // THROWS: IllegalArgumentException se k < 0 ∨ windowMillis ≤ 0 (unchecked exception)
+    // EFFECTS: restituisce le (al più) k parole più frequenti nei post creati negli ultimi windowMillis millisecondi,
+    //          ciascuna associata alla stima della propria frequenza, in ordine di frequenza decrescente (a parità, alfabetico)
+    //          La finestra è arrotondata per eccesso a un numero intero di intervalli (compreso quello in corso) e limitata a
+    //          getMaxWindowMillis(); le stime non sono mai inferiori alle frequenze effettive.
+    public List<Map.Entry<String, Integer>> trending(int k, long windowMillis) throws IllegalArgumentException {
+        if(k < 0 || windowMillis <= 0) {
+            throw new IllegalArgumentException();
+        }
+
+        long now = Math.floorDiv(this.clock.getAsLong(), this.bucketMillis);
+        long span = Math.min(this.buckets.length, (windowMillis + this.bucketMillis - 1) / this.bucketMillis);
+        List<Bucket> window = new ArrayList<Bucket>();
+        Set<String> candidates = new HashSet<String>();
+        for(Bucket bucket : this.buckets) {
+            if(bucket.number > now - span && bucket.number <= now) {
+                window.add(bucket);
+                candidates.addAll(bucket.candidates.keySet());
+            }
+        }
+
+        // min-heap delle k parole migliori, dalla peggiore
+        Comparator<Map.Entry<String, Integer>> worstFirst =
+            (e, f) -> e.getValue().equals(f.getValue()) ? f.getKey().compareTo(e.getKey()) : Integer.compare(e.getValue(), f.getValue());
+        PriorityQueue<Map.Entry<String, Integer>> top = new PriorityQueue<Map.Entry<String, Integer>>(worstFirst);
+        for(String word : candidates) {
+            long hash = TrendEngine.hash(word, 0, word.length());
+            int count = 0;
+            for(Bucket bucket : window) {
+                count += bucket.estimate(hash);
+            }
+            top.add(new AbstractMap.SimpleImmutableEntry<String, Integer>(word, count));
+            if(top.size() > k) {
+                top.poll();
+            }
+        }
+
+        List<Map.Entry<String, Integer>> trending = new ArrayList<Map.Entry<String, Integer>>(top);
+        trending.sort(worstFirst.reversed());
+        return trending;
+    }
+
+    // EFFECTS: restituisce la durata massima della finestra di trending(), ovvero la durata di tutti gli intervalli
+    public long getMaxWindowMillis() {
+        return this.bucketMillis * this.buckets.length;
+    }
+
+    // MODIFIES: this
+    // EFFECTS: restituisce l'intervallo che contiene l'istante corrente, svuotando l'intervallo scaduto che ne occupa la posizione
+    private Bucket current() {
+        long number = Math.floorDiv(this.clock.getAsLong(), this.bucketMillis);
+        Bucket bucket = this.buckets[(int) Math.floorMod(number, (long) this.buckets.length)];
+        if(bucket.number != number) {
+            bucket.reset(number);
+        }
+        return bucket;
+    }
+
+    // EFFECTS: restituisce un hash a 64 bit della parola text[start..end) normalizzata con WordTokenizer.fold (FNV-1a sui
+    //          caratteri, seguito dal mescolamento finale di MurmurHash3), senza creare la sottostringa
+    private static long hash(CharSequence text, int start, int end) {
+        long hash = 0xcbf29ce484222325L;
+        for(int i = start; i < end; i++) {
+            hash ^= WordTokenizer.fold(text.charAt(i));
+            hash *= 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+
+    // un intervallo di tempo: count-min sketch delle parole dei post creati nell'intervallo e parole candidate
+    private static class Bucket {
+        // numero dell'intervallo (istante di inizio / bucketMillis), o Long.MIN_VALUE se l'intervallo non è mai stato usato
+        private long number;
+
+        // contatori dello sketch, allocati al primo utilizzo dell'intervallo
+        private int[][] counts;
+
+        // parola candidata ↦ stima della sua frequenza nell'intervallo
+        private final Map<String, Integer> candidates;
+
+        // stima minima tra le parole candidate (0 se le candidate sono meno di CANDIDATES)
+        private int threshold;
+
+        private Bucket() {
+            this.number = Long.MIN_VALUE;
+            this.counts = null;
+            this.candidates = new HashMap<String, Integer>();
+            this.threshold = 0;
+        }
+
+        // MODIFIES: this
+        // EFFECTS: svuota l'intervallo e gli assegna il numero number
+        private void reset(long number) {
+            this.number = number;
+            if(this.counts == null) {
+                this.counts = new int[DEPTH][WIDTH];
+            } else {
+                for(int[] row : this.counts) {
+                    Arrays.fill(row, 0);
+                }
+            }
+            this.candidates.clear();
+            this.threshold = 0;
+        }
+
+        // MODIFIES: this
+        // EFFECTS: conta un'occorrenza della parola corrente di tokenizer, con hash hash; la parola viene creata come stringa
+        //          solo se entra (o è già) tra le candidate
+        private void add(long hash, WordTokenizer tokenizer) {
+            int estimate = this.increment(hash);
+            if(this.candidates.size() < CANDIDATES || estimate > this.threshold) {
+                this.candidates.put(tokenizer.word(), estimate);
+                if(this.candidates.size() > CANDIDATES) {
+                    this.candidates.values().remove(this.threshold); // rimuovo una delle candidate con la stima minima
+                }
+                if(this.candidates.size() == CANDIDATES) {
+                    this.threshold = Collections.min(this.candidates.values());
+                }
+            }
+        }
+
+        // MODIFIES: this
+        // EFFECTS: incrementa la stima della parola con hash hash e restituisce la nuova stima; con l'aggiornamento
+        //          conservativo vengono incrementati solo i contatori pari alla stima, il che riduce la sovrastima delle
+        //          altre parole che condividono i contatori
+        private int increment(long hash) {
+            int estimate = this.estimate(hash) + 1;
+            int h1 = (int) hash;
+            int h2 = (int) (hash >>> 32);
+            for(int row = 0; row < DEPTH; row++) {
+                int[] counters = this.counts[row];
+                int column = (h1 + row * h2) & (WIDTH - 1);
+                if(counters[column] < estimate) {
+                    counters[column] = estimate;
+                }
+            }
+            return estimate;
+        }
+
+        // EFFECTS: restituisce la stima della frequenza nell'intervallo della parola con hash hash
+        private int estimate(long hash) {
+            int h1 = (int) hash;
+            int h2 = (int) (hash >>> 32);
+            int estimate = Integer.MAX_VALUE;
+            for(int row = 0; row < DEPTH; row++) {
+                estimate = Math.min(estimate, this.counts[row][(h1 + row * h2) & (WIDTH - 1)]);
+            }
+            return estimate;
+        }
+    }
+}
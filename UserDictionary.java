@@ -0,0 +1,58 @@
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// dizionario che associa a ogni nome utente un id intero denso (0, 1, 2, ...), assegnato alla prima occorrenza e mai
+// riutilizzato, così che le strutture che lavorano sugli utenti (es. CsrGraph) possano usare array indicizzati per id
+public class UserDictionary {
+    private final Map<String, Integer> ids;
+    private final List<String> names;
+
+    /*
+        Representation invariant:
+        this.ids ≠ null ∧ this.names ≠ null ∧ this.ids.size() = this.names.size() ∧
+        ∀ i . 0 ≤ i < this.names.size() ⇒ this.ids.get(this.names.get(i)) = i
+    */
+
+    public UserDictionary() {
+        this.ids = new HashMap<String, Integer>();
+        this.names = new ArrayList<String>();
+    }
+
+    // REQUIRES: user ≠ null
+    // THROWS: NullPointerException se user è null (unchecked exception)
+    // MODIFIES: this
+    // EFFECTS: restituisce l'id di user, assegnandogli il prossimo id libero se non è ancora presente
+    public int getOrAdd(String user) throws NullPointerException {
+        if(user == null) {
+            throw new NullPointerException();
+        }
+
+        Integer id = this.ids.get(user);
+        if(id == null) {
+            id = this.names.size();
+            this.ids.put(user, id);
+            this.names.add(user);
+        }
+        return id;
+    }
+
+    // EFFECTS: restituisce l'id di user, o -1 se user non è presente
+    public int getId(String user) {
+        Integer id = this.ids.get(user);
+        return id == null ? -1 : id;
+    }
+
+    // REQUIRES: 0 ≤ id < this.size()
+    // THROWS: IndexOutOfBoundsException se id < 0 ∨ id ≥ this.size() (unchecked exception)
+    // EFFECTS: restituisce il nome dell'utente con id id
+    public String getName(int id) throws IndexOutOfBoundsException {
+        return this.names.get(id);
+    }
+
+    // EFFECTS: restituisce il numero di utenti presenti
+    public int size() {
+        return this.names.size();
+    }
+}
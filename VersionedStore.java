@@ -0,0 +1,356 @@
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.IntFunction;
+import javax.naming.LimitExceededException;
+
+// copia multi-versione dei post e delle relazioni di follow di un MicroBlog, che permette di leggere lo stato della rete a un
+// numero di sequenza fissato (MicroBlogSnapshot) mentre la rete continua a essere modificata, senza lock e senza copie
+// Ogni post e ogni utente ha una catena di versioni immutabili, dalla più recente, ciascuna etichettata con il numero di
+// sequenza dell'evento che l'ha prodotta: uno snapshot al numero s legge di ogni catena la versione più recente con numero
+// ≤ s, e ignora post e utenti la cui versione più vecchia è successiva a s. I like di un post sono una lista immutabile
+// condivisa tra le versioni, per cui aggiungere un like non copia i precedenti.
+// Le versioni vecchie vengono recuperate per epoche: ogni snapshot aperto fissa come epoca il proprio numero di sequenza, e
+// ogni GC_INTERVAL eventi il thread che modifica la rete tronca le catene modificate dopo la versione più recente non
+// successiva all'epoca minima fissata (o all'ultimo evento, se non ci sono snapshot aperti), che nessun lettore può superare.
+// Le modifiche (apply) devono essere eseguite da un solo thread alla volta; open(), release() e le letture possono essere
+// eseguite da qualsiasi thread.
+public class VersionedStore implements MicroBlogIndex {
+    // numero di eventi tra due raccolte delle versioni vecchie
+    public static final int GC_INTERVAL = 1024;
+
+    // post della rete per id, usato per leggere il timestamp dei post creati
+    private final IntFunction<Post> lookup;
+
+    private final Map<Integer, PostChain> posts;
+    private final Map<String, UserChain> users;
+
+    // numero di sequenza dell'ultimo evento applicato completamente
+    private volatile long published;
+
+    // epoca ↦ numero di snapshot aperti con quell'epoca; accesso sincronizzato su this.epochs
+    private final TreeMap<Long, Integer> epochs;
+
+    // catene con più di una versione, lette e modificate solo dal thread che modifica la rete
+    private List<Chain> dirty;
+    private int sinceCollection;
+
+    // numero totale di versioni nelle catene
+    private volatile int versions;
+
+    /*
+        Representation invariant:
+        this.lookup ≠ null ∧ this.posts ≠ null ∧ this.users ≠ null ∧ this.epochs ≠ null ∧ this.dirty ≠ null ∧
+        ∀ (e, n) ∈ this.epochs . e ≤ this.published ∧ n > 0 ∧
+        ∀ catena c ∈ this.posts.values() ∪ this.users.values() . i numeri di sequenza delle versioni di c sono non crescenti
+            dalla più recente ∧ (c ha più di una versione ⇒ c ∈ this.dirty) ∧
+        la versione di c letta da uno snapshot aperto con epoca e non è mai stata rimossa dalla catena
+    */
+
+    // REQUIRES: lookup ≠ null
+    // THROWS: NullPointerException se lookup è null (unchecked exception)
+    // EFFECTS: crea una copia multi-versione vuota, che legge i timestamp dei post creati da lookup
+    public VersionedStore(IntFunction<Post> lookup) throws NullPointerException {
+        if(lookup == null) {
+            throw new NullPointerException();
+        }
+
+        this.lookup = lookup;
+        this.posts = new ConcurrentHashMap<Integer, PostChain>();
+        this.users = new ConcurrentHashMap<String, UserChain>();
+        this.published = 0;
+        this.epochs = new TreeMap<Long, Integer>();
+        this.dirty = new ArrayList<Chain>();
+        this.sinceCollection = 0;
+        this.versions = 0;
+    }
+
+    public void apply(MicroBlogEvent event) {
+        long sequence = event.getSequence();
+        PostChain post = event.getPostId() < 0 ? null : this.posts.get(event.getPostId());
+        PostVersion current = post == null ? null : (PostVersion) post.head;
+
+        switch(event.getType()) {
+            case POST_CREATED:
+                Post created = this.lookup.apply(event.getPostId());
+                this.posts.put(event.getPostId(), new PostChain(event.getPostId(), event.getAuthor(), created.getTimestamp(),
+                    new PostVersion(sequence, event.getText(), null, 0, null)));
+                this.versions++;
+                if(!this.users.containsKey(event.getAuthor())) {
+                    this.users.put(event.getAuthor(), new UserChain(new FollowVersion(sequence, Collections.<String>emptySet(), null)));
+                    this.versions++;
+                }
+                break;
+            case POST_EDITED:
+            case POST_CENSORED:
+                this.install(post, new PostVersion(sequence, event.getText(), current.likes, current.likeCount, current));
+                break;
+            case LIKE_ADDED:
+                this.install(post, new PostVersion(sequence, current.text, new Like(event.getUser(), current.likes), current.likeCount + 1, current));
+                break;
+            case LIKE_REMOVED:
+                this.install(post, new PostVersion(sequence, current.text, VersionedStore.without(current.likes, event.getUser()), current.likeCount - 1, current));
+                break;
+            case FOLLOW_ADDED:
+            case FOLLOW_REMOVED:
+                UserChain user = this.users.get(event.getUser());
+                if(user == null) { // i follower sono autori, per cui di norma la catena esiste già
+                    user = new UserChain(new FollowVersion(sequence, Collections.<String>emptySet(), null));
+                    this.users.put(event.getUser(), user);
+                    this.versions++;
+                }
+                FollowVersion following = (FollowVersion) user.head;
+                Set<String> updated = new HashSet<String>(following.following);
+                if(event.getType() == MicroBlogEvent.Type.FOLLOW_ADDED) {
+                    updated.add(event.getAuthor());
+                } else {
+                    updated.remove(event.getAuthor());
+                }
+                this.install(user, new FollowVersion(sequence, Collections.unmodifiableSet(updated), following));
+                break;
+        }
+
+        this.published = sequence; // le letture successive vedono l'evento solo dopo che è stato applicato completamente
+        if(++(this.sinceCollection) >= GC_INTERVAL) {
+            this.collect();
+        }
+    }
+
+    // MODIFIES: this
+    // EFFECTS: apre uno snapshot all'ultimo evento applicato, fissandone il numero di sequenza come epoca finché non viene chiuso
+    public MicroBlogSnapshot open() {
+        synchronized(this.epochs) { // l'epoca è registrata prima che collect() possa calcolare un'epoca minima successiva
+            long epoch = this.published;
+            this.epochs.merge(epoch, 1, Integer::sum);
+            return new MicroBlogSnapshot(this, epoch);
+        }
+    }
+
+    // MODIFIES: this
+    // EFFECTS: rilascia l'epoca epoch di uno snapshot chiuso, così che le versioni lette solo da questo possano essere recuperate
+    void release(long epoch) {
+        synchronized(this.epochs) {
+            this.epochs.merge(epoch, -1, (a, b) -> a + b == 0 ? null : a + b);
+        }
+    }
+
+    // EFFECTS: restituisce il numero di snapshot aperti
+    public int getNumberOfSnapshots() {
+        synchronized(this.epochs) {
+            int count = 0;
+            for(int snapshots : this.epochs.values()) {
+                count += snapshots;
+            }
+            return count;
+        }
+    }
+
+    // EFFECTS: restituisce il numero di versioni memorizzate (almeno una per post e per autore, più quelle non ancora recuperate)
+    public int getNumberOfVersions() {
+        return this.versions;
+    }
+
+    // MODIFIES: this
+    // EFFECTS: tronca le catene con più versioni dopo la versione più recente non successiva all'epoca minima degli snapshot
+    //          aperti (o all'ultimo evento applicato, se non ce ne sono)
+    public void collect() {
+        long horizon;
+        synchronized(this.epochs) {
+            horizon = this.epochs.isEmpty() ? this.published : this.epochs.firstKey();
+        }
+
+        List<Chain> dirty = new ArrayList<Chain>();
+        int reclaimed = 0;
+        for(Chain chain : this.dirty) {
+            Version version = chain.at(horizon); // null se tutte le versioni sono successive a horizon
+            if(version != null) {
+                for(Version old = version.older; old != null; old = old.older) {
+                    reclaimed++;
+                }
+                version.older = null; // i lettori con epoca ≥ horizon si fermano a questa versione o prima
+            }
+            if(chain.head.older != null) {
+                dirty.add(chain);
+            } else {
+                chain.dirty = false;
+            }
+        }
+        this.dirty = dirty;
+        this.versions -= reclaimed;
+        this.sinceCollection = 0;
+    }
+
+    // EFFECTS: restituisce una copia del post con id id com'era al numero di sequenza sequence, o null se non esisteva
+    Post getPost(int id, long sequence) {
+        PostChain chain = this.posts.get(id);
+        if(chain == null) {
+            return null;
+        }
+        PostVersion version = (PostVersion) chain.at(sequence);
+        return version == null ? null : chain.toPost(version);
+    }
+
+    // EFFECTS: restituisce una lista, ordinata per id, delle copie dei post com'erano al numero di sequenza sequence
+    List<Post> getAllPosts(long sequence) {
+        List<Post> posts = new ArrayList<Post>();
+        for(PostChain chain : this.posts.values()) {
+            PostVersion version = (PostVersion) chain.at(sequence);
+            if(version != null) {
+                posts.add(chain.toPost(version));
+            }
+        }
+        posts.sort((p, q) -> p.compareTo(q));
+        return posts;
+    }
+
+    // EFFECTS: restituisce una copia delle relazioni di follow (autore ↦ utenti seguiti) com'erano al numero di sequenza sequence
+    Map<String, Set<String>> getFollowRelations(long sequence) {
+        Map<String, Set<String>> follows = new HashMap<String, Set<String>>();
+        for(Map.Entry<String, UserChain> entry : this.users.entrySet()) {
+            FollowVersion version = (FollowVersion) entry.getValue().at(sequence);
+            if(version != null) {
+                follows.put(entry.getKey(), new HashSet<String>(version.following));
+            }
+        }
+        return follows;
+    }
+
+    // MODIFIES: this
+    // EFFECTS: rende version la versione più recente di chain
+    private void install(Chain chain, Version version) {
+        chain.head = version;
+        this.versions++;
+        if(!chain.dirty) {
+            chain.dirty = true;
+            this.dirty.add(chain);
+        }
+    }
+
+    // EFFECTS: restituisce la lista likes senza il like di user, copiando i nodi che lo precedono e condividendo quelli che lo seguono
+    private static Like without(Like likes, String user) {
+        List<String> before = new ArrayList<String>();
+        Like like = likes;
+        while(like != null && !like.user.equals(user)) {
+            before.add(like.user);
+            like = like.next;
+        }
+        if(like == null) {
+            return likes;
+        }
+
+        Like result = like.next;
+        for(int i = before.size() - 1; i >= 0; i--) {
+            result = new Like(before.get(i), result);
+        }
+        return result;
+    }
+
+    // versione immutabile di un post o di un utente; older viene azzerato solo da collect()
+    private abstract static class Version {
+        private final long sequence;
+        private Version older;
+
+        private Version(long sequence, Version older) {
+            this.sequence = sequence;
+            this.older = older;
+        }
+    }
+
+    // testo e like di un post a partire dal numero di sequenza sequence
+    private static class PostVersion extends Version {
+        private final String text;
+        private final Like likes; // dal più recente
+        private final int likeCount;
+
+        private PostVersion(long sequence, String text, Like likes, int likeCount, Version older) {
+            super(sequence, older);
+            this.text = text;
+            this.likes = likes;
+            this.likeCount = likeCount;
+        }
+    }
+
+    // utenti seguiti da un utente a partire dal numero di sequenza sequence
+    private static class FollowVersion extends Version {
+        private final Set<String> following;
+
+        private FollowVersion(long sequence, Set<String> following, Version older) {
+            super(sequence, older);
+            this.following = following;
+        }
+    }
+
+    // nodo immutabile della lista dei like di un post
+    private static class Like {
+        private final String user;
+        private final Like next;
+
+        private Like(String user, Like next) {
+            this.user = user;
+            this.next = next;
+        }
+    }
+
+    // catena di versioni; head è pubblicata con una scrittura volatile dopo che la versione è stata costruita
+    private abstract static class Chain {
+        volatile Version head;
+        boolean dirty; // letto e modificato solo dal thread che modifica la rete
+
+        private Chain(Version head) {
+            this.head = head;
+            this.dirty = false;
+        }
+
+        // EFFECTS: restituisce la versione più recente con numero di sequenza ≤ sequence, o null se non esiste
+        Version at(long sequence) {
+            Version version = this.head;
+            while(version != null && version.sequence > sequence) {
+                version = version.older;
+            }
+            return version;
+        }
+    }
+
+    // catena delle versioni di un post, con i suoi attributi immutabili
+    private static class PostChain extends Chain {
+        private final int id;
+        private final String author;
+        private final Timestamp timestamp;
+
+        private PostChain(int id, String author, Timestamp timestamp, PostVersion head) {
+            super(head);
+            this.id = id;
+            this.author = author;
+            this.timestamp = timestamp;
+        }
+
+        // EFFECTS: restituisce un nuovo post con gli attributi di this e il testo e i like di version
+        private Post toPost(PostVersion version) {
+            String[] likes = new String[version.likeCount];
+            int i = likes.length;
+            for(Like like = version.likes; like != null; like = like.next) {
+                likes[--i] = like.user; // la lista parte dal like più recente
+            }
+            try {
+                return new Post(this.id, this.author, version.text, this.timestamp, Arrays.asList(likes));
+            } catch(LimitExceededException exc) { // non può verificarsi, il testo è stato accettato dalla rete
+                return null;
+            }
+        }
+    }
+
+    // catena delle versioni degli utenti seguiti da un utente
+    private static class UserChain extends Chain {
+        private UserChain(FollowVersion head) {
+            super(head);
+        }
+    }
+}
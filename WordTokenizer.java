@@ -0,0 +1,183 @@
+import java.util.HashSet;
+import java.util.Set;
+
+// suddivisione in parole dei testi dei post, condivisa da ricerca (containing, sortByRelevance), indici, filtri di Bloom e
+// censura delle parole offensive, così che tutti riconoscano le stesse parole
+// Una parola è una sequenza massimale di caratteri per cui isWordChar() è vero (lettere, cifre e '_'); due parole sono uguali
+// se lo sono carattere per carattere dopo fold(), che ignora maiuscole e minuscole senza cambiare la lunghezza del testo.
+// Il tokenizer scorre un CharSequence e restituisce gli offset delle parole senza creare sottostringhe; lo stesso oggetto
+// può essere riutilizzato per più testi con reset(). Anche indexOf() e containsWord() non allocano memoria.
+public class WordTokenizer {
+    private CharSequence text;
+    private int start;
+    private int end;
+
+    /*
+        Representation invariant:
+        this.text ≠ null ∧ 0 ≤ this.start ≤ this.end ≤ this.text.length() ∧
+        (this.start < this.end ⇒ this.text[this.start..this.end) è una parola di this.text)
+    */
+
+    // REQUIRES: text ≠ null
+    // THROWS: NullPointerException se text è null (unchecked exception)
+    // EFFECTS: crea un tokenizer posizionato prima della prima parola di text
+    public WordTokenizer(CharSequence text) throws NullPointerException {
+        this.reset(text);
+    }
+
+    // REQUIRES: text ≠ null
+    // THROWS: NullPointerException se text è null (unchecked exception)
+    // MODIFIES: this
+    // EFFECTS: riposiziona il tokenizer prima della prima parola di text e restituisce this
+    public WordTokenizer reset(CharSequence text) throws NullPointerException {
+        if(text == null) {
+            throw new NullPointerException();
+        }
+
+        this.text = text;
+        this.start = 0;
+        this.end = 0;
+        return this;
+    }
+
+    // MODIFIES: this
+    // EFFECTS: avanza alla parola successiva e restituisce true, o restituisce false se non ci sono altre parole
+    public boolean next() {
+        int length = this.text.length();
+        int i = this.end;
+        while(i < length && !WordTokenizer.isWordChar(this.text.charAt(i))) {
+            i++;
+        }
+        if(i == length) {
+            this.start = this.end = length;
+            return false;
+        }
+
+        this.start = i;
+        while(i < length && WordTokenizer.isWordChar(this.text.charAt(i))) {
+            i++;
+        }
+        this.end = i;
+        return true;
+    }
+
+    // EFFECTS: restituisce l'offset del primo carattere della parola corrente
+    public int start() {
+        return this.start;
+    }
+
+    // EFFECTS: restituisce l'offset successivo all'ultimo carattere della parola corrente
+    public int end() {
+        return this.end;
+    }
+
+    // REQUIRES: word ≠ null
+    // THROWS: NullPointerException se word è null (unchecked exception)
+    // EFFECTS: restituisce true se e solo se la parola corrente è uguale a word, ignorando maiuscole e minuscole
+    public boolean matches(CharSequence word) throws NullPointerException {
+        return this.end - this.start == word.length() && WordTokenizer.regionMatches(this.text, this.start, word);
+    }
+
+    // EFFECTS: restituisce la parola corrente normalizzata con fold()
+    public String word() {
+        return WordTokenizer.fold(this.text, this.start, this.end);
+    }
+
+    // EFFECTS: restituisce true se e solo se c può fare parte di una parola
+    public static boolean isWordChar(char c) {
+        return Character.isLetterOrDigit(c) || c == '_';
+    }
+
+    // EFFECTS: restituisce c normalizzato per i confronti che ignorano maiuscole e minuscole
+    public static char fold(char c) {
+        return Character.toLowerCase(c);
+    }
+
+    // REQUIRES: text ≠ null
+    // THROWS: NullPointerException se text è null (unchecked exception)
+    // EFFECTS: restituisce text con ogni carattere normalizzato con fold(char)
+    public static String fold(CharSequence text) throws NullPointerException {
+        return WordTokenizer.fold(text, 0, text.length());
+    }
+
+    // EFFECTS: restituisce i caratteri di text da start (incluso) a end (escluso) normalizzati con fold(char), senza copiare
+    //          la porzione prima di normalizzarla; se text è una String già normalizzata in quella porzione (il caso comune)
+    //          la porzione viene copiata una sola volta
+    private static String fold(CharSequence text, int start, int end) {
+        int i = start;
+        while(i < end && WordTokenizer.fold(text.charAt(i)) == text.charAt(i)) {
+            i++;
+        }
+        if(i == end && text instanceof String) {
+            return ((String) text).substring(start, end);
+        }
+
+        StringBuilder folded = new StringBuilder(end - start);
+        folded.append(text, start, i);
+        for(; i < end; i++) {
+            folded.append(WordTokenizer.fold(text.charAt(i)));
+        }
+        return folded.toString();
+    }
+
+    // REQUIRES: text ≠ null
+    // THROWS: NullPointerException se text è null (unchecked exception)
+    // EFFECTS: restituisce l'insieme delle parole di text, normalizzate con fold()
+    public static Set<String> words(CharSequence text) throws NullPointerException {
+        Set<String> words = new HashSet<String>();
+        WordTokenizer tokenizer = new WordTokenizer(text);
+        while(tokenizer.next()) {
+            words.add(tokenizer.word());
+        }
+        return words;
+    }
+
+    // REQUIRES: text ≠ null ∧ word ≠ null
+    // THROWS: NullPointerException se text è null ∨ word è null (unchecked exception)
+    // EFFECTS: restituisce true se e solo se indexOf(text, word, 0) ≥ 0
+    public static boolean containsWord(CharSequence text, CharSequence word) throws NullPointerException {
+        return WordTokenizer.indexOf(text, word, 0) >= 0;
+    }
+
+    // REQUIRES: text ≠ null ∧ word ≠ null ∧ from ≥ 0
+    // THROWS: NullPointerException se text è null ∨ word è null (unchecked exception)
+    // EFFECTS: restituisce l'offset della prima occorrenza di word in text a partire da from, ignorando maiuscole e minuscole,
+    //          che non inizi né termini all'interno di una parola di text (es. "post" compare in "un post." ma non in "posting"),
+    //          o -1 se non esiste; word può contenere più parole (es. "buon giorno") e viene confrontata letteralmente
+    public static int indexOf(CharSequence text, CharSequence word, int from) throws NullPointerException {
+        int length = word.length();
+        if(length == 0) {
+            return text == null ? -1 : Math.min(from, text.length());
+        }
+
+        boolean wordStart = WordTokenizer.isWordChar(word.charAt(0));
+        boolean wordEnd = WordTokenizer.isWordChar(word.charAt(length - 1));
+        char first = WordTokenizer.fold(word.charAt(0));
+        for(int i = Math.max(0, from), last = text.length() - length; i <= last; i++) {
+            if(WordTokenizer.fold(text.charAt(i)) != first) {
+                continue;
+            }
+            // un'occorrenza che inizia (o termina) con un carattere di parola deve iniziare (o terminare) anche una parola di text
+            if(wordStart && i > 0 && WordTokenizer.isWordChar(text.charAt(i - 1))) {
+                continue;
+            }
+            if(wordEnd && i + length < text.length() && WordTokenizer.isWordChar(text.charAt(i + length))) {
+                continue;
+            }
+            if(WordTokenizer.regionMatches(text, i, word)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    // EFFECTS: restituisce true se e solo se text[offset..offset + word.length()) è uguale a word ignorando maiuscole e minuscole
+    private static boolean regionMatches(CharSequence text, int offset, CharSequence word) {
+        for(int j = 0; j < word.length(); j++) {
+            if(WordTokenizer.fold(text.charAt(offset + j)) != WordTokenizer.fold(word.charAt(j))) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,286 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+// trie che associa a ogni chiave (una stringa non vuota) un insieme di id, es. gli id dei post scritti da un utente o
+// che contengono una parola; una chiave è presente finché il suo insieme non è vuoto
+// Ogni nodo memorizza i figli in due array ordinati per carattere, senza una map per nodo, così che anche un trie
+// con molte chiavi occupi poca memoria; la ricerca dei figli è una ricerca binaria.
+// Oltre alla ricerca esatta offre la ricerca per prefisso (autocompletamento) e per distanza di edit limitata
+// (tolleranza agli errori di battitura), entrambe proporzionali ai nodi visitati e non al numero di chiavi.
+public class WordTrie {
+    private static class Node {
+        private char[] labels;
+        private Node[] children;
+        private int childCount;
+
+        // id associati alla chiave che termina in questo nodo; null se nessuna chiave termina qui
+        private Set<Integer> ids;
+
+        private Node() {
+            this.labels = new char[0];
+            this.children = new Node[0];
+            this.childCount = 0;
+            this.ids = null;
+        }
+
+        // EFFECTS: restituisce il figlio raggiunto con il carattere c, o null se non esiste
+        private Node child(char c) {
+            int index = Arrays.binarySearch(this.labels, 0, this.childCount, c);
+            return index >= 0 ? this.children[index] : null;
+        }
+
+        // MODIFIES: this
+        // EFFECTS: restituisce il figlio raggiunto con il carattere c, creandolo se non esiste
+        private Node childOrCreate(char c) {
+            int index = Arrays.binarySearch(this.labels, 0, this.childCount, c);
+            if(index >= 0) {
+                return this.children[index];
+            }
+
+            index = -index - 1;
+            if(this.childCount == this.labels.length) {
+                int capacity = Math.max(2, this.childCount * 2);
+                this.labels = Arrays.copyOf(this.labels, capacity);
+                this.children = Arrays.copyOf(this.children, capacity);
+            }
+            System.arraycopy(this.labels, index, this.labels, index + 1, this.childCount - index);
+            System.arraycopy(this.children, index, this.children, index + 1, this.childCount - index);
+            Node child = new Node();
+            this.labels[index] = c;
+            this.children[index] = child;
+            this.childCount++;
+            return child;
+        }
+
+        // MODIFIES: this
+        // EFFECTS: rimuove il figlio raggiunto con il carattere c, se esiste
+        private void removeChild(char c) {
+            int index = Arrays.binarySearch(this.labels, 0, this.childCount, c);
+            if(index >= 0) {
+                System.arraycopy(this.labels, index + 1, this.labels, index, this.childCount - index - 1);
+                System.arraycopy(this.children, index + 1, this.children, index, this.childCount - index - 1);
+                this.childCount--;
+                this.children[this.childCount] = null;
+            }
+        }
+
+        private boolean isEmpty() {
+            return this.childCount == 0 && this.ids == null;
+        }
+    }
+
+    // chiave trovata da una ricerca per distanza di edit
+    private static class Match {
+        private final String key;
+        private final int distance;
+
+        private Match(String key, int distance) {
+            this.key = key;
+            this.distance = distance;
+        }
+    }
+
+    private final Node root;
+    private int size;
+
+    /*
+        Abstraction function:
+        AF(c) = { (k, ids) | il cammino da c.root etichettato con i caratteri di k termina in un nodo n con n.ids = ids ≠ null }
+
+        Representation invariant:
+        c.root ≠ null ∧ c.root.ids = null ∧ c.size = #{chiavi in AF(c)} ∧
+        ∀ n nodo . (n.ids = null ∨ n.ids non è vuoto) ∧ n.labels[0..n.childCount) è strettamente crescente ∧
+                   (n ≠ c.root ⇒ ¬n.isEmpty())
+    */
+
+    public WordTrie() {
+        this.root = new Node();
+        this.size = 0;
+    }
+
+    // EFFECTS: restituisce il numero di chiavi presenti
+    public int size() {
+        return this.size;
+    }
+
+    // REQUIRES: key ≠ null ∧ key.length > 0
+    // THROWS: NullPointerException se key è null (unchecked exception),
+    //         IllegalArgumentException se key.length = 0 (unchecked exception)
+    // MODIFIES: this
+    // EFFECTS: aggiunge id all'insieme associato a key, aggiungendo key se non presente
+    public void add(String key, int id) throws NullPointerException, IllegalArgumentException {
+        WordTrie.checkKey(key);
+
+        Node node = this.root;
+        for(int i = 0; i < key.length(); i++) {
+            node = node.childOrCreate(key.charAt(i));
+        }
+        if(node.ids == null) {
+            node.ids = new HashSet<Integer>();
+            this.size++;
+        }
+        node.ids.add(id);
+    }
+
+    // REQUIRES: key ≠ null ∧ key.length > 0
+    // THROWS: NullPointerException se key è null (unchecked exception),
+    //         IllegalArgumentException se key.length = 0 (unchecked exception)
+    // MODIFIES: this
+    // EFFECTS: rimuove id dall'insieme associato a key; se l'insieme diventa vuoto key viene rimossa
+    public void remove(String key, int id) throws NullPointerException, IllegalArgumentException {
+        WordTrie.checkKey(key);
+
+        // memorizzo il cammino per poter eliminare i nodi rimasti vuoti
+        Node[] path = new Node[key.length() + 1];
+        path[0] = this.root;
+        for(int i = 0; i < key.length(); i++) {
+            path[i + 1] = path[i].child(key.charAt(i));
+            if(path[i + 1] == null) {
+                return;
+            }
+        }
+
+        Node node = path[key.length()];
+        if(node.ids == null || !node.ids.remove(id) || !node.ids.isEmpty()) {
+            return;
+        }
+        node.ids = null;
+        this.size--;
+
+        for(int i = key.length(); i > 0 && path[i].isEmpty(); i--) {
+            path[i - 1].removeChild(key.charAt(i - 1));
+        }
+    }
+
+    // EFFECTS: restituisce una vista non modificabile dell'insieme associato a key, vuoto se key non è presente
+    public Set<Integer> get(String key) {
+        Node node = key == null ? null : this.find(key);
+        return node == null || node.ids == null ? Collections.<Integer>emptySet() : Collections.unmodifiableSet(node.ids);
+    }
+
+    // EFFECTS: restituisce true se e solo se key è presente
+    public boolean contains(String key) {
+        Node node = key == null ? null : this.find(key);
+        return node != null && node.ids != null;
+    }
+
+    // REQUIRES: prefix ≠ null ∧ limit ≥ 0
+    // THROWS: NullPointerException se prefix è null (unchecked exception),
+    //         IllegalArgumentException se limit < 0 (unchecked exception)
+    // EFFECTS: restituisce al più limit chiavi che iniziano con prefix, in ordine lessicografico
+    public List<String> keysWithPrefix(String prefix, int limit) throws NullPointerException, IllegalArgumentException {
+        if(prefix == null) {
+            throw new NullPointerException();
+        }
+        if(limit < 0) {
+            throw new IllegalArgumentException();
+        }
+
+        List<String> keys = new ArrayList<String>(Math.min(limit, 64));
+        Node node = this.find(prefix);
+        if(node != null) {
+            WordTrie.collect(node, new StringBuilder(prefix), keys, limit);
+        }
+        return keys;
+    }
+
+    // REQUIRES: key ≠ null ∧ maxDistance ≥ 0 ∧ limit ≥ 0
+    // THROWS: NullPointerException se key è null (unchecked exception),
+    //         IllegalArgumentException se maxDistance < 0 ∨ limit < 0 (unchecked exception)
+    // EFFECTS: restituisce al più limit chiavi la cui distanza di Levenshtein da key è al più maxDistance, ordinate per
+    //          distanza crescente e, a parità di distanza, in ordine lessicografico
+    public List<String> keysWithin(String key, int maxDistance, int limit) throws NullPointerException, IllegalArgumentException {
+        if(key == null) {
+            throw new NullPointerException();
+        }
+        if(maxDistance < 0 || limit < 0) {
+            throw new IllegalArgumentException();
+        }
+
+        // la riga della matrice di Levenshtein per il prefisso vuoto
+        int[] row = new int[key.length() + 1];
+        for(int j = 0; j <= key.length(); j++) {
+            row[j] = j;
+        }
+
+        List<Match> matches = new ArrayList<Match>();
+        WordTrie.collectWithin(this.root, new StringBuilder(), key, row, maxDistance, matches);
+        matches.sort((a, b) -> a.distance != b.distance ? a.distance - b.distance : a.key.compareTo(b.key));
+
+        List<String> keys = new ArrayList<String>(Math.min(limit, matches.size()));
+        for(int i = 0; i < matches.size() && i < limit; i++) {
+            keys.add(matches.get(i).key);
+        }
+        return keys;
+    }
+
+    // EFFECTS: restituisce il nodo raggiunto seguendo i caratteri di key, o null se non esiste
+    private Node find(String key) {
+        Node node = this.root;
+        for(int i = 0; i < key.length() && node != null; i++) {
+            node = node.child(key.charAt(i));
+        }
+        return node;
+    }
+
+    // MODIFIES: keys, path
+    // EFFECTS: aggiunge a keys, in ordine lessicografico e finché keys.size() < limit, le chiavi del sottoalbero di node;
+    //          path contiene la chiave corrispondente a node e viene ripristinato prima di terminare
+    private static void collect(Node node, StringBuilder path, List<String> keys, int limit) {
+        if(keys.size() >= limit) {
+            return;
+        }
+        if(node.ids != null) {
+            keys.add(path.toString());
+        }
+        for(int i = 0; i < node.childCount && keys.size() < limit; i++) {
+            path.append(node.labels[i]);
+            WordTrie.collect(node.children[i], path, keys, limit);
+            path.setLength(path.length() - 1);
+        }
+    }
+
+    // MODIFIES: matches, path
+    // EFFECTS: aggiunge a matches le chiavi del sottoalbero di node a distanza al più maxDistance da key, dove previous è la
+    //          riga della matrice di Levenshtein tra la chiave corrispondente a node (contenuta in path) e i prefissi di key;
+    //          i sottoalberi in cui ogni valore della riga supera maxDistance vengono scartati
+    private static void collectWithin(Node node, StringBuilder path, String key, int[] previous, int maxDistance, List<Match> matches) {
+        for(int i = 0; i < node.childCount; i++) {
+            char c = node.labels[i];
+            Node child = node.children[i];
+
+            int[] row = new int[previous.length];
+            row[0] = previous[0] + 1;
+            int best = row[0];
+            for(int j = 1; j < row.length; j++) {
+                int substitution = previous[j - 1] + (key.charAt(j - 1) == c ? 0 : 1);
+                row[j] = Math.min(substitution, Math.min(row[j - 1] + 1, previous[j] + 1));
+                best = Math.min(best, row[j]);
+            }
+
+            path.append(c);
+            if(child.ids != null && row[row.length - 1] <= maxDistance) {
+                matches.add(new Match(path.toString(), row[row.length - 1]));
+            }
+            if(best <= maxDistance) {
+                WordTrie.collectWithin(child, path, key, row, maxDistance, matches);
+            }
+            path.setLength(path.length() - 1);
+        }
+    }
+
+    // THROWS: NullPointerException se key è null (unchecked exception),
+    //         IllegalArgumentException se key.length = 0 (unchecked exception)
+    private static void checkKey(String key) throws NullPointerException, IllegalArgumentException {
+        if(key == null) {
+            throw new NullPointerException();
+        }
+        if(key.isEmpty()) {
+            throw new IllegalArgumentException();
+        }
+    }
+}
@@ -0,0 +1,58 @@
+import java.util.Random;
+
+// generatore di interi distribuiti secondo una legge di Zipf su {0, ..., n - 1}: il valore di rango k viene estratto
+// con probabilità proporzionale a 1 / (k + 1)^skew (con skew = 0 la distribuzione è uniforme)
+public class ZipfDistribution {
+    // funzione di ripartizione cumulativa: cdf[k] = P(X ≤ k)
+    private final double[] cdf;
+
+    /*
+        Representation invariant:
+        this.cdf ≠ null ∧ this.cdf.length > 0 ∧
+        ∀ 0 ≤ i < j < this.cdf.length . this.cdf[i] ≤ this.cdf[j] ∧ this.cdf[this.cdf.length - 1] = 1
+    */
+
+    // REQUIRES: n > 0 ∧ skew ≥ 0
+    // THROWS: IllegalArgumentException se n ≤ 0 ∨ skew < 0 (unchecked exception)
+    public ZipfDistribution(int n, double skew) throws IllegalArgumentException {
+        if(n <= 0 || skew < 0) {
+            throw new IllegalArgumentException();
+        }
+
+        this.cdf = new double[n];
+        double sum = 0;
+        for(int k = 0; k < n; k++) {
+            sum += 1 / Math.pow(k + 1, skew);
+            this.cdf[k] = sum;
+        }
+        for(int k = 0; k < n; k++) { // normalizzo in modo che la funzione valga 1 sull'ultimo elemento
+            this.cdf[k] /= sum;
+        }
+        this.cdf[n - 1] = 1;
+    }
+
+    // EFFECTS: restituisce il numero di valori che possono essere estratti
+    public int size() {
+        return this.cdf.length;
+    }
+
+    // REQUIRES: random ≠ null
+    // THROWS: NullPointerException se random è null (unchecked exception)
+    // EFFECTS: restituisce un intero in [0, this.size()) estratto secondo la distribuzione, in tempo O(log n)
+    public int next(Random random) throws NullPointerException {
+        double u = random.nextDouble();
+
+        // ricerca binaria del primo indice k t.c. cdf[k] ≥ u
+        int low = 0;
+        int high = this.cdf.length - 1;
+        while(low < high) {
+            int mid = (low + high) >>> 1;
+            if(this.cdf[mid] < u) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+}
@@ -0,0 +1,131 @@
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeSet;
+import org.junit.Test;
+
+// confronta likedBoth e commonFollowers, calcolati da AudienceIndex come intersezioni di bitmap, con le intersezioni dei like
+// e delle relazioni di follow della rete, su post e autori con pubblici sia piccoli (contenitori in forma di array) sia
+// oltre la soglia dei 4096 utenti (contenitori in forma di bitmap), anche dopo la rimozione di like e follow
+public class AudienceIndexTest {
+    // numero di utenti, oltre la soglia dei contenitori in forma di array
+    private static final int USERS = 6000;
+
+    // autori dei post osservati e probabilità (su 100) che un utente metta like a un loro post
+    private static final String[] STARS = {"star0", "star1", "star2", "star3"};
+    private static final int[] DENSITY = {90, 75, 30, 2};
+
+    @Test
+    public void seededIndexMatchesNetwork() throws Exception {
+        Random random = new Random(5);
+        MicroBlog network = AudienceIndexTest.createNetwork();
+        List<Integer> posts = AudienceIndexTest.likeStarPosts(network, random);
+        // la prima richiesta registra l'indice con addIndex, che gli ripete lo stato attuale
+        AudienceIndexTest.assertMatches(network, posts);
+
+        AudienceIndexTest.unlikeStarPosts(network, posts, random);
+        AudienceIndexTest.assertMatches(network, posts);
+    }
+
+    @Test
+    public void incrementalIndexMatchesNetwork() throws Exception {
+        Random random = new Random(6);
+        MicroBlog network = AudienceIndexTest.createNetwork();
+        network.commonFollowers(STARS[0], STARS[1]); // l'indice segue la rete prima dei like
+        List<Integer> posts = AudienceIndexTest.likeStarPosts(network, random);
+        AudienceIndexTest.assertMatches(network, posts);
+
+        AudienceIndexTest.unlikeStarPosts(network, posts, random);
+        AudienceIndexTest.assertMatches(network, posts);
+    }
+
+    // EFFECTS: restituisce una rete in cui ciascuno degli USERS utenti ha scritto un post, così che i like lo portino a seguire
+    //          gli autori dei post a cui li mette
+    private static MicroBlog createNetwork() throws Exception {
+        MicroBlog network = new MicroBlog();
+        for(int i = 0; i < USERS; i++) {
+            network.createPost(AudienceIndexTest.user(i), "ciao");
+        }
+        return network;
+    }
+
+    // MODIFIES: network
+    // EFFECTS: crea due post per ogni autore di STARS e vi fa mettere like da ciascun utente con la probabilità DENSITY
+    //          dell'autore; restituisce gli id dei post creati
+    private static List<Integer> likeStarPosts(MicroBlog network, Random random) throws Exception {
+        List<Integer> posts = new ArrayList<Integer>();
+        for(int star = 0; star < STARS.length; star++) {
+            for(int copy = 0; copy < 2; copy++) {
+                int id = network.createPost(STARS[star], "post " + copy);
+                posts.add(id);
+                for(int i = 0; i < USERS; i++) {
+                    if(random.nextInt(100) < DENSITY[star]) {
+                        network.likePost(id, AudienceIndexTest.user(i));
+                    }
+                }
+            }
+        }
+        return posts;
+    }
+
+    // MODIFIES: network
+    // EFFECTS: rimuove circa un terzo dei like ai post posts, portando alcuni pubblici sotto la soglia delle bitmap
+    private static void unlikeStarPosts(MicroBlog network, List<Integer> posts, Random random) throws Exception {
+        for(int id : posts) {
+            for(String user : new ArrayList<String>(network.getPost(id).getLikes())) {
+                if(random.nextInt(3) == 0) {
+                    network.unlikePost(id, user);
+                }
+            }
+        }
+    }
+
+    // EFFECTS: verifica likedBoth per ogni coppia di post di posts e commonFollowers per ogni coppia di autori di STARS
+    private static void assertMatches(MicroBlog network, List<Integer> posts) {
+        Map<Integer, Set<String>> likes = new HashMap<Integer, Set<String>>();
+        for(int id : posts) {
+            likes.put(id, new HashSet<String>(network.getPost(id).getLikes()));
+        }
+        for(int first : posts) {
+            for(int second : posts) {
+                TreeSet<String> expected = new TreeSet<String>(likes.get(first));
+                expected.retainAll(likes.get(second));
+                AudienceIndexTest.assertSameUsers(expected, network.likedBoth(first, second));
+            }
+        }
+        AudienceIndexTest.assertSameUsers(new TreeSet<String>(), network.likedBoth(posts.get(0), 1_000_000));
+
+        Map<String, Set<String>> follows = network.getFollowRelations();
+        for(String first : STARS) {
+            for(String second : STARS) {
+                TreeSet<String> expected = new TreeSet<String>();
+                for(Map.Entry<String, Set<String>> entry : follows.entrySet()) {
+                    if(entry.getValue().contains(first) && entry.getValue().contains(second)) {
+                        expected.add(entry.getKey());
+                    }
+                }
+                AudienceIndexTest.assertSameUsers(expected, network.commonFollowers(first, second));
+            }
+        }
+        AudienceIndexTest.assertSameUsers(new TreeSet<String>(), network.commonFollowers(STARS[0], "sconosciuto"));
+    }
+
+    // EFFECTS: verifica che actual contenga, senza ripetizioni, esattamente gli utenti di expected
+    private static void assertSameUsers(TreeSet<String> expected, List<String> actual) {
+        List<String> sorted = new ArrayList<String>(actual);
+        Collections.sort(sorted);
+        assertEquals(new ArrayList<String>(expected), sorted);
+    }
+
+    // EFFECTS: restituisce il nome dell'i-esimo utente
+    private static String user(int i) {
+        return "user" + i;
+    }
+}
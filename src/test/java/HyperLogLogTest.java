@@ -0,0 +1,148 @@
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import org.junit.Test;
+
+// verifica che l'errore delle stime di HyperLogLog resti entro i limiti attesi (errore relativo tipico di 1.04 / √(2^precision))
+// per cardinalità da poche unità a milioni, in forma sparsa e densa, e che unione, copia e serializzazione non lo alterino
+public class HyperLogLogTest {
+    // numero di errori tipici tollerati da una singola stima e dalla media degli errori assoluti di più stime
+    private static final double MAX_DEVIATIONS = 4;
+    private static final double MEAN_DEVIATIONS = 1.5;
+
+    @Test
+    public void errorWithinBounds() {
+        int[] precisions = {HyperLogLog.MIN_PRECISION, 10, HyperLogLog.DEFAULT_PRECISION, 14, HyperLogLog.MAX_PRECISION};
+        int[] cardinalities = {10, 100, 1000, 10_000, 100_000, 1_000_000};
+        for(int precision : precisions) {
+            for(int cardinality : cardinalities) {
+                HyperLogLog sketch = HyperLogLogTest.sketch(precision, "e" + precision + "-", 0, cardinality);
+                HyperLogLogTest.assertWithin(precision, cardinality, sketch.estimate(), MAX_DEVIATIONS);
+            }
+        }
+    }
+
+    @Test
+    public void meanErrorWithinBounds() {
+        // insiemi disgiunti della stessa cardinalità: la media degli errori assoluti deve essere vicina all'errore tipico
+        int precision = HyperLogLog.DEFAULT_PRECISION;
+        int trials = 40;
+        int cardinality = 20_000;
+        double sum = 0;
+        for(int trial = 0; trial < trials; trial++) {
+            HyperLogLog sketch = HyperLogLogTest.sketch(precision, "t", trial * cardinality, cardinality);
+            sum += Math.abs(sketch.estimate() - cardinality) / (double) cardinality;
+        }
+        double mean = sum / trials;
+        assertTrue("errore medio " + mean, mean <= MEAN_DEVIATIONS * HyperLogLogTest.standardError(precision));
+    }
+
+    @Test
+    public void smallSetsAreAlmostExact() {
+        // finché molti registri sono nulli la stima usa il linear counting, il cui errore tipico per n elementi in m registri
+        // è √(m (e^t - t - 1)) con t = n / m: poco più di un elemento per n = 200 e m = 4096
+        int m = 1 << HyperLogLog.DEFAULT_PRECISION;
+        for(int cardinality = 0; cardinality <= 200; cardinality++) {
+            long estimate = HyperLogLogTest.sketch(HyperLogLog.DEFAULT_PRECISION, "s", 0, cardinality).estimate();
+            double t = (double) cardinality / m;
+            double tolerance = 1 + MAX_DEVIATIONS * Math.sqrt(m * (Math.exp(t) - t - 1));
+            assertTrue(cardinality + " stimato come " + estimate, Math.abs(estimate - cardinality) <= tolerance);
+        }
+    }
+
+    @Test
+    public void duplicatesDoNotChangeEstimate() {
+        HyperLogLog sketch = HyperLogLogTest.sketch(HyperLogLog.DEFAULT_PRECISION, "d", 0, 5000);
+        long estimate = sketch.estimate();
+        for(int i = 0; i < 5000; i += 3) {
+            sketch.add("d" + i);
+        }
+        assertEquals(estimate, sketch.estimate());
+    }
+
+    @Test
+    public void mergeEqualsSketchOfUnion() throws Exception {
+        int precision = HyperLogLog.DEFAULT_PRECISION;
+        // sparsa + sparsa, sparsa + densa, densa + sparsa, densa + densa
+        int[][] sizes = {{50, 80}, {50, 50_000}, {50_000, 50}, {30_000, 40_000}};
+        for(int[] size : sizes) {
+            // gli insiemi si sovrappongono per metà del più piccolo
+            int overlap = Math.min(size[0], size[1]) / 2;
+            HyperLogLog first = HyperLogLogTest.sketch(precision, "m", 0, size[0]);
+            HyperLogLog second = HyperLogLogTest.sketch(precision, "m", size[0] - overlap, size[1]);
+            HyperLogLog union = HyperLogLogTest.sketch(precision, "m", 0, size[0] + size[1] - overlap);
+
+            HyperLogLog merged = first.copy();
+            merged.merge(second);
+            assertEquals(union.estimate(), merged.estimate());
+            HyperLogLogTest.assertWithin(precision, size[0] + size[1] - overlap, merged.estimate(), MAX_DEVIATIONS);
+            assertEquals(HyperLogLogTest.sketch(precision, "m", 0, size[0]).estimate(), first.estimate()); // la copia è indipendente
+
+            assertEquals(merged.estimate(), HyperLogLogTest.roundTrip(merged).estimate());
+            assertEquals(first.estimate(), HyperLogLogTest.roundTrip(first).estimate());
+        }
+
+        try {
+            new HyperLogLog(10).merge(new HyperLogLog(12));
+            fail("gli sketch con precisioni diverse non possono essere uniti");
+        } catch(IllegalArgumentException exc) {
+            // atteso
+        }
+    }
+
+    @Test
+    public void reachEstimateWithinBounds() throws Exception {
+        MicroBlog network = new MicroBlog();
+        int first = network.createPost("alice", "primo");
+        int second = network.createPost("bob", "secondo");
+        // 3000 utenti per autore, di cui 1000 comuni ai due
+        for(int i = 0; i < 3000; i++) {
+            network.likePost(first, "user" + i);
+            network.likePost(second, "user" + (i + 2000));
+        }
+        network.unlikePost(first, "user0"); // gli utenti che rimuovono il like restano contati
+
+        int precision = HyperLogLog.DEFAULT_PRECISION;
+        HyperLogLogTest.assertWithin(precision, 3000, network.estimatedReach("alice"), MAX_DEVIATIONS);
+        HyperLogLogTest.assertWithin(precision, 3000, network.estimatedLikers(second), MAX_DEVIATIONS);
+        Set<String> authors = new HashSet<String>(Arrays.asList("alice", "bob"));
+        HyperLogLogTest.assertWithin(precision, 5000, network.estimatedReach(authors), MAX_DEVIATIONS);
+        assertEquals(0, network.estimatedReach("carl"));
+    }
+
+    // EFFECTS: restituisce uno sketch con precisione precision degli elementi prefix + i, per from ≤ i < from + count
+    private static HyperLogLog sketch(int precision, String prefix, int from, int count) {
+        HyperLogLog sketch = new HyperLogLog(precision);
+        for(int i = from; i < from + count; i++) {
+            sketch.add(prefix + i);
+        }
+        return sketch;
+    }
+
+    // EFFECTS: restituisce lo sketch ottenuto scrivendo e rileggendo sketch
+    private static HyperLogLog roundTrip(HyperLogLog sketch) throws Exception {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        sketch.write(new DataOutputStream(bytes));
+        return HyperLogLog.read(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+    }
+
+    // EFFECTS: verifica che estimate disti da cardinality al più deviations errori tipici della precisione precision (e
+    //          comunque al più di 2 per le cardinalità più piccole)
+    private static void assertWithin(int precision, int cardinality, long estimate, double deviations) {
+        double tolerance = Math.max(2, deviations * HyperLogLogTest.standardError(precision) * cardinality);
+        assertTrue("precisione " + precision + ": " + cardinality + " stimato come " + estimate, Math.abs(estimate - cardinality) <= tolerance);
+    }
+
+    // EFFECTS: restituisce l'errore relativo tipico delle stime con precisione precision
+    private static double standardError(int precision) {
+        return 1.04 / Math.sqrt(1 << precision);
+    }
+}
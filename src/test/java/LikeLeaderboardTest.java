@@ -0,0 +1,137 @@
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import org.junit.Test;
+
+// confronta la classifica incrementale dei like (MicroBlog.mostLiked) con l'ordinamento di tutti i post della rete, dopo like,
+// rimozioni di like, censure dovute alle segnalazioni e modifiche dei post censurati, sia per una classifica creata sulla
+// rete vuota sia per una creata da addIndex sullo stato già presente
+public class LikeLeaderboardTest {
+    // utenti della rete, sempre le stesse istanze perché MicroBlogWithReports confronta gli utenti per riferimento
+    private static final String[] USERS = {"alice", "bob", "carl", "dana", "emma", "fred", "gina", "hugo"};
+
+    @Test
+    public void incrementalMatchesSortedPosts() throws Exception {
+        MicroBlogWithReports network = new MicroBlogWithReports((byte) 2);
+        network.mostLiked(1); // la classifica segue la rete fin dal primo post
+        Random random = new Random(42);
+        for(int step = 0; step < 3000; step++) {
+            LikeLeaderboardTest.randomOperation(network, random, step);
+            if(step % 25 == 0) {
+                LikeLeaderboardTest.assertMatches(network);
+            }
+        }
+        LikeLeaderboardTest.assertMatches(network);
+    }
+
+    @Test
+    public void seededMatchesSortedPosts() throws Exception {
+        MicroBlogWithReports network = new MicroBlogWithReports((byte) 2);
+        Random random = new Random(7);
+        for(int step = 0; step < 2000; step++) {
+            LikeLeaderboardTest.randomOperation(network, random, step);
+        }
+        // la prima richiesta registra la classifica con addIndex, che le ripete lo stato attuale (post censurati compresi)
+        LikeLeaderboardTest.assertMatches(network);
+
+        for(int step = 2000; step < 3000; step++) {
+            LikeLeaderboardTest.randomOperation(network, random, step);
+        }
+        LikeLeaderboardTest.assertMatches(network);
+    }
+
+    @Test
+    public void editedCensoredPostReturns() throws Exception {
+        MicroBlogWithReports network = new MicroBlogWithReports((byte) 2);
+        int first = network.createPost(USERS[0], "primo");
+        int second = network.createPost(USERS[1], "secondo");
+        network.likePost(first, USERS[1]);
+        network.likePost(first, USERS[2]);
+        network.likePost(second, USERS[0]);
+        LikeLeaderboardTest.assertMatches(network);
+
+        network.reportContent(USERS[2], first);
+        network.reportContent(USERS[3], first);
+        assertEquals(MicroBlog.CENSORED_TEXT, network.getPost(first).getText());
+        network.likePost(first, USERS[3]); // il numero di like di un post censurato continua a essere aggiornato
+        LikeLeaderboardTest.assertMatches(network);
+        assertEquals(1, network.mostLiked(10).size());
+
+        network.editPost(first, "primo, corretto");
+        LikeLeaderboardTest.assertMatches(network);
+        assertEquals(new AbstractMap.SimpleImmutableEntry<Integer, Integer>(first, 3), network.mostLiked(1).get(0));
+    }
+
+    // MODIFIES: network
+    // EFFECTS: esegue su network un'operazione casuale tra creazione di un post, like, rimozione di un like, segnalazione e
+    //          modifica di un post (censurato o no)
+    private static void randomOperation(MicroBlogWithReports network, Random random, int step) throws Exception {
+        List<Post> posts = network.getAllPosts();
+        int operation = posts.isEmpty() ? 0 : random.nextInt(10);
+        String user = USERS[random.nextInt(USERS.length)];
+        if(operation == 0) {
+            network.createPost(user, "post " + step);
+            return;
+        }
+
+        Post post = posts.get(random.nextInt(posts.size()));
+        if(post.getAuthor().equals(user)) {
+            return; // nessun utente può mettere like o segnalare i propri post
+        }
+        if(operation <= 4) {
+            network.likePost(post.getId(), user);
+        } else if(operation <= 6) {
+            network.unlikePost(post.getId(), user);
+        } else if(operation == 7) {
+            try {
+                network.reportContent(user, post.getId());
+            } catch(IllegalStateException exc) {
+                // user aveva già segnalato il post
+            }
+        } else if(operation == 8) {
+            network.editPost(post.getId(), "modificato " + step);
+        } else if(post.getText().equals(MicroBlog.CENSORED_TEXT)) {
+            network.editPost(post.getId(), "ripristinato " + step);
+        }
+    }
+
+    // EFFECTS: verifica che la classifica di network, globale e per autore, coincida con l'ordinamento dei post di network
+    private static void assertMatches(MicroBlog network) {
+        List<Post> posts = network.getAllPosts();
+        assertEquals(LikeLeaderboardTest.sorted(posts, null), network.mostLiked(posts.size()));
+        assertEquals(LikeLeaderboardTest.prefix(LikeLeaderboardTest.sorted(posts, null), 5), network.mostLiked(5));
+        for(String author : USERS) {
+            assertEquals(LikeLeaderboardTest.sorted(posts, author), network.mostLiked(author, posts.size()));
+            assertEquals(LikeLeaderboardTest.prefix(LikeLeaderboardTest.sorted(posts, author), 3), network.mostLiked(author, 3));
+        }
+        assertTrue(network.mostLiked(0).isEmpty());
+    }
+
+    // EFFECTS: restituisce le coppie (id, numero di like) dei post non censurati di posts (di author, se non è null), in
+    //          ordine di like decrescente e, a parità di like, di id crescente
+    private static List<Map.Entry<Integer, Integer>> sorted(List<Post> posts, String author) {
+        List<Post> ranked = new ArrayList<Post>();
+        for(Post post : posts) {
+            if(!post.getText().equals(MicroBlog.CENSORED_TEXT) && (author == null || post.getAuthor().equals(author))) {
+                ranked.add(post);
+            }
+        }
+        ranked.sort((a, b) -> a.getLikes().size() != b.getLikes().size() ? b.getLikes().size() - a.getLikes().size()
+                                                                           : Integer.compare(a.getId(), b.getId()));
+        List<Map.Entry<Integer, Integer>> entries = new ArrayList<Map.Entry<Integer, Integer>>();
+        for(Post post : ranked) {
+            entries.add(new AbstractMap.SimpleImmutableEntry<Integer, Integer>(post.getId(), post.getLikes().size()));
+        }
+        return entries;
+    }
+
+    // EFFECTS: restituisce i primi (al più) k elementi di list
+    private static <T> List<T> prefix(List<T> list, int k) {
+        return list.subList(0, Math.min(k, list.size()));
+    }
+}
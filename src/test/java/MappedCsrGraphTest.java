@@ -0,0 +1,124 @@
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeSet;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+// verifica che un grafo scritto su disco e riletto con MappedCsrGraph.open conservi ogni utente (nomi non ASCII compresi) e
+// ogni relazione di follow, e che gli influencer calcolati sul grafo coincidano con quelli della rete
+public class MappedCsrGraphTest {
+    // utenti della rete, con nomi che in UTF-8 occupano da 1 a 4 byte per carattere
+    private static final String[] USERS = {"alice", "bob", "zoë", "renée", "Ångström", "李雷", "韩梅梅", "😀fan", "ßigma", "carl"};
+
+    private Path file;
+
+    @Before
+    public void setUp() throws Exception {
+        this.file = Files.createTempFile("follows", ".csr");
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        Files.deleteIfExists(this.file);
+    }
+
+    @Test
+    public void exportedNetworkRoundTrip() throws Exception {
+        MicroBlog network = new MicroBlog();
+        Random random = new Random(3);
+        for(int i = 0; i < 200; i++) {
+            network.createPost(USERS[random.nextInt(USERS.length)], "post " + i);
+        }
+        // ogni like fa seguire all'utente l'autore del post
+        for(int i = 0; i < 400; i++) {
+            Post post = network.getPost(random.nextInt(200));
+            String user = USERS[random.nextInt(USERS.length)];
+            if(!post.getAuthor().equals(user)) {
+                network.likePost(post.getId(), user);
+            }
+        }
+
+        network.exportFollowGraph(this.file);
+        MappedCsrGraph graph = MappedCsrGraph.open(this.file);
+
+        MappedCsrGraphTest.assertSameGraph(network.getFollowRelations(), graph);
+        List<String> influencers = new ArrayList<String>(network.influencers());
+        Collections.sort(influencers); // MicroBlog.influencers(MappedCsrGraph) li restituisce in ordine di nome
+        assertEquals(influencers, MicroBlog.influencers(graph));
+        assertTrue(!influencers.isEmpty());
+    }
+
+    @Test
+    public void followedUsersWithoutKeyRoundTrip() throws Exception {
+        Map<String, Set<String>> follows = new HashMap<String, Set<String>>();
+        follows.put("李雷", new HashSet<String>(Arrays.asList("韩梅梅", "😀fan", "zoë")));
+        follows.put("zoë", new HashSet<String>(Arrays.asList("李雷", "😀fan")));
+        follows.put("alice", new HashSet<String>());
+
+        MappedCsrGraph.write(this.file, follows);
+        MappedCsrGraph graph = MappedCsrGraph.open(this.file);
+
+        // gli utenti seguiti che non sono chiavi di follows sono utenti del grafo che non seguono nessuno
+        Map<String, Set<String>> expected = new HashMap<String, Set<String>>(follows);
+        expected.put("韩梅梅", new HashSet<String>());
+        expected.put("😀fan", new HashSet<String>());
+        MappedCsrGraphTest.assertSameGraph(expected, graph);
+        // in ordine di nome secondo String.compareTo, che confronta le unità UTF-16 (韩 < il surrogato di 😀)
+        assertEquals(Arrays.asList("韩梅梅", "😀fan"), MicroBlog.influencers(graph));
+    }
+
+    @Test
+    public void emptyGraphRoundTrip() throws Exception {
+        MappedCsrGraph.write(this.file, new HashMap<String, Set<String>>());
+        MappedCsrGraph graph = MappedCsrGraph.open(this.file);
+        assertEquals(0, graph.getNumberOfVertices());
+        assertEquals(0, graph.getNumberOfEdges());
+        assertEquals(-1, graph.getId("alice"));
+        assertTrue(MicroBlog.influencers(graph).isEmpty());
+    }
+
+    // EFFECTS: verifica che graph contenga esattamente gli utenti di follows (chiavi e utenti seguiti), in ordine di nome, e
+    //          per ciascuno gli archi verso gli utenti che segue, in ordine crescente
+    private static void assertSameGraph(Map<String, Set<String>> follows, MappedCsrGraph graph) {
+        TreeSet<String> users = new TreeSet<String>(follows.keySet());
+        for(Set<String> followed : follows.values()) {
+            users.addAll(followed);
+        }
+        assertEquals(users.size(), graph.getNumberOfVertices());
+
+        long edges = 0;
+        int v = 0;
+        for(String user : users) {
+            assertEquals(user, graph.getName(v));
+            assertEquals(v, graph.getId(user));
+
+            Set<String> followed = new HashSet<String>();
+            int previous = -1;
+            for(long i = graph.getOffset(v); i < graph.getOffset(v + 1); i++) {
+                int target = graph.getTarget(i);
+                assertTrue(target > previous);
+                previous = target;
+                followed.add(graph.getName(target));
+            }
+            assertEquals(follows.getOrDefault(user, Collections.<String>emptySet()), followed);
+            assertEquals(followed.size(), graph.getDegree(v));
+            edges += followed.size();
+            v++;
+        }
+        assertEquals(edges, graph.getNumberOfEdges());
+        assertEquals(-1, graph.getId("sconosciuto"));
+    }
+}
@@ -0,0 +1,67 @@
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+import java.util.Collections;
+import org.junit.Test;
+
+// verifica il riconoscimento dei quasi duplicati in createPost, in particolare per i testi senza parole (solo emoji o
+// punteggiatura), che non devono risultare duplicati l'uno dell'altro
+public class NearDuplicateDetectorTest {
+    @Test
+    public void textWithoutWordsHasNoSignature() {
+        NearDuplicateDetector detector = new NearDuplicateDetector(0.8, 1000);
+        assertNull(detector.signature("😀😀"));
+        assertNull(detector.signature("!!!"));
+        assertNull(detector.signature("  👍 ... "));
+        assertNotNull(detector.signature("a"));
+    }
+
+    @Test
+    public void textsWithoutWordsAreNotRejected() throws Exception {
+        MicroBlog network = new MicroBlog();
+        network.enableDuplicateDetection(0.8, 1000, true);
+        network.createPost("alice", "😀😀");
+        network.createPost("bob", "!!!");
+        network.createPost("carl", "👍");
+        assertEquals(3, network.getAllPosts().size());
+    }
+
+    @Test
+    public void textsWithoutWordsAreNotFlagged() throws Exception {
+        MicroBlog network = new MicroBlog();
+        network.enableDuplicateDetection(0.8, 1000, false);
+        network.createPost("alice", "😀😀");
+        int second = network.createPost("bob", "!!!");
+        int third = network.createPost("carl", "👍");
+        assertEquals(-1, network.getNearDuplicateOf(second));
+        assertEquals(-1, network.getNearDuplicateOf(third));
+        assertEquals(Collections.<Integer>emptyList(), network.getNearDuplicates());
+    }
+
+    @Test
+    public void nearDuplicatesAreStillRejected() throws Exception {
+        MicroBlog network = new MicroBlog();
+        network.enableDuplicateDetection(0.8, 1000, true);
+        network.createPost("alice", "😀");
+        int original = network.createPost("alice", "compra ora la nostra offerta speciale, solo per oggi!");
+        try {
+            network.createPost("bob", "compra ora la nostra offerta speciale, solo per oggi!!");
+            fail("il quasi duplicato dovrebbe essere rifiutato");
+        } catch(IllegalArgumentException exc) {
+            assertEquals("quasi duplicato del post " + original, exc.getMessage());
+        }
+    }
+
+    @Test
+    public void flagsAreForgottenWithTheWindow() throws Exception {
+        MicroBlog network = new MicroBlog();
+        network.enableDuplicateDetection(0.8, 10, false);
+        for(int i = 0; i < 100; i++) {
+            network.createPost("user" + i, "compra ora la nostra offerta speciale scontata");
+        }
+        assertEquals(10, network.getNearDuplicates().size());
+        assertEquals(90, (int) network.getNearDuplicates().get(0));
+    }
+}
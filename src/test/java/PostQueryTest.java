@@ -0,0 +1,240 @@
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.stream.Stream;
+import org.junit.Test;
+
+// confronta MicroBlog.query, che legge i candidati dal percorso di accesso scelto da explain (AUTHOR, WORD, TIME o SCAN), con
+// una scansione completa dei post della rete filtrata con PostQuery.matches e ordinata, su interrogazioni casuali; la rete ha
+// post censurati, modificati e con like, e nelle varianti timestamp non ordinati negli id o post nel livello freddo
+public class PostQueryTest {
+    // utenti della rete, sempre le stesse istanze perché MicroBlogWithReports confronta gli utenti per riferimento
+    private static final String[] USERS = {"alice", "bob", "carl", "dana", "emma", "fred", "gina", "hugo", "ines", "jack"};
+
+    // parole dei post, dalla più alla meno frequente
+    private static final String[] WORDS = {"il", "sole", "mare", "vento", "notte", "luna", "Stella", "neve", "raro"};
+
+    private static final int POSTS = 600;
+
+    // timestamp del primo post e distanza tra post consecutivi
+    private static final long START = 1_000_000_000_000L;
+    private static final long STEP = 1000;
+
+    @Test
+    public void everyAccessPathMatchesFullScan() throws Exception {
+        MicroBlogWithReports network = PostQueryTest.createNetwork(new Random(1), false);
+        Map<QueryPlan.AccessPath, Integer> paths = PostQueryTest.assertQueries(network, new Random(2), 3000);
+        for(QueryPlan.AccessPath path : QueryPlan.AccessPath.values()) {
+            assertTrue("percorso " + path + " mai usato: " + paths, paths.getOrDefault(path, 0) > 50);
+        }
+    }
+
+    @Test
+    public void unorderedTimestampsMatchFullScan() throws Exception {
+        MicroBlogWithReports network = PostQueryTest.createNetwork(new Random(3), true);
+        Map<QueryPlan.AccessPath, Integer> paths = PostQueryTest.assertQueries(network, new Random(4), 2000);
+        assertEquals(0, (int) paths.getOrDefault(QueryPlan.AccessPath.TIME, 0)); // la ricerca binaria sui timestamp non è corretta
+    }
+
+    @Test
+    public void coldPostsMatchFullScan() throws Exception {
+        Path directory = Files.createTempDirectory("query");
+        SegmentStore store = new SegmentStore(directory);
+        try {
+            MicroBlogWithReports network = new MicroBlogWithReports((byte) 2);
+            network.enableTiering(store);
+            PostQueryTest.populate(network, new Random(5), false);
+            // i post hanno timestamp lontani nel passato: vengono spostati tutti, poi alcuni tornano in memoria con un like
+            assertEquals(POSTS, network.evictColdPosts(0, 0));
+            Random random = new Random(6);
+            for(int i = 0; i < 100; i++) {
+                PostQueryTest.like(network, random);
+            }
+
+            Map<QueryPlan.AccessPath, Integer> paths = PostQueryTest.assertQueries(network, new Random(7), 1000);
+            assertTrue(paths.getOrDefault(QueryPlan.AccessPath.SCAN, 0) > 0);
+        } finally {
+            store.close();
+            try(Stream<Path> files = Files.walk(directory)) {
+                files.sorted(Comparator.reverseOrder()).forEach(PostQueryTest::delete);
+            }
+        }
+    }
+
+    // EFFECTS: restituisce una rete popolata da populate
+    private static MicroBlogWithReports createNetwork(Random random, boolean unordered) throws Exception {
+        MicroBlogWithReports network = new MicroBlogWithReports((byte) 2);
+        PostQueryTest.populate(network, random, unordered);
+        return network;
+    }
+
+    // MODIFIES: network
+    // EFFECTS: crea in network POSTS post con autori e parole distribuiti in modo non uniforme e timestamp crescenti negli id
+    //          (se unordered, alcuni tornano indietro), poi aggiunge like, segnalazioni che censurano alcuni post e modifiche
+    private static void populate(MicroBlogWithReports network, Random random, boolean unordered) throws Exception {
+        for(int id = 0; id < POSTS; id++) {
+            // il primo autore scrive circa un terzo dei post
+            String author = random.nextInt(3) == 0 ? USERS[0] : USERS[random.nextInt(USERS.length)];
+            long time = START + id * STEP;
+            if(unordered && random.nextInt(10) == 0) {
+                time -= random.nextInt(50) * STEP;
+            }
+            network.createPost(id, author, PostQueryTest.randomText(random), new Timestamp(time));
+        }
+        for(int i = 0; i < 2000; i++) {
+            PostQueryTest.like(network, random);
+        }
+        for(int i = 0; i < 150; i++) {
+            Post post = network.getPost(random.nextInt(POSTS));
+            String user = USERS[random.nextInt(USERS.length)];
+            if(!post.getAuthor().equals(user)) {
+                try {
+                    network.reportContent(user, post.getId());
+                } catch(IllegalStateException exc) {
+                    // user aveva già segnalato il post
+                }
+            }
+        }
+        for(int i = 0; i < 100; i++) {
+            network.editPost(random.nextInt(POSTS), PostQueryTest.randomText(random));
+        }
+    }
+
+    // MODIFIES: network
+    // EFFECTS: fa mettere a un utente casuale un like a un post casuale di un altro autore
+    private static void like(MicroBlog network, Random random) {
+        Post post = network.getPost(random.nextInt(POSTS));
+        String user = USERS[random.nextInt(USERS.length)];
+        if(!post.getAuthor().equals(user)) {
+            network.likePost(post.getId(), user);
+        }
+    }
+
+    // EFFECTS: restituisce un testo di 2-6 parole di WORDS, con le prime più frequenti
+    private static String randomText(Random random) {
+        StringBuilder text = new StringBuilder();
+        int words = 2 + random.nextInt(5);
+        for(int i = 0; i < words; i++) {
+            // il minimo di due estrazioni favorisce le prime parole
+            int word = Math.min(random.nextInt(WORDS.length), random.nextInt(WORDS.length));
+            text.append(i == 0 ? "" : i % 3 == 0 ? ", " : " ").append(WORDS[word]);
+        }
+        return text.append(random.nextBoolean() ? "!" : "").toString();
+    }
+
+    // EFFECTS: verifica count interrogazioni casuali su network e restituisce quante volte è stato usato ciascun percorso
+    private static Map<QueryPlan.AccessPath, Integer> assertQueries(MicroBlog network, Random random, int count) {
+        Map<QueryPlan.AccessPath, Integer> paths = new EnumMap<QueryPlan.AccessPath, Integer>(QueryPlan.AccessPath.class);
+        List<Post> all = network.getAllPosts();
+        for(int i = 0; i < count; i++) {
+            PostQuery query = PostQueryTest.randomQuery(random);
+            paths.merge(network.explain(query).getAccessPath(), 1, Integer::sum);
+            assertEquals(query.getAuthor() + " " + query.getWords() + " " + query.getSince() + "-" + query.getUntil() + " " + query.getOrder(),
+                         PostQueryTest.describe(PostQueryTest.fullScan(all, query)), PostQueryTest.describe(network.query(query)));
+        }
+        return paths;
+    }
+
+    // EFFECTS: restituisce un'interrogazione con predicati, ordinamento e paginazione casuali
+    private static PostQuery randomQuery(Random random) {
+        PostQuery query = new PostQuery();
+        if(random.nextInt(3) == 0) {
+            query.writtenBy(random.nextInt(20) == 0 ? "nessuno" : USERS[random.nextInt(USERS.length)]);
+        }
+        if(random.nextInt(3) == 0) {
+            List<String> words = new ArrayList<String>();
+            for(int i = random.nextInt(2); i >= 0; i--) {
+                String word = random.nextInt(20) == 0 ? "assente" : WORDS[random.nextInt(WORDS.length)];
+                words.add(random.nextBoolean() ? word.toUpperCase() : word);
+            }
+            query.containing(words);
+        }
+        if(random.nextInt(3) == 0) {
+            query.since(new Timestamp(START + (random.nextInt(POSTS + 20) - 10) * STEP + random.nextInt(3) - 1));
+        }
+        if(random.nextInt(3) == 0) {
+            query.until(new Timestamp(START + (random.nextInt(POSTS + 20) - 10) * STEP + random.nextInt(3) - 1));
+        }
+        if(random.nextInt(5) == 0) {
+            query.minLikes(random.nextInt(4));
+        }
+        if(random.nextInt(5) == 0) {
+            query.maxLikes(random.nextInt(6));
+        }
+        if(random.nextInt(5) == 0) {
+            query.censored(random.nextBoolean());
+        }
+        PostQuery.Order order = PostQuery.Order.values()[random.nextInt(PostQuery.Order.values().length)];
+        query.orderBy(order);
+        if(order == PostQuery.Order.RELEVANCE && random.nextBoolean()) {
+            query.orderByRelevance(Arrays.asList(WORDS[random.nextInt(WORDS.length)], WORDS[random.nextInt(WORDS.length)]));
+        }
+        if(random.nextInt(3) == 0) {
+            query.offset(random.nextInt(20));
+        }
+        if(random.nextInt(2) == 0) {
+            query.limit(random.nextInt(30));
+        }
+        return query;
+    }
+
+    // EFFECTS: restituisce il risultato di query calcolato scorrendo tutti i post posts
+    private static List<Post> fullScan(List<Post> posts, PostQuery query) {
+        List<Post> selected = new ArrayList<Post>();
+        for(Post post : posts) {
+            if(query.matches(post)) {
+                selected.add(post);
+            }
+        }
+
+        Comparator<Post> byId = Comparator.comparingInt(Post::getId);
+        switch(query.getOrder()) {
+            case NEWEST:
+                selected.sort(byId.reversed());
+                break;
+            case RELEVANCE:
+                Comparator<Post> byRelevance = Comparator.comparingInt(post -> MicroBlog.getRelevance(post.getText(), query.relevanceWords()));
+                selected.sort(byRelevance.reversed().thenComparing(byId));
+                break;
+            case LIKES:
+                Comparator<Post> byLikes = Comparator.comparingInt(Post::getNumberOfLikes);
+                selected.sort(byLikes.reversed().thenComparing(byId));
+                break;
+            default:
+                selected.sort(byId);
+        }
+
+        int from = Math.min(query.getOffset(), selected.size());
+        int to = (int) Math.min(selected.size(), (long) from + query.getLimit());
+        return selected.subList(from, to);
+    }
+
+    // EFFECTS: restituisce id, autore, testo e numero di like di ciascun post di posts
+    private static List<String> describe(List<Post> posts) {
+        List<String> descriptions = new ArrayList<String>();
+        for(Post post : posts) {
+            descriptions.add(post.getId() + " " + post.getAuthor() + " " + post.getText() + " " + post.getNumberOfLikes());
+        }
+        return descriptions;
+    }
+
+    // EFFECTS: elimina file, ignorando gli errori
+    private static void delete(Path file) {
+        try {
+            Files.delete(file);
+        } catch(IOException exc) {
+            // la cartella temporanea verrà eliminata dal sistema
+        }
+    }
+}
@@ -0,0 +1,179 @@
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import javax.naming.LimitExceededException;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+// verifica che la replica resti allineata al leader quando il leader rifiuta dei post, sia prima dello snapshot sia durante
+// l'invio degli eventi, e quando la replica si riconnette dopo aver perso la connessione o essere rimasta troppo indietro
+public class ReplicationFollowerTest {
+    // attesa massima perché la replica applichi gli eventi del leader
+    private static final long TIMEOUT_MILLIS = 10_000;
+
+    private MicroBlog leaderNetwork;
+    private ReplicationLeader leader;
+    private ReplicationFollower follower;
+
+    @Before
+    public void setUp() throws Exception {
+        this.leaderNetwork = new MicroBlog();
+        this.leader = this.leaderNetwork.startReplication(0);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        if(this.follower != null) {
+            this.follower.close();
+        }
+        this.leader.close();
+    }
+
+    @Test
+    public void rejectedPostBeforeSnapshot() throws Exception {
+        this.leaderNetwork.createPost("alice", "primo");
+        ReplicationFollowerTest.rejectLongPost(this.leaderNetwork);
+        this.leaderNetwork.createPost("bob", "secondo");
+
+        this.follower = new ReplicationFollower(this.leader.getPort());
+        this.leaderNetwork.createPost("alice", "terzo");
+
+        this.awaitFollower();
+        this.assertSameIds();
+    }
+
+    @Test
+    public void rejectedPostAfterSnapshot() throws Exception {
+        this.follower = new ReplicationFollower(this.leader.getPort());
+
+        this.leaderNetwork.createPost("alice", "primo");
+        ReplicationFollowerTest.rejectLongPost(this.leaderNetwork);
+        this.leaderNetwork.createPost("bob", "secondo");
+        this.leaderNetwork.likePost(1, "alice");
+
+        this.awaitFollower();
+        this.assertSameIds();
+        assertEquals(1, (int) this.follower.read(network -> network.getPost(1).getLikes().size()));
+    }
+
+    @Test
+    public void reconnectFromLastAppliedEvent() throws Exception {
+        this.restartLeader(1000, 1000);
+        this.follower = new ReplicationFollower(this.leader.getPort());
+        this.createPosts(50);
+        this.awaitFollower();
+
+        this.leader.disconnectFollowers();
+        long deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+        while(this.follower.getReconnections() == 0) {
+            assertNull(this.follower.getFailure());
+            assertTrue("la replica non si è riconnessa", System.currentTimeMillis() < deadline);
+            Thread.sleep(10);
+        }
+        this.createPosts(50);
+
+        this.awaitFollower();
+        this.assertSameIds();
+        assertEquals(1, this.follower.getSnapshots()); // la replica ha ripreso dall'ultimo evento applicato (TAIL)
+    }
+
+    @Test
+    public void reconnectWithSnapshotWhenBehind() throws Exception {
+        this.restartLeader(10, 100);
+        this.follower = new ReplicationFollower(this.leader.getPort());
+        this.createPosts(5);
+        this.awaitFollower();
+        MicroBlog first = this.follower.getNetwork();
+
+        // una lettura che non termina blocca l'applicazione degli eventi, per cui la replica non conferma più i gruppi e il
+        // leader la disconnette, scartando gli eventi che non ha applicato
+        CountDownLatch reading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Thread reader = new Thread(() -> this.follower.read(network -> {
+            reading.countDown();
+            try {
+                release.await();
+            } catch(InterruptedException exc) {
+                Thread.currentThread().interrupt();
+            }
+            return null;
+        }));
+        reader.start();
+        reading.await();
+        this.createPosts(300);
+        release.countDown();
+        reader.join();
+
+        this.awaitFollower();
+        this.assertSameIds();
+        assertTrue(this.follower.getSnapshots() >= 2); // il leader ha risposto BEHIND e la replica ha chiesto un nuovo snapshot
+        assertTrue(this.follower.getNetwork() != first);
+    }
+
+    // MODIFIES: this
+    // EFFECTS: sostituisce il leader con uno nuovo, su una rete vuota, che conserva retained eventi e disconnette i follower
+    //          con più di maxLag eventi non confermati
+    private void restartLeader(int retained, int maxLag) throws Exception {
+        this.leader.close();
+        this.leaderNetwork = new MicroBlog();
+        this.leader = this.leaderNetwork.startReplication(0, retained, maxLag);
+    }
+
+    // EFFECTS: crea count post sul leader, ciascuno con un like al post precedente se ha un altro autore
+    private void createPosts(int count) throws Exception {
+        for(int i = 0; i < count; i++) {
+            String author = "user" + (i % 7);
+            int id = this.leaderNetwork.createPost(author, "post " + i);
+            if(id > 0 && !this.leaderNetwork.getPost(id - 1).getAuthor().equals(author)) {
+                this.leaderNetwork.likePost(id - 1, author);
+            }
+        }
+    }
+
+    // EFFECTS: verifica che il leader rifiuti un post di 141 caratteri
+    private static void rejectLongPost(MicroBlog network) {
+        StringBuilder text = new StringBuilder();
+        for(int i = 0; i <= 140; i++) {
+            text.append('x');
+        }
+        try {
+            network.createPost("alice", text.toString());
+            fail("il post di 141 caratteri dovrebbe essere rifiutato");
+        } catch(LimitExceededException exc) {
+            // atteso
+        }
+    }
+
+    // EFFECTS: attende che la replica abbia applicato tutti gli eventi del leader, fallendo se la replicazione si interrompe
+    private void awaitFollower() throws InterruptedException {
+        long deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+        while(this.follower.getAppliedSequence() < this.leader.getSequence()) {
+            assertNull(this.follower.getFailure());
+            assertTrue("la replica non ha raggiunto il leader", System.currentTimeMillis() < deadline);
+            Thread.sleep(10);
+        }
+        assertNull(this.follower.getFailure());
+        assertTrue(this.follower.isConnected());
+    }
+
+    // EFFECTS: verifica che la replica contenga gli stessi post del leader, con gli stessi id
+    private void assertSameIds() {
+        assertEquals(ReplicationFollowerTest.ids(this.leaderNetwork.getAllPosts()),
+                     ReplicationFollowerTest.ids(this.follower.read(MicroBlog::getAllPosts)));
+    }
+
+    // EFFECTS: restituisce gli id dei post posts, nello stesso ordine
+    private static List<Integer> ids(List<Post> posts) {
+        List<Integer> ids = new ArrayList<Integer>();
+        for(Post post : posts) {
+            ids.add(post.getId());
+        }
+        return ids;
+    }
+}
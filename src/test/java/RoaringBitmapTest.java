@@ -0,0 +1,171 @@
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+import org.junit.Test;
+
+// confronta RoaringBitmap con un TreeSet dopo sequenze casuali di aggiunte e rimozioni, che portano i contenitori oltre la
+// soglia ARRAY_MAX in entrambe le direzioni (array → bitmap → array), e verifica unione e intersezione tra contenitori di
+// forma diversa
+public class RoaringBitmapTest {
+    // soglia dei contenitori in forma di array (RoaringBitmap.ARRAY_MAX)
+    private static final int ARRAY_MAX = 4096;
+
+    @Test
+    public void randomOperationsMatchTreeSet() {
+        Random random = new Random(11);
+        RoaringBitmap bitmap = new RoaringBitmap();
+        TreeSet<Integer> oracle = new TreeSet<Integer>();
+        for(int round = 0; round < 6; round++) {
+            // in ogni round prevalgono alternativamente le aggiunte e le rimozioni, così che i blocchi densi superino la soglia
+            // e poi vi ritornino
+            boolean growing = round % 2 == 0;
+            for(int i = 0; i < 20000; i++) {
+                int value = RoaringBitmapTest.randomValue(random);
+                if(random.nextInt(10) < (growing ? 8 : 2)) {
+                    assertEquals(oracle.add(value), bitmap.add(value));
+                } else {
+                    assertEquals(oracle.remove(value), bitmap.remove(value));
+                }
+            }
+            RoaringBitmapTest.assertSame(oracle, bitmap);
+            for(int i = 0; i < 1000; i++) {
+                int value = RoaringBitmapTest.randomValue(random);
+                assertEquals(oracle.contains(value), bitmap.contains(value));
+            }
+
+            TreeSet<Integer> otherOracle = new TreeSet<Integer>();
+            RoaringBitmap other = new RoaringBitmap();
+            int count = random.nextInt(12000);
+            for(int i = 0; i < count; i++) {
+                int value = RoaringBitmapTest.randomValue(random);
+                otherOracle.add(value);
+                other.add(value);
+            }
+            RoaringBitmapTest.assertOperations(oracle, bitmap, otherOracle, other);
+        }
+    }
+
+    @Test
+    public void containerConversionsAtThreshold() {
+        RoaringBitmap bitmap = new RoaringBitmap();
+        TreeSet<Integer> oracle = new TreeSet<Integer>();
+        // valori sparsi nel blocco 1, così che la bitmap non sia contigua
+        for(int i = 0; oracle.size() < ARRAY_MAX; i++) {
+            int value = (1 << 16) + i * 13 % (1 << 16);
+            oracle.add(value);
+            bitmap.add(value);
+        }
+        RoaringBitmapTest.assertSame(oracle, bitmap); // ARRAY_MAX elementi: array
+
+        RoaringBitmap array = RoaringBitmap.of(65536 + 13, 65536 + 26, 65536 + 1, 3, 1 << 20);
+        TreeSet<Integer> arrayOracle = new TreeSet<Integer>(Arrays.asList(65536 + 13, 65536 + 26, 65536 + 1, 3, 1 << 20));
+
+        int extra = (1 << 16) + 1;
+        assertTrue(bitmap.add(extra)); // ARRAY_MAX + 1 elementi: bitmap
+        oracle.add(extra);
+        RoaringBitmapTest.assertSame(oracle, bitmap);
+        RoaringBitmapTest.assertOperations(oracle, bitmap, arrayOracle, array);
+        RoaringBitmapTest.assertOperations(arrayOracle, array, oracle, bitmap);
+
+        assertTrue(bitmap.remove(extra)); // di nuovo array
+        oracle.remove(extra);
+        RoaringBitmapTest.assertSame(oracle, bitmap);
+        RoaringBitmapTest.assertOperations(oracle, bitmap, arrayOracle, array);
+
+        // l'unione di due array può superare la soglia e l'intersezione di due bitmap ricadervi
+        RoaringBitmap shifted = new RoaringBitmap();
+        TreeSet<Integer> shiftedOracle = new TreeSet<Integer>();
+        for(int value : oracle) {
+            shifted.add(value + 1);
+            shiftedOracle.add(value + 1);
+        }
+        RoaringBitmapTest.assertOperations(oracle, bitmap, shiftedOracle, shifted);
+        bitmap.add(extra + 2);
+        oracle.add(extra + 2);
+        shifted.add(extra + 3);
+        shiftedOracle.add(extra + 3);
+        RoaringBitmapTest.assertOperations(oracle, bitmap, shiftedOracle, shifted);
+
+        // svuotando un blocco il suo contenitore viene eliminato
+        for(int value : new ArrayList<Integer>(oracle)) {
+            assertTrue(bitmap.remove(value));
+        }
+        assertTrue(bitmap.isEmpty());
+        assertEquals(0, bitmap.getCardinality());
+        assertEquals(0, bitmap.toArray().length);
+    }
+
+    @Test
+    public void negativeValues() {
+        RoaringBitmap bitmap = RoaringBitmap.of(0, Integer.MAX_VALUE);
+        try {
+            bitmap.add(-1);
+            fail("i valori negativi non sono ammessi");
+        } catch(IllegalArgumentException exc) {
+            // atteso
+        }
+        assertFalse(bitmap.contains(-1));
+        assertFalse(bitmap.remove(-1));
+        assertTrue(bitmap.contains(Integer.MAX_VALUE));
+        assertEquals(2, bitmap.getCardinality());
+    }
+
+    // EFFECTS: restituisce un valore casuale, concentrato in pochi blocchi densi (che superano ARRAY_MAX elementi) e sparso
+    //          su tutti gli interi non negativi
+    private static int randomValue(Random random) {
+        switch(random.nextInt(4)) {
+            case 0:
+                return random.nextInt(8000); // blocco 0, denso
+            case 1:
+                return (5 << 16) + random.nextInt(1 << 16); // blocco 5, la cui densità dipende dal round
+            case 2:
+                return Integer.MAX_VALUE - random.nextInt(6000); // ultimo blocco
+            default:
+                return random.nextInt(Integer.MAX_VALUE);
+        }
+    }
+
+    // EFFECTS: verifica che bitmap contenga esattamente gli elementi di oracle
+    private static void assertSame(TreeSet<Integer> oracle, RoaringBitmap bitmap) {
+        assertEquals(oracle.size(), bitmap.getCardinality());
+        assertEquals(oracle.isEmpty(), bitmap.isEmpty());
+        assertEquals(new ArrayList<Integer>(oracle), RoaringBitmapTest.toList(bitmap.toArray()));
+        List<Integer> visited = new ArrayList<Integer>();
+        bitmap.forEach(visited::add);
+        assertEquals(new ArrayList<Integer>(oracle), visited);
+        for(int value : oracle) {
+            assertTrue(bitmap.contains(value));
+        }
+    }
+
+    // EFFECTS: verifica and, andCardinality e or tra a e b, che devono contenere gli elementi di aOracle e bOracle, senza
+    //          modificarli
+    private static void assertOperations(TreeSet<Integer> aOracle, RoaringBitmap a, TreeSet<Integer> bOracle, RoaringBitmap b) {
+        TreeSet<Integer> intersection = new TreeSet<Integer>(aOracle);
+        intersection.retainAll(bOracle);
+        TreeSet<Integer> union = new TreeSet<Integer>(aOracle);
+        union.addAll(bOracle);
+
+        RoaringBitmapTest.assertSame(intersection, a.and(b));
+        assertEquals(intersection.size(), a.andCardinality(b));
+        RoaringBitmapTest.assertSame(union, a.or(b));
+        RoaringBitmapTest.assertSame(aOracle, a);
+        RoaringBitmapTest.assertSame(bOracle, b);
+    }
+
+    // EFFECTS: restituisce gli elementi di values come lista
+    private static List<Integer> toList(int[] values) {
+        List<Integer> list = new ArrayList<Integer>(values.length);
+        for(int value : values) {
+            list.add(value);
+        }
+        return list;
+    }
+}